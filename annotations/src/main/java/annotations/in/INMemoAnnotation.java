@@ -0,0 +1,58 @@
+/*******************************************************************************
+ *
+ *	Copyright (c) 2023 Nick Battle.
+ *
+ *	Author: Nick Battle
+ *
+ *	This file is part of VDMJ.
+ *
+ *	VDMJ is free software: you can redistribute it and/or modify
+ *	it under the terms of the GNU General Public License as published by
+ *	the Free Software Foundation, either version 3 of the License, or
+ *	(at your option) any later version.
+ *
+ *	VDMJ is distributed in the hope that it will be useful,
+ *	but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *	GNU General Public License for more details.
+ *
+ *	You should have received a copy of the GNU General Public License
+ *	along with VDMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *	SPDX-License-Identifier: GPL-3.0-or-later
+ *
+ ******************************************************************************/
+
+package annotations.in;
+
+import com.fujitsu.vdmj.in.annotations.INAnnotation;
+import com.fujitsu.vdmj.in.expressions.INExpressionList;
+import com.fujitsu.vdmj.lex.LexLocation;
+import com.fujitsu.vdmj.runtime.Context;
+import com.fujitsu.vdmj.tc.lex.TCIdentifierToken;
+import com.fujitsu.vdmj.values.FunctionMemo;
+
+/**
+ * A @Memo annotation on a function definition enables the FunctionMemo cache for
+ * calls to that function. Results are cached by argument value, so the function
+ * should not depend on anything else, like IO library calls.
+ */
+public class INMemoAnnotation extends INAnnotation
+{
+	private static final long serialVersionUID = 1L;
+	private final LexLocation function;
+
+	public INMemoAnnotation(TCIdentifierToken name, INExpressionList args, LexLocation function)
+	{
+		super(name, args);
+		this.function = function;
+	}
+	
+	@Override
+	protected void doInit(Context ctxt)
+	{
+		if (function != null)
+		{
+			FunctionMemo.enable(function);
+		}
+	}
+}
@@ -0,0 +1,135 @@
+/*******************************************************************************
+ *
+ *	Copyright (c) 2023 Nick Battle.
+ *
+ *	Author: Nick Battle
+ *
+ *	This file is part of VDMJ.
+ *
+ *	VDMJ is free software: you can redistribute it and/or modify
+ *	it under the terms of the GNU General Public License as published by
+ *	the Free Software Foundation, either version 3 of the License, or
+ *	(at your option) any later version.
+ *
+ *	VDMJ is distributed in the hope that it will be useful,
+ *	but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *	GNU General Public License for more details.
+ *
+ *	You should have received a copy of the GNU General Public License
+ *	along with VDMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *	SPDX-License-Identifier: GPL-3.0-or-later
+ *
+ ******************************************************************************/
+
+package annotations.tc;
+
+import com.fujitsu.vdmj.tc.annotations.TCAnnotation;
+import com.fujitsu.vdmj.tc.definitions.TCClassDefinition;
+import com.fujitsu.vdmj.tc.definitions.TCDefinition;
+import com.fujitsu.vdmj.tc.definitions.TCExplicitFunctionDefinition;
+import com.fujitsu.vdmj.tc.definitions.TCTypeDefinition;
+import com.fujitsu.vdmj.tc.expressions.TCExpression;
+import com.fujitsu.vdmj.tc.expressions.TCExpressionList;
+import com.fujitsu.vdmj.tc.expressions.TCVariableExpression;
+import com.fujitsu.vdmj.tc.lex.TCIdentifierToken;
+import com.fujitsu.vdmj.tc.modules.TCModule;
+import com.fujitsu.vdmj.tc.statements.TCStatement;
+import com.fujitsu.vdmj.tc.types.TCFunctionType;
+import com.fujitsu.vdmj.tc.types.TCIntegerType;
+import com.fujitsu.vdmj.typechecker.Environment;
+import com.fujitsu.vdmj.typechecker.NameScope;
+import com.fujitsu.vdmj.typechecker.TypeComparator;
+
+/**
+ * A type that defines "eq" cannot normally be held in hashed maps and sets, because
+ * there is no hashCode consistent with the user's equality. The @Hash(f) annotation
+ * names a function f: T -> int that returns the same value for any two values
+ * that are equal according to "eq", which allows hashed lookup again.
+ */
+public class TCHashAnnotation extends TCAnnotation
+{
+	private static final long serialVersionUID = 1L;
+	private boolean checked = false;	// Type definitions are checked in two passes
+
+	public TCHashAnnotation(TCIdentifierToken name, TCExpressionList args)
+	{
+		super(name, args);
+	}
+
+	@Override
+	public void tcBefore(TCStatement stmt, Environment env, NameScope scope)
+	{
+		name.report(6002, "@Hash only applies to type definitions");
+	}
+
+	@Override
+	public void tcBefore(TCExpression exp, Environment env, NameScope scope)
+	{
+		name.report(6002, "@Hash only applies to type definitions");
+	}
+
+	@Override
+	public void tcBefore(TCModule module)
+	{
+		name.report(6002, "@Hash only applies to type definitions");
+	}
+
+	@Override
+	public void tcBefore(TCClassDefinition clazz)
+	{
+		name.report(6002, "@Hash only applies to type definitions");
+	}
+
+	@Override
+	public void tcBefore(TCDefinition def, Environment env, NameScope scope)
+	{
+		if (checked)
+		{
+			return;
+		}
+
+		checked = true;
+
+		if (!(def instanceof TCTypeDefinition) || ((TCTypeDefinition)def).eqdef == null)
+		{
+			name.report(6002, "@Hash only applies to type definitions with an eq clause");
+		}
+		else if (args.size() != 1 || !(args.get(0) instanceof TCVariableExpression))
+		{
+			name.report(6008, "@Hash must have one function name argument");
+		}
+		else
+		{
+			TCTypeDefinition tdef = (TCTypeDefinition)def;
+			TCVariableExpression arg = (TCVariableExpression)args.get(0);
+			TCDefinition fdef = env.findName(arg.name, NameScope.NAMES);
+
+			if (fdef != null)
+			{
+				fdef = fdef.deref();
+			}
+
+			if (!(fdef instanceof TCExplicitFunctionDefinition) ||
+				((TCExplicitFunctionDefinition)fdef).typeParams != null)
+			{
+				arg.report(6008, "@Hash argument must be an explicit, non-polymorphic function");
+				return;
+			}
+
+			TCExplicitFunctionDefinition hashdef = (TCExplicitFunctionDefinition)fdef;
+			TCFunctionType ftype = hashdef.type;
+
+			if (ftype.parameters.size() != 1 ||
+				!TypeComparator.compatible(ftype.parameters.get(0), tdef.type) ||
+				!TypeComparator.isSubType(ftype.result, new TCIntegerType(arg.location)))
+			{
+				arg.report(6008, "@Hash function must be " + tdef.name + " -> int");
+			}
+			else
+			{
+				tdef.type.setHash(hashdef);
+			}
+		}
+	}
+}
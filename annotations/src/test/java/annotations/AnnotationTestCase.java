@@ -0,0 +1,106 @@
+/*******************************************************************************
+ *
+ *	Copyright (c) 2026 Nick Battle.
+ *
+ *	Author: Nick Battle
+ *
+ *	This file is part of VDMJ.
+ *
+ *	VDMJ is free software: you can redistribute it and/or modify
+ *	it under the terms of the GNU General Public License as published by
+ *	the Free Software Foundation, either version 3 of the License, or
+ *	(at your option) any later version.
+ *
+ *	VDMJ is distributed in the hope that it will be useful,
+ *	but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *	GNU General Public License for more details.
+ *
+ *	You should have received a copy of the GNU General Public License
+ *	along with VDMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *	SPDX-License-Identifier: GPL-3.0-or-later
+ *
+ ******************************************************************************/
+
+package annotations;
+
+import java.io.File;
+import java.net.URL;
+
+import com.fujitsu.vdmj.Release;
+import com.fujitsu.vdmj.Settings;
+import com.fujitsu.vdmj.ast.modules.ASTModuleList;
+import com.fujitsu.vdmj.in.INNode;
+import com.fujitsu.vdmj.in.modules.INModuleList;
+import com.fujitsu.vdmj.lex.Dialect;
+import com.fujitsu.vdmj.lex.LexTokenReader;
+import com.fujitsu.vdmj.mapper.ClassMapper;
+import com.fujitsu.vdmj.messages.Console;
+import com.fujitsu.vdmj.runtime.Interpreter;
+import com.fujitsu.vdmj.runtime.ModuleInterpreter;
+import com.fujitsu.vdmj.syntax.ModuleReader;
+import com.fujitsu.vdmj.tc.TCNode;
+import com.fujitsu.vdmj.tc.modules.TCModuleList;
+import com.fujitsu.vdmj.typechecker.ModuleTypeChecker;
+import com.fujitsu.vdmj.typechecker.TypeChecker;
+import com.fujitsu.vdmj.values.Value;
+
+import junit.framework.TestCase;
+
+/**
+ * The root of the annotation tests, which run VDM-SL specifications with
+ * annotations enabled.
+ */
+public class AnnotationTestCase extends TestCase
+{
+	@Override
+	protected void setUp() throws Exception
+	{
+		super.setUp();
+		Settings.release = Release.VDM_10;
+		Settings.dialect = Dialect.VDM_SL;
+		Settings.annotations = true;
+	}
+
+	@Override
+	protected void tearDown() throws Exception
+	{
+		Settings.annotations = false;
+		super.tearDown();
+	}
+
+	/**
+	 * Parse, type check and initialize a specification, returning the number of
+	 * type check errors.
+	 */
+	protected int init(String resource) throws Exception
+	{
+		URL rurl = getClass().getResource("/" + resource);
+		LexTokenReader ltr = new LexTokenReader(new File(rurl.getPath()), Dialect.VDM_SL);
+		ModuleReader mr = new ModuleReader(ltr);
+		ASTModuleList parsed = new ASTModuleList();
+		parsed.addAll(mr.readModules());
+		mr.close();
+		mr.printErrors(Console.out);
+		assertEquals("Parse errors", 0, mr.getErrorCount());
+
+		TCModuleList checked = ClassMapper.getInstance(TCNode.MAPPINGS).init().convert(parsed);
+		TypeChecker typeChecker = new ModuleTypeChecker(checked);
+		typeChecker.typeCheck();
+		TypeChecker.printErrors(Console.out);
+
+		if (TypeChecker.getErrorCount() == 0)
+		{
+			INModuleList runnable = ClassMapper.getInstance(INNode.MAPPINGS).init().convert(checked);
+			ModuleInterpreter interpreter = new ModuleInterpreter(runnable, checked);
+			interpreter.init();
+		}
+
+		return TypeChecker.getErrorCount();
+	}
+
+	protected Value run(String expression) throws Exception
+	{
+		return Interpreter.getInstance().execute(expression);
+	}
+}
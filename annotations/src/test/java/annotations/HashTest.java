@@ -0,0 +1,75 @@
+/*******************************************************************************
+ *
+ *	Copyright (c) 2026 Nick Battle.
+ *
+ *	Author: Nick Battle
+ *
+ *	This file is part of VDMJ.
+ *
+ *	VDMJ is free software: you can redistribute it and/or modify
+ *	it under the terms of the GNU General Public License as published by
+ *	the Free Software Foundation, either version 3 of the License, or
+ *	(at your option) any later version.
+ *
+ *	VDMJ is distributed in the hope that it will be useful,
+ *	but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *	GNU General Public License for more details.
+ *
+ *	You should have received a copy of the GNU General Public License
+ *	along with VDMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *	SPDX-License-Identifier: GPL-3.0-or-later
+ *
+ ******************************************************************************/
+
+package annotations;
+
+import com.fujitsu.vdmj.runtime.ContextException;
+
+public class HashTest extends AnnotationTestCase
+{
+	public void testRecords() throws Exception
+	{
+		assertEquals(0, init("hash.vdm"));
+
+		assertEquals(run("mk_R(1, 2)").hashCode(), run("mk_R(1, 3)").hashCode());
+		assertEquals("2", run("card {mk_R(1, 1), mk_R(1, 2), mk_R(2, 1)}").toString());
+		assertEquals("true", run("mk_R(1, 5) in set {mk_R(2, 1), mk_R(1, 1)}").toString());
+		assertEquals("5", run("card {mk_R(i mod 5, i) | i in set {1, ..., 100}}").toString());
+		assertEquals("\"x\"", run("{mk_R(1, 1) |-> \"x\", mk_R(2, 1) |-> \"y\"}(mk_R(1, 9))").toString());
+		assertEquals("{mk_R(1, 1)}", run("{mk_R(1, 1), mk_R(2, 1)} \\ {mk_R(2, 7)}").toString());
+	}
+
+	public void testInvariants() throws Exception
+	{
+		assertEquals(0, init("hash.vdm"));
+
+		assertEquals(run("mkC(3)").hashCode(), run("mkC(13)").hashCode());
+		assertEquals("2", run("card {mkC(1), mkC(11), mkC(21), mkC(2)}").toString());
+		assertEquals("10", run("card {mkC(i) | i in set {1, ..., 100}}").toString());
+		assertEquals("10", run("{mkC(i) |-> i | i in set {1, ..., 10}}(mkC(30))").toString());
+		assertEquals("true", run("mkC(23) in set {mkC(1), mkC(3)}").toString());
+		assertEquals("2", run("card ({mkC(1), mkC(2)} union {mkC(12), mkC(11)})").toString());
+	}
+
+	public void testHashFailure() throws Exception
+	{
+		assertEquals(0, init("hash.vdm"));
+		assertEquals("2", run("card {mkB(1), mkB(2), mkB(1)}").toString());
+
+		try
+		{
+			run("{mkB(0) |-> 0}");
+			fail("Expected hash precondition failure");
+		}
+		catch (ContextException e)
+		{
+			assertEquals(4055, e.number);
+		}
+	}
+
+	public void testErrors() throws Exception
+	{
+		assertEquals(3, init("hasherr.vdm"));
+	}
+}
@@ -0,0 +1,75 @@
+/*******************************************************************************
+ *
+ *	Copyright (c) 2026 Nick Battle.
+ *
+ *	Author: Nick Battle
+ *
+ *	This file is part of VDMJ.
+ *
+ *	VDMJ is free software: you can redistribute it and/or modify
+ *	it under the terms of the GNU General Public License as published by
+ *	the Free Software Foundation, either version 3 of the License, or
+ *	(at your option) any later version.
+ *
+ *	VDMJ is distributed in the hope that it will be useful,
+ *	but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *	GNU General Public License for more details.
+ *
+ *	You should have received a copy of the GNU General Public License
+ *	along with VDMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *	SPDX-License-Identifier: GPL-3.0-or-later
+ *
+ ******************************************************************************/
+
+package annotations;
+
+import com.fujitsu.vdmj.Settings;
+import com.fujitsu.vdmj.values.FunctionMemo;
+
+public class MemoTest extends AnnotationTestCase
+{
+	public void testMemo() throws Exception
+	{
+		assertEquals(0, init("memo.vdm"));
+
+		assertEquals("6765", run("slow(20)").toString());
+		assertEquals(0, FunctionMemo.getHits() + FunctionMemo.getMisses());
+
+		assertEquals("6765", run("fib(20)").toString());
+		assertEquals(21, FunctionMemo.getMisses());		// fib(0) to fib(20)
+		assertEquals(18, FunctionMemo.getHits());		// fib(n-2) calls, after fib(n-1)
+		assertEquals(21, FunctionMemo.getSize());
+
+		assertEquals("6765", run("fib(20)").toString());
+		assertEquals(19, FunctionMemo.getHits());
+		assertEquals(21, FunctionMemo.getMisses());
+	}
+
+	public void testMeasured() throws Exception
+	{
+		assertEquals(0, init("memo.vdm"));
+
+		assertEquals("5050", run("sum(100)").toString());
+		assertEquals(0, FunctionMemo.getHits() + FunctionMemo.getMisses());
+
+		try
+		{
+			Settings.measureChecks = false;		// Measure not checked, so can be cached
+			assertEquals(0, init("memo.vdm"));
+			assertEquals("5050", run("sum(100)").toString());
+			assertEquals("5050", run("sum(100)").toString());
+			assertEquals(1, FunctionMemo.getHits());
+			assertEquals(101, FunctionMemo.getMisses());
+		}
+		finally
+		{
+			Settings.measureChecks = true;
+		}
+	}
+
+	public void testErrors() throws Exception
+	{
+		assertEquals(2, init("memoerr.vdm"));
+	}
+}
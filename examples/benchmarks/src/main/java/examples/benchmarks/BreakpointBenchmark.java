@@ -0,0 +1,108 @@
+/*******************************************************************************
+ *
+ *	Copyright (c) 2026 Nick Battle.
+ *
+ *	Author: Nick Battle
+ *
+ *	This file is part of VDMJ.
+ *
+ *	VDMJ is free software: you can redistribute it and/or modify
+ *	it under the terms of the GNU General Public License as published by
+ *	the Free Software Foundation, either version 3 of the License, or
+ *	(at your option) any later version.
+ *
+ *	VDMJ is distributed in the hope that it will be useful,
+ *	but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *	GNU General Public License for more details.
+ *
+ *	You should have received a copy of the GNU General Public License
+ *	along with VDMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *	SPDX-License-Identifier: GPL-3.0-or-later
+ *
+ ******************************************************************************/
+
+package examples.benchmarks;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fujitsu.vdmj.Settings;
+import com.fujitsu.vdmj.config.Properties;
+import com.fujitsu.vdmj.lex.Dialect;
+import com.fujitsu.vdmj.lex.LexLocation;
+import com.fujitsu.vdmj.runtime.Breakpoint;
+import com.fujitsu.vdmj.runtime.Context;
+
+/**
+ * Compare the per-node Breakpoint check, made by every expression and statement
+ * evaluation, with the original check that locked the interrupt flag on every
+ * call. The coverage parameter shows the cost of vdmj.in.coverage.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BreakpointBenchmark
+{
+	private static final int CHECKS = 1000;
+
+	@Param({"true", "false"})
+	public boolean coverage;
+
+	private LexLocation location;
+	private Context ctxt;
+	private Breakpoint current;
+	private Breakpoint legacy;
+
+	@Setup
+	public void setup()
+	{
+		Settings.dialect = Dialect.VDM_SL;
+		Properties.in_coverage = coverage;
+
+		location = new LexLocation(new File("benchmark.vdmsl"), "M", 1, 1, 1, 2);
+		location.executable(true);
+		ctxt = new Context(location, "benchmark", null);
+		ctxt.setThreadState(null);
+
+		current = new Breakpoint(location);
+		legacy = new LegacyBreakpoint(location);
+	}
+
+	@Benchmark
+	public Breakpoint checkCurrent()
+	{
+		for (int i=0; i<CHECKS; i++)
+		{
+			current.check(location, ctxt);
+		}
+
+		return current;
+	}
+
+	@Benchmark
+	public Breakpoint checkLegacy()
+	{
+		for (int i=0; i<CHECKS; i++)
+		{
+			legacy.check(location, ctxt);
+		}
+
+		return legacy;
+	}
+}
@@ -0,0 +1,133 @@
+/*******************************************************************************
+ *
+ *	Copyright (c) 2023 Nick Battle.
+ *
+ *	Author: Nick Battle
+ *
+ *	This file is part of VDMJ.
+ *
+ *	VDMJ is free software: you can redistribute it and/or modify
+ *	it under the terms of the GNU General Public License as published by
+ *	the Free Software Foundation, either version 3 of the License, or
+ *	(at your option) any later version.
+ *
+ *	VDMJ is distributed in the hope that it will be useful,
+ *	but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *	GNU General Public License for more details.
+ *
+ *	You should have received a copy of the GNU General Public License
+ *	along with VDMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *	SPDX-License-Identifier: GPL-3.0-or-later
+ *
+ ******************************************************************************/
+
+package examples.benchmarks;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fujitsu.vdmj.Settings;
+import com.fujitsu.vdmj.ast.modules.ASTModuleList;
+import com.fujitsu.vdmj.config.Properties;
+import com.fujitsu.vdmj.in.INNode;
+import com.fujitsu.vdmj.in.modules.INModuleList;
+import com.fujitsu.vdmj.lex.Dialect;
+import com.fujitsu.vdmj.lex.LexTokenReader;
+import com.fujitsu.vdmj.mapper.ClassMapper;
+import com.fujitsu.vdmj.runtime.ModuleInterpreter;
+import com.fujitsu.vdmj.syntax.ModuleReader;
+import com.fujitsu.vdmj.tc.TCNode;
+import com.fujitsu.vdmj.tc.modules.TCModuleList;
+import com.fujitsu.vdmj.typechecker.ModuleTypeChecker;
+import com.fujitsu.vdmj.typechecker.TypeChecker;
+import com.fujitsu.vdmj.values.Value;
+
+/**
+ * Compare the evaluation of recursive function calls by the interpreter with the
+ * evaluation of function bodies compiled to closures (vdmj.in.compile_threshold).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FunctionBenchmark
+{
+	private static final String SPEC =
+		"module M\n" +
+		"definitions\n" +
+		"functions\n" +
+		"fib: nat -> nat\n" +
+		"	fib(n) == if n < 2 then n else fib(n-1) + fib(n-2);\n" +
+		"gcd: nat * nat -> nat\n" +
+		"	gcd(a, b) == if b = 0 then a else gcd(b, a rem b);\n" +
+		"sum: nat -> nat\n" +
+		"	sum(n) == if n = 0 then 0 else gcd(n * 7, 91) + sum(n-1);\n" +
+		"count: nat * set of nat -> nat\n" +
+		"	count(n, s) == if n = 0 then 0 else\n" +
+		"		let c = if forall x in set s & let y = x * n in y > n then 1 else 0\n" +
+		"		in c + count(n-1, s);\n" +
+		"end M\n";
+
+	@Param({"0", "1"})
+	public int threshold;
+
+	private ModuleInterpreter interpreter;
+
+	@Setup
+	public void setup() throws Exception
+	{
+		Settings.dialect = Dialect.VDM_SL;
+		Properties.in_compile_threshold = threshold;
+
+		LexTokenReader ltr = new LexTokenReader(SPEC, Dialect.VDM_SL, new File("benchmark.vdmsl"));
+		ModuleReader mr = new ModuleReader(ltr);
+		ASTModuleList parsed = mr.readModules();
+		mr.close();
+
+		TCModuleList checked = ClassMapper.getInstance(TCNode.MAPPINGS).init().convert(parsed);
+		TypeChecker typeChecker = new ModuleTypeChecker(checked);
+		typeChecker.typeCheck();
+
+		if (TypeChecker.getErrorCount() > 0)
+		{
+			throw new Exception("Benchmark specification has type errors");
+		}
+
+		INModuleList runnable = ClassMapper.getInstance(INNode.MAPPINGS).init().convert(checked);
+		interpreter = new ModuleInterpreter(runnable, checked);
+		interpreter.init();
+	}
+
+	@Benchmark
+	public Value fib() throws Exception
+	{
+		return interpreter.execute("fib(18)");
+	}
+
+	@Benchmark
+	public Value sum() throws Exception
+	{
+		return interpreter.execute("sum(500)");
+	}
+
+	@Benchmark
+	public Value count() throws Exception
+	{
+		return interpreter.execute("count(500, {2, ..., 50})");
+	}
+}
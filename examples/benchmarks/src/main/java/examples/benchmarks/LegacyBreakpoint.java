@@ -0,0 +1,75 @@
+/*******************************************************************************
+ *
+ *	Copyright (c) 2026 Nick Battle.
+ *
+ *	Author: Nick Battle
+ *
+ *	This file is part of VDMJ.
+ *
+ *	VDMJ is free software: you can redistribute it and/or modify
+ *	it under the terms of the GNU General Public License as published by
+ *	the Free Software Foundation, either version 3 of the License, or
+ *	(at your option) any later version.
+ *
+ *	VDMJ is distributed in the hope that it will be useful,
+ *	but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *	GNU General Public License for more details.
+ *
+ *	You should have received a copy of the GNU General Public License
+ *	along with VDMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *	SPDX-License-Identifier: GPL-3.0-or-later
+ *
+ ******************************************************************************/
+
+package examples.benchmarks;
+
+import com.fujitsu.vdmj.Settings;
+import com.fujitsu.vdmj.lex.Dialect;
+import com.fujitsu.vdmj.lex.LexLocation;
+import com.fujitsu.vdmj.runtime.Breakpoint;
+import com.fujitsu.vdmj.runtime.Context;
+import com.fujitsu.vdmj.runtime.ThreadState;
+
+/**
+ * A copy of the original Breakpoint check, which takes the interrupt lock on
+ * every call. This is the baseline for BreakpointBenchmark. The
+ * stepping code is not reproduced, since the benchmark never steps.
+ */
+@SuppressWarnings("serial")
+public class LegacyBreakpoint extends Breakpoint
+{
+	public LegacyBreakpoint(LexLocation location)
+	{
+		super(location);
+	}
+
+	@Override
+	public void check(LexLocation execl, Context ctxt)
+	{
+		location.hit();
+		hits++;
+
+		switch (execInterruptLevel())
+		{
+			case NONE:
+				break;
+
+			default:
+				super.check(execl, ctxt);
+				break;
+		}
+
+		ThreadState state = ctxt.threadState;
+
+		if (Settings.dialect != Dialect.VDM_SL)
+		{
+			state.reschedule(ctxt, execl);
+		}
+
+		if (state.stepline != null)
+		{
+			super.check(execl, ctxt);
+		}
+	}
+}
@@ -0,0 +1,62 @@
+/*******************************************************************************
+ *
+ *	Copyright (c) 2023 Nick Battle.
+ *
+ *	Author: Nick Battle
+ *
+ *	This file is part of VDMJ.
+ *
+ *	VDMJ is free software: you can redistribute it and/or modify
+ *	it under the terms of the GNU General Public License as published by
+ *	the Free Software Foundation, either version 3 of the License, or
+ *	(at your option) any later version.
+ *
+ *	VDMJ is distributed in the hope that it will be useful,
+ *	but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *	GNU General Public License for more details.
+ *
+ *	You should have received a copy of the GNU General Public License
+ *	along with VDMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *	SPDX-License-Identifier: GPL-3.0-or-later
+ *
+ ******************************************************************************/
+
+package examples.benchmarks;
+
+import java.util.Collection;
+import java.util.Vector;
+
+import com.fujitsu.vdmj.values.Value;
+
+/**
+ * A copy of the original Vector based ValueSet behaviour, where every add performs
+ * a linear contains() scan. This is the baseline for ValueSetBenchmark.
+ */
+@SuppressWarnings("serial")
+public class LinearValueSet extends Vector<Value>
+{
+	@Override
+	public boolean add(Value v)
+	{
+		if (contains(v))
+		{
+			return true;
+		}
+		else
+		{
+			return super.add(v);
+		}
+	}
+
+	@Override
+	public boolean addAll(Collection<? extends Value> values)
+	{
+		for (Value v: values)
+		{
+			add(v);
+		}
+
+		return true;
+	}
+}
@@ -0,0 +1,123 @@
+/*******************************************************************************
+ *
+ *	Copyright (c) 2026 Nick Battle.
+ *
+ *	Author: Nick Battle
+ *
+ *	This file is part of VDMJ.
+ *
+ *	VDMJ is free software: you can redistribute it and/or modify
+ *	it under the terms of the GNU General Public License as published by
+ *	the Free Software Foundation, either version 3 of the License, or
+ *	(at your option) any later version.
+ *
+ *	VDMJ is distributed in the hope that it will be useful,
+ *	but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *	GNU General Public License for more details.
+ *
+ *	You should have received a copy of the GNU General Public License
+ *	along with VDMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *	SPDX-License-Identifier: GPL-3.0-or-later
+ *
+ ******************************************************************************/
+
+package examples.benchmarks;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fujitsu.vdmj.Settings;
+import com.fujitsu.vdmj.ast.modules.ASTModuleList;
+import com.fujitsu.vdmj.in.INNode;
+import com.fujitsu.vdmj.in.modules.INModuleList;
+import com.fujitsu.vdmj.lex.Dialect;
+import com.fujitsu.vdmj.lex.LexTokenReader;
+import com.fujitsu.vdmj.mapper.ClassMapper;
+import com.fujitsu.vdmj.runtime.ModuleInterpreter;
+import com.fujitsu.vdmj.syntax.ModuleReader;
+import com.fujitsu.vdmj.tc.TCNode;
+import com.fujitsu.vdmj.tc.modules.TCModuleList;
+import com.fujitsu.vdmj.typechecker.ModuleTypeChecker;
+import com.fujitsu.vdmj.typechecker.TypeChecker;
+import com.fujitsu.vdmj.values.Value;
+
+/**
+ * Measure the cost of overriding a state map, "m := m ++ {k |-> v}", as the size
+ * of the map grows. Each invocation makes 100 overrides of a map of the given size,
+ * so a constant time per invocation shows that an override is not O(|m|).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MapBenchmark
+{
+	private static final String SPEC =
+		"module M\n" +
+		"definitions\n" +
+		"state S of\n" +
+		"	m : map nat to nat\n" +
+		"init s == s = mk_S({|->})\n" +
+		"end\n" +
+		"operations\n" +
+		"fill: nat ==> ()\n" +
+		"	fill(n) == m := {i |-> i | i in set {1, ..., n}};\n" +
+		"update: nat ==> nat\n" +
+		"	update(n) ==\n" +
+		"	(\n" +
+		"		for i = 1 to n do m := m ++ {i |-> i + 1};\n" +
+		"		return m(1)\n" +
+		"	);\n" +
+		"end M\n";
+
+	@Param({"1000", "10000", "100000"})
+	public int size;
+
+	private ModuleInterpreter interpreter;
+
+	@Setup
+	public void setup() throws Exception
+	{
+		Settings.dialect = Dialect.VDM_SL;
+
+		LexTokenReader ltr = new LexTokenReader(SPEC, Dialect.VDM_SL, new File("benchmark.vdmsl"));
+		ModuleReader mr = new ModuleReader(ltr);
+		ASTModuleList parsed = mr.readModules();
+		mr.close();
+
+		TCModuleList checked = ClassMapper.getInstance(TCNode.MAPPINGS).init().convert(parsed);
+		TypeChecker typeChecker = new ModuleTypeChecker(checked);
+		typeChecker.typeCheck();
+
+		if (TypeChecker.getErrorCount() > 0)
+		{
+			throw new Exception("Benchmark specification has type errors");
+		}
+
+		INModuleList runnable = ClassMapper.getInstance(INNode.MAPPINGS).init().convert(checked);
+		interpreter = new ModuleInterpreter(runnable, checked);
+		interpreter.init();
+		interpreter.execute("fill(" + size + ")");
+	}
+
+	@Benchmark
+	public Value update() throws Exception
+	{
+		return interpreter.execute("update(100)");
+	}
+}
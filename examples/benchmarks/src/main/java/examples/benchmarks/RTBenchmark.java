@@ -0,0 +1,225 @@
+/*******************************************************************************
+ *
+ *	Copyright (c) 2023 Nick Battle.
+ *
+ *	Author: Nick Battle
+ *
+ *	This file is part of VDMJ.
+ *
+ *	VDMJ is free software: you can redistribute it and/or modify
+ *	it under the terms of the GNU General Public License as published by
+ *	the Free Software Foundation, either version 3 of the License, or
+ *	(at your option) any later version.
+ *
+ *	VDMJ is distributed in the hope that it will be useful,
+ *	but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *	GNU General Public License for more details.
+ *
+ *	You should have received a copy of the GNU General Public License
+ *	along with VDMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *	SPDX-License-Identifier: GPL-3.0-or-later
+ *
+ ******************************************************************************/
+
+package examples.benchmarks;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fujitsu.vdmj.Settings;
+import com.fujitsu.vdmj.ast.definitions.ASTBUSClassDefinition;
+import com.fujitsu.vdmj.ast.definitions.ASTCPUClassDefinition;
+import com.fujitsu.vdmj.ast.definitions.ASTClassList;
+import com.fujitsu.vdmj.in.INNode;
+import com.fujitsu.vdmj.in.definitions.INClassList;
+import com.fujitsu.vdmj.lex.Dialect;
+import com.fujitsu.vdmj.lex.LexTokenReader;
+import com.fujitsu.vdmj.mapper.ClassMapper;
+import com.fujitsu.vdmj.messages.RTLogger;
+import com.fujitsu.vdmj.runtime.ClassInterpreter;
+import com.fujitsu.vdmj.syntax.ClassReader;
+import com.fujitsu.vdmj.tc.TCNode;
+import com.fujitsu.vdmj.tc.definitions.TCClassList;
+import com.fujitsu.vdmj.typechecker.ClassTypeChecker;
+import com.fujitsu.vdmj.typechecker.TypeChecker;
+import com.fujitsu.vdmj.values.Value;
+
+/**
+ * Log RT events to a file. The model benchmark runs a VDM-RT system with 50
+ * periodic threads on two CPUs, writing its event log. The log and lockedLog
+ * benchmarks add events from eight threads at once, compared to the original
+ * add, which held the read side of a read/write lock and counted every event.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RTBenchmark
+{
+	private static final int BATCH = 2000;	// Per thread, within half of the queue
+
+	private static final String SPEC =
+		"system SYS\n" +
+		"instance variables\n" +
+		"	public static workers : seq of Worker := [new Worker() | i in set {1, ..., 50}];\n" +
+		"	cpu1 : CPU := new CPU(<FP>, 1E6);\n" +
+		"	cpu2 : CPU := new CPU(<FP>, 1E6);\n" +
+		"operations\n" +
+		"	public SYS: () ==> SYS\n" +
+		"	SYS() ==\n" +
+		"		for i = 1 to len workers do\n" +
+		"			if i mod 2 = 0\n" +
+		"			then cpu1.deploy(workers(i))\n" +
+		"			else cpu2.deploy(workers(i));\n" +
+		"end SYS\n" +
+		"class Worker\n" +
+		"instance variables\n" +
+		"	count : nat := 0;\n" +
+		"operations\n" +
+		"	public step: () ==> ()\n" +
+		"	step() == count := count + 1;\n" +
+		"	public getCount: () ==> nat\n" +
+		"	getCount() == return count;\n" +
+		"	public run: () ==> ()\n" +
+		"	run() == start(self);\n" +
+		"thread\n" +
+		"	periodic(1000, 0, 0, 0)(step)\n" +
+		"end Worker\n" +
+		"class Test\n" +
+		"operations\n" +
+		"	public static run: () ==> nat\n" +
+		"	run() ==\n" +
+		"	(\n" +
+		"		for w in SYS`workers do w.run();\n" +
+		"		duration(10000) skip;\n" +
+		"		return SYS`workers(1).getCount()\n" +
+		"	)\n" +
+		"end Test\n";
+
+	@State(Scope.Benchmark)
+	public static class Model
+	{
+		private ClassInterpreter interpreter;
+		private File logfile;
+
+		@Setup
+		public void setup() throws Exception
+		{
+			Settings.dialect = Dialect.VDM_RT;
+
+			LexTokenReader ltr = new LexTokenReader(SPEC, Dialect.VDM_RT, new File("benchmark.vdmrt"));
+			ClassReader cr = new ClassReader(ltr);
+			ASTClassList parsed = cr.readClasses();
+			cr.close();
+			parsed.add(new ASTCPUClassDefinition());
+			parsed.add(new ASTBUSClassDefinition());
+
+			TCClassList checked = ClassMapper.getInstance(TCNode.MAPPINGS).init().convert(parsed);
+			TypeChecker typeChecker = new ClassTypeChecker(checked);
+			typeChecker.typeCheck();
+
+			if (TypeChecker.getErrorCount() > 0)
+			{
+				throw new Exception("Benchmark specification has type errors");
+			}
+
+			INClassList runnable = ClassMapper.getInstance(INNode.MAPPINGS).init().convert(checked);
+			interpreter = new ClassInterpreter(runnable, checked);
+			logfile = File.createTempFile("rtbenchmark", ".log");
+			logfile.deleteOnExit();
+		}
+
+		@TearDown
+		public void tearDown()
+		{
+			RTLogger.enable(false);
+		}
+	}
+
+	@State(Scope.Benchmark)
+	public static class Logger
+	{
+		private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+		private final AtomicInteger logged = new AtomicInteger(0);
+
+		@Setup
+		public void setup() throws Exception
+		{
+			File logfile = File.createTempFile("rtbenchmark", ".rtlog");
+			logfile.deleteOnExit();
+			RTLogger.setLogfileName(logfile);
+		}
+
+		@Setup(Level.Iteration)
+		public void drain()
+		{
+			RTLogger.dump(false);	// So that a batch does not wait for the writer
+		}
+
+		@TearDown
+		public void tearDown()
+		{
+			RTLogger.enable(false);
+		}
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public Value model(Model model) throws Exception
+	{
+		RTLogger.setLogfileName(model.logfile);
+		model.interpreter.init();
+		Value result = model.interpreter.execute("Test`run()");
+		RTLogger.dump(true);
+		return result;
+	}
+
+	@Benchmark
+	@Threads(8)
+	@BenchmarkMode(Mode.SingleShotTime)
+	@Warmup(iterations = 50, batchSize = BATCH)
+	@Measurement(iterations = 200, batchSize = BATCH)
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public void log(Logger logger)
+	{
+		RTLogger.log("OpRequest", "id", 1L, "opname", "A`op()", "async", false);
+	}
+
+	@Benchmark
+	@Threads(8)
+	@BenchmarkMode(Mode.SingleShotTime)
+	@Warmup(iterations = 50, batchSize = BATCH)
+	@Measurement(iterations = 200, batchSize = BATCH)
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public void lockedLog(Logger logger)
+	{
+		logger.lock.readLock().lock();
+
+		try
+		{
+			logger.logged.incrementAndGet();
+			RTLogger.log("OpRequest", "id", 1L, "opname", "A`op()", "async", false);
+		}
+		finally
+		{
+			logger.lock.readLock().unlock();
+		}
+	}
+}
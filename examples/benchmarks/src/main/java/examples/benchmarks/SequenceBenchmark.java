@@ -0,0 +1,148 @@
+/*******************************************************************************
+ *
+ *	Copyright (c) 2023 Nick Battle.
+ *
+ *	Author: Nick Battle
+ *
+ *	This file is part of VDMJ.
+ *
+ *	VDMJ is free software: you can redistribute it and/or modify
+ *	it under the terms of the GNU General Public License as published by
+ *	the Free Software Foundation, either version 3 of the License, or
+ *	(at your option) any later version.
+ *
+ *	VDMJ is distributed in the hope that it will be useful,
+ *	but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *	GNU General Public License for more details.
+ *
+ *	You should have received a copy of the GNU General Public License
+ *	along with VDMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *	SPDX-License-Identifier: GPL-3.0-or-later
+ *
+ ******************************************************************************/
+
+
+package examples.benchmarks;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fujitsu.vdmj.values.IntegerValue;
+import com.fujitsu.vdmj.values.ValueList;
+
+/**
+ * Compare the ValueList range and concatenation constructors, which share their
+ * element arrays, with copying the values as the original tl and ^ did. The
+ * walk is a recursive "hd s + f(tl s)" loop, and the build is "s ^ [x]".
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SequenceBenchmark
+{
+	@Param({"100", "1000", "10000"})
+	public int size;
+
+	private ValueList values;
+	private ValueList one;
+
+	@Setup
+	public void setup()
+	{
+		values = new ValueList(size);
+
+		for (int i=0; i<size; i++)
+		{
+			values.add(new IntegerValue(i));
+		}
+
+		one = new ValueList(new IntegerValue(1));
+	}
+
+	private static ValueList copyRange(ValueList from, int start, int end)
+	{
+		ValueList list = new ValueList(end - start);
+		list.addAll(Arrays.asList(from.subList(start, end).toArray(new IntegerValue[0])));
+		return list;
+	}
+
+	private static ValueList copyConcat(ValueList left, ValueList right)
+	{
+		ValueList list = new ValueList(left.size() + right.size());
+		list.addAll(left);
+		list.addAll(right);
+		return list;
+	}
+
+	@Benchmark
+	public int walkShared()
+	{
+		ValueList s = values;
+		int count = 0;
+
+		while (!s.isEmpty())
+		{
+			count += s.get(0).hashCode();
+			s = new ValueList(s, 1, s.size());
+		}
+
+		return count;
+	}
+
+	@Benchmark
+	public int walkCopied()
+	{
+		ValueList s = values;
+		int count = 0;
+
+		while (!s.isEmpty())
+		{
+			count += s.get(0).hashCode();
+			s = copyRange(s, 1, s.size());
+		}
+
+		return count;
+	}
+
+	@Benchmark
+	public ValueList buildShared()
+	{
+		ValueList s = new ValueList();
+
+		for (int i=0; i<size; i++)
+		{
+			s = new ValueList(s, one);
+		}
+
+		return s;
+	}
+
+	@Benchmark
+	public ValueList buildCopied()
+	{
+		ValueList s = new ValueList();
+
+		for (int i=0; i<size; i++)
+		{
+			s = copyConcat(s, one);
+		}
+
+		return s;
+	}
+}
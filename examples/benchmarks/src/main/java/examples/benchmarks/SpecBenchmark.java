@@ -0,0 +1,149 @@
+/*******************************************************************************
+ *
+ *	Copyright (c) 2023 Nick Battle.
+ *
+ *	Author: Nick Battle
+ *
+ *	This file is part of VDMJ.
+ *
+ *	VDMJ is free software: you can redistribute it and/or modify
+ *	it under the terms of the GNU General Public License as published by
+ *	the Free Software Foundation, either version 3 of the License, or
+ *	(at your option) any later version.
+ *
+ *	VDMJ is distributed in the hope that it will be useful,
+ *	but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *	GNU General Public License for more details.
+ *
+ *	You should have received a copy of the GNU General Public License
+ *	along with VDMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *	SPDX-License-Identifier: GPL-3.0-or-later
+ *
+ ******************************************************************************/
+
+package examples.benchmarks;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fujitsu.vdmj.Settings;
+import com.fujitsu.vdmj.ast.modules.ASTModuleList;
+import com.fujitsu.vdmj.config.Properties;
+import com.fujitsu.vdmj.in.INNode;
+import com.fujitsu.vdmj.in.modules.INModuleList;
+import com.fujitsu.vdmj.lex.Dialect;
+import com.fujitsu.vdmj.lex.LexTokenReader;
+import com.fujitsu.vdmj.mapper.ClassMapper;
+import com.fujitsu.vdmj.runtime.ModuleInterpreter;
+import com.fujitsu.vdmj.syntax.ModuleReader;
+import com.fujitsu.vdmj.tc.TCNode;
+import com.fujitsu.vdmj.tc.modules.TCModuleList;
+import com.fujitsu.vdmj.typechecker.ModuleTypeChecker;
+import com.fujitsu.vdmj.typechecker.TypeChecker;
+import com.fujitsu.vdmj.values.Value;
+
+/**
+ * Run a CPU bound specification end to end, with the breakpoint check made for
+ * every expression and statement, with and without vdmj.in.coverage. The
+ * specification sorts a state sequence with nested while loops and assignments,
+ * and counts primes with a recursive function and a quantifier.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SpecBenchmark
+{
+	private static final String SPEC =
+		"module M\n" +
+		"exports all\n" +
+		"definitions\n" +
+		"state S of\n" +
+		"	data : seq of nat\n" +
+		"init s == s = mk_S([])\n" +
+		"end\n" +
+		"functions\n" +
+		"isPrime: nat -> bool\n" +
+		"	isPrime(n) == n > 1 and not exists d in set {2, ..., n div 2} & n mod d = 0;\n" +
+		"primes: nat -> nat\n" +
+		"	primes(n) == if n = 0 then 0 else (if isPrime(n) then 1 else 0) + primes(n-1);\n" +
+		"operations\n" +
+		"sort: nat ==> nat\n" +
+		"	sort(n) ==\n" +
+		"	(\n" +
+		"		dcl i : nat := n, j : nat;\n" +
+		"		data := [];\n" +
+		"		while i > 0 do (data := data ^ [(i * 7919) mod 1000]; i := i - 1);\n" +
+		"		i := len data;\n" +
+		"		while i > 1 do\n" +
+		"		(\n" +
+		"			j := 1;\n" +
+		"			while j < i do\n" +
+		"			(\n" +
+		"				if data(j) > data(j+1) then\n" +
+		"					let t = data(j) in (data(j) := data(j+1); data(j+1) := t);\n" +
+		"				j := j + 1\n" +
+		"			);\n" +
+		"			i := i - 1\n" +
+		"		);\n" +
+		"		return data(1)\n" +
+		"	)\n" +
+		"end M\n";
+
+	@Param({"true", "false"})
+	public boolean coverage;
+
+	private ModuleInterpreter interpreter;
+
+	@Setup
+	public void setup() throws Exception
+	{
+		Settings.dialect = Dialect.VDM_SL;
+		Properties.in_coverage = coverage;
+
+		LexTokenReader ltr = new LexTokenReader(SPEC, Dialect.VDM_SL, new File("benchmark.vdmsl"));
+		ModuleReader mr = new ModuleReader(ltr);
+		ASTModuleList parsed = mr.readModules();
+		mr.close();
+
+		TCModuleList checked = ClassMapper.getInstance(TCNode.MAPPINGS).init().convert(parsed);
+		TypeChecker typeChecker = new ModuleTypeChecker(checked);
+		typeChecker.typeCheck();
+
+		if (TypeChecker.getErrorCount() > 0)
+		{
+			throw new Exception("Benchmark specification has type errors");
+		}
+
+		INModuleList runnable = ClassMapper.getInstance(INNode.MAPPINGS).init().convert(checked);
+		interpreter = new ModuleInterpreter(runnable, checked);
+		interpreter.init();
+	}
+
+	@Benchmark
+	public Value sort() throws Exception
+	{
+		return interpreter.execute("sort(200)");
+	}
+
+	@Benchmark
+	public Value primes() throws Exception
+	{
+		return interpreter.execute("primes(400)");
+	}
+}
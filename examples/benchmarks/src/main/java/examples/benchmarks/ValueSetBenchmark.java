@@ -0,0 +1,158 @@
+/*******************************************************************************
+ *
+ *	Copyright (c) 2023 Nick Battle.
+ *
+ *	Author: Nick Battle
+ *
+ *	This file is part of VDMJ.
+ *
+ *	VDMJ is free software: you can redistribute it and/or modify
+ *	it under the terms of the GNU General Public License as published by
+ *	the Free Software Foundation, either version 3 of the License, or
+ *	(at your option) any later version.
+ *
+ *	VDMJ is distributed in the hope that it will be useful,
+ *	but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *	GNU General Public License for more details.
+ *
+ *	You should have received a copy of the GNU General Public License
+ *	along with VDMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *	SPDX-License-Identifier: GPL-3.0-or-later
+ *
+ ******************************************************************************/
+
+
+package examples.benchmarks;
+
+import java.util.List;
+import java.util.Random;
+import java.util.Vector;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fujitsu.vdmj.values.IntegerValue;
+import com.fujitsu.vdmj.values.Value;
+import com.fujitsu.vdmj.values.ValueSet;
+
+/**
+ * Compare the hash indexed ValueSet with the original Vector based linear scan,
+ * for the operations that dominate set comprehensions, dunion and set difference.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ValueSetBenchmark
+{
+	@Param({"100", "1000", "10000"})
+	public int size;
+
+	private List<Value> values;			// Values to add, with 50% duplicates
+	private ValueSet hashedSet;
+	private LinearValueSet linearSet;
+
+	@Setup
+	public void setup()
+	{
+		Random random = new Random(size);
+		values = new Vector<Value>(size);
+
+		for (int i=0; i<size; i++)
+		{
+			values.add(new IntegerValue(random.nextInt(size / 2 + 1)));
+		}
+
+		hashedSet = new ValueSet();
+		hashedSet.addAll(values);
+		linearSet = new LinearValueSet();
+		linearSet.addAll(values);
+	}
+
+	@Benchmark
+	public ValueSet buildHashed()
+	{
+		ValueSet set = new ValueSet();
+
+		for (Value v: values)
+		{
+			set.add(v);
+		}
+
+		return set;
+	}
+
+	@Benchmark
+	public LinearValueSet buildLinear()
+	{
+		LinearValueSet set = new LinearValueSet();
+
+		for (Value v: values)
+		{
+			set.add(v);
+		}
+
+		return set;
+	}
+
+	@Benchmark
+	public int containsHashed()
+	{
+		int count = 0;
+
+		for (Value v: values)
+		{
+			if (hashedSet.contains(v)) count++;
+		}
+
+		return count;
+	}
+
+	@Benchmark
+	public int containsLinear()
+	{
+		int count = 0;
+
+		for (Value v: values)
+		{
+			if (linearSet.contains(v)) count++;
+		}
+
+		return count;
+	}
+
+	@Benchmark
+	public ValueSet differenceHashed()
+	{
+		ValueSet result = new ValueSet(hashedSet);
+		result.removeAll(hashedSet);
+		return result;
+	}
+
+	@Benchmark
+	public LinearValueSet differenceLinear()
+	{
+		LinearValueSet result = new LinearValueSet();
+		result.addAll(linearSet);
+
+		for (Value v: linearSet)
+		{
+			result.remove(v);
+		}
+
+		return result;
+	}
+}
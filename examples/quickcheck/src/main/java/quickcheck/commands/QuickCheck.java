@@ -31,12 +31,21 @@ import static com.fujitsu.vdmj.plugins.PluginConsole.errorln;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.PrintWriter;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.Stack;
+import java.util.Vector;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import com.fujitsu.vdmj.ast.expressions.ASTExpressionList;
 import com.fujitsu.vdmj.ast.lex.LexBooleanToken;
@@ -63,6 +72,7 @@ import com.fujitsu.vdmj.runtime.Context;
 import com.fujitsu.vdmj.runtime.ContextException;
 import com.fujitsu.vdmj.runtime.Interpreter;
 import com.fujitsu.vdmj.runtime.RootContext;
+import com.fujitsu.vdmj.runtime.ThreadState;
 import com.fujitsu.vdmj.syntax.BindReader;
 import com.fujitsu.vdmj.syntax.ExpressionReader;
 import com.fujitsu.vdmj.syntax.ParserException;
@@ -92,6 +102,7 @@ public class QuickCheck
 {
 	private static final long FINITE_LIMIT = 100;
 	private static final int NUMERIC_LIMIT = 10;
+	private static final long STOP_WAIT = 5000;		// Millisecs to wait for stopped checks
 	private int errorCount = 0;
 	
 	public boolean hasErrors()
@@ -271,7 +282,7 @@ public class QuickCheck
 		return null;
 	}
 	
-	private INExpression getPOExpression(ProofObligation po) throws Exception
+	private static INExpression getPOExpression(ProofObligation po) throws Exception
 	{
 		if (po.isCheckable)
 		{
@@ -353,24 +364,188 @@ public class QuickCheck
 	
 	public void checkObligations(ProofObligationList chosen, Map<String, ValueList> ranges)
 	{
+		checkObligations(chosen, ranges, 1, 0);
+	}
+	
+	/**
+	 * Check the obligations using the number of threads given, or all processors if
+	 * threads is zero. The results are printed in PO number order, whatever order
+	 * they complete in. If timeout is non-zero, POs that have not been checked after
+	 * that many seconds are stopped, and reported as timed out.
+	 */
+	public void checkObligations(ProofObligationList chosen, Map<String, ValueList> ranges,
+		int threads, long timeout)
+	{
+		ExecutorService executor = null;
+		List<POCheck> checks = new Vector<POCheck>();
+		
 		try
 		{
 			errorCount = 0;
 			RootContext ctxt = Interpreter.getInstance().getInitialContext();
-			List<INBindingSetter> bindings = null;
 
 			for (ProofObligation po: chosen)
 			{
-				if (!po.isCheckable)
+				// The PO expressions are mapped here, as the ClassMapper is not thread safe
+				checks.add(new POCheck(po, ranges, ctxt));
+			}
+			
+			if (threads <= 0)
+			{
+				threads = Runtime.getRuntime().availableProcessors();
+			}
+
+			executor = Executors.newFixedThreadPool(threads, new ThreadFactory()
+			{
+				@Override
+				public Thread newThread(Runnable r)
+				{
+					Thread t = new Thread(r, "QuickCheck");
+					t.setDaemon(true);
+					return t;
+				}
+			});
+			
+			List<Future<?>> futures = new Vector<Future<?>>();
+			
+			for (POCheck check: checks)
+			{
+				futures.add(executor.submit(check));
+			}
+			
+			long deadline = System.currentTimeMillis() + timeout * 1000;
+			boolean stopped = false;
+			
+			for (int i=0; i<checks.size(); i++)
+			{
+				POCheck check = checks.get(i);
+				
+				try
 				{
-					printf("PO# %d, UNCHECKED\n", po.number);
-					continue;
+					if (stopped)
+					{
+						// stopChecks has already waited, with a limit
+					}
+					else if (timeout > 0)
+					{
+						long remaining = Math.max(deadline - System.currentTimeMillis(), 1);
+						futures.get(i).get(remaining, TimeUnit.MILLISECONDS);
+					}
+					else
+					{
+						futures.get(i).get();
+					}
+				}
+				catch (TimeoutException e)
+				{
+					stopped = true;
+					stopChecks(checks, futures);
 				}
+				
+				if (futures.get(i).isDone())
+				{
+					printf("%s", check.output);
+					if (check.failed) errorCount++;
+				}
+				else
+				{
+					printf("PO# %d, TIMEOUT, %s\n", check.po.number,
+						check.isRunning() ? "could not be stopped" : "not checked");
+					errorCount++;
+				}
+			}
+		}
+		catch (Exception e)
+		{
+			errorCount++;
+			println(e);
+			return;
+		}
+		finally
+		{
+			if (executor != null)
+			{
+				executor.shutdownNow();
+			}
+			
+			// Checks that could not be stopped are still evaluating with their bindings
+			Set<INBindingSetter> running = Collections.newSetFromMap(new IdentityHashMap<INBindingSetter, Boolean>());
 
-				Stack<Context> failPath = new Stack<Context>();
-				INForAllExpression.setFailPath(failPath);
-				INExpression poexp = getPOExpression(po);
-				bindings = getBindList(poexp, false);
+			for (POCheck check: checks)
+			{
+				if (check.isRunning())
+				{
+					running.addAll(check.bindings);
+				}
+			}
+
+			for (POCheck check: checks)
+			{
+				check.clearBindings(running);
+			}
+		}
+	}
+	
+	/**
+	 * Stop any checks that are running, and prevent others from starting. Only the
+	 * threads running these checks are terminated, so other evaluations (like a
+	 * debug session) are not affected. This waits at most STOP_WAIT millisecs for
+	 * the checks to stop, in case an evaluation is not checking for interrupts.
+	 */
+	private void stopChecks(List<POCheck> checks, List<Future<?>> futures) throws Exception
+	{
+		for (POCheck check: checks)
+		{
+			check.stop();
+		}
+		
+		long deadline = System.currentTimeMillis() + STOP_WAIT;
+		
+		for (Future<?> future: futures)
+		{
+			long remaining = deadline - System.currentTimeMillis();
+			
+			if (remaining <= 0)
+			{
+				break;
+			}
+			
+			try
+			{
+				future.get(remaining, TimeUnit.MILLISECONDS);
+			}
+			catch (TimeoutException e)
+			{
+				break;
+			}
+		}
+	}
+	
+	/**
+	 * The check of one PO, which runs in its own thread with its own ThreadState,
+	 * fail path and bind values. Output is collected, so that it can be printed in
+	 * PO order.
+	 */
+	private static class POCheck implements Runnable
+	{
+		private final ProofObligation po;
+		private final RootContext ctxt;
+		private final StringBuilder output = new StringBuilder();
+		private INExpression poexp = null;
+		private List<INBindingSetter> bindings = null;
+		private boolean failed = false;
+		private boolean timedOut = false;
+		private ThreadState state = null;		// Set while running
+		
+		public POCheck(ProofObligation po, Map<String, ValueList> ranges, RootContext ctxt) throws Exception
+		{
+			this.po = po;
+			this.ctxt = ctxt;
+			
+			if (po.isCheckable)
+			{
+				poexp = getPOExpression(po);
+				bindings = poexp.apply(new TypeBindFinder(), null);
 				
 				for (INBindingSetter mbind: bindings)
 				{
@@ -383,84 +558,167 @@ public class QuickCheck
 					else
 					{
 						errorln("PO# " + po.number + ": No range defined for " + mbind);
-						errorCount++;
+						failed = true;
 					}
 				}
+			}
+		}
+
+		@Override
+		public void run()
+		{
+			if (!po.isCheckable)
+			{
+				printf("PO# %d, UNCHECKED\n", po.number);
+				return;
+			}
+			
+			Context pctxt = new Context(po.location, "PO# " + po.number, ctxt);
+			pctxt.setThreadState(ctxt.threadState.CPU);
+
+			synchronized (this)
+			{
+				if (timedOut)
+				{
+					printf("PO# %d, TIMEOUT, not checked\n", po.number);
+					failed = true;
+					return;
+				}
 				
-				try
+				state = pctxt.threadState;
+			}
+
+			Stack<Context> failPath = new Stack<Context>();
+			INForAllExpression.setFailPath(failPath);
+			long before = System.currentTimeMillis();
+
+			try
+			{
+				Value result = poexp.eval(pctxt);
+				long after = System.currentTimeMillis();
+				
+				if (result instanceof BooleanValue)
 				{
-					long before = System.currentTimeMillis();
-					Value result = poexp.eval(ctxt);
-					long after = System.currentTimeMillis();
-					
-					if (result instanceof BooleanValue)
+					if (result.boolValue(pctxt))
 					{
-						if (result.boolValue(ctxt))
-						{
-							printf("PO# %d, PASSED %s\n", po.number, duration(before, after));
-						}
-						else
-						{
-							printf("PO# %d, FAILED %s: ", po.number, duration(before, after));
-							printFailPath(failPath);
-							println("\n" + po);
-							errorCount++;
-						}
+						printf("PO# %d, PASSED %s\n", po.number, duration(before, after));
 					}
 					else
 					{
-						printf("PO# %d, Error: PO evaluation returns %s?\n\n", po.number, result.kind());
-						println(po);
-						errorCount++;
+						printf("PO# %d, FAILED %s: ", po.number, duration(before, after));
+						printFailPath(failPath);
+						println("\n" + po);
+						failed = true;
 					}
 				}
-				catch (Exception e)
+				else
 				{
-					printf("PO# %d, %s\n\n", po.number, e.getMessage());
+					printf("PO# %d, Error: PO evaluation returns %s?\n\n", po.number, result.kind());
 					println(po);
-					errorCount++;
+					failed = true;
+				}
+			}
+			catch (Exception e)
+			{
+				if (isTimedOut())
+				{
+					long after = System.currentTimeMillis();
+					printf("PO# %d, TIMEOUT %s\n", po.number, duration(before, after));
 				}
-				finally
+				else
 				{
-					INForAllExpression.setFailPath(null);
+					printf("PO# %d, %s\n\n", po.number, e.getMessage());
+					println(po);
+				}
 
-					for (INBindingSetter mbind: bindings)
-					{
-						mbind.setBindValues(null);
-					}
+				failed = true;
+			}
+			finally
+			{
+				INForAllExpression.setFailPath(null);
+				
+				synchronized (this)
+				{
+					state = null;
 				}
 			}
 		}
-		catch (Exception e)
+		
+		/**
+		 * Stop the check if it is running, or prevent it from starting.
+		 */
+		public synchronized void stop()
 		{
-			errorCount++;
-			println(e);
-			return;
+			timedOut = true;
+			
+			if (state != null)
+			{
+				state.terminate();
+			}
 		}
-	}
-	
-	private void printFailPath(Stack<Context> failPath)
-	{
-		if (failPath.isEmpty())
+		
+		private synchronized boolean isTimedOut()
 		{
-			printf("No counterexample");
-			return;
+			return timedOut;
 		}
 		
-		printf("Counterexample: ");
-		String sep = "";
+		private synchronized boolean isRunning()
+		{
+			return state != null;
+		}
 		
-		for (Context path: failPath)
+		/**
+		 * Called when all checks are complete, since the same PO may be checked twice.
+		 * Bindings used by a check that is still running are left alone.
+		 */
+		public void clearBindings(Set<INBindingSetter> running)
 		{
-			for (TCNameToken name: path.keySet())
+			if (bindings != null)
 			{
-				printf("%s%s = %s", sep, name, path.get(name));
-				sep = ", ";
+				for (INBindingSetter mbind: bindings)
+				{
+					if (!running.contains(mbind))
+					{
+						mbind.setBindValues(null);
+					}
+				}
+			}
+		}
+		
+		private void printFailPath(Stack<Context> failPath)
+		{
+			if (failPath.isEmpty())
+			{
+				printf("No counterexample");
+				return;
+			}
+			
+			printf("Counterexample: ");
+			String sep = "";
+			
+			for (Context path: failPath)
+			{
+				for (TCNameToken name: path.keySet())
+				{
+					printf("%s%s = %s", sep, name, path.get(name));
+					sep = ", ";
+				}
 			}
 		}
+		
+		private void printf(String format, Object... args)
+		{
+			output.append(String.format(format, args));
+		}
+		
+		private void println(Object line)
+		{
+			output.append(line);
+			output.append("\n");
+		}
 	}
 
-	private String duration(long before, long after)
+	private static String duration(long before, long after)
 	{
 		double duration = (double)(after - before)/1000;
 		return "in " + duration + "s";
@@ -38,7 +38,7 @@ import com.fujitsu.vdmj.values.ValueList;
 
 public class QuickCheckCommand extends AnalysisCommand
 {
-	private final static String USAGE = "Usage: quickcheck [-c <file>]|[-f <file>] [<PO numbers>]";
+	private final static String USAGE = "Usage: quickcheck [-c <file>]|[-f <file>] [-t <threads>] [-s <seconds>] [<PO numbers>]";
 	public final static String HELP = "quickcheck - lightweight PO verification";
 			
 	public QuickCheckCommand(String line)
@@ -56,6 +56,8 @@ public class QuickCheckCommand extends AnalysisCommand
 	{
 		String rangesFile = "ranges.qc";
 		boolean createFile = false;
+		int threads = 1;
+		long timeout = 0;
 		List<Integer> poList = new Vector<Integer>();
 
 		for (int i=1; i < argv.length; i++)
@@ -78,6 +80,14 @@ public class QuickCheckCommand extends AnalysisCommand
 						createFile = true;
 						break;
 						
+					case "-t":
+						threads = Integer.parseInt(argv[++i]);
+						break;
+						
+					case "-s":
+						timeout = Long.parseLong(argv[++i]);
+						break;
+						
 					default:
 						poList.add(Integer.parseInt(argv[i]));
 						break;
@@ -85,7 +95,7 @@ public class QuickCheckCommand extends AnalysisCommand
 			}
 			catch (NumberFormatException e)
 			{
-				println("Malformed PO#: " + e.getMessage());
+				println("Malformed number: " + e.getMessage());
 				return USAGE;
 			}
 			catch (ArrayIndexOutOfBoundsException e)
@@ -114,7 +124,7 @@ public class QuickCheckCommand extends AnalysisCommand
 				
 				if (ranges != null)
 				{
-					qc.checkObligations(chosen, ranges);
+					qc.checkObligations(chosen, ranges, threads, timeout);
 				}
 			}
 		}
@@ -124,6 +134,6 @@ public class QuickCheckCommand extends AnalysisCommand
 	
 	public static void help()
 	{
-		println("quickcheck [-c <file>]|[-f <file>] [<PO numbers>] - lightweight PO verification");
+		println("quickcheck [-c <file>]|[-f <file>] [-t <threads>] [-s <seconds>] [<PO numbers>] - lightweight PO verification");
 	}
 }
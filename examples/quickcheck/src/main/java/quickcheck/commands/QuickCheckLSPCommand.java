@@ -42,7 +42,7 @@ import workspace.plugins.POPlugin;
 
 public class QuickCheckLSPCommand extends AnalysisCommand
 {
-	private final static String USAGE = "Usage: quickcheck [-c <file>]|[-f <file>] [<PO numbers>]";
+	private final static String USAGE = "Usage: quickcheck [-c <file>]|[-f <file>] [-t <threads>] [-s <seconds>] [<PO numbers>]";
 	public static final String HELP = "quickcheck - lightweight PO verification";
 	
 	public QuickCheckLSPCommand(String line)
@@ -72,6 +72,8 @@ public class QuickCheckLSPCommand extends AnalysisCommand
 	{
 		String rangesFile = "ranges.qc";
 		boolean createFile = false;
+		int threads = 1;
+		long timeout = 0;
 		List<Integer> poList = new Vector<Integer>();
 
 		for (int i=1; i < argv.length; i++)
@@ -94,6 +96,14 @@ public class QuickCheckLSPCommand extends AnalysisCommand
 						createFile = true;
 						break;
 						
+					case "-t":
+						threads = Integer.parseInt(argv[++i]);
+						break;
+						
+					case "-s":
+						timeout = Long.parseLong(argv[++i]);
+						break;
+						
 					default:
 						poList.add(Integer.parseInt(argv[i]));
 						break;
@@ -101,7 +111,7 @@ public class QuickCheckLSPCommand extends AnalysisCommand
 			}
 			catch (NumberFormatException e)
 			{
-				errorln("Malformed PO#: " + e.getMessage());
+				errorln("Malformed number: " + e.getMessage());
 				return result(request, USAGE);
 			}
 			catch (ArrayIndexOutOfBoundsException e)
@@ -130,7 +140,7 @@ public class QuickCheckLSPCommand extends AnalysisCommand
 				
 				if (ranges != null)
 				{
-					qc.checkObligations(chosen, ranges);
+					qc.checkObligations(chosen, ranges, threads, timeout);
 				}
 			}
 		}
@@ -0,0 +1,209 @@
+/*******************************************************************************
+ *
+ *	Copyright (c) 2026 Nick Battle.
+ *
+ *	Author: Nick Battle
+ *
+ *	This file is part of VDMJ.
+ *
+ *	VDMJ is free software: you can redistribute it and/or modify
+ *	it under the terms of the GNU General Public License as published by
+ *	the Free Software Foundation, either version 3 of the License, or
+ *	(at your option) any later version.
+ *
+ *	VDMJ is distributed in the hope that it will be useful,
+ *	but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *	GNU General Public License for more details.
+ *
+ *	You should have received a copy of the GNU General Public License
+ *	along with VDMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *	SPDX-License-Identifier: GPL-3.0-or-later
+ *
+ ******************************************************************************/
+
+package quickcheck.commands;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.PrintWriter;
+import java.net.URL;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fujitsu.vdmj.Settings;
+import com.fujitsu.vdmj.ast.modules.ASTModuleList;
+import com.fujitsu.vdmj.in.INNode;
+import com.fujitsu.vdmj.in.modules.INModuleList;
+import com.fujitsu.vdmj.lex.Dialect;
+import com.fujitsu.vdmj.lex.LexTokenReader;
+import com.fujitsu.vdmj.mapper.ClassMapper;
+import com.fujitsu.vdmj.messages.Console;
+import com.fujitsu.vdmj.messages.ConsoleWriter;
+import com.fujitsu.vdmj.pog.ProofObligationList;
+import com.fujitsu.vdmj.runtime.Breakpoint;
+import com.fujitsu.vdmj.runtime.ModuleInterpreter;
+import com.fujitsu.vdmj.syntax.ModuleReader;
+import com.fujitsu.vdmj.tc.TCNode;
+import com.fujitsu.vdmj.tc.modules.TCModuleList;
+import com.fujitsu.vdmj.typechecker.ModuleTypeChecker;
+import com.fujitsu.vdmj.typechecker.TypeChecker;
+import com.fujitsu.vdmj.values.ValueList;
+
+public class QuickCheckTest
+{
+	private ConsoleWriter saved = null;
+	private StringBuilder output = new StringBuilder();
+	private ModuleInterpreter interpreter = null;
+
+	@Before
+	public void setUp() throws Exception
+	{
+		Settings.dialect = Dialect.VDM_SL;
+		URL url = getClass().getResource("/qctest.vdmsl");
+		ModuleReader mr = new ModuleReader(new LexTokenReader(new File(url.toURI()), Dialect.VDM_SL));
+		ASTModuleList parsed = mr.readModules();
+		assertEquals(0, mr.getErrorCount());
+
+		TCModuleList checked = ClassMapper.getInstance(TCNode.MAPPINGS).init().convert(parsed);
+		new ModuleTypeChecker(checked).typeCheck();
+		assertEquals(0, TypeChecker.getErrorCount());
+
+		INModuleList runnable = ClassMapper.getInstance(INNode.MAPPINGS).init().convert(checked);
+		interpreter = new ModuleInterpreter(runnable, checked);
+		interpreter.init();
+
+		saved = Console.out;
+		Console.out = new ConsoleWriter()
+		{
+			@Override
+			public void print(String line)
+			{
+				output.append(line);
+			}
+
+			@Override
+			public void println(String line)
+			{
+				output.append(line);
+				output.append("\n");
+			}
+
+			@Override
+			public void printf(String format, Object... args)
+			{
+				output.append(String.format(format, args));
+			}
+
+			@Override
+			public void println()
+			{
+				output.append("\n");
+			}
+
+			@Override
+			public void close()
+			{
+				// Not used
+			}
+		};
+	}
+
+	@After
+	public void tearDown()
+	{
+		Console.out = saved;
+	}
+
+	@SuppressWarnings("deprecation")
+	private ProofObligationList getPOs() throws Exception
+	{
+		ProofObligationList list = interpreter.getProofObligations();
+		list.renumber();
+		return list;
+	}
+
+	private Map<String, ValueList> getRanges(QuickCheck qc, String ranges) throws Exception
+	{
+		File file = File.createTempFile("quickcheck", ".ranges");
+		file.deleteOnExit();
+
+		try (PrintWriter pw = new PrintWriter(file))
+		{
+			pw.println(ranges);
+		}
+
+		Map<String, ValueList> map = qc.readRangeFile(file.getAbsolutePath());
+		assertNotNull(output.toString(), map);
+		return map;
+	}
+
+	private String results()
+	{
+		// Remove the durations and range messages, which vary
+		return output.toString()
+			.replaceAll(" in [0-9.]+s", "")
+			.replaceAll("(?m)^(Expanding|Ranges|\\.).*\n", "");
+	}
+
+	@Test
+	public void testParallel() throws Exception
+	{
+		QuickCheck qc = new QuickCheck();
+		ProofObligationList all = getPOs();
+		ProofObligationList quick = new ProofObligationList();
+
+		for (int i=0; i<all.size(); i++)
+		{
+			if (!all.get(i).toString().contains("pre_g"))
+			{
+				quick.add(all.get(i));
+			}
+		}
+
+		Map<String, ValueList> ranges =
+			getRanges(qc, "x:nat = {0, ..., 20}; s:seq of nat = {[], [1], [1, 2]};");
+
+		output.setLength(0);
+		qc.checkObligations(quick, ranges, 1, 0);
+		String serial = results();
+		assertTrue(serial, serial.contains("PO# 2, FAILED: Counterexample: x = 0"));
+		assertTrue(serial, qc.hasErrors());		// dec, first and half fail
+
+		output.setLength(0);
+		qc.checkObligations(quick, ranges, 4, 0);
+		assertEquals(serial, results());		// Same results, in the same order
+		assertTrue(qc.hasErrors());
+	}
+
+	@Test
+	public void testTimeout() throws Exception
+	{
+		QuickCheck qc = new QuickCheck();
+		ProofObligationList all = getPOs();
+		Map<String, ValueList> ranges =
+			getRanges(qc, "x:nat = {1000}; s:seq of nat = {[1]};");
+
+		output.setLength(0);
+		long before = System.currentTimeMillis();
+		qc.checkObligations(all, ranges, 2, 1);
+		long after = System.currentTimeMillis();
+		String results = results();
+
+		assertTrue(results, results.contains("TIMEOUT"));
+		assertFalse(results, results.contains("could not be stopped"));
+		assertTrue(qc.hasErrors());
+		assertTrue(after - before < 10000);
+
+		// The interrupt is per thread, so other evaluations are unaffected
+		assertEquals(Breakpoint.NONE, Breakpoint.execInterruptLevel());
+		assertEquals("true", interpreter.execute("slow(3)").toString());
+	}
+}
@@ -40,7 +40,13 @@ public class CancelHandler extends LSPHandler
 	{
 		JSONObject params = request.get("params");
 		Object id = params.get("id");
-		CancellableThread.cancel(id);
+		LSPServer server = LSPServer.getInstance();
+		
+		if (server == null || !server.cancelRequest(id))	// Not a pending query
+		{
+			CancellableThread.cancel(id);
+		}
+
 		return null;
 	}
 }
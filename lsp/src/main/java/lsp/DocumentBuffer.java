@@ -0,0 +1,255 @@
+/*******************************************************************************
+ *
+ *	Copyright (c) 2026 Nick Battle.
+ *
+ *	Author: Nick Battle
+ *
+ *	This file is part of VDMJ.
+ *
+ *	VDMJ is free software: you can redistribute it and/or modify
+ *	it under the terms of the GNU General Public License as published by
+ *	the Free Software Foundation, either version 3 of the License, or
+ *	(at your option) any later version.
+ *
+ *	VDMJ is distributed in the hope that it will be useful,
+ *	but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *	GNU General Public License for more details.
+ *
+ *	You should have received a copy of the GNU General Public License
+ *	along with VDMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *	SPDX-License-Identifier: GPL-3.0-or-later
+ *
+ ******************************************************************************/
+
+package lsp;
+
+/**
+ * The text of a project file, with an index of the offset of the start of each line.
+ * The index is updated by each edit, rather than rebuilt, so that converting an LSP
+ * line/character position to an offset does not have to scan the text. Note that
+ * lines are separated by '\n' only, and a '\r' counts as a character, as for the
+ * position calculations that LSP clients make. The methods are synchronized, because
+ * queries can read a buffer while an update edits it.
+ */
+public class DocumentBuffer implements CharSequence
+{
+	private final StringBuilder text;
+	private int[] lineStarts;
+	private int lineCount;
+
+	public DocumentBuffer(String text)
+	{
+		this.text = new StringBuilder(text);
+		this.lineStarts = new int[16];
+		index();
+	}
+
+	public DocumentBuffer(char[] data, int offset, int count)
+	{
+		this.text = new StringBuilder(count);
+		this.text.append(data, offset, count);
+		this.lineStarts = new int[16];
+		index();
+	}
+
+	/**
+	 * Rebuild the whole line index.
+	 */
+	private void index()
+	{
+		lineCount = 0;
+		addLineStart(0);
+
+		for (int i=0; i<text.length(); i++)
+		{
+			if (text.charAt(i) == '\n')
+			{
+				addLineStart(i + 1);
+			}
+		}
+	}
+
+	private void addLineStart(int offset)
+	{
+		if (lineCount == lineStarts.length)
+		{
+			int[] newStarts = new int[lineCount * 2];
+			System.arraycopy(lineStarts, 0, newStarts, 0, lineCount);
+			lineStarts = newStarts;
+		}
+
+		lineStarts[lineCount++] = offset;
+	}
+
+	/**
+	 * Replace the entire content of the buffer.
+	 */
+	public synchronized void setText(String newText)
+	{
+		text.setLength(0);
+		text.append(newText);
+		index();
+	}
+
+	/**
+	 * Replace the characters from start (inclusive) to end (exclusive) with the
+	 * string passed, as StringBuilder.replace. Only the lines in the edited range
+	 * are re-indexed; the starts of the following lines are moved by the change
+	 * in length.
+	 */
+	public synchronized void replace(int start, int end, String str)
+	{
+		if (start < 0 || start > end || end > text.length())
+		{
+			throw new StringIndexOutOfBoundsException("Replace " + start + " to " + end + " in length " + text.length());
+		}
+
+		int firstLine = getLine(start);		// Unchanged, as it starts <= start
+		int lastLine = getLine(end);		// Lines firstLine+1 to lastLine are removed
+		int delta = str.length() - (end - start);
+		int added = 0;
+
+		for (int i=0; i<str.length(); i++)
+		{
+			if (str.charAt(i) == '\n')
+			{
+				added++;
+			}
+		}
+
+		int removed = lastLine - firstLine;
+		int following = lineCount - lastLine - 1;
+		int newCount = lineCount - removed + added;
+		int[] newStarts = lineStarts;
+
+		if (newCount > lineStarts.length)
+		{
+			newStarts = new int[Math.max(newCount, lineStarts.length * 2)];
+			System.arraycopy(lineStarts, 0, newStarts, 0, firstLine + 1);
+		}
+
+		System.arraycopy(lineStarts, lastLine + 1, newStarts, firstLine + added + 1, following);
+		int next = firstLine + 1;
+
+		for (int i=0; i<str.length(); i++)
+		{
+			if (str.charAt(i) == '\n')
+			{
+				newStarts[next++] = start + i + 1;
+			}
+		}
+
+		for (int i=next; i<newCount; i++)
+		{
+			newStarts[i] += delta;
+		}
+
+		lineStarts = newStarts;
+		lineCount = newCount;
+		text.replace(start, end, str);
+	}
+
+	/**
+	 * The number of lines, which is one more than the number of '\n' characters.
+	 */
+	public synchronized int getLineCount()
+	{
+		return lineCount;
+	}
+
+	/**
+	 * The zero-based line containing the offset passed, by binary search.
+	 */
+	public synchronized int getLine(int offset)
+	{
+		int low = 0;
+		int high = lineCount - 1;
+
+		while (low < high)
+		{
+			int mid = (low + high + 1) >>> 1;
+
+			if (lineStarts[mid] <= offset)
+			{
+				low = mid;
+			}
+			else
+			{
+				high = mid - 1;
+			}
+		}
+
+		return low;
+	}
+
+	/**
+	 * The offset of the start of a zero-based line.
+	 */
+	public synchronized int getLineStart(int zline)
+	{
+		return lineStarts[zline];
+	}
+
+	/**
+	 * The number of characters in a zero-based line, excluding the '\n'.
+	 */
+	public synchronized int getLineLength(int zline)
+	{
+		int end = (zline + 1 < lineCount) ? lineStarts[zline + 1] - 1 : text.length();
+		return end - lineStarts[zline];
+	}
+
+	/**
+	 * Convert a zero-based line and character to an offset, or return -1 if
+	 * the position is not within the buffer. The character may be one beyond
+	 * the end of the line.
+	 */
+	public synchronized int getOffset(long zline, long zcol)
+	{
+		if (zline < 0 || zline >= lineCount || zcol < 0 || zcol > getLineLength((int)zline))
+		{
+			return -1;
+		}
+
+		return lineStarts[(int)zline] + (int)zcol;
+	}
+
+	/**
+	 * The text of a zero-based line, excluding the '\n'.
+	 */
+	public synchronized String getLineText(int zline)
+	{
+		int start = lineStarts[zline];
+		return text.substring(start, start + getLineLength(zline));
+	}
+
+	public synchronized String substring(int start, int end)
+	{
+		return text.substring(start, end);
+	}
+
+	@Override
+	public synchronized int length()
+	{
+		return text.length();
+	}
+
+	@Override
+	public synchronized char charAt(int index)
+	{
+		return text.charAt(index);
+	}
+
+	@Override
+	public synchronized CharSequence subSequence(int start, int end)
+	{
+		return text.subSequence(start, end);
+	}
+
+	@Override
+	public synchronized String toString()
+	{
+		return text.toString();
+	}
+}
@@ -0,0 +1,432 @@
+/*******************************************************************************
+ *
+ *	Copyright (c) 2026 Nick Battle.
+ *
+ *	Author: Nick Battle
+ *
+ *	This file is part of VDMJ.
+ *
+ *	VDMJ is free software: you can redistribute it and/or modify
+ *	it under the terms of the GNU General Public License as published by
+ *	the Free Software Foundation, either version 3 of the License, or
+ *	(at your option) any later version.
+ *
+ *	VDMJ is distributed in the hope that it will be useful,
+ *	but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *	GNU General Public License for more details.
+ *
+ *	You should have received a copy of the GNU General Public License
+ *	along with VDMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *	SPDX-License-Identifier: GPL-3.0-or-later
+ *
+ ******************************************************************************/
+
+package lsp;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import json.JSONObject;
+import rpc.RPCDispatcher;
+import rpc.RPCErrors;
+import rpc.RPCMessageList;
+import rpc.RPCRequest;
+import workspace.Diag;
+
+/**
+ * Schedule the requests read by the server loop. Read-only queries, like definition
+ * or references, run concurrently on a pool of worker threads. Everything else runs
+ * in order on a single update thread. Queries read the results of the last complete
+ * type check, which the check publishes when it ends, so they do not wait for updates
+ * in general, and updates do not wait for queries. But a query waits for the edits
+ * to its own document that were received before it, like didOpen or didChange, so
+ * that the positions it is given match the text it reads. Inline methods, like
+ * $/cancelRequest, are dispatched by the caller immediately.
+ */
+abstract public class LSPRequestScheduler
+{
+	private final RPCDispatcher dispatcher;
+	private final int threads;
+	private final Set<String> queries = new HashSet<String>();
+	private final Set<String> edits = new HashSet<String>();
+	private final Set<String> inline = new HashSet<String>();
+	private final Map<Object, Query> pending = new HashMap<Object, Query>();
+
+	private ExecutorService queryPool = null;
+	private ExecutorService updatePool = null;
+
+	/** The number of edits queued and done, per document URI */
+	private final Map<String, Long> editsQueued = new HashMap<String, Long>();
+	private final Map<String, Long> editsDone = new HashMap<String, Long>();
+
+	public LSPRequestScheduler(RPCDispatcher dispatcher, int threads)
+	{
+		this.dispatcher = dispatcher;
+		this.threads = Math.max(1, threads);
+	}
+
+	/**
+	 * Send the responses to a request, or the requests of a handler, to the client.
+	 * This is called from the scheduler's threads.
+	 */
+	abstract protected void send(RPCMessageList responses) throws IOException;
+
+	/**
+	 * Called once by each query thread before it runs any queries.
+	 */
+	protected void initQueryThread()
+	{
+		// Nothing by default
+	}
+
+	public void registerQueries(String... methods)
+	{
+		for (String method: methods)
+		{
+			queries.add(method);
+		}
+	}
+
+	/**
+	 * Register the update methods that edit the text of one document. Queries on that
+	 * document wait for these.
+	 */
+	public void registerEdits(String... methods)
+	{
+		for (String method: methods)
+		{
+			edits.add(method);
+		}
+	}
+
+	public void registerInline(String... methods)
+	{
+		for (String method: methods)
+		{
+			inline.add(method);
+		}
+	}
+
+	public void schedule(RPCRequest request) throws IOException
+	{
+		String method = request.getMethod();
+		Object id = request.get("id");
+
+		if (inline.contains(method))
+		{
+			send(dispatcher.dispatch(request));
+		}
+		else if (queries.contains(method) && id != null)
+		{
+			Query query = null;
+
+			synchronized (this)
+			{
+				String uri = documentOf(request);
+				query = new Query(request, uri, count(editsQueued, uri));
+				pending.put(id, query);
+			}
+
+			getQueryPool().execute(query);
+		}
+		else
+		{
+			String uri = null;
+
+			if (edits.contains(method))
+			{
+				synchronized (this)
+				{
+					uri = documentOf(request);
+
+					if (uri != null)
+					{
+						editsQueued.put(uri, count(editsQueued, uri) + 1);
+					}
+				}
+			}
+
+			getUpdatePool().execute(new Update(request, uri));
+		}
+	}
+
+	/**
+	 * The textDocument URI of a request, or null if it does not have one.
+	 */
+	private String documentOf(RPCRequest request)
+	{
+		Object params = request.get("params");
+
+		if (params instanceof JSONObject)
+		{
+			Object textDocument = ((JSONObject)params).get("textDocument");
+
+			if (textDocument instanceof JSONObject)
+			{
+				return ((JSONObject)textDocument).get("uri");
+			}
+		}
+
+		return null;
+	}
+
+	private long count(Map<String, Long> counts, String uri)
+	{
+		Long count = (uri == null) ? null : counts.get(uri);
+		return (count == null) ? 0 : count;
+	}
+
+	/**
+	 * Cancel a query by its request id. A query that has not started is answered with
+	 * a RequestCancelled error. A query in progress is interrupted, and answered the
+	 * same way unless it has already completed. This returns false if the id is not
+	 * a pending query.
+	 */
+	public synchronized boolean cancel(Object id)
+	{
+		Query query = pending.get(id);
+
+		if (query == null)
+		{
+			return false;
+		}
+
+		query.cancelled = true;
+
+		if (query.thread != null)
+		{
+			query.thread.interrupt();
+		}
+
+		notifyAll();
+		return true;
+	}
+
+	public synchronized void shutdown()
+	{
+		if (queryPool != null)
+		{
+			queryPool.shutdownNow();
+			queryPool = null;
+		}
+
+		if (updatePool != null)
+		{
+			updatePool.shutdownNow();
+			updatePool = null;
+		}
+	}
+
+	private synchronized ExecutorService getQueryPool()
+	{
+		if (queryPool == null)
+		{
+			queryPool = Executors.newFixedThreadPool(threads, new ThreadFactory()
+			{
+				private int count = 0;
+
+				@Override
+				public Thread newThread(final Runnable r)
+				{
+					Thread thread = new Thread(new Runnable()
+					{
+						@Override
+						public void run()
+						{
+							initQueryThread();
+							r.run();
+						}
+					}, "LSP-Query-" + (++count));
+
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+
+		return queryPool;
+	}
+
+	private synchronized ExecutorService getUpdatePool()
+	{
+		if (updatePool == null)
+		{
+			updatePool = Executors.newSingleThreadExecutor(new ThreadFactory()
+			{
+				@Override
+				public Thread newThread(Runnable r)
+				{
+					Thread thread = new Thread(r, "LSP-Update");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+
+		return updatePool;
+	}
+
+	private void sendAll(RPCMessageList responses)
+	{
+		if (responses != null)
+		{
+			try
+			{
+				send(responses);
+			}
+			catch (IOException e)
+			{
+				Diag.error(e);
+			}
+		}
+	}
+
+	private RPCMessageList failed(RPCRequest request, Exception e)
+	{
+		Diag.error(e);
+
+		if (request.get("id") == null)
+		{
+			return null;	// Notification
+		}
+		else
+		{
+			return new RPCMessageList(request, RPCErrors.InternalError, e.getMessage());
+		}
+	}
+
+	/**
+	 * A read-only request, which runs when the edits to its document queued before it
+	 * are done.
+	 */
+	private class Query implements Runnable
+	{
+		private final RPCRequest request;
+		private final String uri;
+		private final long after;
+		private Thread thread = null;
+		private boolean cancelled = false;
+
+		public Query(RPCRequest request, String uri, long after)
+		{
+			this.request = request;
+			this.uri = uri;
+			this.after = after;
+		}
+
+		@Override
+		public void run()
+		{
+			synchronized (LSPRequestScheduler.this)
+			{
+				try
+				{
+					while (!cancelled && count(editsDone, uri) < after)
+					{
+						LSPRequestScheduler.this.wait();
+					}
+				}
+				catch (InterruptedException e)
+				{
+					cancelled = true;	// Shutting down
+				}
+
+				if (cancelled)
+				{
+					pending.remove(request.get("id"));
+				}
+				else
+				{
+					thread = Thread.currentThread();
+				}
+			}
+
+			RPCMessageList responses = null;
+
+			if (!cancelled)
+			{
+				try
+				{
+					responses = dispatcher.dispatch(request);
+				}
+				catch (CancellationException e)
+				{
+					Diag.info("Request %s interrupted", request.getMethod());
+				}
+				catch (Exception e)
+				{
+					responses = failed(request, e);
+				}
+				finally
+				{
+					synchronized (LSPRequestScheduler.this)
+					{
+						thread = null;
+						Thread.interrupted();	// Clear any late cancel
+						pending.remove(request.get("id"));
+					}
+				}
+			}
+
+			if (cancelled)
+			{
+				Diag.info("Request %s cancelled", request.getMethod());
+				responses = new RPCMessageList(request, RPCErrors.RequestCancelled, "Request cancelled");
+			}
+
+			sendAll(responses);
+		}
+	}
+
+	/**
+	 * A request that may change the workspace. Updates run in the order received,
+	 * because there is only one update thread. The uri is set for document edits.
+	 */
+	private class Update implements Runnable
+	{
+		private final RPCRequest request;
+		private final String uri;
+
+		public Update(RPCRequest request, String uri)
+		{
+			this.request = request;
+			this.uri = uri;
+		}
+
+		@Override
+		public void run()
+		{
+			RPCMessageList responses = null;
+
+			try
+			{
+				responses = dispatcher.dispatch(request);
+			}
+			catch (Exception e)
+			{
+				responses = failed(request, e);
+			}
+			finally
+			{
+				if (uri != null)
+				{
+					synchronized (LSPRequestScheduler.this)
+					{
+						editsDone.put(uri, count(editsDone, uri) + 1);
+						LSPRequestScheduler.this.notifyAll();
+					}
+				}
+			}
+
+			sendAll(responses);
+		}
+	}
+}
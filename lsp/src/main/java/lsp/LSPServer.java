@@ -27,12 +27,14 @@ package lsp;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
 import com.fujitsu.vdmj.Settings;
 import com.fujitsu.vdmj.VDMJMain;
 import com.fujitsu.vdmj.lex.Dialect;
+import com.fujitsu.vdmj.typechecker.TypeChecker;
 
 import json.JSONObject;
 import json.JSONServer;
@@ -63,8 +65,9 @@ public class LSPServer extends JSONServer implements VDMJMain
 	private static LSPServer INSTANCE = null;
 
 	private final RPCDispatcher dispatcher;
+	private final LSPRequestScheduler scheduler;
 	private final Map<Long, RPCHandler> responseHandlers;
-	private boolean initialized = false;
+	private volatile boolean initialized = false;
 	
 	public static String getMainName()
 	{
@@ -77,7 +80,8 @@ public class LSPServer extends JSONServer implements VDMJMain
 		
 		INSTANCE = this;
 		this.dispatcher = getDispatcher();
-		this.responseHandlers = new HashMap<Long, RPCHandler>();
+		this.scheduler = getScheduler();
+		this.responseHandlers = Collections.synchronizedMap(new HashMap<Long, RPCHandler>());
 
 		// Identify this class as the debug link - See DebugLink
 		System.setProperty("vdmj.debug.link_class", DAPDebugLink.class.getName());
@@ -125,11 +129,62 @@ public class LSPServer extends JSONServer implements VDMJMain
 		return dispatcher;
 	}
 	
+	private LSPRequestScheduler getScheduler()
+	{
+		LSPRequestScheduler scheduler = new LSPRequestScheduler(dispatcher, Integer.getInteger("lsp.query.threads", 2))
+		{
+			@Override
+			protected void send(RPCMessageList responses) throws IOException
+			{
+				sendResponses(responses);
+			}
+			
+			@Override
+			protected void initQueryThread()
+			{
+				TypeChecker.setLocalMessages(true);		// Lookups report nothing
+			}
+		};
+		
+		registerMethods(scheduler);
+		return scheduler;
+	}
+	
+	/**
+	 * Set how the scheduler runs each method. This is separate so that it can be tested.
+	 */
+	static void registerMethods(LSPRequestScheduler scheduler)
+	{
+		scheduler.registerInline("$/cancelRequest");
+		
+		// These replace or change a DocumentBuffer, so queries on that document wait for them
+		scheduler.registerEdits("textDocument/didOpen", "textDocument/didChange", "textDocument/didClose");
+		
+		// These must only read the workspace, and the TC snapshot, as they run concurrently
+		scheduler.registerQueries("textDocument/definition", "textDocument/references",
+			"textDocument/documentSymbol", "textDocument/completion",
+			"textDocument/codeLens", "codeLens/resolve",
+			"textDocument/prepareTypeHierarchy", "typeHierarchy/supertypes", "typeHierarchy/subtypes");
+	}
+	
 	public void run() throws IOException
 	{
-		boolean running = true;
 		responseHandlers.clear();
 		
+		try
+		{
+			runLoop();
+		}
+		finally
+		{
+			scheduler.shutdown();
+		}
+	}
+	
+	private void runLoop() throws IOException
+	{
+		boolean running = true;
+		
 		while (running)
 		{
 			JSONObject message = readMessage();
@@ -157,25 +212,36 @@ public class LSPServer extends JSONServer implements VDMJMain
 			}
 			else
 			{
-				RPCRequest request = RPCRequest.create(message);
-				RPCMessageList responses = dispatcher.dispatch(request);
-				
-				if (responses != null)
+				scheduler.schedule(RPCRequest.create(message));
+			}
+		}
+	}
+	
+	/**
+	 * Write responses, or requests to the client, from any thread. The handlers for
+	 * requests are registered before they are sent, so that the responses find them.
+	 */
+	private void sendResponses(RPCMessageList responses) throws IOException
+	{
+		if (responses != null)
+		{
+			for (JSONObject response: responses)
+			{
+				if (response.get("method") != null && response.get("id") != null)	// A request
 				{
-					for (JSONObject response: responses)
-					{
-						writeMessage(response);
-						
-						if (response.get("method") != null && response.get("id") != null)	// A request
-						{
-							RPCRequest req = RPCRequest.create(response);
-							responseHandlers.put(response.get("id"), dispatcher.getHandler(req));
-						}
-					}
+					RPCRequest req = RPCRequest.create(response);
+					responseHandlers.put(response.get("id"), dispatcher.getHandler(req));
 				}
+				
+				writeMessage(response);
 			}
 		}
 	}
+	
+	public boolean cancelRequest(Object id)
+	{
+		return scheduler.cancel(id);
+	}
 
 	public boolean isInitialized()
 	{
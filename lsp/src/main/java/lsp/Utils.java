@@ -190,7 +190,7 @@ public class Utils
 	/**
 	 * Return Ranges for the locations of word in the buffer.
 	 */
-	public static JSONArray findWords(StringBuilder buffer, String word)
+	public static JSONArray findWords(DocumentBuffer buffer, String word)
 	{
 		long currentLine = 0;
 		long currentCharacter = 0;
@@ -234,40 +234,20 @@ public class Utils
 		return results;
 	}
 
-	public static int findPosition(StringBuilder buffer, JSONObject position) throws Exception
+	public static int findPosition(DocumentBuffer buffer, JSONObject position) throws Exception
 	{
 		long line = position.get("line");
 		long character = position.get("character");
 		return findPosition(buffer, line, character);
 	}
 		
-	public static int findPosition(StringBuilder buffer, long zline, long zcol)
+	public static int findPosition(DocumentBuffer buffer, long zline, long zcol)
 	{
-		long currentLine = 0;
-		long currentCharacter = 0;
-
-		for (int i=0; i<buffer.length(); i++)
-		{
-			if (currentLine == zline && currentCharacter == zcol)
-			{
-				return i;
-			}
-			
-			if (buffer.charAt(i) == '\n')
-			{
-				currentLine++;
-				currentCharacter = 0;
-			}
-			else
-			{
-				currentCharacter++;
-			}
-		}
+		int position = buffer.getOffset(zline, zcol);
 		
-		// Catch position at end of file...
-		if (currentLine == zline && currentCharacter == zcol)
+		if (position >= 0)
 		{
-			return buffer.length();
+			return position;
 		}
 		
 		Diag.error("Cannot locate line %d character %s in buffer length %d", zline, zcol, buffer.length());
@@ -353,55 +333,25 @@ public class Utils
 		return new JSONObject("line", line - 1, "character", 999999999);
 	}
 	
-	public static JSONObject getEndPosition(StringBuilder buffer)
+	public static JSONObject getEndPosition(DocumentBuffer buffer)
 	{
-		long currentLine = 0;
-		long currentCharacter = 0;
-
-		for (int i=0; i<buffer.length(); i++)
-		{
-			if (buffer.charAt(i) == '\n')
-			{
-				currentLine++;
-				currentCharacter = 0;
-			}
-			else
-			{
-				currentCharacter++;
-			}
-		}
+		int lastLine = buffer.getLineCount() - 1;
 		
 		return new JSONObject(
-					"line", currentLine,
-					"character", currentCharacter);
+					"line", (long)lastLine,
+					"character", (long)buffer.getLineLength(lastLine));
 	}
 	
-	public static JSONObject getLineEndPosition(StringBuilder buffer, int zline)
+	public static JSONObject getLineEndPosition(DocumentBuffer buffer, int zline)
 	{
-		long currentLine = 0;
-		long currentCharacter = 0;
-
-		for (int i=0; i<buffer.length(); i++)
+		if (zline >= buffer.getLineCount())
 		{
-			if (buffer.charAt(i) == '\n')
-			{
-				if (currentLine == zline)
-				{
-					break;
-				}
-				
-				currentLine++;
-				currentCharacter = 0;
-			}
-			else
-			{
-				currentCharacter++;
-			}
+			return getEndPosition(buffer);
 		}
 		
 		return new JSONObject(
-					"line", currentLine,
-					"character", currentCharacter);
+					"line", (long)zline,
+					"character", (long)buffer.getLineLength(zline));
 	}
 	
 	public static void diff(String message, String s1, String s2)
@@ -508,7 +458,7 @@ public class Utils
 	/**
 	 * @return True if the character passed can be part of a variable name.
 	 */
-	private static boolean restOfName(char c)
+	public static boolean restOfName(char c)
 	{
 		if (c < 0x0100)
 		{
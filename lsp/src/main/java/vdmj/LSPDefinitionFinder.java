@@ -33,6 +33,7 @@ import com.fujitsu.vdmj.tc.TCNode;
 import com.fujitsu.vdmj.tc.definitions.TCClassDefinition;
 import com.fujitsu.vdmj.tc.definitions.TCClassList;
 import com.fujitsu.vdmj.tc.definitions.TCDefinition;
+import com.fujitsu.vdmj.tc.definitions.TCDefinitionList;
 import com.fujitsu.vdmj.tc.definitions.TCLocalDefinition;
 import com.fujitsu.vdmj.tc.expressions.TCFieldExpression;
 import com.fujitsu.vdmj.tc.expressions.TCIsExpression;
@@ -79,6 +80,25 @@ public class LSPDefinitionFinder
 		}
 	}
 	
+	private final LSPDefinitionIndex index;
+	
+	/**
+	 * A finder that searches every definition.
+	 */
+	public LSPDefinitionFinder()
+	{
+		this.index = null;
+	}
+	
+	/**
+	 * A finder that only searches the definitions that the index passed says may
+	 * contain the position sought.
+	 */
+	public LSPDefinitionFinder(LSPDefinitionIndex index)
+	{
+		this.index = index;
+	}
+	
 	public Found findLocation(TCModuleList modules, LexLocation position)
 	{
 		LSPDefinitionLocationFinder finder = new LSPDefinitionLocationFinder();
@@ -131,7 +151,9 @@ public class LSPDefinitionFinder
 					}
 				}
 
-				for (TCDefinition def: module.defs)
+				TCDefinitionList defs = (index == null) ? module.defs : index.getDefinitions(module, position);
+				
+				for (TCDefinition def: defs)
 				{
 					Set<TCNode> nodes = def.apply(finder, position);
 					
@@ -166,7 +188,21 @@ public class LSPDefinitionFinder
 			
 			if (span == null || position.within(span))
 			{
-				Set<TCNode> nodes = cdef.apply(finder, position);
+				Set<TCNode> nodes = null;
+				
+				if (index == null)
+				{
+					nodes = cdef.apply(finder, position);
+				}
+				else
+				{
+					nodes = finder.findClassNames(cdef, position);
+					
+					for (TCDefinition def: index.getDefinitions(cdef, position))
+					{
+						nodes.addAll(def.apply(finder, position));
+					}
+				}
 
 				if (nodes != null && !nodes.isEmpty())	// found it!
 				{
@@ -196,7 +232,7 @@ public class LSPDefinitionFinder
 		if (found != null)
 		{
 			TCModule module = found.module;
-			ModuleEnvironment env = new ModuleEnvironment(module);
+			Environment env = (index == null) ? new ModuleEnvironment(module) : index.getEnvironment(module);
 			TCDefinition result = lookupNodeDefinition(found.node, env, module.name.getName());
 
 			if (result == null)
@@ -221,8 +257,17 @@ public class LSPDefinitionFinder
 		if (found != null)
 		{
 			TCClassDefinition cdef = found.classdef;
-			PublicClassEnvironment globals = new PublicClassEnvironment(classes); 
-			PrivateClassEnvironment env = new PrivateClassEnvironment(cdef, globals);
+			Environment env = null;
+			
+			if (index == null)
+			{
+				PublicClassEnvironment globals = new PublicClassEnvironment(classes); 
+				env = new PrivateClassEnvironment(cdef, globals);
+			}
+			else
+			{
+				env = index.getEnvironment(cdef);
+			}
 			TCDefinition result = lookupNodeDefinition(found.node, env, cdef.name.getName());
 
 			if (result == null)
@@ -0,0 +1,250 @@
+/*******************************************************************************
+ *
+ *	Copyright (c) 2026 Nick Battle.
+ *
+ *	Author: Nick Battle
+ *
+ *	This file is part of VDMJ.
+ *
+ *	VDMJ is free software: you can redistribute it and/or modify
+ *	it under the terms of the GNU General Public License as published by
+ *	the Free Software Foundation, either version 3 of the License, or
+ *	(at your option) any later version.
+ *
+ *	VDMJ is distributed in the hope that it will be useful,
+ *	but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *	GNU General Public License for more details.
+ *
+ *	You should have received a copy of the GNU General Public License
+ *	along with VDMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *	SPDX-License-Identifier: GPL-3.0-or-later
+ *
+ ******************************************************************************/
+
+package vdmj;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Vector;
+
+import com.fujitsu.vdmj.lex.LexLocation;
+import com.fujitsu.vdmj.tc.definitions.TCClassDefinition;
+import com.fujitsu.vdmj.tc.definitions.TCClassList;
+import com.fujitsu.vdmj.tc.definitions.TCDefinition;
+import com.fujitsu.vdmj.tc.definitions.TCDefinitionList;
+import com.fujitsu.vdmj.tc.modules.TCModule;
+import com.fujitsu.vdmj.tc.modules.TCModuleList;
+import com.fujitsu.vdmj.typechecker.Environment;
+import com.fujitsu.vdmj.typechecker.ModuleEnvironment;
+import com.fujitsu.vdmj.typechecker.PrivateClassEnvironment;
+import com.fujitsu.vdmj.typechecker.PublicClassEnvironment;
+
+/**
+ * An index of the top level definitions of each file, sorted by position. Every
+ * node within a definition comes after its location and before the location of the
+ * next definition in the file, so a position can be located by searching the one
+ * definition that precedes it, rather than every definition in the specification.
+ * The index is built once after each type check, and it also keeps the environments
+ * used to look up names, since these are expensive to create for large modules.
+ */
+public class LSPDefinitionIndex
+{
+	private static class Entry
+	{
+		public final Object owner;		// The TCModule or TCClassDefinition
+		public final TCDefinition definition;
+
+		public Entry(Object owner, TCDefinition definition)
+		{
+			this.owner = owner;
+			this.definition = definition;
+		}
+	}
+
+	private static final Comparator<Entry> BY_POSITION = new Comparator<Entry>()
+	{
+		@Override
+		public int compare(Entry a, Entry b)
+		{
+			return compareTo(a.definition.location, b.definition.location);
+		}
+	};
+
+	private final Map<File, List<Entry>> index = new HashMap<File, List<Entry>>();
+	private final Map<Object, Environment> environments = new HashMap<Object, Environment>();
+	private final TCClassList classes;
+
+	public LSPDefinitionIndex(TCModuleList modules)
+	{
+		this.classes = null;
+
+		for (TCModule module: modules)
+		{
+			for (TCDefinition def: module.defs)
+			{
+				add(module, def);
+			}
+		}
+
+		sort();
+	}
+
+	public LSPDefinitionIndex(TCClassList classes)
+	{
+		this.classes = classes;
+
+		for (TCClassDefinition cdef: classes)
+		{
+			for (TCDefinition def: cdef.definitions)
+			{
+				add(cdef, def);
+			}
+		}
+
+		sort();
+	}
+
+	private void add(Object owner, TCDefinition def)
+	{
+		List<Entry> entries = index.get(def.location.file);
+
+		if (entries == null)
+		{
+			entries = new Vector<Entry>();
+			index.put(def.location.file, entries);
+		}
+
+		entries.add(new Entry(owner, def));
+	}
+
+	private void sort()
+	{
+		for (List<Entry> entries: index.values())
+		{
+			Collections.sort(entries, BY_POSITION);		// Stable, so equal locations keep their order
+		}
+	}
+
+	/**
+	 * The definitions of a module that may contain the position passed.
+	 */
+	public TCDefinitionList getDefinitions(TCModule module, LexLocation position)
+	{
+		return find(module, position);
+	}
+
+	/**
+	 * The definitions of a class that may contain the position passed.
+	 */
+	public TCDefinitionList getDefinitions(TCClassDefinition cdef, LexLocation position)
+	{
+		return find(cdef, position);
+	}
+
+	/**
+	 * The environment for looking up names within a module.
+	 */
+	public synchronized Environment getEnvironment(TCModule module)
+	{
+		Environment env = environments.get(module);
+
+		if (env == null)
+		{
+			env = new ModuleEnvironment(module);
+			environments.put(module, env);
+		}
+
+		return env;
+	}
+
+	/**
+	 * The environment for looking up names within a class.
+	 */
+	public synchronized Environment getEnvironment(TCClassDefinition cdef)
+	{
+		Environment globals = environments.get(classes);
+
+		if (globals == null)
+		{
+			globals = new PublicClassEnvironment(classes);
+			environments.put(classes, globals);
+		}
+
+		Environment env = environments.get(cdef);
+
+		if (env == null)
+		{
+			env = new PrivateClassEnvironment(cdef, globals);
+			environments.put(cdef, env);
+		}
+
+		return env;
+	}
+
+	private TCDefinitionList find(Object owner, LexLocation position)
+	{
+		TCDefinitionList result = new TCDefinitionList();
+		List<Entry> entries = index.get(position.file);
+
+		if (entries != null)
+		{
+			// Find the last entry at or before the position, by binary search
+			int low = 0;
+			int high = entries.size() - 1;
+			int last = -1;
+
+			while (low <= high)
+			{
+				int mid = (low + high) >>> 1;
+
+				if (compareTo(entries.get(mid).definition.location, position) <= 0)
+				{
+					last = mid;
+					low = mid + 1;
+				}
+				else
+				{
+					high = mid - 1;
+				}
+			}
+
+			if (last >= 0)
+			{
+				LexLocation start = entries.get(last).definition.location;
+				int first = last;
+
+				while (first > 0 && compareTo(entries.get(first - 1).definition.location, start) == 0)
+				{
+					first--;
+				}
+
+				for (int i = first; i <= last; i++)
+				{
+					Entry entry = entries.get(i);
+
+					if (entry.owner == owner)
+					{
+						result.add(entry.definition);
+					}
+				}
+			}
+		}
+
+		return result;
+	}
+
+	private static int compareTo(LexLocation a, LexLocation b)
+	{
+		if (a.startLine != b.startLine)
+		{
+			return Integer.compare(a.startLine, b.startLine);
+		}
+
+		return Integer.compare(a.startPos, b.startPos);
+	}
+}
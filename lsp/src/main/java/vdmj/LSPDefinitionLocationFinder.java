@@ -85,6 +85,16 @@ public class LSPDefinitionLocationFinder extends TCLeafDefinitionVisitor<TCNode,
 	public Set<TCNode> caseClassDefinition(TCClassDefinition node, LexLocation sought)
 	{
 		Set<TCNode> all = super.caseClassDefinition(node, sought);
+		all.addAll(findClassNames(node, sought));
+		return all;
+	}
+	
+	/**
+	 * Find the class name or a supername of the class at the location sought.
+	 */
+	public Set<TCNode> findClassNames(TCClassDefinition node, LexLocation sought)
+	{
+		Set<TCNode> all = newCollection();
 		
 		if (sought.touches(node.name.getLocation()))
 		{
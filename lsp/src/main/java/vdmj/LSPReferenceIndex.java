@@ -0,0 +1,275 @@
+/*******************************************************************************
+ *
+ *	Copyright (c) 2023 Nick Battle.
+ *
+ *	Author: Nick Battle
+ *
+ *	This file is part of VDMJ.
+ *
+ *	VDMJ is free software: you can redistribute it and/or modify
+ *	it under the terms of the GNU General Public License as published by
+ *	the Free Software Foundation, either version 3 of the License, or
+ *	(at your option) any later version.
+ *
+ *	VDMJ is distributed in the hope that it will be useful,
+ *	but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *	GNU General Public License for more details.
+ *
+ *	You should have received a copy of the GNU General Public License
+ *	along with VDMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *	SPDX-License-Identifier: GPL-3.0-or-later
+ *
+ ******************************************************************************/
+
+package vdmj;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+
+import com.fujitsu.vdmj.lex.LexLocation;
+import com.fujitsu.vdmj.tc.definitions.TCDefinition;
+
+import json.JSONArray;
+import json.JSONObject;
+import lsp.DocumentBuffer;
+import lsp.Utils;
+
+/**
+ * An index of the references to definitions, held per file. Each file has an index
+ * of the positions of the words in its text, and the definitions that each word
+ * resolves to are found on demand and then kept until the file is re-checked.
+ * So the first search for a name resolves each occurrence once, and later searches
+ * for the same name are answered from the index. Each type check has a new index,
+ * which starts with the entries of the last one for files that were not re-checked.
+ */
+public class LSPReferenceIndex
+{
+	/**
+	 * Find the definition at a position, using the type check that the index is for.
+	 */
+	public interface Resolver
+	{
+		public TCDefinition findDefinition(File file, long zline, long zcol);
+	}
+
+	private static class FileIndex
+	{
+		/** The ranges of each word and word suffix in the file, eg. "R" of "mk_R" */
+		public final Map<String, JSONArray> words;
+
+		/** The ranges that resolve to each definition location, for words searched */
+		public final Map<String, Map<LexLocation, JSONArray>> resolved;
+
+		public FileIndex()
+		{
+			words = new HashMap<String, JSONArray>();
+			resolved = new HashMap<String, Map<LexLocation, JSONArray>>();
+		}
+
+		public FileIndex(FileIndex from)
+		{
+			words = from.words;		// Not changed once built
+			resolved = new HashMap<String, Map<LexLocation, JSONArray>>(from.resolved);
+		}
+	}
+
+	private final Map<File, FileIndex> index = new HashMap<File, FileIndex>();
+
+	public LSPReferenceIndex()
+	{
+		// Empty
+	}
+
+	/**
+	 * Create an index with the entries of another, except for the files passed,
+	 * which have been re-checked or changed.
+	 */
+	public LSPReferenceIndex(LSPReferenceIndex from, Set<File> rechecked)
+	{
+		synchronized (from)
+		{
+			for (Map.Entry<File, FileIndex> entry: from.index.entrySet())
+			{
+				if (!rechecked.contains(entry.getKey()))
+				{
+					index.put(entry.getKey(), new FileIndex(entry.getValue()));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Find the ranges in the project files that refer to the definition passed,
+	 * excluding the definition itself.
+	 */
+	public synchronized JSONArray findReferences(TCDefinition def, Map<File, DocumentBuffer> projectFiles, Resolver tc)
+	{
+		String word = def.name.getName();
+		JSONObject defRange = Utils.lexLocationToRange(def.location);
+		JSONArray results = new JSONArray();
+
+		for (File file: projectFiles.keySet())
+		{
+			checkInterrupted();
+			FileIndex findex = index.get(file);
+
+			if (findex == null)
+			{
+				findex = indexWords(projectFiles.get(file));
+				index.put(file, findex);
+			}
+
+			Map<LexLocation, JSONArray> resolved = findex.resolved.get(word);
+
+			if (resolved == null)
+			{
+				resolved = resolveWord(file, findex.words.get(word), tc);
+				findex.resolved.put(word, resolved);
+			}
+
+			// Check by location, so that manufactured definitions for fields will match.
+			JSONArray ranges = resolved.get(def.location);
+
+			if (ranges != null)
+			{
+				for (int i=0; i<ranges.size(); i++)
+				{
+					JSONObject range = ranges.index(i);
+
+					if (!range.equals(defRange))
+					{
+						results.add(new JSONObject("uri", file.toURI().toString(), "range", range));
+					}
+				}
+			}
+		}
+
+		return results;
+	}
+
+	private Map<LexLocation, JSONArray> resolveWord(File file, JSONArray ranges, Resolver tc)
+	{
+		Map<LexLocation, JSONArray> resolved = new HashMap<LexLocation, JSONArray>();
+
+		if (ranges != null)
+		{
+			for (int i=0; i<ranges.size(); i++)
+			{
+				checkInterrupted();
+				JSONObject range = ranges.index(i);
+				JSONObject start = range.get("start");
+				long zline = start.get("line");
+				long zcol  = start.get("character");
+
+				TCDefinition def = tc.findDefinition(file, zline, zcol);
+
+				if (def != null)
+				{
+					JSONArray list = resolved.get(def.location);
+
+					if (list == null)
+					{
+						list = new JSONArray();
+						resolved.put(def.location, list);
+					}
+
+					list.add(range);
+				}
+			}
+		}
+
+		return resolved;
+	}
+
+	/**
+	 * A references request can take a while, so it stops if its thread is interrupted
+	 * by a cancel. Nothing partial is cached, because results are only added on return.
+	 */
+	private void checkInterrupted()
+	{
+		if (Thread.currentThread().isInterrupted())
+		{
+			throw new CancellationException();
+		}
+	}
+
+	/**
+	 * Find the ranges of the names in a file in one pass. Every suffix of a name that
+	 * starts after an underscore is added too, so that the "R" of "mk_R" or "is_R"
+	 * is found, as well as the whole name.
+	 */
+	private FileIndex indexWords(DocumentBuffer buffer)
+	{
+		FileIndex findex = new FileIndex();
+		String text = buffer.toString();	// May be edited while we read
+		long line = 0;
+		long character = 0;
+		int length = text.length();
+		int i = 0;
+
+		while (i < length)
+		{
+			char c = text.charAt(i);
+
+			if (c == '\n')
+			{
+				line++;
+				character = 0;
+				i++;
+			}
+			else if (Utils.restOfName(c))
+			{
+				int start = i;
+
+				while (i < length && Utils.restOfName(text.charAt(i)))
+				{
+					i++;
+				}
+
+				String name = text.substring(start, i);
+				addWord(findex, name, line, character);
+
+				for (int u = name.indexOf('_'); u >= 0 && u < name.length() - 1; u = name.indexOf('_', u + 1))
+				{
+					addWord(findex, name.substring(u + 1), line, character + u + 1);
+				}
+
+				character += i - start;
+			}
+			else
+			{
+				character++;
+				i++;
+			}
+		}
+
+		return findex;
+	}
+
+	private void addWord(FileIndex findex, String word, long line, long character)
+	{
+		JSONArray ranges = findex.words.get(word);
+
+		if (ranges == null)
+		{
+			ranges = new JSONArray();
+			findex.words.put(word, ranges);
+		}
+
+		ranges.add(
+			new JSONObject(
+				"start",
+					new JSONObject(
+						"line", line,
+						"character", character),
+
+				"end",
+					new JSONObject(
+						"line", line,
+						"character", character + word.length())));
+	}
+}
@@ -30,6 +30,7 @@ import java.util.logging.Level;
 import com.fujitsu.vdmj.messages.VDMMessage;
 
 import json.JSONObject;
+import lsp.DocumentBuffer;
 
 public class DiagUtils
 {
@@ -44,26 +45,17 @@ public class DiagUtils
 		}
 	}
 	
-	public static void dumpEdit(JSONObject range, StringBuilder buffer)
+	public static void dumpEdit(JSONObject range, DocumentBuffer buffer)
 	{
 		if (Diag.isLoggable(Level.FINE))
 		{
 			JSONObject position = range.get("start");
 			long line = position.get("line");
-			long count = 0;
-			int start = 0;
 			
-			while (count < line)
+			if (line < buffer.getLineCount())
 			{
-				if (buffer.charAt(start++) == '\n')
-				{
-					count++;
-				}
+				Diag.fine("EDITED %d: [%s]", line+1, buffer.getLineText((int)line));
 			}
-			
-			int end = start;
-			while (end < buffer.length() && buffer.charAt(end) != '\n') end++;
-			Diag.fine("EDITED %d: [%s]", line+1, buffer.substring(start, end));
 		}
 	}
 }
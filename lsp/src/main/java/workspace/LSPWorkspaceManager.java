@@ -68,6 +68,7 @@ import com.fujitsu.vdmj.tc.types.TCTypeList;
 
 import json.JSONArray;
 import json.JSONObject;
+import lsp.DocumentBuffer;
 import lsp.LSPInitializeResponse;
 import lsp.LSPMessageUtils;
 import lsp.LSPServer;
@@ -108,7 +109,8 @@ public class LSPWorkspaceManager
 	private JSONObject clientInfo;
 	private JSONObject clientCapabilities;
 	private File rootUri = null;
-	private Map<File, StringBuilder> projectFiles = new LinkedHashMap<File, StringBuilder>();
+	private Map<File, DocumentBuffer> projectFiles =		// Read by concurrent queries
+		Collections.synchronizedMap(new LinkedHashMap<File, DocumentBuffer>());
 	private Set<File> openFiles = new HashSet<File>();
 	private boolean checkInProgress = false;
 
@@ -184,7 +186,7 @@ public class LSPWorkspaceManager
 		return rootUri;
 	}
 
-	public Map<File, StringBuilder> getProjectFiles()
+	public Map<File, DocumentBuffer> getProjectFiles()
 	{
 		return projectFiles;
 	}
@@ -493,19 +495,12 @@ public class LSPWorkspaceManager
 
 	private void loadFile(File file) throws IOException
 	{
-		StringBuilder sb = new StringBuilder();
 		InputStreamReader isr = new InputStreamReader(new FileInputStream(file), encoding);
 		char[] data = new char[(int)file.length() + 1];
 		int size = isr.read(data);
-		
-		if (size > 0)	// not empty file
-		{
-			sb.append(data, 0, size);
-		}
-		
 		isr.close();
 		
-		projectFiles.put(file, sb);
+		projectFiles.put(file, new DocumentBuffer(data, 0, Math.max(size, 0)));
 		messagehub.addFile(file);
 		Diag.info("Loaded file %s encoding %s", file.getPath(), encoding.displayName());
 	}
@@ -772,7 +767,7 @@ public class LSPWorkspaceManager
 		
 		eventhub.publish(new OpenFileEvent(request, file));
 		
-		StringBuilder existing = projectFiles.get(file);
+		DocumentBuffer existing = projectFiles.get(file);
 		
 		if (hasOrderedFiles && !isExtractedFile(file) && existing == null)
 		{
@@ -786,7 +781,7 @@ public class LSPWorkspaceManager
 				Diag.info("File different on didOpen?");
 			}
 			
-			projectFiles.put(file, new StringBuilder(text));
+			projectFiles.put(file, new DocumentBuffer(text));
 			messagehub.addFile(file);
 			return checkLoadedFiles("file out of sync");
 		}
@@ -852,7 +847,7 @@ public class LSPWorkspaceManager
 				externalFilesWarned.add(file);
 			}
 			
-			StringBuilder buffer = projectFiles.get(file);
+			DocumentBuffer buffer = projectFiles.get(file);
 			
 			if (range != null)
 			{
@@ -869,8 +864,7 @@ public class LSPWorkspaceManager
 			else
 			{
 				Diag.fine("Replacing entire content of %s", file);
-				buffer.setLength(0);
-				buffer.append(text);
+				buffer.setText(text);
 			}
 			
 			return eventhub.publish(new ChangeFileEvent(request, file));
@@ -910,7 +904,7 @@ public class LSPWorkspaceManager
 	
 			if (text != null)
 			{
-				projectFiles.put(file, new StringBuilder(text));
+				projectFiles.put(file, new DocumentBuffer(text));
 			}
 			
 			eventhub.publish(new SaveFileEvent(request, file));
@@ -1189,50 +1183,14 @@ public class LSPWorkspaceManager
 		}
 		else
 		{
-			String word = def.name.getName();
-			JSONArray results = new JSONArray();
-			
-			JSONObject defRange = Utils.lexLocationToRange(def.location);
-			
-			for (File pfile: projectFiles.keySet())
-			{
-				StringBuilder buffer = projectFiles.get(pfile);
-				
-				if (buffer.indexOf(word) > 0)
-				{
-					JSONArray list = Utils.findWords(buffer, word);
-					
-					for (int i=0; i<list.size(); i++)
-					{
-						JSONObject range = list.index(i);
-						
-						if (!range.equals(defRange))	// See incdec below
-						{
-							JSONObject start = range.get("start");
-							long zline2 = start.get("line");
-							long zcol2  = start.get("character");
-
-							TCDefinition def2 = findDefinition(pfile, zline2, zcol2);
-							
-							// Check by location, so that manufactured definitions for fields
-							// will match.
-							if (def2 != null && def2.location.equals(def.location))
-							{
-								results.add(
-									new JSONObject(
-										"uri", pfile.toURI().toString(),
-										"range", range));
-							}
-						}
-					}
-				}
-			}
+			TCPlugin plugin = registry.getPlugin("TC");
+			JSONArray results = plugin.findReferences(def);	// Excludes def, see incdec
 			
 			if (incdec)
 			{
 				results.add(new JSONObject(
 						"uri", def.location.file.toURI().toString(),
-						"range", defRange));
+						"range", Utils.lexLocationToRange(def.location)));
 			}
 			
 			return new RPCMessageList(request, results);
@@ -1322,48 +1280,53 @@ public class LSPWorkspaceManager
 		}
 		else
 		{
-			StringBuilder buffer = projectFiles.get(file);
-			int position = Utils.findPosition(buffer, zline, zcol);
+			DocumentBuffer buffer = projectFiles.get(file);
+			String word = "";
 			
-			if (position >= 0)
+			synchronized (buffer)	// A later didChange may be editing it
 			{
-				int start = 0;
-				int end = 0;
+				int position = Utils.findPosition(buffer, zline, zcol);
 				
-				switch (triggerKind)
+				if (position >= 0)
 				{
-					case INVOKED:
-						start = position - 1;	// eg. the "t" in "root"
-						end = position;
-						break;
-						
-					case TRIGGERCHARACTER:
-					case INCOMPLETE:
-						start = position - 2;	// eg. the "t" in "root."
-						end = position - 1;
-						break;
-				}
-				
-				while (start >= 0 && Character.isJavaIdentifierPart(buffer.charAt(start)))
-				{
-					start--;
+					int start = 0;
+					int end = 0;
+					
+					switch (triggerKind)
+					{
+						case INVOKED:
+							start = position - 1;	// eg. the "t" in "root"
+							end = position;
+							break;
+							
+						case TRIGGERCHARACTER:
+						case INCOMPLETE:
+							start = position - 2;	// eg. the "t" in "root."
+							end = position - 1;
+							break;
+					}
+					
+					while (start >= 0 && Character.isJavaIdentifierPart(buffer.charAt(start)))
+					{
+						start--;
+					}
+					
+					word = buffer.subSequence(start + 1, end).toString();
 				}
+			}
+			
+			if (!word.isEmpty())
+			{
+				Diag.info("Trying to complete '%s'", word);
+				TCPlugin plugin = registry.getPlugin("TC");
+				TCDefinitionList startingWith = plugin.lookupDefinition(word);
 				
-				String word = buffer.subSequence(start + 1, end).toString();
-				
-				if (!word.isEmpty())
+				for (TCDefinition defn: startingWith)
 				{
-					Diag.info("Trying to complete '%s'", word);
-					TCPlugin plugin = registry.getPlugin("TC");
-					TCDefinitionList startingWith = plugin.lookupDefinition(word);
-					
-					for (TCDefinition defn: startingWith)
+					if (defn.name != null)
 					{
-						if (defn.name != null)
-						{
-							JSONObject comp = completionForDef(defn);
-							labels.put(comp.get("label"), comp);
-						}
+						JSONObject comp = completionForDef(defn);
+						labels.put(comp.get("label"), comp);
 					}
 				}
 			}
@@ -1452,7 +1415,7 @@ public class LSPWorkspaceManager
 		
 		if (!results.isEmpty())
 		{
-			 StringBuilder buffer = projectFiles.get(file);
+			 DocumentBuffer buffer = projectFiles.get(file);
 			 Utils.fixRanges(results, Utils.afterLine(Utils.getEndPosition(buffer)));
 		}
 		
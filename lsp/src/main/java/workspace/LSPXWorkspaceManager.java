@@ -47,6 +47,7 @@ import com.fujitsu.vdmj.util.GetResource;
 
 import json.JSONArray;
 import json.JSONObject;
+import lsp.DocumentBuffer;
 import lsp.LSPException;
 import lsp.Utils;
 import rpc.RPCErrors;
@@ -359,7 +360,7 @@ public class LSPXWorkspaceManager
 	public RPCMessageList translateLaTeX(RPCRequest request, File file, File saveUri, JSONObject options)
 	{
 		File responseFile = null;
-		Map<File, StringBuilder> filemap = wsManager.getProjectFiles();
+		Map<File, DocumentBuffer> filemap = wsManager.getProjectFiles();
 
 		try
 		{
@@ -488,7 +489,7 @@ public class LSPXWorkspaceManager
 	public RPCMessageList translateWord(RPCRequest request, File file, File saveUri, JSONObject options)
 	{
 		File responseFile = null;
-		Map<File, StringBuilder> filemap = wsManager.getProjectFiles();
+		Map<File, DocumentBuffer> filemap = wsManager.getProjectFiles();
 
 		try
 		{
@@ -550,7 +551,7 @@ public class LSPXWorkspaceManager
 	public RPCMessageList translateCoverage(RPCRequest request, File file, File saveUri, JSONObject options)
 	{
 		File responseFile = null;
-		Map<File, StringBuilder> filemap = wsManager.getProjectFiles();
+		Map<File, DocumentBuffer> filemap = wsManager.getProjectFiles();
 
 		try
 		{
@@ -198,7 +198,7 @@ public class MessageHub
 	/**
 	 * Check whether the hub contains any VDMErrors.
 	 */
-	public boolean hasErrors()
+	public synchronized boolean hasErrors()
 	{
 		for (Map<String, Set<VDMMessage>> pmap: messageMap.values())
 		{
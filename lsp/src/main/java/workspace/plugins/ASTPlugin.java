@@ -26,9 +26,18 @@ package workspace.plugins;
 
 import java.io.File;
 import java.io.FilenameFilter;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Vector;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
+import com.fujitsu.vdmj.config.Properties;
 import com.fujitsu.vdmj.ast.definitions.ASTDefinition;
 import com.fujitsu.vdmj.ast.definitions.ASTDefinitionList;
 import com.fujitsu.vdmj.ast.definitions.ASTExplicitFunctionDefinition;
@@ -45,6 +54,7 @@ import com.fujitsu.vdmj.ast.types.ASTNamedType;
 import com.fujitsu.vdmj.ast.types.ASTRecordType;
 import com.fujitsu.vdmj.lex.Dialect;
 import com.fujitsu.vdmj.mapper.Mappable;
+import com.fujitsu.vdmj.syntax.SyntaxReader;
 
 import json.JSONArray;
 import json.JSONObject;
@@ -66,7 +76,14 @@ import workspace.lenses.ASTLaunchDebugLens;
 public abstract class ASTPlugin extends AnalysisPlugin implements EventListener
 {
 	protected static final boolean STRUCTURED_OUTLINE = true;
-	protected boolean dirty;
+	
+	/**
+	 * Only re-parse and re-check changed VDM-SL modules, if -Dlsp.incremental=true.
+	 * This is off by default, so every save is a full parse and type check.
+	 */
+	public static boolean incremental = Boolean.getBoolean("lsp.incremental");
+
+	protected volatile boolean dirty;
 	
 	public static ASTPlugin factory(Dialect dialect)
 	{
@@ -193,6 +210,87 @@ public abstract class ASTPlugin extends AnalysisPlugin implements EventListener
 	 * Event handling above. Supporting methods below. 
 	 */
 	abstract public void checkLoadedFiles(CheckSyntaxEvent ev);
+
+	/**
+	 * The AST read from one file, with the reader that holds its errors and warnings.
+	 */
+	protected static class ParsedFile<T>
+	{
+		public final T ast;
+		public final SyntaxReader reader;
+
+		public ParsedFile(T ast, SyntaxReader reader)
+		{
+			this.ast = ast;
+			this.reader = reader;
+		}
+	}
+
+	protected interface FileParser<T>
+	{
+		public ParsedFile<T> parse(File file, String text);
+	}
+
+	/**
+	 * Parse the text of each file, using a pool of Properties.parser_threads threads
+	 * if there is more than one file. The results are returned in the order of the
+	 * texts passed, regardless of the order in which the files are parsed.
+	 */
+	protected <T> Map<File, ParsedFile<T>> parseFiles(Map<File, String> texts, final FileParser<T> parser)
+	{
+		Map<File, ParsedFile<T>> results = new LinkedHashMap<File, ParsedFile<T>>();
+		int threads = Math.min(Properties.parser_threads, texts.size());
+
+		if (threads <= 1)
+		{
+			for (Entry<File, String> entry: texts.entrySet())
+			{
+				results.put(entry.getKey(), parser.parse(entry.getKey(), entry.getValue()));
+			}
+
+			return results;
+		}
+
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+
+		try
+		{
+			Map<File, Future<ParsedFile<T>>> futures = new LinkedHashMap<File, Future<ParsedFile<T>>>();
+
+			for (final Entry<File, String> entry: texts.entrySet())
+			{
+				futures.put(entry.getKey(), pool.submit(new Callable<ParsedFile<T>>()
+				{
+					@Override
+					public ParsedFile<T> call()
+					{
+						return parser.parse(entry.getKey(), entry.getValue());
+					}
+				}));
+			}
+
+			for (Entry<File, Future<ParsedFile<T>>> entry: futures.entrySet())
+			{
+				results.put(entry.getKey(), entry.getValue().get());
+			}
+		}
+		catch (ExecutionException e)
+		{
+			Diag.error(e.getCause());
+			throw new RuntimeException(e.getCause());
+		}
+		catch (InterruptedException e)
+		{
+			Diag.error(e);
+			throw new RuntimeException(e);
+		}
+		finally
+		{
+			pool.shutdown();
+		}
+
+		return results;
+	}
 	
 	/**
 	 * We register the launch/debug code lens here, if the tree is dirty. Else it
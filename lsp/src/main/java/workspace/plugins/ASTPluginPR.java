@@ -26,6 +26,7 @@ package workspace.plugins;
 
 import java.io.File;
 import java.io.FilenameFilter;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -42,8 +43,10 @@ import com.fujitsu.vdmj.lex.LexLocation;
 import com.fujitsu.vdmj.lex.LexTokenReader;
 import com.fujitsu.vdmj.mapper.Mappable;
 import com.fujitsu.vdmj.syntax.ClassReader;
+import com.fujitsu.vdmj.syntax.SyntaxReader;
 
 import json.JSONArray;
+import lsp.DocumentBuffer;
 import lsp.textdocument.SymbolKind;
 import workspace.Diag;
 import workspace.LSPWorkspaceManager;
@@ -53,8 +56,8 @@ import workspace.lenses.ASTCodeLens;
 
 public class ASTPluginPR extends ASTPlugin
 {
-	private ASTClassList astClassList = null;
-	private ASTClassList dirtyClassList = null;
+	private volatile ASTClassList astClassList = null;	// Read by concurrent queries
+	private volatile ASTClassList dirtyClassList = null;
 	
 	public ASTPluginPR()
 	{
@@ -74,7 +77,8 @@ public class ASTPluginPR extends ASTPlugin
 		dirty = false;
 		dirtyClassList = null;
 		
-		Map<File, StringBuilder> projectFiles = LSPWorkspaceManager.getInstance().getProjectFiles();
+		Map<File, DocumentBuffer> projectFiles = LSPWorkspaceManager.getInstance().getProjectFiles();
+		ASTClassList checkedClasses = new ASTClassList();
 		LexLocation.resetLocations();
 		
 		if (Settings.dialect == Dialect.VDM_RT)
@@ -82,21 +86,39 @@ public class ASTPluginPR extends ASTPlugin
 			try
 			{
 				// Add CPU and BUS up front, to be overwritten if they are explicitly defined
-				astClassList.add(new ASTCPUClassDefinition());
-				astClassList.add(new ASTBUSClassDefinition());
+				checkedClasses.add(new ASTCPUClassDefinition());
+				checkedClasses.add(new ASTBUSClassDefinition());
 			}
 			catch (Exception e)
 			{
 				Diag.error(e);
+				astClassList = checkedClasses;
 				return;
 			}
 		}
 		
-		for (Entry<File, StringBuilder> entry: projectFiles.entrySet())
+		Map<File, String> texts = new LinkedHashMap<File, String>();
+		
+		for (Entry<File, DocumentBuffer> entry: projectFiles.entrySet())
+		{
+			texts.put(entry.getKey(), entry.getValue().toString());
+		}
+		
+		Map<File, ParsedFile<ASTClassList>> parsed = parseFiles(texts, new FileParser<ASTClassList>()
+		{
+			@Override
+			public ParsedFile<ASTClassList> parse(File file, String text)
+			{
+				LexTokenReader ltr = new LexTokenReader(text, Settings.dialect, file);
+				ClassReader cr = new ClassReader(ltr);
+				return new ParsedFile<ASTClassList>(cr.readClasses(), cr);
+			}
+		});
+		
+		for (ParsedFile<ASTClassList> result: parsed.values())
 		{
-			LexTokenReader ltr = new LexTokenReader(entry.getValue().toString(), Settings.dialect, entry.getKey());
-			ClassReader mr = new ClassReader(ltr);
-			astClassList.addAll(mr.readClasses());
+			SyntaxReader mr = result.reader;
+			checkedClasses.addAll(result.ast);
 			
 			if (mr.getErrorCount() > 0)
 			{
@@ -109,6 +131,7 @@ public class ASTPluginPR extends ASTPlugin
 			}
 		}
 		
+		astClassList = checkedClasses;
 		String remoteSimulation = System.getProperty("lsp.remoteSimulation");
 		
 		if (remoteSimulation != null)
@@ -147,8 +170,8 @@ public class ASTPluginPR extends ASTPlugin
 	{
 		dirty = true;	// Until saved.
 
-		Map<File, StringBuilder> projectFiles = LSPWorkspaceManager.getInstance().getProjectFiles();
-		StringBuilder buffer = projectFiles.get(file);
+		Map<File, DocumentBuffer> projectFiles = LSPWorkspaceManager.getInstance().getProjectFiles();
+		DocumentBuffer buffer = projectFiles.get(file);
 		
 		LexTokenReader ltr = new LexTokenReader(buffer.toString(), Settings.dialect, file);
 		ClassReader cr = new ClassReader(ltr);
@@ -26,9 +26,14 @@ package workspace.plugins;
 
 import java.io.File;
 import java.io.FilenameFilter;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 
 import com.fujitsu.vdmj.Settings;
 import com.fujitsu.vdmj.ast.definitions.ASTDefinition;
@@ -38,9 +43,12 @@ import com.fujitsu.vdmj.lex.Dialect;
 import com.fujitsu.vdmj.lex.LexLocation;
 import com.fujitsu.vdmj.lex.LexTokenReader;
 import com.fujitsu.vdmj.mapper.Mappable;
+import com.fujitsu.vdmj.messages.VDMWarning;
 import com.fujitsu.vdmj.syntax.ModuleReader;
+import com.fujitsu.vdmj.syntax.SyntaxReader;
 
 import json.JSONArray;
+import lsp.DocumentBuffer;
 import lsp.textdocument.SymbolKind;
 import workspace.LSPWorkspaceManager;
 import workspace.events.CheckPrepareEvent;
@@ -49,8 +57,16 @@ import workspace.lenses.ASTCodeLens;
 
 public class ASTPluginSL extends ASTPlugin
 {
-	private ASTModuleList astModuleList = null;
-	private ASTModuleList dirtyModuleList = null;
+	private volatile ASTModuleList astModuleList = null;	// Read by concurrent queries
+	private volatile ASTModuleList dirtyModuleList = null;
+	
+	/** The file text and modules parsed at the last check, if incremental */
+	private final Map<File, String> parsedText = new HashMap<File, String>();
+	private final Map<File, ASTModuleList> parsedModules = new HashMap<File, ASTModuleList>();
+	private final Map<File, List<VDMWarning>> parsedWarnings = new HashMap<File, List<VDMWarning>>();
+
+	/** The files that were (re)parsed or removed since the last type check */
+	private final Set<File> changedFiles = new HashSet<File>();
 	
 	public ASTPluginSL()
 	{
@@ -68,14 +84,75 @@ public class ASTPluginSL extends ASTPlugin
 	public void checkLoadedFiles(CheckSyntaxEvent event)
 	{
 		dirty = false;
-		Map<File, StringBuilder> projectFiles = LSPWorkspaceManager.getInstance().getProjectFiles();
-		LexLocation.resetLocations();
+		Map<File, DocumentBuffer> projectFiles = LSPWorkspaceManager.getInstance().getProjectFiles();
+		ASTModuleList checkedModules = new ASTModuleList();
+		
+		if (!incremental || parsedText.isEmpty())
+		{
+			LexLocation.resetLocations();	// Everything will be parsed
+		}
+		Iterator<File> iter = parsedText.keySet().iterator();
+		
+		while (iter.hasNext())
+		{
+			File file = iter.next();
+			
+			if (!projectFiles.containsKey(file))	// File removed
+			{
+				iter.remove();
+				parsedModules.remove(file);
+				parsedWarnings.remove(file);
+				LexLocation.removeLocations(file);
+				changedFiles.add(file);
+			}
+		}
+		
+		Map<File, String> texts = new LinkedHashMap<File, String>();
+		
+		for (Entry<File, DocumentBuffer> entry: projectFiles.entrySet())
+		{
+			File file = entry.getKey();
+			String text = entry.getValue().toString();
+			
+			if (incremental && text.equals(parsedText.get(file)))
+			{
+				continue;
+			}
+			
+			if (incremental)
+			{
+				LexLocation.removeLocations(file);
+				changedFiles.add(file);
+			}
+
+			texts.put(file, text);
+		}
+		
+		Map<File, ParsedFile<ASTModuleList>> parsed = parseFiles(texts, new FileParser<ASTModuleList>()
+		{
+			@Override
+			public ParsedFile<ASTModuleList> parse(File file, String text)
+			{
+				LexTokenReader ltr = new LexTokenReader(text, Dialect.VDM_SL, file);
+				ModuleReader mr = new ModuleReader(ltr);
+				return new ParsedFile<ASTModuleList>(mr.readModules(), mr);
+			}
+		});
 		
-		for (Entry<File, StringBuilder> entry: projectFiles.entrySet())
+		for (File file: projectFiles.keySet())
 		{
-			LexTokenReader ltr = new LexTokenReader(entry.getValue().toString(), Dialect.VDM_SL, entry.getKey());
-			ModuleReader mr = new ModuleReader(ltr);
-			astModuleList.addAll(mr.readModules());
+			ParsedFile<ASTModuleList> result = parsed.get(file);
+			
+			if (result == null)		// Unchanged
+			{
+				checkedModules.addAll(parsedModules.get(file));
+				messagehub.addPluginMessages(this, parsedWarnings.get(file));
+				continue;
+			}
+			
+			ASTModuleList modules = result.ast;
+			SyntaxReader mr = result.reader;
+			checkedModules.addAll(modules);
 			
 			if (mr.getErrorCount() > 0)
 			{
@@ -86,7 +163,36 @@ public class ASTPluginSL extends ASTPlugin
 			{
 				messagehub.addPluginMessages(this, mr.getWarnings());
 			}
+			
+			if (incremental && mr.getErrorCount() == 0)
+			{
+				parsedText.put(file, texts.get(file));
+				parsedModules.put(file, modules);
+				parsedWarnings.put(file, mr.getWarnings());
+			}
+			else
+			{
+				parsedText.remove(file);
+				parsedModules.remove(file);
+				parsedWarnings.remove(file);
+			}
 		}
+		
+		astModuleList = checkedModules;
+	}
+	
+	/**
+	 * The files that were parsed or removed since the last type check. Other files'
+	 * modules are the same objects as that check, if incremental checking is enabled.
+	 */
+	public Set<File> getChangedFiles()
+	{
+		return changedFiles;
+	}
+	
+	public void clearChangedFiles()
+	{
+		changedFiles.clear();
 	}
 	
 	@SuppressWarnings("unchecked")
@@ -101,9 +207,10 @@ public class ASTPluginSL extends ASTPlugin
 	{
 		dirty = true;	// Until saved.
 		dirtyModuleList = null;
+		parsedText.remove(file);	// Parsing adds new locations, so re-parse on check
 
-		Map<File, StringBuilder> projectFiles = LSPWorkspaceManager.getInstance().getProjectFiles();
-		StringBuilder buffer = projectFiles.get(file);
+		Map<File, DocumentBuffer> projectFiles = LSPWorkspaceManager.getInstance().getProjectFiles();
+		DocumentBuffer buffer = projectFiles.get(file);
 		
 		LexTokenReader ltr = new LexTokenReader(buffer.toString(), Settings.dialect, file);
 		ModuleReader mr = new ModuleReader(ltr);
@@ -26,9 +26,13 @@ package workspace.plugins;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.Vector;
 
 import com.fujitsu.vdmj.lex.Dialect;
@@ -48,10 +52,15 @@ import com.fujitsu.vdmj.tc.types.TCType;
 
 import json.JSONArray;
 import json.JSONObject;
+import lsp.DocumentBuffer;
 import lsp.textdocument.SymbolKind;
 import rpc.RPCMessageList;
+import vdmj.LSPDefinitionIndex;
+import vdmj.LSPReferenceIndex;
 import workspace.Diag;
 import workspace.EventListener;
+import workspace.LSPWorkspaceManager;
+import workspace.events.CheckFailedEvent;
 import workspace.events.CheckPrepareEvent;
 import workspace.events.CheckTypeEvent;
 import workspace.events.CodeLensEvent;
@@ -61,6 +70,31 @@ import workspace.lenses.TCLaunchDebugLens;
 
 abstract public class TCPlugin extends AnalysisPlugin implements EventListener
 {
+	/**
+	 * The results of a type check, which queries read. A check builds new lists and
+	 * indexes, and publishes a new Snapshot when it ends, so that queries can run
+	 * during a check, against the results of the last one. A Snapshot is never
+	 * changed once published, except that its reference index is filled on demand.
+	 */
+	protected static class Snapshot<T extends Mappable>
+	{
+		public final T tcList;
+		public final LSPDefinitionIndex definitionIndex;
+		public final LSPReferenceIndex referenceIndex;
+		public final Map<File, DocumentBuffer> files;
+		
+		public Snapshot(T tcList, LSPDefinitionIndex definitionIndex, LSPReferenceIndex referenceIndex,
+			Map<File, DocumentBuffer> files)
+		{
+			this.tcList = tcList;
+			this.definitionIndex = definitionIndex;
+			this.referenceIndex = referenceIndex;
+			this.files = Collections.unmodifiableMap(new LinkedHashMap<File, DocumentBuffer>(files));
+		}
+	}
+	
+	protected volatile Snapshot<? extends Mappable> snapshot = null;	// Set by subclass constructors
+	
 	public static TCPlugin factory(Dialect dialect)
 	{
 		switch (dialect)
@@ -94,6 +128,7 @@ abstract public class TCPlugin extends AnalysisPlugin implements EventListener
 	{
 		eventhub.register(CheckPrepareEvent.class, this);
 		eventhub.register(CheckTypeEvent.class, this);
+		eventhub.register(CheckFailedEvent.class, this);
 		eventhub.register(CodeLensEvent.class, this);
 	}
 
@@ -111,6 +146,17 @@ abstract public class TCPlugin extends AnalysisPlugin implements EventListener
 			checkLoadedFiles(ast.getAST(), (CheckTypeEvent)event);
 			return new RPCMessageList();
 		}
+		else if (event instanceof CheckFailedEvent)
+		{
+			CheckFailedEvent fe = (CheckFailedEvent)event;
+			
+			if (!(fe.getCause() instanceof CheckTypeEvent))
+			{
+				checkFailed();		// Type check not reached
+			}
+			
+			return new RPCMessageList();
+		}
 		else if (event instanceof CodeLensEvent)
 		{
 			CodeLensEvent le = (CodeLensEvent)event;
@@ -151,10 +197,56 @@ abstract public class TCPlugin extends AnalysisPlugin implements EventListener
 
 	abstract public JSONArray documentSymbols(File file);
 
-	abstract public TCDefinition findDefinition(File file, long zline, long zcol);
+	/**
+	 * Publish an empty snapshot, when the files have errors that stop the type check.
+	 */
+	abstract protected void checkFailed();
+
+	public TCDefinition findDefinition(File file, long zline, long zcol)
+	{
+		return findDefinition(snapshot, file, zline, zcol);
+	}
+
+	abstract protected TCDefinition findDefinition(Snapshot<? extends Mappable> checked, File file, long zline, long zcol);
 
 	abstract public TCDefinitionList lookupDefinition(String startsWith);
 	
+	/**
+	 * Find the locations that refer to a definition, using the reference index of
+	 * the last check. The index entries of the files that a check does not re-check
+	 * are passed on to the next snapshot's index.
+	 */
+	public JSONArray findReferences(TCDefinition def)
+	{
+		final Snapshot<? extends Mappable> checked = snapshot;
+		
+		return checked.referenceIndex.findReferences(def, checked.files, new LSPReferenceIndex.Resolver()
+		{
+			@Override
+			public TCDefinition findDefinition(File file, long zline, long zcol)
+			{
+				return TCPlugin.this.findDefinition(checked, file, zline, zcol);
+			}
+		});
+	}
+	
+	/**
+	 * A new reference index for a check, keeping the entries of the last check for
+	 * files that are not in the set passed. A null set means that every file is
+	 * re-checked.
+	 */
+	protected LSPReferenceIndex newReferenceIndex(Set<File> rechecked)
+	{
+		if (rechecked == null || snapshot == null)
+		{
+			return new LSPReferenceIndex();
+		}
+		else
+		{
+			return new LSPReferenceIndex(snapshot.referenceIndex, rechecked);
+		}
+	}
+	
 	abstract public void saveDependencies(File saveUri) throws IOException;
 
 	abstract public TCClassList getTypeHierarchy(String classname, boolean subtypes);
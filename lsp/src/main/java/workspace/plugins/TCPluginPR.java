@@ -26,6 +26,7 @@ package workspace.plugins;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.HashMap;
 import java.util.List;
 
 import com.fujitsu.vdmj.lex.LexLocation;
@@ -43,19 +44,21 @@ import com.fujitsu.vdmj.util.DependencyOrder;
 
 import json.JSONArray;
 import json.JSONObject;
+import lsp.DocumentBuffer;
 import lsp.textdocument.SymbolKind;
 import vdmj.LSPDefinitionFinder;
-import workspace.events.CheckPrepareEvent;
+import vdmj.LSPDefinitionIndex;
+import vdmj.LSPReferenceIndex;
+import workspace.LSPWorkspaceManager;
 import workspace.events.CheckTypeEvent;
 import workspace.lenses.TCCodeLens;
 
 public class TCPluginPR extends TCPlugin
 {
-	private TCClassList tcClassList = null;
-	
 	public TCPluginPR()
 	{
 		super();
+		checkFailed();
 	}
 	
 	@Override
@@ -65,15 +68,23 @@ public class TCPluginPR extends TCPlugin
 	}
 
 	@Override
-	protected void preCheck(CheckPrepareEvent ev)
+	protected void checkFailed()
+	{
+		snapshot = new Snapshot<TCClassList>(new TCClassList(), null, new LSPReferenceIndex(),
+			new HashMap<File, DocumentBuffer>());
+	}
+	
+	@SuppressWarnings("unchecked")
+	private TCClassList getClasses(Snapshot<? extends Mappable> checked)
 	{
-		super.preCheck(ev);
-		tcClassList = new TCClassList();
+		return ((Snapshot<TCClassList>)checked).tcList;
 	}
 	
 	@Override
 	public <T extends Mappable> void checkLoadedFiles(T astClassList, CheckTypeEvent event) throws Exception
 	{
+		TCClassList tcClassList = new TCClassList();
+		
 		try
 		{
 			tcClassList = ClassMapper.getInstance(TCNode.MAPPINGS).init().convert(astClassList);
@@ -98,19 +109,24 @@ public class TCPluginPR extends TCPlugin
 		{
 			messagehub.addPluginMessages(this, TypeChecker.getWarnings());
 		}
+		
+		snapshot = new Snapshot<TCClassList>(tcClassList, new LSPDefinitionIndex(tcClassList),
+			newReferenceIndex(null),	// All classes re-checked
+			LSPWorkspaceManager.getInstance().getProjectFiles());
 	}
 
 	@SuppressWarnings("unchecked")
 	@Override
 	public <T extends Mappable> T getTC()
 	{
-		return (T)tcClassList;
+		return (T)getClasses(snapshot);
 	}
 	
 	@Override
 	public JSONArray documentSymbols(File file)
 	{
 		JSONArray results = new JSONArray();
+		TCClassList tcClassList = getClasses(snapshot);
 		
 		if (!tcClassList.isEmpty())	// May be syntax errors
 		{
@@ -146,11 +162,13 @@ public class TCPluginPR extends TCPlugin
 	}
 
 	@Override
-	public TCDefinition findDefinition(File file, long zline, long zcol)
+	protected TCDefinition findDefinition(Snapshot<? extends Mappable> checked, File file, long zline, long zcol)
 	{
-		if (tcClassList != null && !tcClassList.isEmpty())
+		TCClassList tcClassList = getClasses(checked);
+		
+		if (!tcClassList.isEmpty())
 		{
-			LSPDefinitionFinder finder = new LSPDefinitionFinder();
+			LSPDefinitionFinder finder = new LSPDefinitionFinder(checked.definitionIndex);
 			return finder.findDefinition(tcClassList, file, zline + 1, zcol + 1);		// Convert from zero-relative
 		}
 		else
@@ -164,7 +182,7 @@ public class TCPluginPR extends TCPlugin
 	{
 		TCDefinitionList results = new TCDefinitionList();
 		
-		for (TCClassDefinition cdef: tcClassList)
+		for (TCClassDefinition cdef: getClasses(snapshot))
 		{
 			if (cdef.name.getName().startsWith(startsWith))
 			{
@@ -186,12 +204,9 @@ public class TCPluginPR extends TCPlugin
 	@Override
 	public void saveDependencies(File saveUri) throws IOException
 	{
-		if (tcClassList != null)
-		{
-			DependencyOrder order = new DependencyOrder();
-			order.classOrder(tcClassList);
-			order.graphOf(saveUri);
-		}
+		DependencyOrder order = new DependencyOrder();
+		order.classOrder(getClasses(snapshot));
+		order.graphOf(saveUri);
 	}
 
 	@Override
@@ -199,6 +214,7 @@ public class TCPluginPR extends TCPlugin
 	{
 		JSONArray results = new JSONArray();
 		ASTPlugin ast = registry.getPlugin("AST");
+		TCClassList tcClassList = getClasses(snapshot);
 		
 		if (!tcClassList.isEmpty())	// May be syntax errors
 		{
@@ -228,30 +244,24 @@ public class TCPluginPR extends TCPlugin
 	@Override
 	public TCClassList getTypeHierarchy(String classname, boolean subtypes)
 	{
-		if (tcClassList != null)
+		TCClassList tcClassList = getClasses(snapshot);
+		TCClassDefinition cdef = find(tcClassList, classname);
+		
+		if (cdef == null)
 		{
-			TCClassDefinition cdef = find(classname);
-			
-			if (cdef == null)
-			{
-				return null;
-			}
-			else if (subtypes)
-			{
-				return subtypes(cdef);
-			}
-			else
-			{
-				return supertypes(cdef);
-			}
+			return null;
+		}
+		else if (subtypes)
+		{
+			return subtypes(tcClassList, cdef);
 		}
 		else
 		{
-			return null;
+			return supertypes(cdef);
 		}
 	}
 	
-	private TCClassDefinition find(String classname)
+	private TCClassDefinition find(TCClassList tcClassList, String classname)
 	{
 		for (TCClassDefinition cdef: tcClassList)
 		{
@@ -264,7 +274,7 @@ public class TCPluginPR extends TCPlugin
 		return null;
 	}
 
-	private TCClassList subtypes(TCClassDefinition cdef)
+	private TCClassList subtypes(TCClassList tcClassList, TCClassDefinition cdef)
 	{
 		TCClassList subs = new TCClassList();
 		
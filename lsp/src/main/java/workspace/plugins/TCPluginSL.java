@@ -26,15 +26,25 @@ package workspace.plugins;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Vector;
 
+import com.fujitsu.vdmj.ast.modules.ASTModule;
+import com.fujitsu.vdmj.ast.modules.ASTModuleList;
 import com.fujitsu.vdmj.lex.LexLocation;
 import com.fujitsu.vdmj.mapper.ClassMapper;
 import com.fujitsu.vdmj.mapper.Mappable;
+import com.fujitsu.vdmj.messages.VDMWarning;
 import com.fujitsu.vdmj.tc.TCNode;
 import com.fujitsu.vdmj.tc.definitions.TCClassList;
 import com.fujitsu.vdmj.tc.definitions.TCDefinition;
 import com.fujitsu.vdmj.tc.definitions.TCDefinitionList;
+import com.fujitsu.vdmj.tc.lex.TCIdentifierToken;
+import com.fujitsu.vdmj.tc.modules.TCImportFromModule;
 import com.fujitsu.vdmj.tc.modules.TCModule;
 import com.fujitsu.vdmj.tc.modules.TCModuleList;
 import com.fujitsu.vdmj.typechecker.ModuleTypeChecker;
@@ -44,19 +54,26 @@ import com.fujitsu.vdmj.util.DependencyOrder;
 
 import json.JSONArray;
 import json.JSONObject;
+import lsp.DocumentBuffer;
 import lsp.textdocument.SymbolKind;
 import vdmj.LSPDefinitionFinder;
-import workspace.events.CheckPrepareEvent;
+import vdmj.LSPDefinitionIndex;
+import vdmj.LSPReferenceIndex;
+import workspace.Diag;
+import workspace.LSPWorkspaceManager;
 import workspace.events.CheckTypeEvent;
 import workspace.lenses.TCCodeLens;
 
 public class TCPluginSL extends TCPlugin
 {
-	private TCModuleList tcModuleList = null;
+	/** The modules and warnings from the last clean check, if incremental */
+	private TCModuleList checkedModuleList = null;
+	private List<VDMWarning> checkedWarnings = null;
 	
 	public TCPluginSL()
 	{
 		super();
+		checkFailed();
 	}
 	
 	@Override
@@ -66,21 +83,70 @@ public class TCPluginSL extends TCPlugin
 	}
 
 	@Override
-	protected void preCheck(CheckPrepareEvent ev)
+	protected void checkFailed()
 	{
-		super.preCheck(ev);
-		tcModuleList = new TCModuleList();
+		snapshot = new Snapshot<TCModuleList>(new TCModuleList(), null, new LSPReferenceIndex(),
+			new HashMap<File, DocumentBuffer>());
+	}
+	
+	@SuppressWarnings("unchecked")
+	private TCModuleList getModules(Snapshot<? extends Mappable> checked)
+	{
+		return ((Snapshot<TCModuleList>)checked).tcList;
 	}
 	
 	@Override
 	public <T extends Mappable> void checkLoadedFiles(T astModuleList, CheckTypeEvent event) throws Exception
 	{
+		ASTModuleList astModules = (ASTModuleList)astModuleList;
+		List<VDMWarning> retained = new Vector<VDMWarning>();
+		TCModuleList tcModuleList = new TCModuleList();
+		LSPReferenceIndex referenceIndex = null;
+		
 		try
 		{
-			tcModuleList = ClassMapper.getInstance(TCNode.MAPPINGS).init().convert(astModuleList);
-			tcModuleList.combineDefaults();
-			TypeChecker tc = new ModuleTypeChecker(tcModuleList);
-			tc.typeCheck();
+			TCModuleList checked = incrementalModules(astModules, retained);
+			
+			if (checked == null)
+			{
+				tcModuleList = ClassMapper.getInstance(TCNode.MAPPINGS).init().convert(astModuleList);
+				tcModuleList.combineDefaults();
+				referenceIndex = newReferenceIndex(null);	// All modules re-checked
+				
+				TypeChecker tc = new ModuleTypeChecker(tcModuleList);
+				tc.typeCheck();
+			}
+			else
+			{
+				ASTModuleList changed = new ASTModuleList();
+				
+				for (ASTModule module: astModules)
+				{
+					if (checked.findModule(new TCIdentifierToken(module.name)) == null)
+					{
+						changed.add(module);
+					}
+				}
+				
+				TCModuleList tcChanged = ClassMapper.getInstance(TCNode.MAPPINGS).init().convert(changed);
+				Set<File> rechecked = tcChanged.getSourceFiles();
+				ASTPluginSL ast = registry.getPlugin("AST");
+				rechecked.addAll(ast.getChangedFiles());	// Including removed files
+				referenceIndex = newReferenceIndex(rechecked);
+				
+				TypeChecker tc = new ModuleTypeChecker(tcChanged, checked);
+				tc.typeCheck();
+				Diag.info("Incremental check of %d of %d modules", tcChanged.size(), astModules.size());
+				
+				tcModuleList = new TCModuleList();		// In the original order
+				
+				for (ASTModule module: astModules)
+				{
+					TCIdentifierToken name = new TCIdentifierToken(module.name);
+					TCModule m = checked.findModule(name);
+					tcModuleList.add(m != null ? m : tcChanged.findModule(name));
+				}
+			}
 		}
 		catch (TypeCheckException e)
 		{
@@ -91,6 +157,14 @@ public class TCPluginSL extends TCPlugin
 			TypeChecker.report(3430, e.toString(), LexLocation.ANY);
 		}
 		
+		if (referenceIndex == null)
+		{
+			referenceIndex = newReferenceIndex(null);
+		}
+		
+		snapshot = new Snapshot<TCModuleList>(tcModuleList, new LSPDefinitionIndex(tcModuleList), referenceIndex,
+			LSPWorkspaceManager.getInstance().getProjectFiles());
+		
 		if (TypeChecker.getErrorCount() > 0)
 		{
 			messagehub.addPluginMessages(this, TypeChecker.getErrors());
@@ -100,19 +174,132 @@ public class TCPluginSL extends TCPlugin
 		{
 			messagehub.addPluginMessages(this, TypeChecker.getWarnings());
 		}
+		
+		if (!retained.isEmpty())
+		{
+			messagehub.addPluginMessages(this, retained);
+		}
+		
+		if (ASTPlugin.incremental && TypeChecker.getErrorCount() == 0)
+		{
+			checkedModuleList = tcModuleList;
+			checkedWarnings = new Vector<VDMWarning>(TypeChecker.getWarnings());
+			checkedWarnings.addAll(retained);
+		}
+		else
+		{
+			checkedModuleList = null;
+			checkedWarnings = null;
+		}
+		
+		ASTPluginSL ast = registry.getPlugin("AST");
+		ast.clearChangedFiles();
+	}
+	
+	/**
+	 * If the last check was clean, return the modules from it that are not affected
+	 * by the files changed since, setting their warnings in the retained list. The
+	 * affected modules are those defined in changed files, plus any module that imports
+	 * from an affected module. A null return means that a full check is required.
+	 */
+	private TCModuleList incrementalModules(ASTModuleList astModuleList, List<VDMWarning> retained)
+	{
+		if (!ASTPlugin.incremental || checkedModuleList == null)
+		{
+			return null;
+		}
+		
+		ASTPluginSL ast = registry.getPlugin("AST");
+		Set<File> changedFiles = ast.getChangedFiles();
+		Map<String, TCModule> previous = new HashMap<String, TCModule>();
+		Set<String> affected = new HashSet<String>();
+		
+		for (TCModule module: checkedModuleList)
+		{
+			previous.put(module.name.getName(), module);
+		}
+		
+		if (astModuleList.size() != previous.size())
+		{
+			return null;	// Modules added or removed
+		}
+		
+		for (ASTModule module: astModuleList)
+		{
+			if (module.isFlat || !previous.containsKey(module.name.name))
+			{
+				return null;	// DEFAULT modules are combined, or new module
+			}
+			
+			for (File file: module.files)
+			{
+				if (changedFiles.contains(file))
+				{
+					affected.add(module.name.name);
+				}
+			}
+		}
+		
+		boolean more = true;
+		
+		while (more)	// Add importers of affected modules, until no more are added
+		{
+			more = false;
+			
+			for (TCModule module: checkedModuleList)
+			{
+				String name = module.name.getName();
+				
+				if (!affected.contains(name) && module.imports != null)
+				{
+					for (TCImportFromModule from: module.imports.imports)
+					{
+						if (affected.contains(from.name.getName()))
+						{
+							affected.add(name);
+							more = true;
+							break;
+						}
+					}
+				}
+			}
+		}
+		
+		TCModuleList checked = new TCModuleList();
+		Set<String> checkedNames = new HashSet<String>();
+		
+		for (TCModule module: checkedModuleList)
+		{
+			if (!affected.contains(module.name.getName()))
+			{
+				checked.add(module);
+				checkedNames.add(module.name.getName());
+			}
+		}
+		
+		for (VDMWarning warning: checkedWarnings)
+		{
+			if (warning.location != null && checkedNames.contains(warning.location.module))
+			{
+				retained.add(warning);
+			}
+		}
+		
+		return checked;
 	}
 
 	@SuppressWarnings("unchecked")
 	@Override
 	public <T extends Mappable> T getTC()
 	{
-		return (T)tcModuleList;
+		return (T)getModules(snapshot);
 	}
 	
 	@Override
 	public JSONArray documentSymbols(File file)
 	{
 		JSONArray results = new JSONArray();
+		TCModuleList tcModuleList = getModules(snapshot);
 		
 		if (!tcModuleList.isEmpty())	// May be syntax errors
 		{
@@ -158,11 +345,13 @@ public class TCPluginSL extends TCPlugin
 	}
 
 	@Override
-	public TCDefinition findDefinition(File file, long zline, long zcol)
+	protected TCDefinition findDefinition(Snapshot<? extends Mappable> checked, File file, long zline, long zcol)
 	{
-		if (tcModuleList != null && !tcModuleList.isEmpty())
+		TCModuleList tcModuleList = getModules(checked);
+		
+		if (!tcModuleList.isEmpty())
 		{
-			LSPDefinitionFinder finder = new LSPDefinitionFinder();
+			LSPDefinitionFinder finder = new LSPDefinitionFinder(checked.definitionIndex);
 			return finder.findDefinition(tcModuleList, file, zline + 1, zcol + 1);
 		}
 		else
@@ -176,7 +365,7 @@ public class TCPluginSL extends TCPlugin
 	{
 		TCDefinitionList results = new TCDefinitionList();
 		
-		for (TCModule module: tcModuleList)
+		for (TCModule module: getModules(snapshot))
 		{
 			if (module.name.getName().startsWith(startsWith))
 			{
@@ -206,12 +395,9 @@ public class TCPluginSL extends TCPlugin
 	@Override
 	public void saveDependencies(File saveUri) throws IOException
 	{
-		if (tcModuleList != null)
-		{
-			DependencyOrder order = new DependencyOrder();
-			order.moduleOrder(tcModuleList);
-			order.graphOf(saveUri);
-		}
+		DependencyOrder order = new DependencyOrder();
+		order.moduleOrder(getModules(snapshot));
+		order.graphOf(saveUri);
 	}
 
 	@Override
@@ -219,6 +405,7 @@ public class TCPluginSL extends TCPlugin
 	{
 		JSONArray results = new JSONArray();
 		ASTPlugin ast = registry.getPlugin("AST");
+		TCModuleList tcModuleList = getModules(snapshot);
 		
 		if (!tcModuleList.isEmpty())
 		{
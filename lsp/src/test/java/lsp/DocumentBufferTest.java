@@ -0,0 +1,112 @@
+/*******************************************************************************
+ *
+ *	Copyright (c) 2026 Nick Battle.
+ *
+ *	Author: Nick Battle
+ *
+ *	This file is part of VDMJ.
+ *
+ *	VDMJ is free software: you can redistribute it and/or modify
+ *	it under the terms of the GNU General Public License as published by
+ *	the Free Software Foundation, either version 3 of the License, or
+ *	(at your option) any later version.
+ *
+ *	VDMJ is distributed in the hope that it will be useful,
+ *	but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *	GNU General Public License for more details.
+ *
+ *	You should have received a copy of the GNU General Public License
+ *	along with VDMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *	SPDX-License-Identifier: GPL-3.0-or-later
+ *
+ ******************************************************************************/
+
+package lsp;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import json.JSONObject;
+
+public class DocumentBufferTest
+{
+	@Test
+	public void testPositions()
+	{
+		DocumentBuffer buffer = new DocumentBuffer("abc\r\nde\n\nf");
+		assertEquals(4, buffer.getLineCount());
+		assertEquals(0, buffer.getOffset(0, 0));
+		assertEquals(4, buffer.getOffset(0, 4));	// The '\n' of "abc\r"
+		assertEquals(-1, buffer.getOffset(0, 5));
+		assertEquals(7, buffer.getOffset(1, 2));
+		assertEquals(8, buffer.getOffset(2, 0));
+		assertEquals(10, buffer.getOffset(3, 1));	// End of file
+		assertEquals(-1, buffer.getOffset(4, 0));
+		assertEquals(3, buffer.getLine(9));
+		assertEquals(1, buffer.getLine(5));
+		assertEquals("de", buffer.getLineText(1));
+	}
+
+	@Test
+	public void testEndPosition()
+	{
+		assertEquals(new JSONObject("line", 2L, "character", 0L),
+			Utils.getEndPosition(new DocumentBuffer("one\ntwo\n")));
+		assertEquals(new JSONObject("line", 0L, "character", 0L),
+			Utils.getEndPosition(new DocumentBuffer("")));
+	}
+
+	@Test
+	public void testMultiLineEdits() throws Exception
+	{
+		DocumentBuffer buffer = new DocumentBuffer("line one\nline two\nline three\n");
+		int start = Utils.findPosition(buffer, new JSONObject("line", 0L, "character", 5L));
+		int end = Utils.findPosition(buffer, new JSONObject("line", 2L, "character", 4L));
+		buffer.replace(start, end, "A\nB\nC\nD");
+		assertEquals("line A\nB\nC\nD three\n", buffer.toString());
+		checkIndex(buffer);
+
+		start = Utils.findPosition(buffer, new JSONObject("line", 1L, "character", 0L));
+		end = Utils.findPosition(buffer, new JSONObject("line", 4L, "character", 0L));
+		buffer.replace(start, end, "");
+		assertEquals("line A\n", buffer.toString());
+		checkIndex(buffer);
+	}
+
+	@Test
+	public void testRandomEdits()
+	{
+		Random random = new Random(1);
+		StringBuilder expected = new StringBuilder("start\n");
+		DocumentBuffer buffer = new DocumentBuffer(expected.toString());
+		String[] inserts = { "", "x", "\n", "ab\ncd", "\n\n\n", "long line of text\r\n" };
+
+		for (int i=0; i<2000; i++)
+		{
+			int start = random.nextInt(expected.length() + 1);
+			int end = start + random.nextInt(Math.min(10, expected.length() - start) + 1);
+			String str = inserts[random.nextInt(inserts.length)];
+
+			expected.replace(start, end, str);
+			buffer.replace(start, end, str);
+		}
+
+		assertEquals(expected.toString(), buffer.toString());
+		checkIndex(buffer);
+	}
+
+	private void checkIndex(DocumentBuffer buffer)
+	{
+		DocumentBuffer fresh = new DocumentBuffer(buffer.toString());
+		assertEquals(fresh.getLineCount(), buffer.getLineCount());
+
+		for (int line=0; line<fresh.getLineCount(); line++)
+		{
+			assertEquals(fresh.getLineStart(line), buffer.getLineStart(line));
+		}
+	}
+}
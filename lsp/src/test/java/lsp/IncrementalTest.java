@@ -0,0 +1,162 @@
+/*******************************************************************************
+ *
+ *	Copyright (c) 2023 Nick Battle.
+ *
+ *	Author: Nick Battle
+ *
+ *	This file is part of VDMJ.
+ *
+ *	VDMJ is free software: you can redistribute it and/or modify
+ *	it under the terms of the GNU General Public License as published by
+ *	the Free Software Foundation, either version 3 of the License, or
+ *	(at your option) any later version.
+ *
+ *	VDMJ is distributed in the hope that it will be useful,
+ *	but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *	GNU General Public License for more details.
+ *
+ *	You should have received a copy of the GNU General Public License
+ *	along with VDMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *	SPDX-License-Identifier: GPL-3.0-or-later
+ *
+ ******************************************************************************/
+
+package lsp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.io.File;
+import java.nio.file.Files;
+
+import org.junit.Test;
+
+import com.fujitsu.vdmj.lex.Dialect;
+import com.fujitsu.vdmj.tc.lex.TCIdentifierToken;
+import com.fujitsu.vdmj.tc.modules.TCModuleList;
+
+import json.JSONArray;
+import json.JSONObject;
+import rpc.RPCMessageList;
+import workspace.PluginRegistry;
+import workspace.plugins.ASTPlugin;
+import workspace.plugins.TCPlugin;
+
+public class IncrementalTest extends LSPTest
+{
+	@Test
+	public void testSL() throws Exception
+	{
+		try
+		{
+			ASTPlugin.incremental = true;
+			checkSL();
+		}
+		finally
+		{
+			ASTPlugin.incremental = false;
+		}
+	}
+
+	@Test
+	public void testSLFull() throws Exception
+	{
+		setupWorkspace(Dialect.VDM_SL);		// Incremental is off by default
+		File testdir = new File("src/test/resources/incremental_sl");
+		RPCMessageList notify = initialize(testdir, new JSONObject());
+		assertEquals(0, errors(notify));
+		TCModuleList before = getTC();
+
+		File fileB = new File(testdir, "B.vdmsl").getAbsoluteFile();
+		String textB = new String(Files.readAllBytes(fileB.toPath()));
+		lspManager.lspDidOpen(null, fileB, textB);
+		notify = lspManager.lspDidSave(null, fileB, textB.replace("* 2", "* 3"));
+		assertEquals(0, errors(notify));
+		assertEquals(4, warnings(notify));
+
+		assertNotSame(find(before, "A"), find(getTC(), "A"));
+		assertNotSame(find(before, "C"), find(getTC(), "C"));
+	}
+
+	private void checkSL() throws Exception
+	{
+		setupWorkspace(Dialect.VDM_SL);
+		File testdir = new File("src/test/resources/incremental_sl");
+		RPCMessageList notify = initialize(testdir, new JSONObject());
+		assertEquals(0, errors(notify));
+		assertEquals(4, warnings(notify));		// C's unused value, and three recursion warnings
+		TCModuleList before = getTC();
+
+		// Change B, which imports from A, so only B is checked again
+		File fileB = new File(testdir, "B.vdmsl").getAbsoluteFile();
+		String textB = new String(Files.readAllBytes(fileB.toPath()));
+		lspManager.lspDidOpen(null, fileB, textB);
+		notify = lspManager.lspDidSave(null, fileB, textB.replace("* 2", "* 3"));
+		assertEquals(0, errors(notify));
+		assertEquals(4, warnings(notify));		// C's warnings are retained, B's are found again
+		TCModuleList after = getTC();
+
+		assertSame(find(before, "A"), find(after, "A"));
+		assertNotSame(find(before, "B"), find(after, "B"));
+		assertSame(find(before, "C"), find(after, "C"));
+
+		// Change A, so that B is affected and has an error
+		File fileA = new File(testdir, "A.vdmsl").getAbsoluteFile();
+		String textA = new String(Files.readAllBytes(fileA.toPath()));
+		lspManager.lspDidOpen(null, fileA, textA);
+		notify = lspManager.lspDidSave(null, fileA, textA.replace("T = nat", "T = bool"));
+		assertEquals(4, errors(notify));		// f and g are both wrong
+		assertSame(find(after, "C"), find(getTC(), "C"));
+
+		// Put A back, which is a full check after errors
+		notify = lspManager.lspDidSave(null, fileA, textA);
+		assertEquals(0, errors(notify));
+		assertEquals(4, warnings(notify));
+	}
+
+	private TCModuleList getTC()
+	{
+		TCPlugin tc = PluginRegistry.getInstance().getPlugin("TC");
+		return tc.getTC();
+	}
+
+	private Object find(TCModuleList list, String name)
+	{
+		return list.findModule(new TCIdentifierToken(null, name, false));
+	}
+
+	private int errors(RPCMessageList notify)
+	{
+		return count(notify, 1L);
+	}
+
+	private int warnings(RPCMessageList notify)
+	{
+		return count(notify, 2L);
+	}
+
+	private int count(RPCMessageList notify, long severity)
+	{
+		int count = 0;
+
+		for (JSONObject message: notify)
+		{
+			if ("textDocument/publishDiagnostics".equals(message.getPath("method")))
+			{
+				JSONArray diags = message.getPath("params.diagnostics");
+
+				for (Object diag: diags)
+				{
+					if (((JSONObject)diag).get("severity").equals(severity))
+					{
+						count++;
+					}
+				}
+			}
+		}
+
+		return count;
+	}
+}
@@ -0,0 +1,262 @@
+/*******************************************************************************
+ *
+ *	Copyright (c) 2026 Nick Battle.
+ *
+ *	Author: Nick Battle
+ *
+ *	This file is part of VDMJ.
+ *
+ *	VDMJ is free software: you can redistribute it and/or modify
+ *	it under the terms of the GNU General Public License as published by
+ *	the Free Software Foundation, either version 3 of the License, or
+ *	(at your option) any later version.
+ *
+ *	VDMJ is distributed in the hope that it will be useful,
+ *	but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *	GNU General Public License for more details.
+ *
+ *	You should have received a copy of the GNU General Public License
+ *	along with VDMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *	SPDX-License-Identifier: GPL-3.0-or-later
+ *
+ ******************************************************************************/
+
+package lsp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.List;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.fujitsu.vdmj.Settings;
+import com.fujitsu.vdmj.ast.definitions.ASTClassList;
+import com.fujitsu.vdmj.ast.modules.ASTModuleList;
+import com.fujitsu.vdmj.lex.Dialect;
+import com.fujitsu.vdmj.lex.LexLocation;
+import com.fujitsu.vdmj.lex.LexTokenReader;
+import com.fujitsu.vdmj.mapper.ClassMapper;
+import com.fujitsu.vdmj.syntax.ClassReader;
+import com.fujitsu.vdmj.syntax.ModuleReader;
+import com.fujitsu.vdmj.tc.TCNode;
+import com.fujitsu.vdmj.tc.definitions.TCClassDefinition;
+import com.fujitsu.vdmj.tc.definitions.TCClassList;
+import com.fujitsu.vdmj.tc.definitions.TCDefinition;
+import com.fujitsu.vdmj.tc.definitions.TCDefinitionList;
+import com.fujitsu.vdmj.tc.lex.TCIdentifierToken;
+import com.fujitsu.vdmj.tc.modules.TCModule;
+import com.fujitsu.vdmj.tc.modules.TCModuleList;
+import com.fujitsu.vdmj.typechecker.ClassTypeChecker;
+import com.fujitsu.vdmj.typechecker.ModuleTypeChecker;
+import com.fujitsu.vdmj.typechecker.TypeChecker;
+
+import vdmj.LSPDefinitionFinder;
+import vdmj.LSPDefinitionIndex;
+import workspace.Diag;
+
+/**
+ * Check that definition lookups via the LSPDefinitionIndex give the same results
+ * as searching every definition.
+ */
+public class LSPDefinitionIndexTest
+{
+	@BeforeClass
+	public static void init()
+	{
+		Diag.init(false);
+	}
+
+	private File[] files(String dir)
+	{
+		return new File("src/test/resources/" + dir).getAbsoluteFile().listFiles();
+	}
+
+	private TCModuleList checkSL(String dir) throws Exception
+	{
+		Settings.dialect = Dialect.VDM_SL;
+		LexLocation.resetLocations();		// Module spans are held by name
+		ASTModuleList parsed = new ASTModuleList();
+
+		for (File file: files(dir))
+		{
+			ModuleReader mr = new ModuleReader(new LexTokenReader(file, Dialect.VDM_SL));
+			parsed.addAll(mr.readModules());
+			mr.close();
+			assertEquals(0, mr.getErrorCount());
+		}
+
+		TCModuleList checked = ClassMapper.getInstance(TCNode.MAPPINGS).init().convert(parsed);
+		new ModuleTypeChecker(checked).typeCheck();
+		assertEquals(0, TypeChecker.getErrorCount());
+		return checked;
+	}
+
+	private TCClassList checkPP(String dir) throws Exception
+	{
+		Settings.dialect = Dialect.VDM_PP;
+		LexLocation.resetLocations();		// Class spans are held by name
+		ASTClassList parsed = new ASTClassList();
+
+		for (File file: files(dir))
+		{
+			ClassReader cr = new ClassReader(new LexTokenReader(file, Dialect.VDM_PP));
+			parsed.addAll(cr.readClasses());
+			cr.close();
+			assertEquals(0, cr.getErrorCount());
+		}
+
+		TCClassList checked = ClassMapper.getInstance(TCNode.MAPPINGS).init().convert(parsed);
+		new ClassTypeChecker(checked).typeCheck();
+		assertEquals(0, TypeChecker.getErrorCount());
+		return checked;
+	}
+
+	/**
+	 * Some lookups, like import names, create a new definition each time, so the
+	 * definitions found are compared by their kind, name and location.
+	 */
+	private int compare(String position, TCDefinition expected, TCDefinition actual)
+	{
+		assertEquals(position, String.valueOf(expected), String.valueOf(actual));
+
+		if (expected == null)
+		{
+			return 0;
+		}
+
+		assertEquals(position, expected.getClass(), actual.getClass());
+		assertEquals(position, expected.location, actual.location);
+		return 1;
+	}
+
+	/**
+	 * Look up every position in every file, with and without the index, and return
+	 * the number of positions that have a definition.
+	 */
+	private int compareSL(String dir) throws Exception
+	{
+		TCModuleList modules = checkSL(dir);
+		LSPDefinitionFinder full = new LSPDefinitionFinder();
+		LSPDefinitionFinder indexed = new LSPDefinitionFinder(new LSPDefinitionIndex(modules));
+		int found = 0;
+
+		for (File file: files(dir))
+		{
+			List<String> lines = Files.readAllLines(file.toPath());
+
+			for (int line = 1; line <= lines.size(); line++)
+			{
+				for (int col = 1; col <= lines.get(line - 1).length() + 1; col++)
+				{
+					TCDefinition expected = full.findDefinition(modules, file, line, col);
+					TCDefinition actual = indexed.findDefinition(modules, file, line, col);
+					found += compare(file.getName() + " " + line + ":" + col, expected, actual);
+				}
+			}
+		}
+
+		return found;
+	}
+
+	private int comparePP(String dir) throws Exception
+	{
+		TCClassList classes = checkPP(dir);
+		LSPDefinitionFinder full = new LSPDefinitionFinder();
+		LSPDefinitionFinder indexed = new LSPDefinitionFinder(new LSPDefinitionIndex(classes));
+		int found = 0;
+
+		for (File file: files(dir))
+		{
+			List<String> lines = Files.readAllLines(file.toPath());
+
+			for (int line = 1; line <= lines.size(); line++)
+			{
+				for (int col = 1; col <= lines.get(line - 1).length() + 1; col++)
+				{
+					TCDefinition expected = full.findDefinition(classes, file, line, col);
+					TCDefinition actual = indexed.findDefinition(classes, file, line, col);
+					found += compare(file.getName() + " " + line + ":" + col, expected, actual);
+				}
+			}
+		}
+
+		return found;
+	}
+
+	@Test
+	public void testSL() throws Exception
+	{
+		assertTrue(compareSL("incremental_sl") > 0);
+		assertTrue(compareSL("ctalarm_sl") > 0);
+		assertTrue(compareSL("deptest_sl") > 0);
+		assertTrue(compareSL("cttest_sl") > 0);
+	}
+
+	@Test
+	public void testPP() throws Exception
+	{
+		assertTrue(comparePP("deptest_pp") > 0);
+		comparePP("cttest_pp");		// Only trace references
+		assertTrue(comparePP("pogtest_pp") > 0);
+	}
+
+	@Test
+	public void testDefinitions() throws Exception
+	{
+		TCModuleList modules = checkSL("incremental_sl");
+		LSPDefinitionIndex index = new LSPDefinitionIndex(modules);
+		TCModule moduleA = modules.findModule(new TCIdentifierToken(LexLocation.ANY, "A", false));
+		File fileA = new File("src/test/resources/incremental_sl/A.vdmsl").getAbsoluteFile();
+		File fileB = new File("src/test/resources/incremental_sl/B.vdmsl").getAbsoluteFile();
+
+		TCDefinitionList defs = index.getDefinitions(moduleA, position(fileA, 2, 1));
+		assertEquals(0, defs.size());		// Before the first definition
+
+		defs = index.getDefinitions(moduleA, position(fileA, 5, 6));
+		assertEquals(1, defs.size());		// Within T
+		assertEquals("T", defs.get(0).name.getName());
+
+		defs = index.getDefinitions(moduleA, position(fileA, 9, 10));
+		assertEquals(1, defs.size());		// Within f's body
+		assertEquals("f", defs.get(0).name.getName());
+
+		defs = index.getDefinitions(moduleA, position(fileA, 11, 1));
+		assertEquals("f", defs.get(0).name.getName());		// After the last definition
+
+		defs = index.getDefinitions(moduleA, position(fileB, 9, 1));
+		assertEquals(0, defs.size());		// A has no definitions in B
+
+		assertSame(index.getEnvironment(moduleA), index.getEnvironment(moduleA));
+	}
+
+	@Test
+	public void testClassDefinitions() throws Exception
+	{
+		TCClassList classes = checkPP("deptest_pp");
+		LSPDefinitionIndex index = new LSPDefinitionIndex(classes);
+		File file = new File("src/test/resources/deptest_pp/deptest.vdmpp").getAbsoluteFile();
+
+		for (TCClassDefinition cdef: classes)
+		{
+			for (TCDefinition def: cdef.definitions)
+			{
+				TCDefinitionList defs = index.getDefinitions(cdef, def.location);
+				assertTrue(defs.contains(def));
+			}
+
+			assertEquals(0, index.getDefinitions(cdef, position(file, 1, 1)).size());
+			assertSame(index.getEnvironment(cdef), index.getEnvironment(cdef));
+		}
+	}
+
+	private LexLocation position(File file, int line, int col)
+	{
+		return new LexLocation(file, "?", line, col, line, col);
+	}
+}
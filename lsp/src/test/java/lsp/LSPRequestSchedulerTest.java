@@ -0,0 +1,267 @@
+/*******************************************************************************
+ *
+ *	Copyright (c) 2026 Nick Battle.
+ *
+ *	Author: Nick Battle
+ *
+ *	This file is part of VDMJ.
+ *
+ *	VDMJ is free software: you can redistribute it and/or modify
+ *	it under the terms of the GNU General Public License as published by
+ *	the Free Software Foundation, either version 3 of the License, or
+ *	(at your option) any later version.
+ *
+ *	VDMJ is distributed in the hope that it will be useful,
+ *	but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *	GNU General Public License for more details.
+ *
+ *	You should have received a copy of the GNU General Public License
+ *	along with VDMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *	SPDX-License-Identifier: GPL-3.0-or-later
+ *
+ ******************************************************************************/
+
+package lsp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Vector;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import json.JSONObject;
+import rpc.RPCDispatcher;
+import rpc.RPCErrors;
+import rpc.RPCHandler;
+import rpc.RPCMessageList;
+import rpc.RPCRequest;
+import rpc.RPCResponse;
+import workspace.Diag;
+
+public class LSPRequestSchedulerTest
+{
+	private volatile long state = 0;
+	private final CountDownLatch started = new CountDownLatch(1);
+	private final List<JSONObject> sent = new Vector<JSONObject>();
+
+	private abstract class TestHandler implements RPCHandler
+	{
+		@Override
+		public void response(RPCResponse message)
+		{
+			// Not used
+		}
+	}
+
+	private LSPRequestScheduler getScheduler()
+	{
+		LSPRequestScheduler scheduler = getScheduler("update", "edit");
+		scheduler.registerQueries("query", "forever");
+		scheduler.registerEdits("edit");
+		return scheduler;
+	}
+
+	private LSPRequestScheduler getScheduler(String... updates)
+	{
+		Diag.init(false);	// No logging, if lsp.log.level is unset
+		RPCDispatcher dispatcher = new RPCDispatcher();
+
+		dispatcher.register(new TestHandler()
+		{
+			@Override
+			public RPCMessageList request(RPCRequest request)
+			{
+				pause(200);
+				state++;
+				return new RPCMessageList(request);
+			}
+		}, updates);
+
+		dispatcher.register(new TestHandler()
+		{
+			@Override
+			public RPCMessageList request(RPCRequest request)
+			{
+				return new RPCMessageList(request, state);
+			}
+		}, "query", "textDocument/documentSymbol", "textDocument/codeLens");
+
+		dispatcher.register(new TestHandler()
+		{
+			@Override
+			public RPCMessageList request(RPCRequest request)
+			{
+				started.countDown();
+
+				while (!Thread.currentThread().isInterrupted())
+				{
+					Thread.yield();
+				}
+
+				throw new CancellationException();
+			}
+		}, "forever");
+
+		LSPRequestScheduler scheduler = new LSPRequestScheduler(dispatcher, 2)
+		{
+			@Override
+			protected void send(RPCMessageList responses) throws IOException
+			{
+				sent.addAll(responses);
+			}
+		};
+
+		return scheduler;
+	}
+
+	private void pause(long millis)
+	{
+		try
+		{
+			Thread.sleep(millis);
+		}
+		catch (InterruptedException e)
+		{
+			// ignore
+		}
+	}
+
+	private JSONObject waitFor(Object id)
+	{
+		for (int i=0; i<100; i++)
+		{
+			synchronized (sent)
+			{
+				for (JSONObject response: sent)
+				{
+					if (id.equals(response.get("id")))
+					{
+						return response;
+					}
+				}
+			}
+
+			pause(50);
+		}
+
+		return null;
+	}
+
+	private long errorCode(JSONObject response)
+	{
+		JSONObject error = response.get("error");
+		return error.get("code");
+	}
+
+	private JSONObject document(String uri)
+	{
+		return new JSONObject("textDocument", new JSONObject("uri", uri));
+	}
+
+	@Test
+	public void testOrdering() throws Exception
+	{
+		LSPRequestScheduler scheduler = getScheduler();
+		RPCRequest edit = RPCRequest.create("edit", document("file:///A.vdmsl"));
+		RPCRequest queryA = RPCRequest.create("query", document("file:///A.vdmsl"));
+		RPCRequest queryB = RPCRequest.create("query", document("file:///B.vdmsl"));
+
+		scheduler.schedule(edit);
+		scheduler.schedule(queryB);
+		scheduler.schedule(queryA);
+
+		assertEquals(Long.valueOf(0), waitFor(queryB.get("id")).get("result"));	// Did not wait
+		assertEquals(Long.valueOf(1), waitFor(queryA.get("id")).get("result"));	// Waited for edit
+		scheduler.shutdown();
+	}
+
+	@Test
+	public void testOpenThenQuery() throws Exception
+	{
+		LSPRequestScheduler scheduler = getScheduler("textDocument/didOpen", "textDocument/didClose");
+		LSPServer.registerMethods(scheduler);	// The server's own edits and queries
+		RPCRequest open = RPCRequest.create("textDocument/didOpen", document("file:///A.vdmsl"));
+		RPCRequest symbols = RPCRequest.create("textDocument/documentSymbol", document("file:///A.vdmsl"));
+		RPCRequest close = RPCRequest.create("textDocument/didClose", document("file:///A.vdmsl"));
+		RPCRequest lenses = RPCRequest.create("textDocument/codeLens", document("file:///A.vdmsl"));
+
+		scheduler.schedule(open);
+		scheduler.schedule(symbols);
+		scheduler.schedule(close);
+		scheduler.schedule(lenses);
+
+		assertEquals(Long.valueOf(1), waitFor(symbols.get("id")).get("result"));	// Waited for open
+		assertEquals(Long.valueOf(2), waitFor(lenses.get("id")).get("result"));	// And for close
+		scheduler.shutdown();
+	}
+
+	@Test
+	public void testQueryDuringUpdate() throws Exception
+	{
+		LSPRequestScheduler scheduler = getScheduler();
+		RPCRequest update = RPCRequest.create("update", null);
+		RPCRequest query = RPCRequest.create("query", document("file:///A.vdmsl"));
+		RPCRequest after = RPCRequest.create("update", null);
+
+		scheduler.schedule(update);
+		scheduler.schedule(query);		// Reads the state before the update
+		scheduler.schedule(after);
+
+		assertEquals(Long.valueOf(0), waitFor(query.get("id")).get("result"));
+		assertEquals(2, waitForState(2));
+		scheduler.shutdown();
+	}
+
+	private long waitForState(long expected)
+	{
+		for (int i=0; i<100 && state < expected; i++)
+		{
+			pause(50);
+		}
+
+		return state;
+	}
+
+	@Test
+	public void testCancelQueued() throws Exception
+	{
+		LSPRequestScheduler scheduler = getScheduler();
+		RPCRequest edit = RPCRequest.create("edit", document("file:///A.vdmsl"));
+		RPCRequest query = RPCRequest.create("query", document("file:///A.vdmsl"));
+
+		scheduler.schedule(edit);
+		scheduler.schedule(query);
+		scheduler.cancel(query.get("id"));
+
+		JSONObject response = waitFor(query.get("id"));
+		assertEquals(RPCErrors.RequestCancelled.getValue(), errorCode(response));
+		assertFalse(scheduler.cancel(query.get("id")));
+		scheduler.shutdown();
+	}
+
+	@Test
+	public void testCancelRunning() throws Exception
+	{
+		LSPRequestScheduler scheduler = getScheduler();
+		RPCRequest forever = RPCRequest.create("forever", null);
+		RPCRequest query = RPCRequest.create("query", null);
+
+		scheduler.schedule(forever);
+		started.await(5, TimeUnit.SECONDS);
+		scheduler.schedule(query);		// Runs alongside
+
+		assertEquals(Long.valueOf(0), waitFor(query.get("id")).get("result"));
+		scheduler.cancel(forever.get("id"));
+
+		JSONObject response = waitFor(forever.get("id"));
+		assertEquals(RPCErrors.RequestCancelled.getValue(), errorCode(response));
+		scheduler.shutdown();
+	}
+}
@@ -0,0 +1,117 @@
+/*******************************************************************************
+ *
+ *	Copyright (c) 2023 Nick Battle.
+ *
+ *	Author: Nick Battle
+ *
+ *	This file is part of VDMJ.
+ *
+ *	VDMJ is free software: you can redistribute it and/or modify
+ *	it under the terms of the GNU General Public License as published by
+ *	the Free Software Foundation, either version 3 of the License, or
+ *	(at your option) any later version.
+ *
+ *	VDMJ is distributed in the hope that it will be useful,
+ *	but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *	GNU General Public License for more details.
+ *
+ *	You should have received a copy of the GNU General Public License
+ *	along with VDMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *	SPDX-License-Identifier: GPL-3.0-or-later
+ *
+ ******************************************************************************/
+
+package lsp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.io.File;
+import java.nio.file.Files;
+
+import org.junit.Test;
+
+import com.fujitsu.vdmj.lex.Dialect;
+import com.fujitsu.vdmj.tc.definitions.TCDefinition;
+import com.fujitsu.vdmj.tc.modules.TCModule;
+import com.fujitsu.vdmj.tc.modules.TCModuleList;
+
+import json.JSONArray;
+import json.JSONObject;
+import rpc.RPCMessageList;
+import rpc.RPCRequest;
+import workspace.PluginRegistry;
+import workspace.plugins.TCPlugin;
+
+public class ReferencesTest extends LSPTest
+{
+	@Test
+	public void testSL() throws Exception
+	{
+		setupWorkspace(Dialect.VDM_SL);
+		File testdir = new File("src/test/resources/incremental_sl");
+		initialize(testdir, new JSONObject());
+
+		File fileA = new File(testdir, "A.vdmsl").getAbsoluteFile();
+		File fileB = new File(testdir, "B.vdmsl").getAbsoluteFile();
+		RPCRequest request = RPCRequest.create(123L, "textDocument/references", null);
+
+		// References to A`f from its definition
+		RPCMessageList response = lspManager.lspReferences(request, fileA, 7, 1, false);
+		dump(response.get(0));
+		JSONArray refs = response.get(0).get("result");
+		assertEquals(1, refs.size());
+		assertEquals(fileB.toURI().toString(), response.get(0).getPath("result.[0].uri"));
+		assertEquals((Object)6L, response.get(0).getPath("result.[0].range.start.line"));
+		assertEquals((Object)11L, response.get(0).getPath("result.[0].range.start.character"));
+
+		// References to type A`T, including the declaration
+		response = lspManager.lspReferences(request, fileA, 4, 1, true);
+		dump(response.get(0));
+		refs = response.get(0).get("result");
+		assertEquals(5, refs.size());
+
+		// Move f down a line in A, which updates the index for A and B
+		String textA = new String(Files.readAllBytes(fileA.toPath()));
+		lspManager.lspDidOpen(null, fileA, textA);
+		lspManager.lspDidSave(null, fileA, textA.replace("functions\n", "functions\n\n"));
+
+		response = lspManager.lspReferences(request, fileA, 8, 1, false);
+		dump(response.get(0));
+		refs = response.get(0).get("result");
+		assertEquals(1, refs.size());
+		assertEquals((Object)6L, response.get(0).getPath("result.[0].range.start.line"));
+	}
+
+	@Test
+	public void testSnapshot() throws Exception
+	{
+		setupWorkspace(Dialect.VDM_SL);
+		File testdir = new File("src/test/resources/incremental_sl");
+		initialize(testdir, new JSONObject());
+
+		File fileA = new File(testdir, "A.vdmsl").getAbsoluteFile();
+		TCPlugin tc = PluginRegistry.getInstance().getPlugin("TC");
+		TCModuleList before = tc.getTC();
+		TCModule moduleA = before.get(0);
+		TCDefinition f = tc.findDefinition(fileA, 7, 1);
+		assertEquals("f", f.name.getName());
+
+		// A check publishes new lists, and leaves the ones queries may be reading alone
+		String textA = new String(Files.readAllBytes(fileA.toPath()));
+		lspManager.lspDidOpen(null, fileA, textA);
+		lspManager.lspDidSave(null, fileA, textA.replace("functions\n", "functions\n\n"));
+
+		TCModuleList after = tc.getTC();
+		assertNotSame(before, after);
+		assertSame(moduleA, before.get(0));
+		assertEquals(after.size(), before.size());
+		assertEquals("f", tc.findDefinition(fileA, 8, 1).name.getName());
+
+		// A syntax error publishes an empty snapshot, as before the type check
+		lspManager.lspDidSave(null, fileA, textA.replace("functions", "functions )"));
+		assertEquals(0, ((TCModuleList)tc.getTC()).size());
+	}
+}
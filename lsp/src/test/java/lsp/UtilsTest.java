@@ -38,7 +38,7 @@ public class UtilsTest
 	@Test
 	public void testSimple() throws Exception
 	{
-		StringBuilder buffer = new StringBuilder("0123456789");
+		DocumentBuffer buffer = new DocumentBuffer("0123456789");
 		int start = Utils.findPosition(buffer, new JSONObject("line", 0L, "character", 2L));
 		int end = Utils.findPosition(buffer, new JSONObject("line", 0L, "character", 4L));
 		buffer.replace(start, end, "hello");
@@ -48,7 +48,7 @@ public class UtilsTest
 	@Test
 	public void testNewline() throws Exception
 	{
-		StringBuilder buffer = new StringBuilder("01234\n0123456789\n");
+		DocumentBuffer buffer = new DocumentBuffer("01234\n0123456789\n");
 		int start = Utils.findPosition(buffer, new JSONObject("line", 1L, "character", 2L));
 		int end = Utils.findPosition(buffer, new JSONObject("line", 1L, "character", 4L));
 		buffer.replace(start, end, "hello");
@@ -58,7 +58,7 @@ public class UtilsTest
 	@Test
 	public void testDelete() throws Exception
 	{
-		StringBuilder buffer = new StringBuilder("0123456789");
+		DocumentBuffer buffer = new DocumentBuffer("0123456789");
 		int start = Utils.findPosition(buffer, new JSONObject("line", 0L, "character", 2L));
 		int end = Utils.findPosition(buffer, new JSONObject("line", 0L, "character", 4L));
 		buffer.replace(start, end, "");
@@ -22,28 +22,16 @@
  *
  ******************************************************************************/
 
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileOutputStream;
-import java.io.FileReader;
 import java.io.IOException;
 import java.io.Serializable;
 
-import com.fujitsu.vdmj.ast.expressions.ASTExpression;
-import com.fujitsu.vdmj.in.INNode;
-import com.fujitsu.vdmj.in.expressions.INExpression;
-import com.fujitsu.vdmj.lex.Dialect;
 import com.fujitsu.vdmj.lex.LexLocation;
-import com.fujitsu.vdmj.lex.LexTokenReader;
-import com.fujitsu.vdmj.mapper.ClassMapper;
 import com.fujitsu.vdmj.messages.Console;
 import com.fujitsu.vdmj.runtime.Context;
-import com.fujitsu.vdmj.runtime.Interpreter;
 import com.fujitsu.vdmj.runtime.VDMFunction;
 import com.fujitsu.vdmj.runtime.VDMOperation;
-import com.fujitsu.vdmj.syntax.ExpressionReader;
-import com.fujitsu.vdmj.tc.TCNode;
-import com.fujitsu.vdmj.tc.expressions.TCExpression;
 import com.fujitsu.vdmj.values.BooleanValue;
 import com.fujitsu.vdmj.values.CPUValue;
 import com.fujitsu.vdmj.values.NaturalValue;
@@ -53,9 +41,11 @@ import com.fujitsu.vdmj.values.TupleValue;
 import com.fujitsu.vdmj.values.Value;
 import com.fujitsu.vdmj.values.ValueList;
 
+import util.CsvLineIndex;
 import util.CsvParser;
 import util.CsvResult;
 import util.CsvValueBuilder;
+import util.LiteralValueReader;
 
 /**
  * Basic CSV file support for VDM. This class was imported from Overture.
@@ -112,6 +102,7 @@ public class CSV implements Serializable
 
 			fos.write(text.toString().getBytes(Console.charset));
 			fos.close();
+			CsvLineIndex.invalidate(file);
 		}
 		catch (IOException e)
 		{
@@ -145,17 +136,8 @@ public class CSV implements Serializable
 			boolean success = false;
 			try
 			{
-				CsvParser parser = new CsvParser(new CsvValueBuilder()
-				{
-					@Override
-					public Value createValue(String value)
-							throws Exception
-					{
-						return CSV.createValue("CSV", "freadval", value);
-					}
-				});
-				
-				CsvResult res = parser.parseValues(getLine(file, index));
+				CsvParser parser = getParser("freadval");
+				CsvResult res = parser.parseValues(CsvLineIndex.getIndex(file).getLine(index));
 				
 				if(!res.dataOk())
 				{
@@ -190,25 +172,50 @@ public class CSV implements Serializable
 	}
 
 	/**
-	 * Gets the line count of the CSV file
+	 * Read a range of CSV lines as a seq of seq of ? in VDM, with one file read.
 	 * 
 	 * @param fval
-	 *            name of the file
-	 * @return int value with count
+	 *            name of the file to read from
+	 * @param fromVal
+	 *            the first line index
+	 * @param toVal
+	 *            the last line index
+	 * @return true + seq of seq of ? or false and nil
 	 */
 	@VDMFunction
-	public static Value flinecount(Value fval)
+	public static Value freadlines(Value fval, Value fromVal, Value toVal)
 	{
 		ValueList result = new ValueList();
 
 		try
 		{
 			File file = getFile(fval);
-			long count = getLineCount(file);
+			long from = fromVal.intValue(null);
+			long to = toVal.intValue(null);
+			CsvParser parser = getParser("freadlines");
+			ValueList rows = new ValueList();
+
+			for (String line: CsvLineIndex.getIndex(file).getLines(from, to))
+			{
+				CsvResult res = parser.parseValues(line);
+
+				if (!res.dataOk())
+				{
+					lastError = res.getErrorMsg();
+					result.add(new BooleanValue(false));
+					result.add(new NilValue());
+					return new TupleValue(result);
+				}
+
+				SeqValue lineCells = new SeqValue();
+				lineCells.values.addAll(res.getValues());
+				rows.add(lineCells);
+			}
 
 			result.add(new BooleanValue(true));
-			result.add(new NaturalValue(count));
-		} catch (Exception e)
+			result.add(new SeqValue(rows));
+		}
+		catch (Exception e)
 		{
 			lastError = e.toString();
 			result = new ValueList();
@@ -219,75 +226,55 @@ public class CSV implements Serializable
 		return new TupleValue(result);
 	}
 
-	private static int getLineCount(File file) throws IOException
+	/**
+	 * Gets the line count of the CSV file
+	 * 
+	 * @param fval
+	 *            name of the file
+	 * @return int value with count
+	 */
+	@VDMFunction
+	public static Value flinecount(Value fval)
 	{
-		BufferedReader bufRdr = new BufferedReader(new FileReader(file));
-		int lines = 0;
+		ValueList result = new ValueList();
+
 		try
 		{
-			while (bufRdr.readLine() != null)
-			{
-				lines++;
-			}
-		} finally
+			File file = getFile(fval);
+			long count = CsvLineIndex.getIndex(file).getLineCount();
+
+			result.add(new BooleanValue(true));
+			result.add(new NaturalValue(count));
+		} catch (Exception e)
 		{
-			bufRdr.close();
+			lastError = e.toString();
+			result = new ValueList();
+			result.add(new BooleanValue(false));
+			result.add(new NilValue());
 		}
-		return lines;
+
+		return new TupleValue(result);
 	}
 
-	private static String getLine(File file, long index) throws IOException
+	private static CsvParser getParser(final String method)
 	{
-		BufferedReader bufRdr = new BufferedReader(new FileReader(file));
-		String line = null;
-		int lineIndex = 0;
-
-		if (index < 1)
+		return new CsvParser(new CsvValueBuilder()
 		{
-			bufRdr.close();
-			throw new IOException("CSV line index before first entry");
-		}
-
-		try
-		{
-			while ((line = bufRdr.readLine()) != null)
+			@Override
+			public Value createValue(String value) throws Exception
 			{
-				lineIndex++;
-				if (lineIndex == index)
-				{
-					break;
-				}
-
+				return CSV.createValue("CSV", method, value);
 			}
-		}
-		finally
-		{
-			bufRdr.close();
-		}
-
-		if (line == null)
-		{
-			throw new IOException("CSV no data read. Empty line.");
-		}
-
-		return line;
+		});
 	}
 
 	private static Value createValue(String module, String method, String value)
 			throws Exception
 	{
-		LexTokenReader ltr = new LexTokenReader(value, Dialect.VDM_PP);
-		ExpressionReader reader = new ExpressionReader(ltr);
-		reader.setCurrentModule(module);
-		ASTExpression exp = reader.readExpression();
-		TCExpression tcexp = ClassMapper.getInstance(TCNode.MAPPINGS).convert(exp);
-		Interpreter ip = Interpreter.getInstance();
-		ip.typeCheck(tcexp);
-		INExpression inexp = ClassMapper.getInstance(INNode.MAPPINGS).convert(tcexp);
 		Context ctxt = new Context(LexLocation.ANY, method, null);
 		ctxt.setThreadState(CPUValue.vCPU);
 		
-		return inexp.eval(ctxt);
+		return LiteralValueReader.readValue(value, module, ctxt);
 	}
 
 	/**
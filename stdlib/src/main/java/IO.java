@@ -30,21 +30,11 @@ import java.io.IOException;
 import java.io.Serializable;
 
 import com.fujitsu.vdmj.Settings;
-import com.fujitsu.vdmj.ast.expressions.ASTExpression;
-import com.fujitsu.vdmj.in.INNode;
-import com.fujitsu.vdmj.in.expressions.INExpression;
-import com.fujitsu.vdmj.lex.Dialect;
-import com.fujitsu.vdmj.lex.LexTokenReader;
-import com.fujitsu.vdmj.mapper.ClassMapper;
 import com.fujitsu.vdmj.messages.Console;
 import com.fujitsu.vdmj.runtime.Context;
-import com.fujitsu.vdmj.runtime.Interpreter;
 import com.fujitsu.vdmj.runtime.VDMFunction;
 import com.fujitsu.vdmj.runtime.VDMOperation;
 import com.fujitsu.vdmj.runtime.ValueException;
-import com.fujitsu.vdmj.syntax.ExpressionReader;
-import com.fujitsu.vdmj.tc.TCNode;
-import com.fujitsu.vdmj.tc.expressions.TCExpression;
 import com.fujitsu.vdmj.values.BooleanValue;
 import com.fujitsu.vdmj.values.CharacterValue;
 import com.fujitsu.vdmj.values.NilValue;
@@ -54,6 +44,8 @@ import com.fujitsu.vdmj.values.Value;
 import com.fujitsu.vdmj.values.ValueList;
 import com.fujitsu.vdmj.values.VoidValue;
 
+import util.LiteralValueReader;
+
 /**
  * This class contains the code for native IO operations.
  */
@@ -111,17 +103,10 @@ public class IO implements Serializable
 				file = new File(new File(".").getParentFile(), file.getAbsolutePath());
 			}
 
-			LexTokenReader ltr = new LexTokenReader(file, Dialect.VDM_PP, Settings.filecharset);
-			ExpressionReader reader = new ExpressionReader(ltr);
-			reader.setCurrentModule("IO");
-			ASTExpression exp = reader.readExpression();
-			TCExpression tcexp = ClassMapper.getInstance(TCNode.MAPPINGS).convert(exp);
-			Interpreter ip = Interpreter.getInstance();
-			ip.typeCheck(tcexp);
-			INExpression inexp = ClassMapper.getInstance(INNode.MAPPINGS).convert(tcexp);
+			Value value = LiteralValueReader.readValue(file, Settings.filecharset, "IO", ctxt);
 			
 			result.add(new BooleanValue(true));
-			result.add(inexp.eval(ctxt));
+			result.add(value);
 		}
 		catch (Exception e)
 		{
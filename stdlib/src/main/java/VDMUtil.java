@@ -24,21 +24,11 @@
 
 // This must be in the default package to work with VDMJ's native delegation.
 
-import com.fujitsu.vdmj.ast.expressions.ASTExpression;
-import com.fujitsu.vdmj.in.INNode;
-import com.fujitsu.vdmj.in.expressions.INExpression;
-import com.fujitsu.vdmj.lex.Dialect;
-import com.fujitsu.vdmj.lex.LexTokenReader;
-import com.fujitsu.vdmj.mapper.ClassMapper;
 import com.fujitsu.vdmj.runtime.Context;
 import com.fujitsu.vdmj.runtime.ContextException;
-import com.fujitsu.vdmj.runtime.Interpreter;
 import com.fujitsu.vdmj.runtime.RootContext;
 import com.fujitsu.vdmj.runtime.VDMFunction;
 import com.fujitsu.vdmj.runtime.ValueException;
-import com.fujitsu.vdmj.syntax.ExpressionReader;
-import com.fujitsu.vdmj.tc.TCNode;
-import com.fujitsu.vdmj.tc.expressions.TCExpression;
 import com.fujitsu.vdmj.values.BooleanValue;
 import com.fujitsu.vdmj.values.CharacterValue;
 import com.fujitsu.vdmj.values.NaturalOneValue;
@@ -50,6 +40,8 @@ import com.fujitsu.vdmj.values.Value;
 import com.fujitsu.vdmj.values.ValueList;
 import com.fujitsu.vdmj.values.ValueSet;
 
+import util.LiteralValueReader;
+
 public class VDMUtil
 {
 	@VDMFunction
@@ -83,19 +75,12 @@ public class VDMUtil
 				expression.append(ch.unicode);
 			}
 			
-			LexTokenReader ltr = new LexTokenReader(expression.toString(), Dialect.VDM_PP);
-			ExpressionReader reader = new ExpressionReader(ltr);
-			reader.setCurrentModule("VDMUtil");
-			ASTExpression exp = reader.readExpression();
-			TCExpression tcexp = ClassMapper.getInstance(TCNode.MAPPINGS).convert(exp);
-			Interpreter ip = Interpreter.getInstance();
-			ip.typeCheck(tcexp);
-			INExpression inexp = ClassMapper.getInstance(INNode.MAPPINGS).convert(tcexp);
-
-			result.add(new BooleanValue(true));
 			Context ctxt = new Context(null, "seq_of_char2val", null);
 			ctxt.setThreadState(null);
-			result.add(inexp.eval(ctxt));
+			Value value = LiteralValueReader.readValue(expression.toString(), "VDMUtil", ctxt);
+
+			result.add(new BooleanValue(true));
+			result.add(value);
 		}
 		catch (Exception e)
 		{
@@ -0,0 +1,217 @@
+/*******************************************************************************
+ *
+ *	Copyright (c) 2026 Nick Battle.
+ *
+ *	Author: Nick Battle
+ *
+ *	This file is part of VDMJ.
+ *
+ *	VDMJ is free software: you can redistribute it and/or modify
+ *	it under the terms of the GNU General Public License as published by
+ *	the Free Software Foundation, either version 3 of the License, or
+ *	(at your option) any later version.
+ *
+ *	VDMJ is distributed in the hope that it will be useful,
+ *	but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *	GNU General Public License for more details.
+ *
+ *	You should have received a copy of the GNU General Public License
+ *	along with VDMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *	SPDX-License-Identifier: GPL-3.0-or-later
+ *
+ ******************************************************************************/
+
+package util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Vector;
+
+/**
+ * An index of the start and end offsets of every line in a file, so that lines
+ * can be read by number without rescanning the file. Indexes are cached per file
+ * and rebuilt if the file's modification time or length changes. Only the most
+ * recently used MAX_CACHED indexes are kept. Lines end with
+ * \n, \r or \r\n, as for BufferedReader.readLine, and are decoded with the default
+ * charset, as for FileReader.
+ */
+public class CsvLineIndex
+{
+	private static final int BUFFER_SIZE = 65536;
+	private static final int MAX_CACHED = 16;
+
+	@SuppressWarnings("serial")
+	private static final Map<File, CsvLineIndex> cache = new LinkedHashMap<File, CsvLineIndex>(MAX_CACHED, 0.75f, true)
+	{
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<File, CsvLineIndex> eldest)
+		{
+			return size() > MAX_CACHED;
+		}
+	};
+
+	private final File file;
+	private final long modified;
+	private final long length;
+	private long[] starts = new long[1024];
+	private long[] ends = new long[1024];
+	private int count = 0;
+
+	private CsvLineIndex(File file) throws IOException
+	{
+		this.file = file;
+		this.modified = file.lastModified();
+		this.length = file.length();
+		scan();
+	}
+
+	/**
+	 * Get the index for a file, building it if the file is new or has changed.
+	 */
+	public static synchronized CsvLineIndex getIndex(File file) throws IOException
+	{
+		CsvLineIndex index = cache.get(file);
+
+		if (index == null || index.modified != file.lastModified() || index.length != file.length())
+		{
+			index = new CsvLineIndex(file);
+			cache.put(file, index);
+		}
+
+		return index;
+	}
+
+	/**
+	 * Forget the index for a file, for example after it has been written.
+	 */
+	public static synchronized void invalidate(File file)
+	{
+		cache.remove(file);
+	}
+
+	private void scan() throws IOException
+	{
+		try (RandomAccessFile raf = new RandomAccessFile(file, "r"))
+		{
+			FileChannel channel = raf.getChannel();
+			ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+			long pos = 0;
+			long start = 0;
+			boolean afterCR = false;
+
+			while (channel.read(buffer) > 0)
+			{
+				((Buffer)buffer).flip();	// Buffer methods, for Java 8 runtimes
+
+				while (buffer.hasRemaining())
+				{
+					byte b = buffer.get();
+
+					if (b == '\n')
+					{
+						if (!afterCR)	// Else the line ended at the \r
+						{
+							add(start, pos);
+						}
+
+						start = pos + 1;
+						afterCR = false;
+					}
+					else if (b == '\r')
+					{
+						add(start, pos);
+						start = pos + 1;
+						afterCR = true;
+					}
+					else
+					{
+						afterCR = false;
+					}
+
+					pos++;
+				}
+
+				((Buffer)buffer).clear();
+			}
+
+			if (start < pos)	// Last line has no terminator
+			{
+				add(start, pos);
+			}
+		}
+	}
+
+	private void add(long start, long end)
+	{
+		if (count == starts.length)
+		{
+			starts = Arrays.copyOf(starts, count * 2);
+			ends = Arrays.copyOf(ends, count * 2);
+		}
+
+		starts[count] = start;
+		ends[count] = end;
+		count++;
+	}
+
+	public int getLineCount()
+	{
+		return count;
+	}
+
+	/**
+	 * Read line number "index", counting from 1.
+	 */
+	public String getLine(long index) throws IOException
+	{
+		return getLines(index, index).get(0);
+	}
+
+	/**
+	 * Read lines "from" to "to" inclusive, counting from 1, with one file read.
+	 */
+	public List<String> getLines(long from, long to) throws IOException
+	{
+		if (from < 1)
+		{
+			throw new IOException("CSV line index before first entry");
+		}
+
+		if (to > count || from > to)
+		{
+			throw new IOException("CSV no data read. Empty line.");
+		}
+
+		int first = (int)from - 1;
+		int last = (int)to - 1;
+		byte[] bytes = new byte[(int)(ends[last] - starts[first])];
+
+		try (RandomAccessFile raf = new RandomAccessFile(file, "r"))
+		{
+			raf.seek(starts[first]);
+			raf.readFully(bytes);
+		}
+
+		Charset charset = Charset.defaultCharset();
+		List<String> lines = new Vector<String>(last - first + 1);
+
+		for (int i = first; i <= last; i++)
+		{
+			int offset = (int)(starts[i] - starts[first]);
+			int len = (int)(ends[i] - starts[i]);
+			lines.add(new String(bytes, offset, len, charset));
+		}
+
+		return lines;
+	}
+}
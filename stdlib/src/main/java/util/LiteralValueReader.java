@@ -0,0 +1,414 @@
+/*******************************************************************************
+ *
+ *	Copyright (c) 2026 Nick Battle.
+ *
+ *	Author: Nick Battle
+ *
+ *	This file is part of VDMJ.
+ *
+ *	VDMJ is free software: you can redistribute it and/or modify
+ *	it under the terms of the GNU General Public License as published by
+ *	the Free Software Foundation, either version 3 of the License, or
+ *	(at your option) any later version.
+ *
+ *	VDMJ is distributed in the hope that it will be useful,
+ *	but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *	GNU General Public License for more details.
+ *
+ *	You should have received a copy of the GNU General Public License
+ *	along with VDMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *	SPDX-License-Identifier: GPL-3.0-or-later
+ *
+ ******************************************************************************/
+
+package util;
+
+import java.io.File;
+import java.nio.charset.Charset;
+
+import com.fujitsu.vdmj.ast.expressions.ASTExpression;
+import com.fujitsu.vdmj.ast.lex.LexBooleanToken;
+import com.fujitsu.vdmj.ast.lex.LexCharacterToken;
+import com.fujitsu.vdmj.ast.lex.LexIdentifierToken;
+import com.fujitsu.vdmj.ast.lex.LexIntegerToken;
+import com.fujitsu.vdmj.ast.lex.LexQuoteToken;
+import com.fujitsu.vdmj.ast.lex.LexRealToken;
+import com.fujitsu.vdmj.ast.lex.LexStringToken;
+import com.fujitsu.vdmj.ast.lex.LexToken;
+import com.fujitsu.vdmj.in.INNode;
+import com.fujitsu.vdmj.in.expressions.INExpression;
+import com.fujitsu.vdmj.lex.Dialect;
+import com.fujitsu.vdmj.lex.LexException;
+import com.fujitsu.vdmj.lex.LexLocation;
+import com.fujitsu.vdmj.lex.LexTokenReader;
+import com.fujitsu.vdmj.lex.Token;
+import com.fujitsu.vdmj.mapper.ClassMapper;
+import com.fujitsu.vdmj.runtime.Context;
+import com.fujitsu.vdmj.runtime.Interpreter;
+import com.fujitsu.vdmj.syntax.ExpressionReader;
+import com.fujitsu.vdmj.tc.TCNode;
+import com.fujitsu.vdmj.tc.definitions.TCDefinition;
+import com.fujitsu.vdmj.tc.definitions.TCExplicitFunctionDefinition;
+import com.fujitsu.vdmj.tc.expressions.TCExpression;
+import com.fujitsu.vdmj.tc.lex.TCNameToken;
+import com.fujitsu.vdmj.tc.types.TCRecordType;
+import com.fujitsu.vdmj.tc.types.TCType;
+import com.fujitsu.vdmj.values.BooleanValue;
+import com.fujitsu.vdmj.values.CharacterValue;
+import com.fujitsu.vdmj.values.MapValue;
+import com.fujitsu.vdmj.values.NilValue;
+import com.fujitsu.vdmj.values.NumericValue;
+import com.fujitsu.vdmj.values.QuoteValue;
+import com.fujitsu.vdmj.values.RecordValue;
+import com.fujitsu.vdmj.values.SeqValue;
+import com.fujitsu.vdmj.values.SetValue;
+import com.fujitsu.vdmj.values.TupleValue;
+import com.fujitsu.vdmj.values.Value;
+import com.fujitsu.vdmj.values.ValueList;
+import com.fujitsu.vdmj.values.ValueMap;
+import com.fujitsu.vdmj.values.ValueSet;
+
+/**
+ * Read VDM values from text, as used by CSV, IO and VDMUtil. Literal values are
+ * built directly from the tokens: numbers, chars, strings, quotes, booleans, nil,
+ * and sets, seqs, maps, tuples and mk_ records of these. Anything else is parsed,
+ * type checked and evaluated as a VDM expression in the usual way.
+ */
+public class LiteralValueReader
+{
+	/**
+	 * Thrown when the text is not a literal value, to fall back to evaluation.
+	 */
+	@SuppressWarnings("serial")
+	private static class NotLiteralException extends Exception
+	{
+		@Override
+		public synchronized Throwable fillInStackTrace()
+		{
+			return this;	// Not needed, and expensive
+		}
+	}
+
+	private static final NotLiteralException NOT_LITERAL = new NotLiteralException();
+
+	private final LexTokenReader ltr;
+	private final String module;
+	private final Context ctxt;
+	private LexToken token;
+
+	private LiteralValueReader(LexTokenReader ltr, String module, Context ctxt)
+	{
+		this.ltr = ltr;
+		this.module = module;
+		this.ctxt = ctxt;
+	}
+
+	/**
+	 * Read a value from a string, in the context of the module (or class) name passed.
+	 */
+	public static Value readValue(String text, String module, Context ctxt) throws Exception
+	{
+		Value value = readLiteral(new LexTokenReader(text, Dialect.VDM_PP), module, ctxt);
+
+		if (value == null)
+		{
+			value = evaluate(new LexTokenReader(text, Dialect.VDM_PP), module, ctxt);
+		}
+
+		return value;
+	}
+
+	/**
+	 * Read a value from a file, in the context of the module (or class) name passed.
+	 */
+	public static Value readValue(File file, Charset charset, String module, Context ctxt) throws Exception
+	{
+		Value value = readLiteral(new LexTokenReader(file, Dialect.VDM_PP, charset), module, ctxt);
+
+		if (value == null)
+		{
+			value = evaluate(new LexTokenReader(file, Dialect.VDM_PP, charset), module, ctxt);
+		}
+
+		return value;
+	}
+
+	/**
+	 * Return the literal value, or null if the text is not a literal value, or
+	 * if it cannot be built directly (eg. a record value that breaks its invariant),
+	 * so that evaluation can produce the usual result.
+	 */
+	static Value readLiteral(LexTokenReader ltr, String module, Context ctxt)
+	{
+		try
+		{
+			ltr.currentModule = module;
+			LiteralValueReader reader = new LiteralValueReader(ltr, module, ctxt);
+			reader.nextToken();
+			Value value = reader.readValue();
+			return reader.token.is(Token.EOF) ? value : null;
+		}
+		catch (Exception e)
+		{
+			return null;
+		}
+		finally
+		{
+			ltr.close();
+		}
+	}
+
+	static Value evaluate(LexTokenReader ltr, String module, Context ctxt) throws Exception
+	{
+		ExpressionReader reader = new ExpressionReader(ltr);
+		reader.setCurrentModule(module);
+		ASTExpression exp = reader.readExpression();
+		TCExpression tcexp = ClassMapper.getInstance(TCNode.MAPPINGS).convert(exp);
+		Interpreter ip = Interpreter.getInstance();
+		ip.typeCheck(tcexp);
+		INExpression inexp = ClassMapper.getInstance(INNode.MAPPINGS).convert(tcexp);
+
+		return inexp.eval(ctxt);
+	}
+
+	private LexToken nextToken() throws LexException
+	{
+		token = ltr.nextToken();
+		return token;
+	}
+
+	private void checkFor(Token type) throws LexException, NotLiteralException
+	{
+		if (token.isNot(type))
+		{
+			throw NOT_LITERAL;
+		}
+
+		nextToken();
+	}
+
+	private Value readValue() throws Exception
+	{
+		LexToken first = token;
+		nextToken();
+
+		switch (first.type)
+		{
+			case NUMBER:
+				return NumericValue.valueOf(((LexIntegerToken)first).value, ctxt);
+
+			case REALNUMBER:
+				return NumericValue.valueOf(((LexRealToken)first).value, ctxt);
+
+			case MINUS:		// As for unary minus
+				if (token.is(Token.NUMBER) || token.is(Token.REALNUMBER))
+				{
+					return NumericValue.valueOf(-readValue().realValue(ctxt), ctxt);
+				}
+				break;
+
+			case CHARACTER:
+				return new CharacterValue(((LexCharacterToken)first).unicode);
+
+			case STRING:
+				return new SeqValue((LexStringToken)first);
+
+			case QUOTE:
+				return new QuoteValue(((LexQuoteToken)first).value);
+
+			case TRUE:
+			case FALSE:
+				return new BooleanValue(((LexBooleanToken)first).value);
+
+			case NIL:
+				return new NilValue();
+
+			case SET_OPEN:
+				return readSetOrMap();
+
+			case SEQ_OPEN:
+				return readSeq();
+
+			case IDENTIFIER:
+				String name = ((LexIdentifierToken)first).name;
+
+				if (name.startsWith("mk_") && token.is(Token.BRA))
+				{
+					nextToken();
+					return readMk(name.substring(3), first.location);
+				}
+				break;
+
+			default:
+				break;
+		}
+
+		throw NOT_LITERAL;
+	}
+
+	private ValueList readList(Token close) throws Exception
+	{
+		ValueList values = new ValueList();
+
+		if (token.isNot(close))
+		{
+			values.add(readValue());
+
+			while (token.is(Token.COMMA))
+			{
+				nextToken();
+				values.add(readValue());
+			}
+		}
+
+		checkFor(close);
+		return values;
+	}
+
+	private Value readSeq() throws Exception
+	{
+		return new SeqValue(readList(Token.SEQ_CLOSE));
+	}
+
+	private Value readSetOrMap() throws Exception
+	{
+		if (token.is(Token.SET_CLOSE))
+		{
+			nextToken();
+			return new SetValue();
+		}
+
+		if (token.is(Token.MAPLET))
+		{
+			nextToken();
+			checkFor(Token.SET_CLOSE);
+			return new MapValue();
+		}
+
+		Value first = readValue();
+
+		if (token.is(Token.MAPLET))
+		{
+			ValueMap map = new ValueMap();
+			nextToken();
+			addMaplet(map, first, readValue());
+
+			while (token.is(Token.COMMA))
+			{
+				nextToken();
+				Value key = readValue();
+				checkFor(Token.MAPLET);
+				addMaplet(map, key, readValue());
+			}
+
+			checkFor(Token.SET_CLOSE);
+			return new MapValue(map);
+		}
+		else
+		{
+			ValueSet values = new ValueSet();
+			values.add(first);
+
+			while (token.is(Token.COMMA))
+			{
+				nextToken();
+				values.add(readValue());
+			}
+
+			checkFor(Token.SET_CLOSE);
+			return new SetValue(values);
+		}
+	}
+
+	private void addMaplet(ValueMap map, Value key, Value value) throws NotLiteralException
+	{
+		Value old = map.put(key, value);
+
+		if (old != null && !old.equals(value))
+		{
+			throw NOT_LITERAL;		// Evaluation reports the error
+		}
+	}
+
+	private Value readMk(String typename, LexLocation location) throws Exception
+	{
+		ValueList args = readList(Token.KET);
+
+		if (typename.isEmpty())
+		{
+			if (args.size() < 2)
+			{
+				throw NOT_LITERAL;
+			}
+
+			return new TupleValue(args);
+		}
+
+		if (Token.lookup(typename, Dialect.VDM_SL) != null)	// eg. mk_token
+		{
+			throw NOT_LITERAL;
+		}
+
+		return new RecordValue(findRecordType(typename, location, args.size()), args, ctxt);
+	}
+
+	/**
+	 * Find the record type, as TCMkTypeExpression does.
+	 */
+	private TCRecordType findRecordType(String typename, LexLocation location, int fieldCount) throws NotLiteralException
+	{
+		String[] parts = typename.split("`");
+		TCNameToken name = null;
+
+		switch (parts.length)
+		{
+			case 1:
+				name = new TCNameToken(location, module, parts[0]);
+				break;
+
+			case 2:
+				name = new TCNameToken(location, parts[0], parts[1], false, true);
+				break;
+
+			default:
+				throw NOT_LITERAL;
+		}
+
+		TCDefinition typedef = Interpreter.getInstance().getGlobalEnvironment().findType(name, module);
+
+		if (typedef == null)
+		{
+			throw NOT_LITERAL;
+		}
+
+		TCType type = typedef.getType();
+
+		if (!(type instanceof TCRecordType))
+		{
+			throw NOT_LITERAL;
+		}
+
+		TCRecordType recordType = (TCRecordType)type;
+
+		if (recordType.opaque && !module.equals(recordType.location.module) ||
+			recordType.fields.size() != fieldCount)
+		{
+			throw NOT_LITERAL;
+		}
+
+		if (name.isExplicit())
+		{
+			TCExplicitFunctionDefinition inv = recordType.invdef;
+			TCExplicitFunctionDefinition eq = recordType.eqdef;
+			TCExplicitFunctionDefinition ord = recordType.orddef;
+
+			recordType = new TCRecordType(recordType.name, recordType.fields, recordType.composed);
+			recordType.setInvariant(inv);
+			recordType.setEquality(eq);
+			recordType.setOrder(ord);
+		}
+
+		return recordType;
+	}
+}
@@ -0,0 +1,78 @@
+/*******************************************************************************
+ *
+ *	Copyright (c) 2026 Nick Battle.
+ *
+ *	Author: Nick Battle
+ *
+ *	This file is part of VDMJ.
+ *
+ *	VDMJ is free software: you can redistribute it and/or modify
+ *	it under the terms of the GNU General Public License as published by
+ *	the Free Software Foundation, either version 3 of the License, or
+ *	(at your option) any later version.
+ *
+ *	VDMJ is distributed in the hope that it will be useful,
+ *	but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *	GNU General Public License for more details.
+ *
+ *	You should have received a copy of the GNU General Public License
+ *	along with VDMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *	SPDX-License-Identifier: GPL-3.0-or-later
+ *
+ ******************************************************************************/
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import org.junit.Test;
+
+import com.fujitsu.vdmj.values.NaturalValue;
+import com.fujitsu.vdmj.values.SeqValue;
+import com.fujitsu.vdmj.values.Value;
+
+public class CSVTest
+{
+	private SeqValue write(String text) throws IOException
+	{
+		File file = File.createTempFile("csv", ".csv");
+		file.deleteOnExit();
+
+		try (FileOutputStream out = new FileOutputStream(file))
+		{
+			out.write(text.getBytes());
+		}
+
+		return new SeqValue(file.getAbsolutePath());
+	}
+
+	@Test
+	public void testFreadlines() throws Exception
+	{
+		SeqValue file = write("1,2\r\n3,<A>\r\n\"x\",-4");
+		Value result = CSV.freadlines(file, new NaturalValue(1), new NaturalValue(3));
+		assertEquals("mk_(true, [[1, 2], [3, <A>], [\"x\", -4]])", result.toString());
+
+		result = CSV.freadlines(file, new NaturalValue(2), new NaturalValue(2));
+		assertEquals("mk_(true, [[3, <A>]])", result.toString());
+
+		assertEquals("mk_(true, 3)", CSV.flinecount(file).toString());
+	}
+
+	@Test
+	public void testFreadlinesErrors() throws Exception
+	{
+		SeqValue file = write("1,2\n");
+
+		Value result = CSV.freadlines(file, new NaturalValue(1), new NaturalValue(2));
+		assertEquals("mk_(false, nil)", result.toString());
+		assertEquals("\"java.io.IOException: CSV no data read. Empty line.\"", CSV.ferror().toString());
+
+		result = CSV.freadlines(file, new NaturalValue(0), new NaturalValue(1));
+		assertEquals("mk_(false, nil)", result.toString());
+		assertEquals("\"java.io.IOException: CSV line index before first entry\"", CSV.ferror().toString());
+	}
+}
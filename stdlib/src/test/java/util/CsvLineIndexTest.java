@@ -0,0 +1,126 @@
+/*******************************************************************************
+ *
+ *	Copyright (c) 2026 Nick Battle.
+ *
+ *	Author: Nick Battle
+ *
+ *	This file is part of VDMJ.
+ *
+ *	VDMJ is free software: you can redistribute it and/or modify
+ *	it under the terms of the GNU General Public License as published by
+ *	the Free Software Foundation, either version 3 of the License, or
+ *	(at your option) any later version.
+ *
+ *	VDMJ is distributed in the hope that it will be useful,
+ *	but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *	GNU General Public License for more details.
+ *
+ *	You should have received a copy of the GNU General Public License
+ *	along with VDMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *	SPDX-License-Identifier: GPL-3.0-or-later
+ *
+ ******************************************************************************/
+
+package util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class CsvLineIndexTest
+{
+	private File write(String text) throws IOException
+	{
+		File file = File.createTempFile("csv", ".csv");
+		file.deleteOnExit();
+		rewrite(file, text);
+		return file;
+	}
+
+	private void rewrite(File file, String text) throws IOException
+	{
+		try (FileOutputStream out = new FileOutputStream(file))
+		{
+			out.write(text.getBytes());
+		}
+	}
+
+	@Test
+	public void testLineEnds() throws IOException
+	{
+		File file = write("1,2\r\n3,4\r\n\r\n5\n6\r7");
+		CsvLineIndex index = CsvLineIndex.getIndex(file);
+
+		assertEquals(6, index.getLineCount());
+		assertEquals("1,2", index.getLine(1));
+		assertEquals("", index.getLine(3));
+		assertEquals(Arrays.asList("3,4", "", "5", "6"), index.getLines(2, 5));
+		assertEquals("7", index.getLine(6));	// No final newline
+	}
+
+	@Test
+	public void testOutOfRange() throws IOException
+	{
+		File file = write("a\nb\n");
+		CsvLineIndex index = CsvLineIndex.getIndex(file);
+		assertEquals(2, index.getLineCount());
+
+		try
+		{
+			index.getLine(0);
+			fail("Expected exception");
+		}
+		catch (IOException e)
+		{
+			assertEquals("CSV line index before first entry", e.getMessage());
+		}
+
+		try
+		{
+			index.getLine(3);
+			fail("Expected exception");
+		}
+		catch (IOException e)
+		{
+			assertEquals("CSV no data read. Empty line.", e.getMessage());
+		}
+
+		try
+		{
+			index.getLines(2, 1);
+			fail("Expected exception");
+		}
+		catch (IOException e)
+		{
+			assertEquals("CSV no data read. Empty line.", e.getMessage());
+		}
+	}
+
+	@Test
+	public void testChangedFile() throws IOException
+	{
+		File file = write("a\nb\n");
+		assertEquals(2, CsvLineIndex.getIndex(file).getLineCount());
+
+		rewrite(file, "a\nb\nc\n");		// Length changes
+		assertEquals(3, CsvLineIndex.getIndex(file).getLineCount());
+		assertEquals("c", CsvLineIndex.getIndex(file).getLine(3));
+
+		CsvLineIndex.invalidate(file);
+		assertEquals("b", CsvLineIndex.getIndex(file).getLine(2));
+	}
+
+	@Test
+	public void testEmptyFile() throws IOException
+	{
+		File file = write("");
+		assertEquals(0, CsvLineIndex.getIndex(file).getLineCount());
+	}
+}
@@ -0,0 +1,228 @@
+/*******************************************************************************
+ *
+ *	Copyright (c) 2026 Nick Battle.
+ *
+ *	Author: Nick Battle
+ *
+ *	This file is part of VDMJ.
+ *
+ *	VDMJ is free software: you can redistribute it and/or modify
+ *	it under the terms of the GNU General Public License as published by
+ *	the Free Software Foundation, either version 3 of the License, or
+ *	(at your option) any later version.
+ *
+ *	VDMJ is distributed in the hope that it will be useful,
+ *	but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *	GNU General Public License for more details.
+ *
+ *	You should have received a copy of the GNU General Public License
+ *	along with VDMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *	SPDX-License-Identifier: GPL-3.0-or-later
+ *
+ ******************************************************************************/
+
+package util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.fujitsu.vdmj.Settings;
+import com.fujitsu.vdmj.ast.modules.ASTModuleList;
+import com.fujitsu.vdmj.in.INNode;
+import com.fujitsu.vdmj.in.modules.INModuleList;
+import com.fujitsu.vdmj.lex.Dialect;
+import com.fujitsu.vdmj.lex.LexLocation;
+import com.fujitsu.vdmj.lex.LexTokenReader;
+import com.fujitsu.vdmj.mapper.ClassMapper;
+import com.fujitsu.vdmj.runtime.Context;
+import com.fujitsu.vdmj.runtime.Interpreter;
+import com.fujitsu.vdmj.runtime.ModuleInterpreter;
+import com.fujitsu.vdmj.syntax.ModuleReader;
+import com.fujitsu.vdmj.tc.TCNode;
+import com.fujitsu.vdmj.tc.modules.TCModuleList;
+import com.fujitsu.vdmj.typechecker.ModuleTypeChecker;
+import com.fujitsu.vdmj.typechecker.TypeChecker;
+import com.fujitsu.vdmj.values.Value;
+
+/**
+ * Check that values read directly from tokens are the same as those produced by
+ * evaluating the text, and that text which cannot be read directly falls back to
+ * evaluation, giving the same results and errors.
+ */
+public class LiteralValueReaderTest
+{
+	@BeforeClass
+	public static void init() throws Exception
+	{
+		Settings.dialect = Dialect.VDM_SL;
+		File file = new File(LiteralValueReaderTest.class.getResource("/literal.vdm").getPath());
+		ModuleReader mr = new ModuleReader(new LexTokenReader(file, Dialect.VDM_SL));
+		ASTModuleList parsed = mr.readModules();
+		mr.close();
+		assertEquals(0, mr.getErrorCount());
+
+		TCModuleList checked = ClassMapper.getInstance(TCNode.MAPPINGS).init().convert(parsed);
+		new ModuleTypeChecker(checked).typeCheck();
+		assertEquals(0, TypeChecker.getErrorCount());
+
+		INModuleList runnable = ClassMapper.getInstance(INNode.MAPPINGS).init().convert(checked);
+		new ModuleInterpreter(runnable, checked).init();
+	}
+
+	private Context context()
+	{
+		// The initial context defines the invariant functions of record types
+		Context ctxt = new Context(LexLocation.ANY, "test", Interpreter.getInstance().getInitialContext());
+		ctxt.setThreadState(null);
+		return ctxt;
+	}
+
+	private Value literal(String text)
+	{
+		return LiteralValueReader.readLiteral(new LexTokenReader(text, Dialect.VDM_PP), "A", context());
+	}
+
+	private Value evaluate(String text) throws Exception
+	{
+		return LiteralValueReader.evaluate(new LexTokenReader(text, Dialect.VDM_PP), "A", context());
+	}
+
+	private String error(String text, boolean evaluate)
+	{
+		try
+		{
+			if (evaluate)
+			{
+				evaluate(text);
+			}
+			else
+			{
+				LiteralValueReader.readValue(text, "A", context());
+			}
+
+			fail("Expected an error from " + text);
+			return null;
+		}
+		catch (Exception e)
+		{
+			return e.getClass().getName() + ": " + e.getMessage();
+		}
+	}
+
+	private void assertSame(String text, Value expected, Value actual) throws Exception
+	{
+		assertEquals(text, expected.toString(), actual.toString());
+		assertEquals(text, expected.getClass(), actual.getClass());
+		assertEquals(text, expected, actual);
+	}
+
+	private void assertLiteral(String text) throws Exception
+	{
+		Value direct = literal(text);
+		assertNotNull("Not read directly: " + text, direct);
+		assertSame(text, evaluate(text), direct);
+		assertSame(text, evaluate(text), LiteralValueReader.readValue(text, "A", context()));
+	}
+
+	private void assertFallback(String text) throws Exception
+	{
+		assertNull("Read directly: " + text, literal(text));
+		assertSame(text, evaluate(text), LiteralValueReader.readValue(text, "A", context()));
+	}
+
+	private void assertError(String text) throws Exception
+	{
+		assertNull("Read directly: " + text, literal(text));
+		assertEquals(text, error(text, true), error(text, false));
+	}
+
+	@Test
+	public void testSimple() throws Exception
+	{
+		assertLiteral("123");
+		assertLiteral("0");
+		assertLiteral("1.5");
+		assertLiteral("1.5e3");
+		assertLiteral("'a'");
+		assertLiteral("\"abc\"");
+		assertLiteral("\"\"");
+		assertLiteral("<A>");
+		assertLiteral("<C>");
+		assertLiteral("true");
+		assertLiteral("false");
+		assertLiteral("nil");
+	}
+
+	@Test
+	public void testNegative() throws Exception
+	{
+		assertLiteral("-1");
+		assertLiteral("- 1");
+		assertLiteral("-0");
+		assertLiteral("-2.5");
+		assertLiteral("-1.5e-3");
+		assertLiteral("[-1, 2, -3]");
+		assertLiteral("mk_(-1, -1.0)");
+		assertFallback("-(-1)");
+		assertFallback("-(1)");
+		assertFallback("1 - 2");
+	}
+
+	@Test
+	public void testCollections() throws Exception
+	{
+		assertLiteral("{}");
+		assertLiteral("[]");
+		assertLiteral("{|->}");
+		assertLiteral("{1, 2, 2, 3}");
+		assertLiteral("[{1}, {}, {1, 2}]");
+		assertLiteral("{1 |-> \"a\", 2 |-> \"b\"}");
+		assertLiteral("{1 |-> 2, 1 |-> 2}");
+		assertLiteral("mk_(1, \"x\", [<A>])");
+		assertLiteral("{mk_(1, 2) |-> {nil}}");
+	}
+
+	@Test
+	public void testRecords() throws Exception
+	{
+		assertLiteral("mk_R(1, <A>)");
+		assertLiteral("mk_A`R(-1, <B>)");
+		assertLiteral("mk_T(mk_R(1, <A>), [mk_R(2, <B>), mk_A`R(-3, <A>)])");
+		assertLiteral("{mk_R(1, <A>) |-> mk_T(mk_R(0, <B>), [])}");
+		assertLiteral("mk_P(1)");
+	}
+
+	@Test
+	public void testFallback() throws Exception
+	{
+		assertFallback("1 + 2");
+		assertFallback("{x * 2 | x in set {1, 2, 3}}");
+		assertFallback("mk_token(1)");
+		assertFallback("[mk_R(1, <A>), mk_R(1 + 1, <B>)]");
+		assertFallback("1 2");				// Trailing tokens
+		assertFallback("mk_R(1, <A>) 99");
+	}
+
+	@Test
+	public void testErrors() throws Exception
+	{
+		assertError("{1 |-> 2, 1 |-> 3}");		// Duplicate map key
+		assertError("{mk_R(1, <A>) |-> 1, mk_A`R(1, <A>) |-> 2}");
+		assertError("mk_P(0)");					// Invariant failure
+		assertError("[mk_P(1), mk_P(-1)]");
+		assertError("mk_T(mk_R(1, <A>), [mk_P(1)])");	// Type error
+		assertError("mk_R(1)");
+		assertError("mk_X(1)");
+		assertError("mk_(1)");
+		assertError("[1, 2");
+		assertError("[1] [2]");				// Trailing tokens that do not parse
+	}
+}
@@ -476,7 +476,7 @@ abstract public class CommandReader
    			long after = System.currentTimeMillis();
 			println("Executed in " + (double)(after-before)/1000 + " secs. ");
 
-			if (RTLogger.getLogSize() > 0)
+			if (RTLogger.isOpen())
 			{
 				println("Dumped RT events");
 				RTLogger.dump(false);
@@ -670,7 +670,7 @@ abstract public class CommandReader
 				}
 			}
 
-			if (RTLogger.getLogSize() > 0)
+			if (RTLogger.isOpen())
 			{
 				println("Dumped RT events");
 				RTLogger.dump(false);
@@ -772,7 +772,7 @@ abstract public class CommandReader
 
 	protected boolean doQuit(@SuppressWarnings("unused") String line)
 	{
-		if (RTLogger.getLogSize() > 0)
+		if (RTLogger.isOpen())
 		{
 			println("Dumping RT events");
 			RTLogger.dump(true);
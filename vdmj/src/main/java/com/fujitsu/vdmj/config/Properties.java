@@ -46,6 +46,9 @@ public class Properties
 	
 	/** Merge adjacent single line comments into a block */
 	public static boolean parser_merge_comments = false;
+
+	/** The number of threads used to parse source files concurrently. */
+	public static int parser_threads = 1;
 	
 	/** The package list for annotation classes to load. */
 	public static String annotations_packages = "com.fujitsu.vdmj.ast.annotations;annotations.ast";
@@ -65,6 +68,15 @@ public class Properties
 	/** The maximum TC errors reported before "Too many errors". */
 	public static int tc_max_errors = 100;
 	
+	/** The number of threads used to type check independent modules concurrently. */
+	public static int tc_threads = 1;
+	
+	/** A directory for cached type checked specifications (null = no cache). */
+	public static String tc_cache_directory = null;
+	
+	/** The maximum number of entries kept in the cache directory, most recently used. */
+	public static int tc_cache_max_entries = 100;
+	
 	
 	/** The default timeslice (statements executed) for a FCFS policy */
 	public static int scheduler_fcfs_timeslice = 10;
@@ -84,6 +96,12 @@ public class Properties
 	
 	/** The size below which trace function args are expanded. */
 	public static int traces_max_arg_length = 50;
+	
+	/** The number of worker processes for runtrace (1 means run in-process). */
+	public static int traces_workers = 1;
+	
+	/** The number of tests sent to each worker at a time, between filter updates. */
+	public static int traces_worker_batch = 1000;
 
 	
 	/** The default duration for RT statements. */
@@ -117,6 +135,18 @@ public class Properties
 	/** The size limit for type bind expansions */
 	public static long in_typebind_limit = 100000;
 	
+	/** Memoize the results of all functions (otherwise use @Memo) */
+	public static boolean in_memo_functions = false;
+	
+	/** The maximum number of results held in the function memo cache */
+	public static int in_memo_size = 10000;
+	
+	/** The number of calls before a function body is compiled to closures (0 = never) */
+	public static int in_compile_threshold = 0;
+	
+	/** Whether to count coverage hits during execution */
+	public static boolean in_coverage = true;
+	
 	/** The maximum stack to dump via println(Throwable) */
 	public static int diag_max_stack = 1;
 	
@@ -179,6 +209,7 @@ public class Properties
 		parser_comment_nesting = get(vdmj, "vdmj.parser.comment_nesting", 3);
 		parser_external_readers = get(vdmj, "vdmj.parser.external_readers", null);
 		parser_merge_comments = get(vdmj, "vdmj.parser.merge_comments", false);
+		parser_threads = get(vdmj, "vdmj.parser.threads", 1);
 
 		annotations_packages = get(vdmj, "vdmj.annotations.packages", "com.fujitsu.vdmj.ast.annotations;annotations.ast");
 		annotations_debug = get(vdmj, "vdmj.annotations.debug", false);
@@ -188,6 +219,9 @@ public class Properties
 		tc_skip_recursive_check = get(vdmj, "vdmj.tc.skip_recursive_check", false);
 		tc_skip_cyclic_check = get(vdmj, "vdmj.tc.skip_cyclic_check", false);
 		tc_max_errors = get(vdmj, "vdmj.tc.max_errors", 100);
+		tc_threads = get(vdmj, "vdmj.tc.threads", 1);
+		tc_cache_directory = get(vdmj, "vdmj.tc.cache_directory", null);
+		tc_cache_max_entries = get(vdmj, "vdmj.tc.cache_max_entries", 100);
 		
 		scheduler_fcfs_timeslice = get(vdmj, "vdmj.scheduler.fcfs_timeslice", 10);
 		scheduler_virtual_timeslice = get(vdmj, "vdmj.scheduler.virtual_timeslice", 10000);
@@ -196,6 +230,8 @@ public class Properties
 		traces_max_repeats = get(vdmj, "vdmj.traces.max_repeats", 5);
 		traces_save_state = get(vdmj, "vdmj.traces.save_state", false);
 		traces_max_arg_length = get(vdmj, "vdmj.traces.max_arg_length", 50);
+		traces_workers = get(vdmj, "vdmj.traces.workers", 1);
+		traces_worker_batch = get(vdmj, "vdmj.traces.worker_batch", 1000);
 		
 		rt_duration_default = get(vdmj, "vdmj.rt.duration_default", 2);
 		rt_duration_transactions = get(vdmj, "vdmj.rt.duration_transactions", false);
@@ -206,6 +242,10 @@ public class Properties
 		
 		in_powerset_limit = get(vdmj, "vdmj.in.powerset_limit", 30);
 		in_typebind_limit = get(vdmj, "vdmj.in.typebind_limit", 100000);
+		in_memo_functions = get(vdmj, "vdmj.in.memo_functions", false);
+		in_memo_size = get(vdmj, "vdmj.in.memo_size", 10000);
+		in_compile_threshold = get(vdmj, "vdmj.in.compile_threshold", 0);
+		in_coverage = get(vdmj, "vdmj.in.coverage", true);
 
 		cmd_plugin_packages = get(vdmj, "vdmj.cmd.plugin_packages", "plugins");
 		debug_link_class = get(vdmj, "vdmj.debug.link_class", null);		
@@ -0,0 +1,43 @@
+/*******************************************************************************
+ *
+ *	Copyright (c) 2023 Nick Battle.
+ *
+ *	Author: Nick Battle
+ *
+ *	This file is part of VDMJ.
+ *
+ *	VDMJ is free software: you can redistribute it and/or modify
+ *	it under the terms of the GNU General Public License as published by
+ *	the Free Software Foundation, either version 3 of the License, or
+ *	(at your option) any later version.
+ *
+ *	VDMJ is distributed in the hope that it will be useful,
+ *	but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *	GNU General Public License for more details.
+ *
+ *	You should have received a copy of the GNU General Public License
+ *	along with VDMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *	SPDX-License-Identifier: GPL-3.0-or-later
+ *
+ ******************************************************************************/
+
+package com.fujitsu.vdmj.in.closures;
+
+import com.fujitsu.vdmj.runtime.Context;
+import com.fujitsu.vdmj.values.Value;
+
+/**
+ * A compiled form of an INExpression. Closures are created by the INClosureCompiler
+ * for the bodies of frequently called functions. Function parameters are passed in
+ * a frame of values, indexed by slot numbers that are resolved when the closure is
+ * compiled, rather than being looked up by name in the Context.
+ */
+abstract public class INClosure
+{
+	/**
+	 * Evaluate the closure with the parameter values in the frame. The context passed
+	 * is the function's evaluation context, which also contains the parameters.
+	 */
+	abstract public Value eval(Value[] frame, Context ctxt);
+}
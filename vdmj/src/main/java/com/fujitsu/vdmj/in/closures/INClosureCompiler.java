@@ -0,0 +1,769 @@
+/*******************************************************************************
+ *
+ *	Copyright (c) 2023 Nick Battle.
+ *
+ *	Author: Nick Battle
+ *
+ *	This file is part of VDMJ.
+ *
+ *	VDMJ is free software: you can redistribute it and/or modify
+ *	it under the terms of the GNU General Public License as published by
+ *	the Free Software Foundation, either version 3 of the License, or
+ *	(at your option) any later version.
+ *
+ *	VDMJ is distributed in the hope that it will be useful,
+ *	but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *	GNU General Public License for more details.
+ *
+ *	You should have received a copy of the GNU General Public License
+ *	along with VDMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *	SPDX-License-Identifier: GPL-3.0-or-later
+ *
+ ******************************************************************************/
+
+package com.fujitsu.vdmj.in.closures;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Stack;
+
+import com.fujitsu.vdmj.in.definitions.INDefinition;
+import com.fujitsu.vdmj.in.definitions.INValueDefinition;
+import com.fujitsu.vdmj.in.expressions.INAndExpression;
+import com.fujitsu.vdmj.in.expressions.INApplyExpression;
+import com.fujitsu.vdmj.in.expressions.INBooleanLiteralExpression;
+import com.fujitsu.vdmj.in.expressions.INElseIfExpression;
+import com.fujitsu.vdmj.in.expressions.INEqualsExpression;
+import com.fujitsu.vdmj.in.expressions.INExistsExpression;
+import com.fujitsu.vdmj.in.expressions.INExpression;
+import com.fujitsu.vdmj.in.expressions.INForAllExpression;
+import com.fujitsu.vdmj.in.expressions.INIfExpression;
+import com.fujitsu.vdmj.in.expressions.INIntegerLiteralExpression;
+import com.fujitsu.vdmj.in.expressions.INLetDefExpression;
+import com.fujitsu.vdmj.in.expressions.INNotEqualExpression;
+import com.fujitsu.vdmj.in.expressions.INNotExpression;
+import com.fujitsu.vdmj.in.expressions.INNumericBinaryExpression;
+import com.fujitsu.vdmj.in.expressions.INOrExpression;
+import com.fujitsu.vdmj.in.expressions.INRealLiteralExpression;
+import com.fujitsu.vdmj.in.expressions.INUnaryMinusExpression;
+import com.fujitsu.vdmj.in.expressions.INVariableExpression;
+import com.fujitsu.vdmj.in.expressions.visitors.INExpressionVisitor;
+import com.fujitsu.vdmj.in.patterns.INIdentifierPattern;
+import com.fujitsu.vdmj.in.patterns.INMultipleBind;
+import com.fujitsu.vdmj.in.patterns.INMultipleSetBind;
+import com.fujitsu.vdmj.runtime.Context;
+import com.fujitsu.vdmj.runtime.ValueException;
+import com.fujitsu.vdmj.tc.lex.TCNameToken;
+import com.fujitsu.vdmj.tc.types.TCMapType;
+import com.fujitsu.vdmj.tc.types.TCNaturalOneType;
+import com.fujitsu.vdmj.tc.types.TCType;
+import com.fujitsu.vdmj.values.BooleanValue;
+import com.fujitsu.vdmj.values.FunctionValue;
+import com.fujitsu.vdmj.values.MapValue;
+import com.fujitsu.vdmj.values.NumericValue;
+import com.fujitsu.vdmj.values.OperationValue;
+import com.fujitsu.vdmj.values.SeqValue;
+import com.fujitsu.vdmj.values.Value;
+import com.fujitsu.vdmj.values.ValueList;
+import com.fujitsu.vdmj.values.ValueSet;
+
+/**
+ * Compile an INExpression tree into a tree of INClosures. The argument is a map of
+ * the names in scope to their slot numbers in the frame passed to the closures.
+ * 
+ * Only the common expressions in function bodies are compiled: literals, variables,
+ * applications, if/elseif, numeric operators, the boolean operators, simple lets and
+ * single set bind quantifiers. Anything else is evaluated by the interpreter, as a
+ * whole sub-tree.
+ * 
+ * Names bound by a let or quantifier are given new slots in the frame. If the scope
+ * of the names contains any interpreted sub-trees, the names are also put into a new
+ * Context, as the interpreter would, so that the sub-trees can see them. Otherwise
+ * no Context is created at all.
+ * 
+ * Closures do not check breakpoints, so they must only be used when the debugger
+ * is not active. Coverage is still recorded, as for the interpreter. Pause and
+ * terminate interrupts are checked on each quantifier iteration, and on each call
+ * of a compiled function by FunctionValue, so that a compiled loop or recursion
+ * can still be cancelled.
+ */
+public class INClosureCompiler extends INExpressionVisitor<INClosure, Map<TCNameToken, Integer>>
+{
+	/** The number of frame slots used so far */
+	private int frameSize;
+
+	/** The number of sub-trees that are evaluated by the interpreter */
+	private int interpreted = 0;
+
+	/**
+	 * Create a compiler, given the number of slots used by parameters.
+	 */
+	public INClosureCompiler(int params)
+	{
+		this.frameSize = params;
+	}
+
+	/**
+	 * The size of frame needed by the closures compiled so far.
+	 */
+	public int getFrameSize()
+	{
+		return frameSize;
+	}
+
+	@Override
+	public INClosure caseExpression(final INExpression node, Map<TCNameToken, Integer> slots)
+	{
+		interpreted++;
+
+		return new INClosure()
+		{
+			@Override
+			public Value eval(Value[] frame, Context ctxt)
+			{
+				return node.eval(ctxt);
+			}
+		};
+	}
+
+	@Override
+	public INClosure caseIntegerLiteralExpression(final INIntegerLiteralExpression node, Map<TCNameToken, Integer> slots)
+	{
+		return new INClosure()
+		{
+			@Override
+			public Value eval(Value[] frame, Context ctxt)
+			{
+				node.location.hit();
+
+				try
+				{
+					return NumericValue.valueOf(node.value.value, ctxt);
+				}
+				catch (ValueException e)
+				{
+					return node.abort(e);
+				}
+			}
+		};
+	}
+
+	@Override
+	public INClosure caseRealLiteralExpression(final INRealLiteralExpression node, Map<TCNameToken, Integer> slots)
+	{
+		return new INClosure()
+		{
+			@Override
+			public Value eval(Value[] frame, Context ctxt)
+			{
+				node.location.hit();
+
+				try
+				{
+					return NumericValue.valueOf(node.value.value, ctxt);
+				}
+				catch (ValueException e)
+				{
+					return node.abort(e);
+				}
+			}
+		};
+	}
+
+	@Override
+	public INClosure caseBooleanLiteralExpression(final INBooleanLiteralExpression node, Map<TCNameToken, Integer> slots)
+	{
+		return new INClosure()
+		{
+			@Override
+			public Value eval(Value[] frame, Context ctxt)
+			{
+				node.location.hit();
+				return new BooleanValue(node.value.value);
+			}
+		};
+	}
+
+	@Override
+	public INClosure caseVariableExpression(final INVariableExpression node, Map<TCNameToken, Integer> slots)
+	{
+		final Integer slot = slots.get(node.name);
+
+		if (slot != null)
+		{
+			return new INClosure()
+			{
+				@Override
+				public Value eval(Value[] frame, Context ctxt)
+				{
+					node.location.hit();
+					return frame[slot];
+				}
+			};
+		}
+		else
+		{
+			return new INClosure()
+			{
+				@Override
+				public Value eval(Value[] frame, Context ctxt)
+				{
+					node.location.hit();
+					return ctxt.lookup(node.name);
+				}
+			};
+		}
+	}
+
+	@Override
+	public INClosure caseApplyExpression(final INApplyExpression node, Map<TCNameToken, Integer> slots)
+	{
+		final INClosure root = node.root.apply(this, slots);
+		final INClosure[] args = new INClosure[node.args.size()];
+
+		for (int i=0; i<args.length; i++)
+		{
+			args[i] = node.args.get(i).apply(this, slots);
+		}
+
+		return new INClosure()
+		{
+			@Override
+			public Value eval(Value[] frame, Context ctxt)
+			{
+				try
+				{
+					Value object = root.eval(frame, ctxt).deref();
+
+					if (object instanceof FunctionValue)
+					{
+						ValueList argvals = new ValueList(args.length);
+
+						for (INClosure arg: args)
+						{
+							argvals.add(arg.eval(frame, ctxt));
+						}
+
+						FunctionValue fv = object.functionValue(ctxt);
+						return fv.eval(node.location, argvals, ctxt);
+					}
+					else if (object instanceof OperationValue)
+					{
+						ValueList argvals = new ValueList(args.length);
+
+						for (INClosure arg: args)
+						{
+							argvals.add(arg.eval(frame, ctxt));
+						}
+
+						OperationValue ov = object.operationValue(ctxt);
+						return ov.eval(node.location, argvals, ctxt);
+					}
+					else if (object instanceof SeqValue)
+					{
+						Value arg = args[0].eval(frame, ctxt).convertTo(new TCNaturalOneType(node.location), ctxt);
+						SeqValue sv = (SeqValue)object;
+						return sv.get(arg, ctxt);
+					}
+					else if (object instanceof MapValue)
+					{
+						TCMapType mtype = node.type.getMap();
+						Value arg = args[0].eval(frame, ctxt).convertTo(mtype.from, ctxt);
+						MapValue mv = (MapValue)object;
+						return mv.lookup(arg, ctxt);
+					}
+					else
+					{
+						return node.abort(4003, "Value " + object + " cannot be applied", ctxt);
+					}
+				}
+				catch (ValueException e)
+				{
+					return node.abort(e);
+				}
+			}
+		};
+	}
+
+	@Override
+	public INClosure caseIfExpression(final INIfExpression node, Map<TCNameToken, Integer> slots)
+	{
+		final INClosure ifExp = node.ifExp.apply(this, slots);
+		final INClosure thenExp = node.thenExp.apply(this, slots);
+		final INClosure elseExp = node.elseExp.apply(this, slots);
+		final INElseIfExpression[] elseifs = new INElseIfExpression[node.elseList.size()];
+		final INClosure[] elseIfExps = new INClosure[elseifs.length];
+		final INClosure[] elseThenExps = new INClosure[elseifs.length];
+
+		for (int i=0; i<elseifs.length; i++)
+		{
+			elseifs[i] = node.elseList.get(i);
+			elseIfExps[i] = elseifs[i].elseIfExp.apply(this, slots);
+			elseThenExps[i] = elseifs[i].thenExp.apply(this, slots);
+		}
+
+		return new INClosure()
+		{
+			@Override
+			public Value eval(Value[] frame, Context ctxt)
+			{
+				node.location.hit();
+
+				try
+				{
+					if (ifExp.eval(frame, ctxt).boolValue(ctxt))
+					{
+						return thenExp.eval(frame, ctxt);
+					}
+
+					for (int i=0; i<elseifs.length; i++)
+					{
+						elseifs[i].location.hit();
+
+						try
+						{
+							if (elseIfExps[i].eval(frame, ctxt).boolValue(ctxt))
+							{
+								return elseThenExps[i].eval(frame, ctxt);
+							}
+						}
+						catch (ValueException e)
+						{
+							return elseifs[i].abort(e);
+						}
+					}
+
+					return elseExp.eval(frame, ctxt);
+				}
+				catch (ValueException e)
+				{
+					return node.abort(e);
+				}
+			}
+		};
+	}
+
+	@Override
+	public INClosure caseNumericBinaryExpression(final INNumericBinaryExpression node, Map<TCNameToken, Integer> slots)
+	{
+		final INClosure left = node.left.apply(this, slots);
+		final INClosure right = node.right.apply(this, slots);
+
+		return new INClosure()
+		{
+			@Override
+			public Value eval(Value[] frame, Context ctxt)
+			{
+				node.location.hit();
+
+				try
+				{
+					return node.evalOperator(left.eval(frame, ctxt), right.eval(frame, ctxt), ctxt);
+				}
+				catch (ValueException e)
+				{
+					return node.abort(e);
+				}
+			}
+		};
+	}
+
+	@Override
+	public INClosure caseEqualsExpression(final INEqualsExpression node, Map<TCNameToken, Integer> slots)
+	{
+		final INClosure left = node.left.apply(this, slots);
+		final INClosure right = node.right.apply(this, slots);
+
+		return new INClosure()
+		{
+			@Override
+			public Value eval(Value[] frame, Context ctxt)
+			{
+				node.location.hit();
+				Value lv = left.eval(frame, ctxt);
+
+				if (lv.isUndefined())
+				{
+					return lv;
+				}
+
+				Value rv = right.eval(frame, ctxt);
+
+				if (rv.isUndefined())
+				{
+					return rv;
+				}
+
+				return new BooleanValue(lv.equals(rv));
+			}
+		};
+	}
+
+	@Override
+	public INClosure caseNotEqualExpression(final INNotEqualExpression node, Map<TCNameToken, Integer> slots)
+	{
+		final INClosure left = node.left.apply(this, slots);
+		final INClosure right = node.right.apply(this, slots);
+
+		return new INClosure()
+		{
+			@Override
+			public Value eval(Value[] frame, Context ctxt)
+			{
+				node.location.hit();
+				Value lv = left.eval(frame, ctxt);
+				Value rv = right.eval(frame, ctxt);
+				return new BooleanValue(!lv.equals(rv));
+			}
+		};
+	}
+
+	@Override
+	public INClosure caseAndExpression(final INAndExpression node, Map<TCNameToken, Integer> slots)
+	{
+		final INClosure left = node.left.apply(this, slots);
+		final INClosure right = node.right.apply(this, slots);
+
+		return new INClosure()
+		{
+			@Override
+			public Value eval(Value[] frame, Context ctxt)
+			{
+				node.location.hit();
+
+				try
+				{
+					Value lv = left.eval(frame, ctxt);
+
+					if (lv.isUndefined() || !lv.boolValue(ctxt))
+					{
+						return lv;	// Stop after LHS
+					}
+
+					Value rv = right.eval(frame, ctxt);
+					return rv.boolValue(ctxt) ? rv : new BooleanValue(false);
+				}
+				catch (ValueException e)
+				{
+					return node.abort(e);
+				}
+			}
+		};
+	}
+
+	@Override
+	public INClosure caseOrExpression(final INOrExpression node, Map<TCNameToken, Integer> slots)
+	{
+		final INClosure left = node.left.apply(this, slots);
+		final INClosure right = node.right.apply(this, slots);
+
+		return new INClosure()
+		{
+			@Override
+			public Value eval(Value[] frame, Context ctxt)
+			{
+				node.location.hit();
+
+				try
+				{
+					Value lv = left.eval(frame, ctxt);
+
+					if (lv.isUndefined() || lv.boolValue(ctxt))
+					{
+						return lv;	// Stop after LHS
+					}
+
+					Value rv = right.eval(frame, ctxt);
+					return rv.boolValue(ctxt) ? new BooleanValue(true) : rv;
+				}
+				catch (ValueException e)
+				{
+					return node.abort(e);
+				}
+			}
+		};
+	}
+
+	@Override
+	public INClosure caseNotExpression(final INNotExpression node, Map<TCNameToken, Integer> slots)
+	{
+		final INClosure exp = node.exp.apply(this, slots);
+
+		return new INClosure()
+		{
+			@Override
+			public Value eval(Value[] frame, Context ctxt)
+			{
+				node.location.hit();
+
+				try
+				{
+					Value v = exp.eval(frame, ctxt);
+					return v.isUndefined() ? v : new BooleanValue(!v.boolValue(ctxt));
+				}
+				catch (ValueException e)
+				{
+					return node.abort(e);
+				}
+			}
+		};
+	}
+
+	@Override
+	public INClosure caseUnaryMinusExpression(final INUnaryMinusExpression node, Map<TCNameToken, Integer> slots)
+	{
+		final INClosure exp = node.exp.apply(this, slots);
+
+		return new INClosure()
+		{
+			@Override
+			public Value eval(Value[] frame, Context ctxt)
+			{
+				node.location.hit();
+
+				try
+				{
+					double v = exp.eval(frame, ctxt).realValue(ctxt);
+					return NumericValue.valueOf(-v, ctxt);
+				}
+				catch (ValueException e)
+				{
+					return node.abort(e);
+				}
+			}
+		};
+	}
+
+	@Override
+	public INClosure caseLetDefExpression(final INLetDefExpression node, Map<TCNameToken, Integer> slots)
+	{
+		int count = node.localDefs.size();
+		final INValueDefinition[] defs = new INValueDefinition[count];
+
+		for (int i=0; i<count; i++)
+		{
+			INDefinition def = node.localDefs.get(i);
+
+			if (def instanceof INValueDefinition &&
+				((INValueDefinition)def).pattern instanceof INIdentifierPattern)
+			{
+				defs[i] = (INValueDefinition)def;
+			}
+			else
+			{
+				return caseExpression(node, slots);		// Functions or patterns
+			}
+		}
+
+		final INClosure[] exps = new INClosure[count];
+		final TCNameToken[] names = new TCNameToken[count];
+		final TCType[] types = new TCType[count];
+		final int[] defslots = new int[count];
+
+		Map<TCNameToken, Integer> scope = new HashMap<TCNameToken, Integer>(slots);
+		int before = interpreted;
+
+		for (int i=0; i<count; i++)
+		{
+			exps[i] = defs[i].exp.apply(this, scope);	// Sees the previous defs
+			names[i] = ((INIdentifierPattern)defs[i].pattern).name;
+			types[i] = defs[i].getType();
+			defslots[i] = frameSize++;
+			scope.put(names[i], defslots[i]);
+		}
+
+		final INClosure body = node.expression.apply(this, scope);
+		final boolean needsContext = (interpreted > before);
+
+		return new INClosure()
+		{
+			@Override
+			public Value eval(Value[] frame, Context ctxt)
+			{
+				node.location.hit();
+				Context evalContext = needsContext ? new Context(node.location, "let expression", ctxt) : ctxt;
+
+				for (int i=0; i<exps.length; i++)
+				{
+					try
+					{
+						Value v = exps[i].eval(frame, evalContext).convertTo(types[i], evalContext).getConstant();
+						frame[defslots[i]] = v;
+
+						if (needsContext)
+						{
+							evalContext.put(names[i], v);
+						}
+					}
+					catch (ValueException e)
+					{
+						defs[i].abort(e);
+					}
+				}
+
+				return body.eval(frame, evalContext);
+			}
+		};
+	}
+
+	@Override
+	public INClosure caseForAllExpression(final INForAllExpression node, Map<TCNameToken, Integer> slots)
+	{
+		final INMultipleSetBind bind = getSimpleSetBind(node.bindList.size(), node.bindList.get(0));
+
+		if (bind == null)
+		{
+			return caseExpression(node, slots);
+		}
+
+		final INClosure set = bind.set.apply(this, slots);
+		final TCNameToken name = ((INIdentifierPattern)bind.plist.get(0)).name;
+		final int slot = frameSize++;
+
+		Map<TCNameToken, Integer> scope = new HashMap<TCNameToken, Integer>(slots);
+		scope.put(name, slot);
+		int before = interpreted;
+		final INClosure predicate = node.predicate.apply(this, scope);
+		final boolean needsContext = (interpreted > before);
+
+		return new INClosure()
+		{
+			@Override
+			public Value eval(Value[] frame, Context ctxt)
+			{
+				node.location.hit();
+				Stack<Context> failPath = INForAllExpression.getFailPath();
+
+				try
+				{
+					if (failPath != null)
+					{
+						failPath.clear();
+					}
+
+					ValueSet values = set.eval(frame, ctxt).setValue(ctxt);
+					values.sort();
+
+					for (Value value: values)
+					{
+						node.breakpoint.checkInterrupt(ctxt);
+						frame[slot] = value;
+						Context evalContext = ctxt;
+
+						if (needsContext || failPath != null)
+						{
+							evalContext = new Context(node.location, "forall", ctxt);
+							evalContext.put(name, value);
+						}
+
+						try
+						{
+							if (!predicate.eval(frame, evalContext).boolValue(ctxt))
+							{
+								if (failPath != null)
+								{
+									failPath.push(evalContext);
+								}
+
+								return new BooleanValue(false);
+							}
+						}
+						catch (ValueException e)
+						{
+							node.predicate.abort(e);
+						}
+					}
+				}
+				catch (ValueException e)
+				{
+					return node.abort(e);
+				}
+
+				return new BooleanValue(true);
+			}
+		};
+	}
+
+	@Override
+	public INClosure caseExistsExpression(final INExistsExpression node, Map<TCNameToken, Integer> slots)
+	{
+		final INMultipleSetBind bind = getSimpleSetBind(node.bindList.size(), node.bindList.get(0));
+
+		if (bind == null)
+		{
+			return caseExpression(node, slots);
+		}
+
+		final INClosure set = bind.set.apply(this, slots);
+		final TCNameToken name = ((INIdentifierPattern)bind.plist.get(0)).name;
+		final int slot = frameSize++;
+
+		Map<TCNameToken, Integer> scope = new HashMap<TCNameToken, Integer>(slots);
+		scope.put(name, slot);
+		int before = interpreted;
+		final INClosure predicate = node.predicate.apply(this, scope);
+		final boolean needsContext = (interpreted > before);
+
+		return new INClosure()
+		{
+			@Override
+			public Value eval(Value[] frame, Context ctxt)
+			{
+				node.location.hit();
+
+				try
+				{
+					ValueSet values = set.eval(frame, ctxt).setValue(ctxt);
+					values.sort();
+
+					for (Value value: values)
+					{
+						node.breakpoint.checkInterrupt(ctxt);
+						frame[slot] = value;
+						Context evalContext = ctxt;
+
+						if (needsContext)
+						{
+							evalContext = new Context(node.location, "exists", ctxt);
+							evalContext.put(name, value);
+						}
+
+						try
+						{
+							if (predicate.eval(frame, evalContext).boolValue(ctxt))
+							{
+								return new BooleanValue(true);
+							}
+						}
+						catch (ValueException e)
+						{
+							node.predicate.abort(e);
+						}
+					}
+				}
+				catch (ValueException e)
+				{
+					return node.abort(e);
+				}
+
+				return new BooleanValue(false);
+			}
+		};
+	}
+
+	/**
+	 * Quantifiers are only compiled if they have a single set bind of a single
+	 * identifier, like "forall x in set S & ...".
+	 */
+	private INMultipleSetBind getSimpleSetBind(int count, INMultipleBind bind)
+	{
+		if (count == 1 && bind instanceof INMultipleSetBind && bind.plist.size() == 1 &&
+			bind.plist.get(0) instanceof INIdentifierPattern)
+		{
+			return (INMultipleSetBind)bind;
+		}
+
+		return null;
+	}
+}
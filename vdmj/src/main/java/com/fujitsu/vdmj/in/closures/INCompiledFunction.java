@@ -0,0 +1,116 @@
+/*******************************************************************************
+ *
+ *	Copyright (c) 2023 Nick Battle.
+ *
+ *	Author: Nick Battle
+ *
+ *	This file is part of VDMJ.
+ *
+ *	VDMJ is free software: you can redistribute it and/or modify
+ *	it under the terms of the GNU General Public License as published by
+ *	the Free Software Foundation, either version 3 of the License, or
+ *	(at your option) any later version.
+ *
+ *	VDMJ is distributed in the hope that it will be useful,
+ *	but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *	GNU General Public License for more details.
+ *
+ *	You should have received a copy of the GNU General Public License
+ *	along with VDMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *	SPDX-License-Identifier: GPL-3.0-or-later
+ *
+ ******************************************************************************/
+
+package com.fujitsu.vdmj.in.closures;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.fujitsu.vdmj.config.Properties;
+import com.fujitsu.vdmj.in.expressions.INExpression;
+import com.fujitsu.vdmj.in.patterns.INIdentifierPattern;
+import com.fujitsu.vdmj.in.patterns.INPattern;
+import com.fujitsu.vdmj.in.patterns.INPatternList;
+import com.fujitsu.vdmj.runtime.Context;
+import com.fujitsu.vdmj.runtime.Interpreter;
+import com.fujitsu.vdmj.tc.lex.TCNameToken;
+import com.fujitsu.vdmj.values.Value;
+
+/**
+ * The compilation state of one explicit function definition. This counts the calls
+ * of the function and compiles its body to an INClosure when the count reaches
+ * vdmj.in.compile_threshold. Every FunctionValue for the definition shares the same
+ * INCompiledFunction, so polymorphic and cloned values are compiled together.
+ */
+public class INCompiledFunction implements Serializable
+{
+	private static final long serialVersionUID = 1L;
+
+	private transient int calls = 0;
+	private transient int frameSize = 0;
+	private transient volatile INClosure closure = null;
+
+	/**
+	 * Get the compiled closure for the body, given the (single) parameter list of
+	 * the function. This returns null if the function has not yet been called enough
+	 * times to be compiled, or if the debugger is active.
+	 */
+	public INClosure getClosure(INExpression body, INPatternList params, Context ctxt)
+	{
+		if (Properties.in_compile_threshold <= 0 || isDebugging(ctxt))
+		{
+			return null;
+		}
+
+		if (closure == null && ++calls >= Properties.in_compile_threshold)
+		{
+			Map<TCNameToken, Integer> slots = new HashMap<TCNameToken, Integer>();
+			int slot = 0;
+
+			for (INPattern p: params)
+			{
+				if (p instanceof INIdentifierPattern)
+				{
+					INIdentifierPattern ip = (INIdentifierPattern)p;
+					slots.put(ip.name, slot);
+				}
+
+				slot++;
+			}
+
+			INClosureCompiler compiler = new INClosureCompiler(params.size());
+			INClosure compiled = body.apply(compiler, slots);
+			frameSize = compiler.getFrameSize();
+			closure = compiled;		// Set last, for other threads
+		}
+
+		return closure;
+	}
+
+	/**
+	 * Create a new frame for a call of the compiled closure. This has a slot for
+	 * each parameter, followed by slots for names bound in the body.
+	 */
+	public Value[] newFrame()
+	{
+		return new Value[frameSize];
+	}
+
+	/**
+	 * Closures do not check breakpoints or step, so the interpreter is used whenever
+	 * there are breakpoints set or a thread is being stepped. Pause and terminate
+	 * interrupts are checked by FunctionValue on every call of a closure.
+	 */
+	private boolean isDebugging(Context ctxt)
+	{
+		if (ctxt.threadState.stepline != null)
+		{
+			return true;
+		}
+
+		Interpreter interpreter = Interpreter.getInstance();
+		return interpreter != null && !interpreter.getBreakpoints().isEmpty();
+	}
+}
@@ -29,6 +29,7 @@ import com.fujitsu.vdmj.in.expressions.INExpression;
 import com.fujitsu.vdmj.runtime.Context;
 import com.fujitsu.vdmj.tc.definitions.TCDefinition;
 import com.fujitsu.vdmj.tc.definitions.TCDefinitionList;
+import com.fujitsu.vdmj.tc.lex.TCNameList;
 import com.fujitsu.vdmj.tc.lex.TCNameToken;
 import com.fujitsu.vdmj.values.NameValuePairList;
 
@@ -108,6 +109,31 @@ public class INDefinitionList extends INMappedList<TCDefinition, INDefinition>
 		return nvl;
 	}
 
+	/**
+	 * The names that these definitions bind when evaluated, as far as they can be
+	 * known ahead of time. These are used to give the names slots in a Context.
+	 */
+	public TCNameList getVariableNames()
+	{
+		TCNameList names = new TCNameList();
+
+		for (INDefinition d: this)
+		{
+			TCNameList dnames = (d instanceof INValueDefinition) ?
+				((INValueDefinition)d).pattern.getVariableNames() : new TCNameList(d.name);
+
+			for (TCNameToken name: dnames)
+			{
+				if (name != null && !names.contains(name))
+				{
+					names.add(name);
+				}
+			}
+		}
+
+		return names;
+	}
+
 	@Override
 	public String toString()
 	{
@@ -28,6 +28,7 @@ import java.util.HashMap;
 import java.util.Map;
 
 import com.fujitsu.vdmj.in.annotations.INAnnotationList;
+import com.fujitsu.vdmj.in.closures.INCompiledFunction;
 import com.fujitsu.vdmj.in.definitions.visitors.INDefinitionVisitor;
 import com.fujitsu.vdmj.in.expressions.INExpression;
 import com.fujitsu.vdmj.in.expressions.INSubclassResponsibilityExpression;
@@ -63,6 +64,7 @@ public class INExplicitFunctionDefinition extends INDefinition
 	public final boolean isCurried;
 	public final INExplicitFunctionDefinition predef;
 	public final INExplicitFunctionDefinition postdef;
+	public final INCompiledFunction compiled;
 	
 	private Map<TCTypeList, FunctionValue> polyfuncs = null;
 
@@ -91,6 +93,7 @@ public class INExplicitFunctionDefinition extends INDefinition
 		this.predef = predef;
 		this.postdef = postdef;
 		this.classDefinition = classdef;
+		this.compiled = new INCompiledFunction();
 
 		type.instantiated = (typeParams == null) ? null : false;
 	}
@@ -107,11 +107,11 @@ public class INSystemDefinition extends INClassDefinition
 						cpudefs.add(d);
 						cpudef = (TCCPUClassDefinition)ct.classdef;
 
-	    				RTLogger.log(
-	    					"CPUdecl -> id: " + (cpuNumber++) +
-	    					" expl: " + !(ivd.expType instanceof TCUndefinedType) +
-	    					" sys: \"" + name.getName() + "\"" +
-	    					" name: \"" + d.name.getName() + "\"");
+	    				RTLogger.log("CPUdecl",
+	    					"id", cpuNumber++,
+	    					"expl", !(ivd.expType instanceof TCUndefinedType),
+	    					"sys", name.getName(),
+	    					"name", d.name.getName());
 					}
 				}
 			}
@@ -55,7 +55,14 @@ public class INDistConcatExpression extends INUnaryExpression
 		try
 		{
     		ValueList seqseq = exp.eval(ctxt).seqValue(ctxt);
-    		ValueList result = new ValueList();
+    		int size = 0;
+
+    		for (Value v: seqseq)
+    		{
+    			size += v.seqValue(ctxt).size();
+    		}
+
+    		ValueList result = new ValueList(size);
 
     		for (Value v: seqseq)
     		{
@@ -41,27 +41,17 @@ public class INDivExpression extends INNumericBinaryExpression
 	}
 
 	@Override
-	public Value eval(Context ctxt)
+	public Value evalOperator(Value l, Value r, Context ctxt) throws ValueException
 	{
-		// breakpoint.check(location, ctxt);
-		location.hit();		// Mark as covered
+		double lv = l.intValue(ctxt);
+		double rv = r.intValue(ctxt);
 
-		try
+		if (rv == 0)
 		{
-    		double lv = left.eval(ctxt).intValue(ctxt);
-    		double rv = right.eval(ctxt).intValue(ctxt);
-
-    		if (rv == 0)
-    		{
-    			throw new ValueException(4134, "Infinite or NaN trouble", ctxt);
-    		}
+			throw new ValueException(4134, "Infinite or NaN trouble", ctxt);
+		}
 
-    		return NumericValue.valueOf(div(lv, rv), ctxt);
-        }
-        catch (ValueException e)
-        {
-        	return abort(e);
-        }
+		return NumericValue.valueOf(div(lv, rv), ctxt);
 	}
 
 	static public long div(double lv, double rv)
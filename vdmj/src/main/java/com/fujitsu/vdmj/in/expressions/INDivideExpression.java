@@ -41,22 +41,12 @@ public class INDivideExpression extends INNumericBinaryExpression
 	}
 
 	@Override
-	public Value eval(Context ctxt)
+	public Value evalOperator(Value l, Value r, Context ctxt) throws ValueException
 	{
-		// breakpoint.check(location, ctxt);
-		location.hit();		// Mark as covered
+		double lv = l.realValue(ctxt);
+		double rv = r.realValue(ctxt);
 
-		try
-		{
-    		double lv = left.eval(ctxt).realValue(ctxt);
-    		double rv = right.eval(ctxt).realValue(ctxt);
-
-    		return NumericValue.valueOf(lv / rv, ctxt);
-        }
-        catch (ValueException e)
-        {
-        	return abort(e);
-        }
+		return NumericValue.valueOf(lv / rv, ctxt);
 	}
 
 	@Override
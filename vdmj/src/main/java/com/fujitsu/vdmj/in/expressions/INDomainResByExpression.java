@@ -54,13 +54,23 @@ public class INDomainResByExpression extends INBinaryExpression
     		ValueMap map = right.eval(ctxt).mapValue(ctxt);
     		ValueMap modified = new ValueMap(map);
 
-    		for (Value k: map.keySet())
+    		if (set.size() < map.size())	// Cheaper to remove the set from the copy
     		{
-    			if (set.contains(k))
+    			for (Value k: set)
     			{
     				modified.remove(k);
     			}
     		}
+    		else
+    		{
+        		for (Value k: map.keySet())
+        		{
+        			if (set.contains(k))
+        			{
+        				modified.remove(k);
+        			}
+        		}
+    		}
 
     		return new MapValue(modified);
         }
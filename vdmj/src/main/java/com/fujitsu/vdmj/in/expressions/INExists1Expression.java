@@ -30,6 +30,7 @@ import com.fujitsu.vdmj.lex.LexLocation;
 import com.fujitsu.vdmj.runtime.Context;
 import com.fujitsu.vdmj.runtime.PatternMatchException;
 import com.fujitsu.vdmj.runtime.ValueException;
+import com.fujitsu.vdmj.tc.lex.TCNameToken;
 import com.fujitsu.vdmj.values.BooleanValue;
 import com.fujitsu.vdmj.values.Value;
 import com.fujitsu.vdmj.values.ValueList;
@@ -39,12 +40,14 @@ public class INExists1Expression extends INExpression
 	private static final long serialVersionUID = 1L;
 	public final INBind bind;
 	public final INExpression predicate;
+	private final TCNameToken[] slotNames;
 
 	public INExists1Expression(LexLocation location, INBind bind, INExpression predicate)
 	{
 		super(location);
 		this.bind = bind;
 		this.predicate = predicate;
+		this.slotNames = bind.pattern.getVariableNames().toArray(new TCNameToken[0]);
 	}
 
 	@Override
@@ -73,7 +76,7 @@ public class INExists1Expression extends INExpression
 		{
 			try
 			{
-				Context evalContext = new Context(location, "exists1", ctxt);
+				Context evalContext = new Context(location, "exists1", ctxt).withSlots(slotNames);
 				evalContext.putList(bind.pattern.getNamedValues(val, ctxt));
 
 				if (predicate.eval(evalContext).boolValue(ctxt))
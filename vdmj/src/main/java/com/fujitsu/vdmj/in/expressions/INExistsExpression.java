@@ -31,25 +31,27 @@ import com.fujitsu.vdmj.in.patterns.INPattern;
 import com.fujitsu.vdmj.lex.LexLocation;
 import com.fujitsu.vdmj.runtime.Context;
 import com.fujitsu.vdmj.runtime.ValueException;
+import com.fujitsu.vdmj.tc.lex.TCNameToken;
 import com.fujitsu.vdmj.values.BooleanValue;
 import com.fujitsu.vdmj.values.NameValuePair;
 import com.fujitsu.vdmj.values.NameValuePairList;
 import com.fujitsu.vdmj.values.Quantifier;
 import com.fujitsu.vdmj.values.QuantifierList;
 import com.fujitsu.vdmj.values.Value;
-import com.fujitsu.vdmj.values.ValueList;
 
 public class INExistsExpression extends INExpression
 {
 	private static final long serialVersionUID = 1L;
 	public final INMultipleBindList bindList;
 	public final INExpression predicate;
+	private final TCNameToken[] slotNames;
 
 	public INExistsExpression(LexLocation location, INMultipleBindList bindList, INExpression predicate)
 	{
 		super(location);
 		this.bindList = bindList;
 		this.predicate = predicate;
+		this.slotNames = bindList.getVariableNames().toArray(new TCNameToken[0]);
 	}
 
 	@Override
@@ -69,7 +71,7 @@ public class INExistsExpression extends INExpression
 
 			for (INMultipleBind mb: bindList)
 			{
-				ValueList bvals = mb.getBindValues(ctxt, false);
+				Iterable<Value> bvals = mb.getBindIterable(ctxt, false);
 
 				for (INPattern p: mb.plist)
 				{
@@ -82,7 +84,7 @@ public class INExistsExpression extends INExpression
 
 			while (quantifiers.hasNext())
 			{
-				Context evalContext = new Context(location, "exists", ctxt);
+				Context evalContext = new Context(location, "exists", ctxt).withSlots(slotNames);
 				NameValuePairList nvpl = quantifiers.next();
 				boolean matches = true;
 
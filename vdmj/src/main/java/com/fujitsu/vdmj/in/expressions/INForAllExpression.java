@@ -33,6 +33,7 @@ import com.fujitsu.vdmj.in.patterns.INPattern;
 import com.fujitsu.vdmj.lex.LexLocation;
 import com.fujitsu.vdmj.runtime.Context;
 import com.fujitsu.vdmj.runtime.ValueException;
+import com.fujitsu.vdmj.tc.lex.TCNameToken;
 import com.fujitsu.vdmj.util.Utils;
 import com.fujitsu.vdmj.values.BooleanValue;
 import com.fujitsu.vdmj.values.NameValuePair;
@@ -40,30 +41,43 @@ import com.fujitsu.vdmj.values.NameValuePairList;
 import com.fujitsu.vdmj.values.Quantifier;
 import com.fujitsu.vdmj.values.QuantifierList;
 import com.fujitsu.vdmj.values.Value;
-import com.fujitsu.vdmj.values.ValueList;
 
 public class INForAllExpression extends INExpression
 {
 	private static final long serialVersionUID = 1L;
 	public final INMultipleBindList bindList;
 	public final INExpression predicate;
+	private final TCNameToken[] slotNames;
 	
-	public static Stack<Context> failPath = null;	// See setFailPath
+	private static final ThreadLocal<Stack<Context>> failPaths = new ThreadLocal<Stack<Context>>();
 
 	public INForAllExpression(LexLocation location,	INMultipleBindList bindList, INExpression predicate)
 	{
 		super(location);
 		this.bindList = bindList;
 		this.predicate = predicate;
+		this.slotNames = bindList.getVariableNames().toArray(new TCNameToken[0]);
 	}
 	
 	/**
-	 * This should only be used by tools like QuickCheck, and only ever from a single
-	 * threaded evaluation (eg. while evaluating a PO).
+	 * This should only be used by tools like QuickCheck (eg. while evaluating a PO).
+	 * The fail path is per-thread, so several POs can be evaluated concurrently.
 	 */
 	public static void setFailPath(Stack<Context> stack)
 	{
-		failPath = stack;
+		if (stack == null)
+		{
+			failPaths.remove();
+		}
+		else
+		{
+			failPaths.set(stack);
+		}
+	}
+
+	public static Stack<Context> getFailPath()
+	{
+		return failPaths.get();
 	}
 
 	@Override
@@ -76,6 +90,7 @@ public class INForAllExpression extends INExpression
 	public Value eval(Context ctxt)
 	{
 		breakpoint.check(location, ctxt);
+		Stack<Context> failPath = failPaths.get();
 
 		try
 		{
@@ -88,7 +103,7 @@ public class INForAllExpression extends INExpression
 
 			for (INMultipleBind mb: bindList)
 			{
-				ValueList bvals = mb.getBindValues(ctxt, false);
+				Iterable<Value> bvals = mb.getBindIterable(ctxt, false);
 
 				for (INPattern p: mb.plist)
 				{
@@ -101,7 +116,7 @@ public class INForAllExpression extends INExpression
 
 			while (quantifiers.hasNext())
 			{
-				Context evalContext = new Context(location, "forall", ctxt);
+				Context evalContext = new Context(location, "forall", ctxt).withSlots(slotNames);
 				NameValuePairList nvpl = quantifiers.next();
 				boolean matches = true;
 
@@ -27,6 +27,7 @@ package com.fujitsu.vdmj.in.expressions;
 import com.fujitsu.vdmj.ast.lex.LexToken;
 import com.fujitsu.vdmj.in.expressions.visitors.INExpressionVisitor;
 import com.fujitsu.vdmj.runtime.Context;
+import com.fujitsu.vdmj.runtime.ValueException;
 import com.fujitsu.vdmj.values.BooleanValue;
 import com.fujitsu.vdmj.values.Value;
 
@@ -40,14 +41,8 @@ public class INGreaterEqualExpression extends INNumericBinaryExpression
 	}
 
 	@Override
-	public Value eval(Context ctxt)
+	public Value evalOperator(Value lv, Value rv, Context ctxt) throws ValueException
 	{
-		// breakpoint.check(location, ctxt);
-		location.hit();		// Mark as covered
-
-		Value lv = left.eval(ctxt);
-		Value rv = right.eval(ctxt);
-
 		if (lv.isOrdered() && rv.isOrdered())
 		{
 			int cmp = lv.compareTo(rv);
@@ -30,6 +30,7 @@ import com.fujitsu.vdmj.lex.LexLocation;
 import com.fujitsu.vdmj.runtime.Context;
 import com.fujitsu.vdmj.runtime.PatternMatchException;
 import com.fujitsu.vdmj.runtime.ValueException;
+import com.fujitsu.vdmj.tc.lex.TCNameToken;
 import com.fujitsu.vdmj.values.Value;
 import com.fujitsu.vdmj.values.ValueList;
 
@@ -38,12 +39,14 @@ public class INIotaExpression extends INExpression
 	private static final long serialVersionUID = 1L;
 	public final INBind bind;
 	public final INExpression predicate;
+	private final TCNameToken[] slotNames;
 
 	public INIotaExpression(LexLocation location, INBind bind, INExpression predicate)
 	{
 		super(location);
 		this.bind = bind;
 		this.predicate = predicate;
+		this.slotNames = bind.pattern.getVariableNames().toArray(new TCNameToken[0]);
 	}
 
 	@Override
@@ -72,7 +75,7 @@ public class INIotaExpression extends INExpression
 		{
 			try
 			{
-				Context evalContext = new Context(location, "iota", ctxt);
+				Context evalContext = new Context(location, "iota", ctxt).withSlots(slotNames);
 				evalContext.putList(bind.pattern.getNamedValues(val, ctxt));
 
 				if (predicate.eval(evalContext).boolValue(ctxt))
@@ -43,12 +43,16 @@ public class INLetDefExpression extends INExpression
 	private static final long serialVersionUID = 1L;
 	public final INDefinitionList localDefs;
 	public final INExpression expression;
+	private final TCNameToken[] slotNames;
+	private final TCNameToken selfName;
 
 	public INLetDefExpression(LexLocation location, INDefinitionList localDefs, INExpression expression)
 	{
 		super(location);
 		this.localDefs = localDefs;
 		this.expression = expression;
+		this.slotNames = localDefs.getVariableNames().toArray(new TCNameToken[0]);
+		this.selfName = new TCNameToken(location, location.module, "self");
 	}
 
 	@Override
@@ -62,10 +66,9 @@ public class INLetDefExpression extends INExpression
 	{
 		breakpoint.check(location, ctxt);
 
-		Context evalContext = new Context(location, "let expression", ctxt);
+		Context evalContext = new Context(location, "let expression", ctxt).withSlots(slotNames);
 
-		TCNameToken sname = new TCNameToken(location, location.module, "self");
-		Value var = ctxt.check(sname);
+		Value var = ctxt.check(selfName);
 		ObjectValue self = (var instanceof ObjectValue) ? (ObjectValue)var : null;
 
 		for (INDefinition d: localDefs)
@@ -41,43 +41,33 @@ public class INModExpression extends INNumericBinaryExpression
 	}
 
 	@Override
-	public Value eval(Context ctxt)
+	public Value evalOperator(Value l, Value r, Context ctxt) throws ValueException
 	{
-		// breakpoint.check(location, ctxt);
-		location.hit();		// Mark as covered
+		/*
+		 * Remainder x rem y and modulus x mod y are the same if the signs of x
+		 * and y are the same, otherwise they differ and rem takes the sign of x and
+		 * mod takes the sign of y. The formulas for remainder and modulus are:
+		 *
+		 *		x rem y = x - y * (x div y)
+		 *		x mod y = x - y * floor(x/y)
+		 *
+		 * Hence, -14 rem 3 equals -2 and -14 mod 3 equals 1. One can view these
+		 * results by walking the real axis, starting at -14 and making jumps of 3.
+		 * The remainder will be the last negative number one visits, because the first
+		 * argument corresponding to x is negative, while the modulus will be the first
+		 * positive number one visit, because the second argument corresponding to y
+		 * is positive.
+		 */
 
-		try
-		{
-			/*
-			 * Remainder x rem y and modulus x mod y are the same if the signs of x
-			 * and y are the same, otherwise they differ and rem takes the sign of x and
-			 * mod takes the sign of y. The formulas for remainder and modulus are:
-			 *
-			 *		x rem y = x - y * (x div y)
-			 *		x mod y = x - y * floor(x/y)
-			 *
-			 * Hence, -14 rem 3 equals -2 and -14 mod 3 equals 1. One can view these
-			 * results by walking the real axis, starting at -14 and making jumps of 3.
-			 * The remainder will be the last negative number one visits, because the first
-			 * argument corresponding to x is negative, while the modulus will be the first
-			 * positive number one visit, because the second argument corresponding to y
-			 * is positive.
-			 */
-
-    		double lv = left.eval(ctxt).intValue(ctxt);
-    		double rv = right.eval(ctxt).intValue(ctxt);
-
-    		if (rv == 0)
-    		{
-    			throw new ValueException(4134, "Infinite or NaN trouble", ctxt);
-    		}
+		double lv = l.intValue(ctxt);
+		double rv = r.intValue(ctxt);
 
-    		return NumericValue.valueOf(lv - rv * (long)Math.floor(lv/rv), ctxt);
-		}
-		catch (ValueException e)
+		if (rv == 0)
 		{
-			return abort(e);
+			throw new ValueException(4134, "Infinite or NaN trouble", ctxt);
 		}
+
+		return NumericValue.valueOf(lv - rv * (long)Math.floor(lv/rv), ctxt);
 	}
 
 	@Override
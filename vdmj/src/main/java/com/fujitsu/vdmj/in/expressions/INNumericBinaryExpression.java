@@ -26,6 +26,9 @@ package com.fujitsu.vdmj.in.expressions;
 
 import com.fujitsu.vdmj.ast.lex.LexToken;
 import com.fujitsu.vdmj.in.expressions.visitors.INExpressionVisitor;
+import com.fujitsu.vdmj.runtime.Context;
+import com.fujitsu.vdmj.runtime.ValueException;
+import com.fujitsu.vdmj.values.Value;
 
 abstract public class INNumericBinaryExpression extends INBinaryExpression
 {
@@ -35,6 +38,28 @@ abstract public class INNumericBinaryExpression extends INBinaryExpression
 	{
 		super(left, op, right);
 	}
+
+	@Override
+	public Value eval(Context ctxt)
+	{
+		// breakpoint.check(location, ctxt);
+		location.hit();		// Mark as covered
+
+		try
+		{
+			return evalOperator(left.eval(ctxt), right.eval(ctxt), ctxt);
+		}
+		catch (ValueException e)
+		{
+			return abort(e);
+		}
+	}
+
+	/**
+	 * Apply the operator to the values of the left and right operands. This is
+	 * separate from eval so that the operator can be used by compiled closures.
+	 */
+	abstract public Value evalOperator(Value l, Value r, Context ctxt) throws ValueException;
 
 	@Override
 	public <R, S> R apply(INExpressionVisitor<R, S> visitor, S arg)
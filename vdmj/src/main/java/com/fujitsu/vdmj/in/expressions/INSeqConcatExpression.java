@@ -52,10 +52,7 @@ public class INSeqConcatExpression extends INBinaryExpression
     		Value lv = left.eval(ctxt);
     		Value rv = right.eval(ctxt);
 
-    		ValueList result = new ValueList();
-    		result.addAll(lv.seqValue(ctxt));
-    		result.addAll(rv.seqValue(ctxt));
-
+    		ValueList result = new ValueList(lv.seqValue(ctxt), rv.seqValue(ctxt));
     		return new SeqValue(result);
 		}
 		catch (ValueException e)
@@ -75,14 +75,12 @@ public class INSubseqExpression extends INExpression
     			ti = list.size();
     		}
 
-    		ValueList result = new ValueList();
-
     		if (fi <= ti)
     		{
-        		result.addAll(list.subList(fi-1, ti));
+        		return new SeqValue(new ValueList(list, fi-1, ti));
     		}
 
-    		return new SeqValue(result);
+    		return new SeqValue();
 		}
 		catch (ValueException e)
 		{
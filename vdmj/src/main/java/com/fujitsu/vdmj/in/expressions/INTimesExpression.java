@@ -41,39 +41,26 @@ public class INTimesExpression extends INNumericBinaryExpression
 	}
 
 	@Override
-	public Value eval(Context ctxt)
+	public Value evalOperator(Value l, Value r, Context ctxt) throws ValueException
 	{
-		// breakpoint.check(location, ctxt);
-		location.hit();		// Mark as covered
-
-		try
+		if (NumericValue.areIntegers(l, r))
 		{
-    		Value l = left.eval(ctxt);
-    		Value r = right.eval(ctxt);
-
-			if (NumericValue.areIntegers(l, r))
+			try
 			{
-				try
-				{
-					long lv = l.intValue(ctxt);
-					long rv = r.intValue(ctxt);
-					long mult = multiplyExact(lv, rv, ctxt);
-					return NumericValue.valueOf(mult, ctxt);
-				}
-				catch (ValueException e)
-				{
-					// Too big? Let's try reals...
-				}
+				long lv = l.intValue(ctxt);
+				long rv = r.intValue(ctxt);
+				long mult = multiplyExact(lv, rv, ctxt);
+				return NumericValue.valueOf(mult, ctxt);
+			}
+			catch (ValueException e)
+			{
+				// Too big? Let's try reals...
 			}
-
-			double lv = l.realValue(ctxt);
-			double rv = r.realValue(ctxt);
-    		return NumericValue.valueOf(lv * rv, ctxt);
-		}
-		catch (ValueException e)
-		{
-			return abort(e);
 		}
+
+		double lv = l.realValue(ctxt);
+		double rv = r.realValue(ctxt);
+		return NumericValue.valueOf(lv * rv, ctxt);
 	}
 	
 	// This is included in Java 8 Math.java
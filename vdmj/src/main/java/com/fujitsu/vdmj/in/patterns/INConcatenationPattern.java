@@ -24,7 +24,6 @@
 
 package com.fujitsu.vdmj.in.patterns;
 
-import java.util.Iterator;
 import java.util.List;
 import java.util.Vector;
 
@@ -156,20 +155,8 @@ public class INConcatenationPattern extends INPattern
 
 		for (Integer lsize: leftSizes)
 		{
-			Iterator<Value> iter = values.iterator();
-			ValueList head = new ValueList();
-
-			for (int i=0; i<lsize; i++)
-			{
-				head.add(iter.next());
-			}
-
-			ValueList tail = new ValueList();
-
-			while (iter.hasNext())	// Everything else in second
-			{
-				tail.add(iter.next());
-			}
+			ValueList head = new ValueList(values, 0, lsize);
+			ValueList tail = new ValueList(values, lsize, size);	// Everything else in second
 
 			List<List<NameValuePairList>> nvplists = new Vector<List<NameValuePairList>>();
 			int psize = 2;
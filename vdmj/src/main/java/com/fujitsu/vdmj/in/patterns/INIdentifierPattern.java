@@ -58,6 +58,15 @@ public class INIdentifierPattern extends INPattern
 		return name.toString();
 	}
 
+	@Override
+	public NameValuePairList getNamedValues(Value expval, Context ctxt)
+	{
+		// Simple identifiers always match once, and cannot be constrained by themselves
+		NameValuePairList list = new NameValuePairList();
+		list.add(new NameValuePair(name, expval));
+		return list;
+	}
+
 	@Override
 	public List<NameValuePairList> getAllNamedValues(Value expval, Context ctxt)
 	{
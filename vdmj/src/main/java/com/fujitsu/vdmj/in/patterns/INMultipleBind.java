@@ -69,6 +69,16 @@ public abstract class INMultipleBind extends INNode
 	/** Get a list of all the possible values to bind the variables to. */ 
 	abstract public ValueList getBindValues(Context ctxt, boolean permuted) throws ValueException;
 
+	/**
+	 * Get the possible values to bind the variables to, as an Iterable. Some binds
+	 * override this to generate their values lazily, so that a quantifier that stops
+	 * early does not have to hold (or generate) all of them.
+	 */
+	public Iterable<Value> getBindIterable(Context ctxt, boolean permuted) throws ValueException
+	{
+		return getBindValues(ctxt, permuted);
+	}
+
 	/**
 	 * @see org.INDefinition.vdmj.definitions.Definition#abort
 	 */
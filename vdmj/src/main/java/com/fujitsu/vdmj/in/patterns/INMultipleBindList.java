@@ -25,6 +25,8 @@
 package com.fujitsu.vdmj.in.patterns;
 
 import com.fujitsu.vdmj.in.INMappedList;
+import com.fujitsu.vdmj.tc.lex.TCNameList;
+import com.fujitsu.vdmj.tc.lex.TCNameToken;
 import com.fujitsu.vdmj.tc.patterns.TCMultipleBind;
 import com.fujitsu.vdmj.tc.patterns.TCMultipleBindList;
 
@@ -41,4 +43,28 @@ public class INMultipleBindList extends INMappedList<TCMultipleBind, INMultipleB
 	{
 		super(from);
 	}
+
+	/**
+	 * The names bound by the patterns of these binds, without duplicates.
+	 */
+	public TCNameList getVariableNames()
+	{
+		TCNameList names = new TCNameList();
+
+		for (INMultipleBind mb: this)
+		{
+			for (INPattern p: mb.plist)
+			{
+				for (TCNameToken name: p.getVariableNames())
+				{
+					if (!names.contains(name))
+					{
+						names.add(name);
+					}
+				}
+			}
+		}
+
+		return names;
+	}
 }
@@ -25,8 +25,11 @@
 package com.fujitsu.vdmj.in.patterns;
 
 import com.fujitsu.vdmj.in.expressions.INExpression;
+import com.fujitsu.vdmj.in.expressions.INPowerSetExpression;
 import com.fujitsu.vdmj.in.patterns.visitors.INMultipleBindVisitor;
+import com.fujitsu.vdmj.messages.InternalException;
 import com.fujitsu.vdmj.runtime.Context;
+import com.fujitsu.vdmj.runtime.ContextException;
 import com.fujitsu.vdmj.runtime.ValueException;
 import com.fujitsu.vdmj.values.SetValue;
 import com.fujitsu.vdmj.values.Value;
@@ -83,6 +86,37 @@ public class INMultipleSetBind extends INMultipleBind
 		}
 	}
 
+	/**
+	 * A bind over "power S" can produce the subsets of S lazily, without creating the
+	 * power set value. Otherwise, the set is evaluated as usual.
+	 */
+	@Override
+	public Iterable<Value> getBindIterable(Context ctxt, boolean permuted)
+	{
+		if (set instanceof INPowerSetExpression && !permuted)
+		{
+			INPowerSetExpression power = (INPowerSetExpression)set;
+			power.breakpoint.check(power.location, ctxt);
+
+			try
+			{
+				ValueSet vs = power.exp.eval(ctxt).setValue(ctxt);
+				return vs.powerSetValues(power.breakpoint, ctxt, false);
+			}
+			catch (ValueException e)
+			{
+				abort(e);
+				return null;
+			}
+			catch (InternalException e)		// From powerSetValues
+			{
+				throw new ContextException(e.number, e.getMessage(), power.location, ctxt);
+			}
+		}
+
+		return getBindValues(ctxt, permuted);
+	}
+
 	@Override
 	public <R, S> R apply(INMultipleBindVisitor<R, S> visitor, S arg)
 	{
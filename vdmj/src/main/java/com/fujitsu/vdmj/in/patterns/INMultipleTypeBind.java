@@ -29,12 +29,17 @@ import com.fujitsu.vdmj.in.patterns.visitors.INMultipleBindVisitor;
 import com.fujitsu.vdmj.in.types.visitors.INGetAllValuesVisitor;
 import com.fujitsu.vdmj.in.types.visitors.INTypeSizeVisitor;
 import com.fujitsu.vdmj.messages.InternalException;
+import com.fujitsu.vdmj.runtime.Breakpoint;
 import com.fujitsu.vdmj.runtime.Context;
 import com.fujitsu.vdmj.runtime.ContextException;
 import com.fujitsu.vdmj.runtime.ValueException;
+import com.fujitsu.vdmj.tc.types.TCSet1Type;
+import com.fujitsu.vdmj.tc.types.TCSetType;
 import com.fujitsu.vdmj.tc.types.TCType;
 import com.fujitsu.vdmj.tc.types.visitors.TCParameterCollector;
+import com.fujitsu.vdmj.values.Value;
 import com.fujitsu.vdmj.values.ValueList;
+import com.fujitsu.vdmj.values.ValueSet;
 
 public class INMultipleTypeBind extends INMultipleBind implements INBindingSetter
 {
@@ -107,6 +112,46 @@ public class INMultipleTypeBind extends INMultipleBind implements INBindingSette
 		}
 	}
 
+	/**
+	 * A bind over a set type can produce its values (the subsets of the element type
+	 * values) lazily. Other types produce all of their values, as usual. The size of
+	 * the bind is still limited by vdmj.in.typebind_limit.
+	 */
+	@Override
+	public Iterable<Value> getBindIterable(Context ctxt, boolean permuted) throws ValueException
+	{
+		if (!(type instanceof TCSetType) ||
+			(bindValues != null && bindPermuted == permuted && !hasTypeParams))
+		{
+			return getBindValues(ctxt, permuted);
+		}
+
+		try
+		{
+			long size = type.apply(new INTypeSizeVisitor(), ctxt);
+			
+	   		if (size > Properties.in_typebind_limit)
+			{
+				throw new ContextException(5039, "Cannot evaluate type bind of size " + size, location, ctxt);
+			}
+
+	   		TCSetType stype = (TCSetType)type;
+	   		ValueList members = stype.setof.apply(new INGetAllValuesVisitor(), ctxt);
+	   		ValueSet set = new ValueSet(members.size());
+	   		set.addAll(members);
+
+	   		return set.powerSetValues(new Breakpoint(ctxt.location), ctxt, type instanceof TCSet1Type);
+		}
+		catch (ArithmeticException e)
+		{
+			throw new ContextException(5040, "Cannot evaluate type bind, size exceeds long", location, ctxt);
+		}
+		catch (InternalException e)		// Used while visitors don't have exceptions
+		{
+			throw new ValueException(e.number, e.getMessage(), ctxt);
+		}
+	}
+
 	@Override
 	public <R, S> R apply(INMultipleBindVisitor<R, S> visitor, S arg)
 	{
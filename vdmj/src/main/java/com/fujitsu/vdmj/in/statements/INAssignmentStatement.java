@@ -70,7 +70,7 @@ public class INAssignmentStatement extends INStatement
 
 		try
 		{
-			oldval.set(location, newval.convertTo(targetType, ctxt), ctxt);
+			oldval.set(location, newval.convertTo(targetType, ctxt, oldval), ctxt);
 		}
 		catch (ValueException e)
 		{
@@ -89,19 +89,19 @@ public class INAssignmentStatement extends INStatement
 
 			if (self == null)
 			{
-    			RTLogger.log(
-    				"InstVarChange -> instnm: \"" + target.toString() + "\"" +
-    				" val: \"" + noquotes + "\"" +
-    				" objref: nil" +
-    				" id: " + Thread.currentThread().getId());
+    			RTLogger.log("InstVarChange",
+    				"instnm", target.toString(),
+    				"val", noquotes,
+    				"objref", null,
+    				"id", Thread.currentThread().getId());
 			}
 			else
 			{
-    			RTLogger.log(
-    				"InstVarChange -> instnm: \"" + target.toString() + "\"" +
-    				" val: \"" + noquotes + "\"" +
-    				" objref: " + self.objectReference +
-    				" id: " + Thread.currentThread().getId());
+    			RTLogger.log("InstVarChange",
+    				"instnm", target.toString(),
+    				"val", noquotes,
+    				"objref", self.objectReference,
+    				"id", Thread.currentThread().getId());
 			}
 		}
 
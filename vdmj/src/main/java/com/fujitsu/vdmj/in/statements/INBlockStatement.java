@@ -29,6 +29,7 @@ import com.fujitsu.vdmj.in.definitions.INDefinitionList;
 import com.fujitsu.vdmj.in.statements.visitors.INStatementVisitor;
 import com.fujitsu.vdmj.lex.LexLocation;
 import com.fujitsu.vdmj.runtime.Context;
+import com.fujitsu.vdmj.tc.lex.TCNameToken;
 import com.fujitsu.vdmj.values.Value;
 
 public class INBlockStatement extends INSimpleBlockStatement
@@ -36,11 +37,13 @@ public class INBlockStatement extends INSimpleBlockStatement
 	private static final long serialVersionUID = 1L;
 
 	public final INDefinitionList assignmentDefs;
+	private final TCNameToken[] slotNames;
 
 	public INBlockStatement(LexLocation location, INDefinitionList assignmentDefs, INStatementList stmts)
 	{
 		super(location, stmts);
 		this.assignmentDefs = assignmentDefs;
+		this.slotNames = assignmentDefs.getVariableNames().toArray(new TCNameToken[0]);
 	}
 
 	@Override
@@ -66,7 +69,7 @@ public class INBlockStatement extends INSimpleBlockStatement
 	{
 		breakpoint.check(location, ctxt);
 
-		Context evalContext = new Context(location, "block statement", ctxt);
+		Context evalContext = new Context(location, "block statement", ctxt).withSlots(slotNames);
 
 		for (INDefinition d: assignmentDefs)
 		{
@@ -37,7 +37,6 @@ import com.fujitsu.vdmj.values.NameValuePairList;
 import com.fujitsu.vdmj.values.Quantifier;
 import com.fujitsu.vdmj.values.QuantifierList;
 import com.fujitsu.vdmj.values.Value;
-import com.fujitsu.vdmj.values.ValueList;
 
 public class INLetBeStStatement extends INStatement
 {
@@ -74,7 +73,7 @@ public class INLetBeStStatement extends INStatement
 
 			for (INMultipleBind mb: def.bindings)
 			{
-				ValueList bvals = mb.getBindValues(ctxt, false);
+				Iterable<Value> bvals = mb.getBindIterable(ctxt, false);
 
 				for (INPattern p: mb.plist)
 				{
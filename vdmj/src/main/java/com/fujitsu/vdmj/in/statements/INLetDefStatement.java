@@ -42,12 +42,16 @@ public class INLetDefStatement extends INStatement
 	private static final long serialVersionUID = 1L;
 	public final INDefinitionList localDefs;
 	public final INStatement statement;
+	private final TCNameToken[] slotNames;
+	private final TCNameToken selfName;
 
 	public INLetDefStatement(LexLocation location, INDefinitionList localDefs, INStatement statement)
 	{
 		super(location);
 		this.localDefs = localDefs;
 		this.statement = statement;
+		this.slotNames = localDefs.getVariableNames().toArray(new TCNameToken[0]);
+		this.selfName = new TCNameToken(location, location.module, "self");
 	}
 
 	@Override
@@ -60,10 +64,9 @@ public class INLetDefStatement extends INStatement
 	public Value eval(Context ctxt)
 	{
 		breakpoint.check(location, ctxt);
-		Context evalContext = new Context(location, "let statement", ctxt);
+		Context evalContext = new Context(location, "let statement", ctxt).withSlots(slotNames);
 
-		TCNameToken sname = new TCNameToken(location, location.module, "self");
-		Value var = ctxt.check(sname);
+		Value var = ctxt.check(selfName);
 		ObjectValue self = (var instanceof ObjectValue) ? (ObjectValue)var : null;
 
 		for (INDefinition d: localDefs)
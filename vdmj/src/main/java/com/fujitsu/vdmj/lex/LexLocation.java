@@ -31,14 +31,18 @@ import java.io.IOException;
 import java.io.ObjectStreamException;
 import java.io.Serializable;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.Map;
 import java.util.Vector;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 
 import com.fujitsu.vdmj.ast.lex.LexNameList;
 import com.fujitsu.vdmj.ast.lex.LexNameToken;
 import com.fujitsu.vdmj.ast.lex.LexToken;
+import com.fujitsu.vdmj.config.Properties;
 
 /**
  * A class to hold the location of a token.
@@ -47,14 +51,14 @@ public class LexLocation implements Serializable, Comparable<LexLocation>
 {
 	private static final long serialVersionUID = 1L;
 
-	/** An ordered collection of all LexLocation objects. */
-	private static List<LexLocation> allLocations = new Vector<LexLocation>();
+	/** An ordered collection of the LexLocation objects of each file. */
+	private static final Map<File, List<LexLocation>> allLocations = new ConcurrentHashMap<File, List<LexLocation>>();
 	
 	/** A unique map of LexLocation objects, for rapid searching. */
-	private static Map<LexLocation, LexLocation> uniqueLocations = new HashMap<LexLocation, LexLocation>();
+	private static final Map<LexLocation, LexLocation> uniqueLocations = new ConcurrentHashMap<LexLocation, LexLocation>();
 
 	/** A map of f/op/class names to their lexical span, for coverage. */
-	private static Map<LexNameToken, LexLocation> nameSpans = new HashMap<LexNameToken, LexLocation>();
+	private static final Map<LexNameToken, LexLocation> nameSpans = new ConcurrentHashMap<LexNameToken, LexLocation>();
 
 	/** A dummy location meaning "nowhere" */
 	public static final LexLocation ANY = new LexLocation();
@@ -85,8 +89,16 @@ public class LexLocation implements Serializable, Comparable<LexLocation>
 	/** The position of the last character of the token. */
 	public final int endPos;
 
-	/** The number of times the location has been executed. */
-	public long hits = 0;
+	/**
+	 * The number of times the location has been executed. This is a striped
+	 * counter, so that concurrent threads do not contend for the same field. It
+	 * is only created for executable locations, and only if coverage is enabled.
+	 * <p>
+	 * Note that this replaces the public "long hits" field of earlier versions.
+	 * Plugins that read the field should call getHits, and those that changed it
+	 * should call hit, unhit or clearLocations.
+	 */
+	private LongAdder hits = null;
 
 	/**
 	 * Create a location with the given fields.
@@ -104,7 +116,7 @@ public class LexLocation implements Serializable, Comparable<LexLocation>
 		if (!file.getName().equals("console") &&
 			!file.getName().equals("?"))	// Don't remember junk
 		{
-			allLocations.add(this);
+			fileLocations(file).add(this);		// Parsing and type checking may be concurrent
 			uniqueLocations.put(this, this);
 		}
 	}
@@ -223,43 +235,184 @@ public class LexLocation implements Serializable, Comparable<LexLocation>
 	public void executable(boolean exe)
 	{
 		executable = exe;
+
+		if (!exe)
+		{
+			hits = null;
+		}
+		else if (hits == null && Properties.in_coverage)
+		{
+			hits = new LongAdder();
+		}
 	}
 
 	public void hit()
 	{
-		if (executable) hits++;
+		LongAdder counter = hits;	// Null if not executable or coverage is off
+		
+		if (counter != null)
+		{
+			counter.increment();
+		}
+	}
+
+	/**
+	 * Remove a hit that was counted twice.
+	 */
+	public void unhit()
+	{
+		LongAdder counter = hits;
+		
+		if (counter != null)
+		{
+			counter.decrement();
+		}
+	}
+
+	/**
+	 * The total number of hits, summed over all threads. This is always zero if the
+	 * vdmj.in.coverage property was false when the location was made executable.
+	 */
+	public long getHits()
+	{
+		LongAdder counter = hits;
+		return counter == null ? 0 : counter.sum();
+	}
+
+	private void addHits(long count)
+	{
+		if (hits != null)
+		{
+			hits.add(count);
+		}
+	}
+
+	private void clearHits()
+	{
+		if (hits != null)
+		{
+			hits.reset();
+		}
+	}
+
+	/**
+	 * The list of locations for a file, created if necessary. Files may be parsed
+	 * concurrently, but each file is only read by one thread, so the order of
+	 * locations within a file is the order in which they are read.
+	 */
+	private static List<LexLocation> fileLocations(File file)
+	{
+		List<LexLocation> list = allLocations.get(file);
+
+		if (list == null)
+		{
+			List<LexLocation> created = new Vector<LexLocation>();
+			list = allLocations.putIfAbsent(file, created);
+
+			if (list == null)
+			{
+				list = created;
+			}
+		}
+
+		return list;
+	}
+
+	/**
+	 * The list of locations for a file, which is empty if there are none.
+	 */
+	private static List<LexLocation> locationsOf(File file)
+	{
+		List<LexLocation> list = allLocations.get(file);
+		return list == null ? new Vector<LexLocation>() : list;
+	}
+
+	/**
+	 * A copy of the locations of one file, in the order they were read. This is
+	 * used to save a spec in a SpecCache with its locations.
+	 */
+	public static List<LexLocation> getFileLocations(File file)
+	{
+		return new Vector<LexLocation>(locationsOf(file));
+	}
+
+	/**
+	 * Register the locations of one file that have been loaded from a SpecCache.
+	 * Most of these resolve to the locations created by parsing the file, but any
+	 * created by the type checker are not otherwise known for coverage.
+	 */
+	public static void addFileLocations(File file, List<LexLocation> locations)
+	{
+		List<LexLocation> list = fileLocations(file);
+
+		for (LexLocation l: locations)
+		{
+			if (uniqueLocations.putIfAbsent(l, l) == null)
+			{
+				list.add(l);
+			}
+		}
 	}
 
 	public static void clearLocations()
 	{
-		for (LexLocation loc: allLocations)
+		for (List<LexLocation> list: allLocations.values())
 		{
-			loc.hits = 0;
+			for (LexLocation loc: list)
+			{
+				loc.clearHits();
+			}
 		}
 	}
 
 	public static void resetLocations()
 	{
-		allLocations = new Vector<LexLocation>();
-		uniqueLocations = new HashMap<LexLocation, LexLocation>();
-		nameSpans =	new HashMap<LexNameToken, LexLocation>();
+		allLocations.clear();
+		uniqueLocations.clear();
+		nameSpans.clear();
+	}
+
+	/**
+	 * Remove all of the locations for one file, for example before that file is
+	 * re-parsed, leaving the locations of other files in place.
+	 */
+	public static void removeLocations(File file)
+	{
+		List<LexLocation> removed = allLocations.remove(file);
+
+		if (removed != null)
+		{
+			for (LexLocation l: removed)
+			{
+				uniqueLocations.remove(l);
+			}
+		}
+
+		Iterator<LexLocation> spans = nameSpans.values().iterator();
+
+		while (spans.hasNext())
+		{
+			if (spans.next().file.equals(file))
+			{
+				spans.remove();
+			}
+		}
 	}
 
 	public static void clearAfter(File file, int linecount, int charpos)
 	{
 		// Called from the LexTokenReader's pop method, to remove any
 		// locations "popped". We assume any pushes are on the end of
-		// the vector.
+		// the file's vector.
 
-		ListIterator<LexLocation> it =
-			allLocations.listIterator(allLocations.size());
+		List<LexLocation> list = locationsOf(file);
+		ListIterator<LexLocation> it = list.listIterator(list.size());
 
 		while (it.hasPrevious())
 		{
 			LexLocation l = it.previous();
 
-			if (!l.file.equals(file) ||
-				l.startLine < linecount ||
+			if (l.startLine < linecount ||
 				(l.startLine == linecount && l.startPos < charpos))
 			{
 				break;
@@ -282,13 +435,16 @@ public class LexLocation implements Serializable, Comparable<LexLocation>
 			upto.location.endLine,
 			upto.location.endPos);
 		
-		if (nameSpans.get(name) != null)
+		synchronized (nameSpans)
 		{
-			// Overloaded names use line numbers to distinguish them
-			name = new LexNameToken(name.module, name.name + ":" + name.location.startLine, name.location);
+			if (nameSpans.get(name) != null)
+			{
+				// Overloaded names use line numbers to distinguish them
+				name = new LexNameToken(name.module, name.name + ":" + name.location.startLine, name.location);
+			}
+			
+			nameSpans.put(name, span);
 		}
-		
-		nameSpans.put(name, span);
 	}
 	
 	public static LexLocation getSpan(LexNameToken name)
@@ -319,11 +475,11 @@ public class LexLocation implements Serializable, Comparable<LexLocation>
 		int misses = 0;
 		LexLocation span = nameSpans.get(name);
 
-		for (LexLocation l: allLocations)
+		for (LexLocation l: locationsOf(span.file))
 		{
 			if (l.executable && l.within(span))
 			{
-				if (l.hits > 0)
+				if (l.getHits() > 0)
     			{
     				hits++;
     			}
@@ -345,11 +501,11 @@ public class LexLocation implements Serializable, Comparable<LexLocation>
 
 		LexLocation span = nameSpans.get(name);
 
-		for (LexLocation l: allLocations)
+		for (LexLocation l: locationsOf(span.file))
 		{
 			if (l.executable && l.within(span))
 			{
-				return l.hits;
+				return l.getHits();
 			}
 		}
 
@@ -360,9 +516,9 @@ public class LexLocation implements Serializable, Comparable<LexLocation>
 	{
 		List<Integer> hits = new Vector<Integer>();
 
-		for (LexLocation l: allLocations)
+		for (LexLocation l: locationsOf(file))
 		{
-			if (l.hits > 0 && l.file.equals(file))
+			if (l.getHits() > 0 && l.file.equals(file))
 			{
 				hits.add(l.startLine);
 			}
@@ -375,9 +531,9 @@ public class LexLocation implements Serializable, Comparable<LexLocation>
 	{
 		List<Integer> misses = new Vector<Integer>();
 
-		for (LexLocation l: allLocations)
+		for (LexLocation l: locationsOf(file))
 		{
-			if (l.hits == 0 && l.file.equals(file))
+			if (l.getHits() == 0 && l.file.equals(file))
 			{
 				misses.add(l.startLine);
 			}
@@ -391,7 +547,7 @@ public class LexLocation implements Serializable, Comparable<LexLocation>
 		List<Integer> lines = new Vector<Integer>();
 		int last = 0;
 
-		for (LexLocation l: allLocations)
+		for (LexLocation l: locationsOf(file))
 		{
 			if (l.executable && l.startLine != last && l.file.equals(file))
 			{
@@ -408,9 +564,9 @@ public class LexLocation implements Serializable, Comparable<LexLocation>
 		Map<Integer, List<LexLocation>> map =
 				new HashMap<Integer, List<LexLocation>>();
 
-		for (LexLocation l: allLocations)
+		for (LexLocation l: locationsOf(file))
 		{
-			if (l.executable && l.hits > 0 && l.file.equals(file))
+			if (l.executable && l.getHits() > 0 && l.file.equals(file))
 			{
 				List<LexLocation> list = map.get(l.startLine);
 
@@ -432,11 +588,11 @@ public class LexLocation implements Serializable, Comparable<LexLocation>
 		int hits = 0;
 		int misses = 0;
 
-		for (LexLocation l: allLocations)
+		for (LexLocation l: locationsOf(file))
 		{
 			if (l.file.equals(file) && l.executable)
 			{
-				if (l.hits > 0)
+				if (l.getHits() > 0)
     			{
     				hits++;
     			}
@@ -456,9 +612,9 @@ public class LexLocation implements Serializable, Comparable<LexLocation>
 		Map<Integer, List<LexLocation>> map =
 				new HashMap<Integer, List<LexLocation>>();
 
-		for (LexLocation l: allLocations)
+		for (LexLocation l: locationsOf(file))
 		{
-			if (l.executable && l.hits == 0 && l.file.equals(file))
+			if (l.executable && l.getHits() == 0 && l.file.equals(file))
 			{
 				List<LexLocation> list = map.get(l.startLine);
 
@@ -479,7 +635,7 @@ public class LexLocation implements Serializable, Comparable<LexLocation>
 	{
 		List<LexLocation> locations = new Vector<LexLocation>();
 
-		for (LexLocation l: allLocations)
+		for (LexLocation l: locationsOf(file))
 		{
 			if (l.executable && l.file.equals(file))
 			{
@@ -517,7 +673,7 @@ public class LexLocation implements Serializable, Comparable<LexLocation>
 						l.startPos == from &&
 						l.endPos == to)
 					{
-						l.hits += hits;
+						l.addHits(hits);
 						break;
 					}
 				}
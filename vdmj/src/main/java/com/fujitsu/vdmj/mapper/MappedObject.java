@@ -24,21 +24,34 @@
 
 package com.fujitsu.vdmj.mapper;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
+import java.util.concurrent.atomic.AtomicLong;
 
 public abstract class MappedObject implements Serializable, Mappable
 {
 	private static final long serialVersionUID = 1L;
-	private static long nextUniqueId = 0;
-	private final long myId;
+	private static final AtomicLong nextId = new AtomicLong(0);	// Parsers and checkers can be concurrent
+	private long myId;
 	
 	protected MappedObject()
 	{
-		myId = nextUniqueId++;
+		myId = nextId.getAndIncrement();
 	}
 	
 	public long getMappedId()
 	{
 		return myId;
 	}
+
+	/**
+	 * Objects read from a stream, like a SpecCache, take new IDs, so that they
+	 * cannot collide with the IDs of objects created by this process.
+	 */
+	private void readObject(ObjectInputStream in) throws ClassNotFoundException, IOException
+	{
+		in.defaultReadObject();
+		myId = nextId.getAndIncrement();
+	}
 }
@@ -0,0 +1,162 @@
+/*******************************************************************************
+ *
+ *	Copyright (c) 2026 Nick Battle.
+ *
+ *	Author: Nick Battle
+ *
+ *	This file is part of VDMJ.
+ *
+ *	VDMJ is free software: you can redistribute it and/or modify
+ *	it under the terms of the GNU General Public License as published by
+ *	the Free Software Foundation, either version 3 of the License, or
+ *	(at your option) any later version.
+ *
+ *	VDMJ is distributed in the hope that it will be useful,
+ *	but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *	GNU General Public License for more details.
+ *
+ *	You should have received a copy of the GNU General Public License
+ *	along with VDMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *	SPDX-License-Identifier: GPL-3.0-or-later
+ *
+ ******************************************************************************/
+
+package com.fujitsu.vdmj.messages;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * A structured RT log event. Events are created by the simulation threads, and
+ * formatted as text (or written in binary) later, by the RTLogger writer thread.
+ * Field values must therefore be immutable, such as Strings, numbers, Booleans,
+ * or null for "nil". An event with no fields is a raw "-- diagnostic" line.
+ */
+public class RTEvent
+{
+	/** Fields whose values are written in "quotes" in the text format. */
+	private static final Set<String> QUOTED = new HashSet<String>(
+		Arrays.asList("opname", "clnm", "name", "sys", "instnm", "val"));
+
+	public final String kind;
+	public final String[] names;
+	public final Object[] values;
+	public final long time;
+
+	public RTEvent(String kind, String[] names, Object[] values, long time)
+	{
+		this.kind = kind;
+		this.names = names;
+		this.values = values;
+		this.time = time;
+	}
+
+	/**
+	 * Create an event from alternating name/value arguments.
+	 */
+	public RTEvent(String kind, Object[] fields, long time)
+	{
+		this.kind = kind;
+		this.time = time;
+
+		if (fields == null)
+		{
+			this.names = null;
+			this.values = null;
+		}
+		else
+		{
+			this.names = new String[fields.length / 2];
+			this.values = new Object[fields.length / 2];
+
+			for (int i=0; i<names.length; i++)
+			{
+				names[i] = (String)fields[2*i];
+				values[i] = fields[2*i + 1];
+			}
+		}
+	}
+
+	public boolean isRaw()
+	{
+		return names == null;
+	}
+
+	public Object get(String name)
+	{
+		if (names != null)
+		{
+			for (int i=0; i<names.length; i++)
+			{
+				if (names[i].equals(name))
+				{
+					return values[i];
+				}
+			}
+		}
+
+		return null;
+	}
+
+	public boolean isSwapIn()
+	{
+		return !isRaw() && (kind.equals("ThreadSwapIn") || kind.equals("DelayedThreadSwapIn"));
+	}
+
+	public boolean isSwapOut()
+	{
+		return !isRaw() && kind.equals("ThreadSwapOut");
+	}
+
+	/**
+	 * True if this ThreadSwapOut immediately undoes the swap-in passed, being
+	 * for the same thread at the same time.
+	 */
+	public boolean cancels(RTEvent swapin)
+	{
+		return isSwapOut() && swapin.isSwapIn() &&
+			swapin.time == time && String.valueOf(swapin.get("id")).equals(String.valueOf(get("id")));
+	}
+
+	/**
+	 * Produce the text log format, "Kind -> name: value ... time: t".
+	 */
+	@Override
+	public String toString()
+	{
+		StringBuilder sb = new StringBuilder(kind);
+
+		if (!isRaw())
+		{
+			sb.append(" ->");
+
+			for (int i=0; i<names.length; i++)
+			{
+				sb.append(' ');
+				sb.append(names[i]);
+				sb.append(": ");
+
+				if (values[i] == null)
+				{
+					sb.append("nil");
+				}
+				else if (QUOTED.contains(names[i]))
+				{
+					sb.append('"');
+					sb.append(values[i]);
+					sb.append('"');
+				}
+				else
+				{
+					sb.append(values[i]);
+				}
+			}
+		}
+
+		sb.append(" time: ");
+		sb.append(time);
+		return sb.toString();
+	}
+}
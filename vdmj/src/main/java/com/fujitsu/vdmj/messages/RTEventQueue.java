@@ -0,0 +1,147 @@
+/*******************************************************************************
+ *
+ *	Copyright (c) 2026 Nick Battle.
+ *
+ *	Author: Nick Battle
+ *
+ *	This file is part of VDMJ.
+ *
+ *	VDMJ is free software: you can redistribute it and/or modify
+ *	it under the terms of the GNU General Public License as published by
+ *	the Free Software Foundation, either version 3 of the License, or
+ *	(at your option) any later version.
+ *
+ *	VDMJ is distributed in the hope that it will be useful,
+ *	but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *	GNU General Public License for more details.
+ *
+ *	You should have received a copy of the GNU General Public License
+ *	along with VDMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *	SPDX-License-Identifier: GPL-3.0-or-later
+ *
+ ******************************************************************************/
+
+package com.fujitsu.vdmj.messages;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A bounded, lock-free ring buffer of RTEvents. Any number of threads can put
+ * events, each claiming a sequence number with one atomic increment. There must
+ * be only one consumer at a time, which the RTLogger ensures by only polling
+ * while holding its class lock. If the buffer is full, producers wait for the
+ * consumer to catch up.
+ * <p>
+ * A queue is closed when the RTLogger changes or closes its log file. Puts that
+ * claim a sequence after the close are refused, and the caller retries with the
+ * RTLogger's new queue. Every sequence claimed before the close will be filled,
+ * so once the consumer reaches the claimed count, the queue is quiescent.
+ */
+class RTEventQueue
+{
+	private static final long CLOSED = 1L << 62;		// Added to head by close
+
+	private final AtomicReferenceArray<RTEvent> slots;
+	private final int mask;
+	private final AtomicLong head = new AtomicLong(0);	// Next sequence to claim
+	private volatile long tail = 0;						// Next sequence to consume
+	private volatile long end = 0;						// Claimed count when closed
+
+	public RTEventQueue(int capacity)	// Must be a power of two
+	{
+		this.slots = new AtomicReferenceArray<RTEvent>(capacity);
+		this.mask = capacity - 1;
+	}
+
+	/**
+	 * Add an event, or return false if the queue has been closed.
+	 */
+	public boolean put(RTEvent event)
+	{
+		long seq = head.getAndIncrement();
+
+		if (seq >= CLOSED)
+		{
+			return false;
+		}
+
+		while (seq - tail > mask)	// Full, so wait for the consumer
+		{
+			LockSupport.parkNanos(100000);
+		}
+
+		slots.set((int)(seq & mask), event);
+		return true;
+	}
+
+	/**
+	 * Refuse any further puts. The claimed count is then fixed.
+	 */
+	public void close()
+	{
+		long h = head.get();
+
+		while (h < CLOSED)
+		{
+			end = h;
+
+			if (head.compareAndSet(h, h + CLOSED))
+			{
+				break;
+			}
+
+			h = head.get();
+		}
+	}
+
+	/**
+	 * Take the next event, or null if there is none available yet. Note that a
+	 * producer may have claimed the next slot without yet filling it.
+	 */
+	public RTEvent poll()
+	{
+		int index = (int)(tail & mask);
+		RTEvent event = slots.get(index);
+
+		if (event != null)
+		{
+			slots.set(index, null);
+			tail = tail + 1;		// Single consumer, so this is safe
+		}
+
+		return event;
+	}
+
+	/**
+	 * The number of sequences claimed by puts that were not refused. Some of
+	 * these may not have been filled yet.
+	 */
+	public long claimed()
+	{
+		long h = head.get();
+		return h >= CLOSED ? end : h;
+	}
+
+	public long consumed()
+	{
+		return tail;
+	}
+
+	public int size()
+	{
+		return (int)(claimed() - tail);
+	}
+
+	public boolean isEmpty()
+	{
+		return claimed() == tail;
+	}
+
+	public boolean isFilling()
+	{
+		return size() > mask / 2;
+	}
+}
@@ -0,0 +1,209 @@
+/*******************************************************************************
+ *
+ *	Copyright (c) 2026 Nick Battle.
+ *
+ *	Author: Nick Battle
+ *
+ *	This file is part of VDMJ.
+ *
+ *	VDMJ is free software: you can redistribute it and/or modify
+ *	it under the terms of the GNU General Public License as published by
+ *	the Free Software Foundation, either version 3 of the License, or
+ *	(at your option) any later version.
+ *
+ *	VDMJ is distributed in the hope that it will be useful,
+ *	but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *	GNU General Public License for more details.
+ *
+ *	You should have received a copy of the GNU General Public License
+ *	along with VDMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *	SPDX-License-Identifier: GPL-3.0-or-later
+ *
+ ******************************************************************************/
+
+package com.fujitsu.vdmj.messages;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Vector;
+
+/**
+ * Read an RT log file as lines of text, whether it was written in the text or
+ * binary format (see RTLogWriter). The main method converts a binary log to text.
+ */
+public class RTLogReader
+{
+	private final BufferedReader text;
+	private final DataInputStream binary;
+	private final List<String> table;
+
+	public RTLogReader(File file) throws IOException
+	{
+		if (isBinary(file))
+		{
+			text = null;
+			table = new Vector<String>();
+			binary = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 65536));
+			binary.skipBytes(RTLogWriter.MAGIC.length());
+		}
+		else
+		{
+			text = new BufferedReader(new FileReader(file));
+			table = null;
+			binary = null;
+		}
+	}
+
+	public static boolean isBinary(File file) throws IOException
+	{
+		byte[] magic = RTLogWriter.MAGIC.getBytes(StandardCharsets.US_ASCII);
+		byte[] bytes = new byte[magic.length];
+
+		try (DataInputStream in = new DataInputStream(new FileInputStream(file)))
+		{
+			in.readFully(bytes);
+			return new String(bytes, StandardCharsets.US_ASCII).equals(RTLogWriter.MAGIC);
+		}
+		catch (EOFException e)
+		{
+			return false;
+		}
+	}
+
+	/**
+	 * Return the next line of the log in text format, or null at the end.
+	 */
+	public String readLine() throws IOException
+	{
+		if (text != null)
+		{
+			return text.readLine();
+		}
+
+		int tag = binary.read();
+
+		switch (tag)
+		{
+			case -1:
+				return null;
+
+			case 'R':
+			{
+				String kind = readString();
+				return new RTEvent(kind, null, null, binary.readLong()).toString();
+			}
+
+			case 'E':
+			{
+				String kind = readString();
+				long time = binary.readLong();
+				int count = binary.readUnsignedByte();
+				String[] names = new String[count];
+				Object[] values = new Object[count];
+
+				for (int i=0; i<count; i++)
+				{
+					names[i] = readString();
+					values[i] = readValue();
+				}
+
+				return new RTEvent(kind, names, values, time).toString();
+			}
+
+			default:
+				throw new IOException("Malformed binary RT log record: " + tag);
+		}
+	}
+
+	private Object readValue() throws IOException
+	{
+		int tag = binary.readUnsignedByte();
+
+		switch (tag)
+		{
+			case 'N':	return null;
+			case 'Z':	return binary.readBoolean();
+			case 'J':	return binary.readLong();
+			case 'S':	return readString();
+
+			default:
+				throw new IOException("Malformed binary RT log value: " + tag);
+		}
+	}
+
+	private String readString() throws IOException
+	{
+		short ref = binary.readShort();
+
+		if (ref >= 0)
+		{
+			return table.get(ref);
+		}
+
+		byte[] bytes = new byte[binary.readInt()];
+		binary.readFully(bytes);
+		String s = new String(bytes, StandardCharsets.UTF_8);
+
+		if (ref == -1)
+		{
+			table.add(s);
+		}
+
+		return s;
+	}
+
+	public void close() throws IOException
+	{
+		if (text != null)
+		{
+			text.close();
+		}
+		else
+		{
+			binary.close();
+		}
+	}
+
+	/**
+	 * Convert a log file to text, written to a file or stdout.
+	 */
+	public static void main(String[] args)
+	{
+		if (args.length < 1 || args.length > 2)
+		{
+			System.err.println("Usage: RTLogReader <log file> [<text file>]");
+			System.exit(1);
+		}
+
+		try
+		{
+			RTLogReader reader = new RTLogReader(new File(args[0]));
+			PrintWriter out = args.length == 2 ? new PrintWriter(new File(args[1])) : new PrintWriter(System.out);
+			String line = reader.readLine();
+
+			while (line != null)
+			{
+				out.println(line);
+				line = reader.readLine();
+			}
+
+			out.close();
+			reader.close();
+		}
+		catch (IOException e)
+		{
+			System.err.println("RTLogReader: " + e.getMessage());
+			System.exit(1);
+		}
+	}
+}
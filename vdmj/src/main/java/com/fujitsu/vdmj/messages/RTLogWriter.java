@@ -0,0 +1,219 @@
+/*******************************************************************************
+ *
+ *	Copyright (c) 2026 Nick Battle.
+ *
+ *	Author: Nick Battle
+ *
+ *	This file is part of VDMJ.
+ *
+ *	VDMJ is free software: you can redistribute it and/or modify
+ *	it under the terms of the GNU General Public License as published by
+ *	the Free Software Foundation, either version 3 of the License, or
+ *	(at your option) any later version.
+ *
+ *	VDMJ is distributed in the hope that it will be useful,
+ *	but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *	GNU General Public License for more details.
+ *
+ *	You should have received a copy of the GNU General Public License
+ *	along with VDMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *	SPDX-License-Identifier: GPL-3.0-or-later
+ *
+ ******************************************************************************/
+
+package com.fujitsu.vdmj.messages;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Write RTEvents to a log file, either as text or in the compact binary format.
+ * The binary format is used if the file name ends with ".rtlog". It starts with
+ * the MAGIC string, followed by one record per event:
+ * <pre>
+ *   'E' kind:string time:long count:byte (name:string value)*
+ *   'R' text:string time:long
+ * </pre>
+ * A value is a tag byte followed by its data: 'J' long, 'Z' boolean, 'N' nil or
+ * 'S' string. A string is a short reference to a table built as the file is
+ * written: a non-negative number refers to a string already seen, -1 means a
+ * new string follows which is added to the table, and -2 means a string follows
+ * that is not added (because the table is full). RTLogReader reverses this.
+ */
+abstract class RTLogWriter
+{
+	public static final String MAGIC = "VDMJ-RTLOG-1";
+	public static final String SUFFIX = ".rtlog";
+
+	public static RTLogWriter create(File file) throws FileNotFoundException
+	{
+		if (file.getName().endsWith(SUFFIX))
+		{
+			return new Binary(file);
+		}
+		else
+		{
+			return new Text(file);
+		}
+	}
+
+	public abstract void write(RTEvent event) throws IOException;
+
+	public abstract void flush() throws IOException;
+
+	public abstract void close() throws IOException;
+
+	private static class Text extends RTLogWriter
+	{
+		private final PrintWriter out;
+
+		public Text(File file) throws FileNotFoundException
+		{
+			out = new PrintWriter(new FileOutputStream(file, false));
+		}
+
+		@Override
+		public void write(RTEvent event)
+		{
+			out.println(event);
+		}
+
+		@Override
+		public void flush()
+		{
+			out.flush();
+		}
+
+		@Override
+		public void close()
+		{
+			out.close();
+		}
+	}
+
+	private static class Binary extends RTLogWriter
+	{
+		private static final int TABLE_MAX = Short.MAX_VALUE;
+
+		private final DataOutputStream out;
+		private final Map<String, Short> table = new HashMap<String, Short>();
+
+		public Binary(File file) throws FileNotFoundException
+		{
+			FileOutputStream fos = new FileOutputStream(file, false);
+
+			try
+			{
+				out = new DataOutputStream(new BufferedOutputStream(fos, 65536));
+				out.write(MAGIC.getBytes(StandardCharsets.US_ASCII));
+			}
+			catch (IOException e)
+			{
+				try
+				{
+					fos.close();
+				}
+				catch (IOException e2)
+				{
+					// Ignore, we're already failing
+				}
+
+				throw new FileNotFoundException(e.getMessage());
+			}
+		}
+
+		@Override
+		public void write(RTEvent event) throws IOException
+		{
+			if (event.isRaw())
+			{
+				out.writeByte('R');
+				writeString(event.kind);
+				out.writeLong(event.time);
+			}
+			else
+			{
+				out.writeByte('E');
+				writeString(event.kind);
+				out.writeLong(event.time);
+				out.writeByte(event.names.length);
+
+				for (int i=0; i<event.names.length; i++)
+				{
+					writeString(event.names[i]);
+					writeValue(event.values[i]);
+				}
+			}
+		}
+
+		private void writeValue(Object value) throws IOException
+		{
+			if (value == null)
+			{
+				out.writeByte('N');
+			}
+			else if (value instanceof Boolean)
+			{
+				out.writeByte('Z');
+				out.writeBoolean((Boolean)value);
+			}
+			else if (value instanceof Long || value instanceof Integer)
+			{
+				out.writeByte('J');
+				out.writeLong(((Number)value).longValue());
+			}
+			else
+			{
+				out.writeByte('S');
+				writeString(value.toString());
+			}
+		}
+
+		private void writeString(String s) throws IOException
+		{
+			Short ref = table.get(s);
+
+			if (ref != null)
+			{
+				out.writeShort(ref);
+			}
+			else
+			{
+				if (table.size() < TABLE_MAX)
+				{
+					table.put(s, (short)table.size());
+					out.writeShort(-1);
+				}
+				else
+				{
+					out.writeShort(-2);
+				}
+
+				byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+				out.writeInt(bytes.length);
+				out.write(bytes);
+			}
+		}
+
+		@Override
+		public void flush() throws IOException
+		{
+			out.flush();
+		}
+
+		@Override
+		public void close() throws IOException
+		{
+			out.close();
+		}
+	}
+}
@@ -26,48 +26,115 @@ package com.fujitsu.vdmj.messages;
 
 import java.io.File;
 import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
-import java.io.PrintWriter;
-import java.util.LinkedList;
-import java.util.List;
+import java.io.IOException;
+import java.util.concurrent.locks.LockSupport;
 
 import com.fujitsu.vdmj.scheduler.SystemClock;
 
+/**
+ * The RT event log. Events are created as structured RTEvent records by the
+ * simulation threads and added to a lock-free queue, without taking the class lock.
+ * A background writer thread drains the queue, collapses ThreadSwapIn/Out pairs
+ * that cancel out, and writes the events to the log file. When logging to the
+ * console, events are written immediately, by the caller.
+ * <p>
+ * Each log file has its own queue. Changing or closing the file replaces the
+ * queue, then closes the old one and drains it, all with the class lock held.
+ * A thread that read the old queue just before it was replaced either claimed
+ * its slot before the close, so its event is drained, or has its put refused
+ * and retries with the new queue. So adding an event takes no lock.
+ */
 public class RTLogger
 {
-	private static boolean enabled = false;
-	private static List<String> events = new LinkedList<String>();
+	private static final int QUEUE_SIZE = 65536;
+	private static final long IDLE_WAIT = 10000000;		// 10ms
+
+	private static volatile boolean enabled = false;
+	private static volatile RTEventQueue queue = null;	// Set if writing to a file
 	private static File logfile;
-	private static PrintWriter writer = null;
-	private static String cached = null;
+	private static RTLogWriter writer = null;
+	private static Thread writerThread = null;
+	private static RTEvent cached = null;
+	private static int unflushed = 0;
 
 	public static synchronized void enable(boolean on)
 	{
 		if (!on)
 		{
-			dump(true);
+			write(true);
 			cached = null;
 		}
 
 		enabled = on;
 	}
 	
-	public static synchronized boolean isEnabled()
+	public static boolean isEnabled()
 	{
 		return enabled;
 	}
 
-	public static synchronized void log(String event)
+	/**
+	 * Log a raw line of text, like "-- diagnostic".
+	 */
+	public static void log(String event)
 	{
-		if (!enabled)
+		if (enabled)
 		{
-			return;
+			add(new RTEvent(event, null, SystemClock.getWallTime()));
 		}
+	}
 
-		event = event + " time: " + SystemClock.getWallTime();
+	/**
+	 * Log a structured event with alternating name/value fields, which are
+	 * formatted later as "kind -> name: value ... time: t".
+	 */
+	public static void log(String kind, Object... fields)
+	{
+		if (enabled)
+		{
+			add(new RTEvent(kind, fields, SystemClock.getWallTime()));
+		}
+	}
 
-		if (event.startsWith("ThreadSwapIn") ||
-			event.startsWith("DelayedThreadSwapIn"))
+	private static void add(RTEvent event)
+	{
+		while (true)
+		{
+			RTEventQueue q = queue;
+
+			if (q == null)
+			{
+				synchronized (RTLogger.class)
+				{
+					if (queue == null)		// Not changed while we waited
+					{
+						process(event);
+						return;
+					}
+				}
+			}
+			else if (q.put(event))
+			{
+				if (q.isFilling())
+				{
+					LockSupport.unpark(writerThread);
+				}
+
+				return;
+			}
+
+			// Else the queue was replaced, so try again with the new one
+		}
+	}
+
+	/**
+	 * Called with the class lock held, for every event in order. A swap-in is
+	 * held back until the next event, in case that swaps the same thread out
+	 * again at the same time, in which case neither is logged.
+	 */
+	private static void process(RTEvent event)
+	{
+		if (event.isSwapIn())
 		{
 			if (cached != null)
 			{
@@ -80,26 +147,10 @@ public class RTLogger
 
 		if (cached != null)
 		{
-			if (event.startsWith("ThreadSwapOut"))
+			if (event.cancels(cached))
 			{
-				String[] cparts = cached.split("\\s+");
-				String[] eparts = event.split("\\s+");
-
-				if (cparts[0].equals("DelayedThreadSwapIn") &&
-					cparts[3].equals(eparts[3]) &&	// thread
-					cparts[15].equals(eparts[13]))	// time
-				{
-					cached = null;
-					return;
-				}
-
-				if (cparts[0].equals("ThreadSwapIn") &&
-					cparts[3].equals(eparts[3]) &&	// thread
-					cparts[13].equals(eparts[13]))	// time
-				{
-					cached = null;
-					return;
-				}
+				cached = null;
+				return;
 			}
 
 			doLog(cached);
@@ -109,29 +160,122 @@ public class RTLogger
 		doLog(event);
 	}
 
-	private static void doLog(String event)
+	private static void doLog(RTEvent event)
 	{
 		if (writer == null)
 		{
-			Console.out.println(event);
+			Console.out.println(event.toString());
 		}
 		else
 		{
-    		events.add(event);
+			try
+			{
+				writer.write(event);
+				unflushed++;
+			}
+			catch (IOException e)
+			{
+				Console.err.println("Cannot write RT event log: " + e.getMessage());
+				writer = null;
+			}
+		}
+	}
+
+	/**
+	 * Process the queued events up to the given sequence, waiting for any that
+	 * have been claimed but not yet added. Called with the class lock held.
+	 */
+	private static void drain(RTEventQueue q, long until)
+	{
+		while (q.consumed() < until)
+		{
+			RTEvent event = q.poll();
 
-    		if (events.size() > 1000)
-    		{
-    			dump(false);
-    		}
+			if (event == null)
+			{
+				Thread.yield();
+			}
+			else
+			{
+				process(event);
+			}
 		}
 	}
 
-	private static void setLogfile(PrintWriter out)
+	private static void flush()
+	{
+		if (writer != null && unflushed > 0)
+		{
+			try
+			{
+				writer.flush();
+			}
+			catch (IOException e)
+			{
+				Console.err.println("Cannot write RT event log: " + e.getMessage());
+			}
+
+			unflushed = 0;
+		}
+	}
+
+	private static synchronized void startWriter()
+	{
+		if (writerThread == null)
+		{
+			writerThread = new Thread("RTLogger")
+			{
+				@Override
+				public void run()
+				{
+					while (true)
+					{
+						boolean idle = true;
+
+						synchronized (RTLogger.class)
+						{
+							RTEventQueue q = queue;
+
+							if (q != null)
+							{
+								RTEvent event = q.poll();
+
+								while (event != null)
+								{
+									process(event);
+									event = q.poll();
+									idle = false;
+								}
+							}
+
+							flush();
+						}
+
+						if (idle)
+						{
+							LockSupport.parkNanos(IDLE_WAIT);
+						}
+					}
+				}
+			};
+
+			writerThread.setDaemon(true);
+			writerThread.start();
+		}
+	}
+
+	private static synchronized void setLogfile(RTLogWriter out)
 	{
 		enabled = true;
-		dump(true);		// Write out and close previous
+		write(true);		// Write out and close previous
 		writer = out;
 		cached = null;
+
+		if (out != null)
+		{
+			startWriter();
+			queue = new RTEventQueue(QUEUE_SIZE);
+		}
 	}
 
 	public static void setLogfileName(File file) throws FileNotFoundException
@@ -140,8 +284,7 @@ public class RTLogger
 
 		if (file != null)
 		{
-			PrintWriter p = new PrintWriter(new FileOutputStream(file, false));
-			setLogfile(p);
+			setLogfile(RTLogWriter.create(file));
 		}
 		else
 		{
@@ -149,9 +292,23 @@ public class RTLogger
 		}
 	}
 
+	/**
+	 * The number of events logged to the current log file that the writer thread
+	 * has not yet taken from the queue. This can be zero while the file is open,
+	 * so use isOpen to decide whether the file needs closing.
+	 */
 	public static int getLogSize()
 	{
-		return events.size();
+		RTEventQueue q = queue;
+		return q == null ? 0 : (int)(q.claimed() - q.consumed());
+	}
+
+	/**
+	 * True if events are being logged to a file that has not yet been closed.
+	 */
+	public static boolean isOpen()
+	{
+		return queue != null;
 	}
 	
 	public static File getLogfileName()
@@ -161,19 +318,45 @@ public class RTLogger
 
 	public static synchronized void dump(boolean close)
 	{
-		if (writer != null)
+		write(close);
+	}
+
+	/**
+	 * Write out all of the queued events, and close the file if required. Called
+	 * with the class lock held. Events added while a file is kept open are left
+	 * for the writer thread, but closing waits for every event claimed before the
+	 * queue was closed, and any later events go to the next destination.
+	 */
+	private static void write(boolean close)
+	{
+		RTEventQueue q = queue;
+
+		if (q != null)
 		{
-    		for (String event: events)
-    		{
-    			writer.println(event);
-    		}
+			if (close)
+			{
+				queue = null;
+				q.close();
+			}
 
-    		writer.flush();
-    		events.clear();
+			drain(q, q.claimed());
+		}
+
+		if (writer != null)
+		{
+			flush();
 
     		if (close)
     		{
-    			writer.close();
+    			try
+    			{
+    				writer.close();
+    			}
+    			catch (IOException e)
+    			{
+    				Console.err.println("Cannot close RT event log: " + e.getMessage());
+    			}
+
     			writer = null;
     			cached = null;
     		}
@@ -24,9 +24,7 @@
 
 package com.fujitsu.vdmj.messages;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -61,11 +59,11 @@ public class RTValidator
 			throw new IOException("No conjectures found in specification");
 		}
 		
-		BufferedReader br = null;
+		RTLogReader br = null;
 		
 		try
 		{
-			br = new BufferedReader(new FileReader(logfile));
+			br = new RTLogReader(logfile);		// Text or binary
 			String line = br.readLine();
 			Context ctxt = new Context(LexLocation.ANY, "Conjecture context", null);
 			ctxt.setThreadState(CPUValue.vCPU);
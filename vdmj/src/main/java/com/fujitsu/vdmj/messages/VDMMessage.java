@@ -24,6 +24,7 @@
 
 package com.fujitsu.vdmj.messages;
 
+import java.io.Serializable;
 import java.util.List;
 import java.util.Vector;
 
@@ -33,8 +34,10 @@ import com.fujitsu.vdmj.lex.LexLocation;
  * The root of all reported messages.
  */
 
-public class VDMMessage
+public class VDMMessage implements Serializable
 {
+	private static final long serialVersionUID = 1L;
+
 	public final int number;
 	public final String message;
 	public final LexLocation location;
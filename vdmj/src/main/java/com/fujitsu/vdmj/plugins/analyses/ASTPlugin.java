@@ -34,8 +34,13 @@ import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Vector;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import com.fujitsu.vdmj.Settings;
+import com.fujitsu.vdmj.config.Properties;
 import com.fujitsu.vdmj.lex.Dialect;
 import com.fujitsu.vdmj.messages.VDMMessage;
 import com.fujitsu.vdmj.plugins.AnalysisEvent;
@@ -50,6 +55,7 @@ import com.fujitsu.vdmj.plugins.events.CheckSyntaxEvent;
 abstract public class ASTPlugin extends AnalysisPlugin implements EventListener
 {
 	protected List<File> files;
+	protected SpecCache cache;
 	
 	@Override
 	public String getName()
@@ -61,6 +67,7 @@ abstract public class ASTPlugin extends AnalysisPlugin implements EventListener
 	public void init()
 	{
 		files = new Vector<File>();
+		cache = null;
 		
 		eventhub.register(CheckPrepareEvent.class, this);
 		eventhub.register(CheckSyntaxEvent.class, this);
@@ -134,6 +141,7 @@ abstract public class ASTPlugin extends AnalysisPlugin implements EventListener
 		{
 			CheckPrepareEvent pevent = (CheckPrepareEvent)event;
 			files = pevent.getFiles();
+			cache = SpecCache.forFiles(files);
 			return syntaxPrepare();
 		}
 		else if (event instanceof CheckSyntaxEvent)
@@ -146,10 +154,91 @@ abstract public class ASTPlugin extends AnalysisPlugin implements EventListener
 		}
 	}
 
+	/**
+	 * The SpecCache for the current files, or null if caching is not enabled.
+	 */
+	public SpecCache getCache()
+	{
+		return cache;
+	}
+
 	abstract protected List<VDMMessage> syntaxPrepare();
 
 	abstract protected List<VDMMessage> syntaxCheck();
 
+	/**
+	 * Parse one file, adding any errors and warnings to the list passed.
+	 */
+	protected interface FileParser<T>
+	{
+		public T parse(File file, List<VDMMessage> messages);
+	}
+
+	/**
+	 * Parse all of the files, using a pool of Properties.parser_threads threads if
+	 * there is more than one file. Files are independent until type checking, so
+	 * they can be read in any order, but the results and the messages of each file
+	 * are returned in file order, so that the output is deterministic.
+	 */
+	protected <T> List<T> parseFiles(final FileParser<T> parser, List<VDMMessage> messages)
+	{
+		List<T> results = new Vector<T>(files.size());
+		int threads = Math.min(Properties.parser_threads, files.size());
+
+		if (threads <= 1)
+		{
+			for (File file: files)
+			{
+				results.add(parser.parse(file, messages));
+			}
+
+			return results;
+		}
+
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+
+		try
+		{
+			List<Future<T>> futures = new Vector<Future<T>>(files.size());
+			List<List<VDMMessage>> fileMessages = new Vector<List<VDMMessage>>(files.size());
+
+			for (final File file: files)
+			{
+				final List<VDMMessage> list = new Vector<VDMMessage>();
+				fileMessages.add(list);
+
+				futures.add(pool.submit(new Callable<T>()
+				{
+					@Override
+					public T call()
+					{
+						return parser.parse(file, list);
+					}
+				}));
+			}
+
+			for (int i=0; i<futures.size(); i++)
+			{
+				try
+				{
+					results.add(futures.get(i).get());
+				}
+				catch (Exception e)
+				{
+					messages.addAll(errsOf(e));
+				}
+
+				messages.addAll(fileMessages.get(i));
+			}
+		}
+		finally
+		{
+			pool.shutdown();
+		}
+
+		return results;
+	}
+
 	abstract public <T extends Collection<?>> T getAST();
 	
 	abstract public int getCount();
@@ -55,30 +55,41 @@ public class ASTPluginPP extends ASTPlugin
 	{
 		List<VDMMessage> messages = new Vector<VDMMessage>();
 		
-		for (File file: files)
+		List<ASTClassList> parsed = parseFiles(new FileParser<ASTClassList>()
 		{
-			ClassReader cr = null;
-			
-			try
+			@Override
+			public ASTClassList parse(File file, List<VDMMessage> fileMessages)
 			{
-				LexTokenReader ltr = new LexTokenReader(file, Settings.dialect, Settings.filecharset);
-				cr = new ClassReader(ltr);
-				astClassList.addAll(cr.readClasses());
-			}
-			catch (InternalException e)
-			{
-				messages.addAll(errsOf(e));
-			}
-			catch (Throwable e)
-			{
-				messages.addAll(errsOf(e));
-			}
-
-			if (cr != null)
-			{
-				messages.addAll(cr.getErrors());
-				messages.addAll(cr.getWarnings());
+				ASTClassList classes = new ASTClassList();
+				ClassReader cr = null;
+				
+				try
+				{
+					LexTokenReader ltr = new LexTokenReader(file, Settings.dialect, Settings.filecharset);
+					cr = new ClassReader(ltr);
+					classes.addAll(cr.readClasses());
+				}
+				catch (InternalException e)
+				{
+					fileMessages.addAll(errsOf(e));
+				}
+				catch (Throwable e)
+				{
+					fileMessages.addAll(errsOf(e));
+				}
+				if (cr != null)
+				{
+					fileMessages.addAll(cr.getErrors());
+					fileMessages.addAll(cr.getWarnings());
+				}
+				
+				return classes;
 			}
+		}, messages);
+		
+		for (ASTClassList classes: parsed)
+		{
+			astClassList.addAll(classes);
 		}
 
 		return messages;
@@ -59,30 +59,41 @@ public class ASTPluginSL extends ASTPlugin
 	{
 		List<VDMMessage> messages = new Vector<VDMMessage>();
 		
-		for (File file: files)
+		List<ASTModuleList> parsed = parseFiles(new FileParser<ASTModuleList>()
 		{
-			ModuleReader mr = null;
-			
-			try
+			@Override
+			public ASTModuleList parse(File file, List<VDMMessage> fileMessages)
 			{
-				LexTokenReader ltr = new LexTokenReader(file, Dialect.VDM_SL, Settings.filecharset);
-				mr = new ModuleReader(ltr);
-				astModuleList.addAll(mr.readModules());
-			}
-			catch (InternalException e)
-			{
-				messages.addAll(errsOf(e));
-			}
-			catch (Throwable e)
-			{
-				messages.addAll(errsOf(e));
-			}
-
-			if (mr != null)
-			{
-				messages.addAll(mr.getErrors());
-				messages.addAll(mr.getWarnings());
+				ASTModuleList modules = new ASTModuleList();
+				ModuleReader mr = null;
+				
+				try
+				{
+					LexTokenReader ltr = new LexTokenReader(file, Dialect.VDM_SL, Settings.filecharset);
+					mr = new ModuleReader(ltr);
+					modules.addAll(mr.readModules());
+				}
+				catch (InternalException e)
+				{
+					fileMessages.addAll(errsOf(e));
+				}
+				catch (Throwable e)
+				{
+					fileMessages.addAll(errsOf(e));
+				}
+				if (mr != null)
+				{
+					fileMessages.addAll(mr.getErrors());
+					fileMessages.addAll(mr.getWarnings());
+				}
+				
+				return modules;
 			}
+		}, messages);
+		
+		for (ASTModuleList modules: parsed)
+		{
+			astModuleList.addAll(modules);
 		}
 
 		return messages;
@@ -52,6 +52,7 @@ import com.fujitsu.vdmj.plugins.commands.FilesCommand;
 import com.fujitsu.vdmj.plugins.commands.InitCommand;
 import com.fujitsu.vdmj.plugins.commands.LatexCommand;
 import com.fujitsu.vdmj.plugins.commands.LogCommand;
+import com.fujitsu.vdmj.plugins.commands.MemoCommand;
 import com.fujitsu.vdmj.plugins.commands.ModulesCommand;
 import com.fujitsu.vdmj.plugins.commands.PluginsCommand;
 import com.fujitsu.vdmj.plugins.commands.PrintCommand;
@@ -414,6 +415,7 @@ abstract public class INPlugin extends AnalysisPlugin implements EventListener
 			case "save":		return new SaveCommand(line);
 			case "runtrace":
 			case "rt":			return new RuntraceCommand(line);
+			case "memo":		return new MemoCommand(line);
 
 			default:
 				return null;
@@ -444,5 +446,6 @@ abstract public class INPlugin extends AnalysisPlugin implements EventListener
 		WordCommand.help();
 		SaveCommand.help();
 		RuntraceCommand.help();
+		MemoCommand.help();
 	}
 }
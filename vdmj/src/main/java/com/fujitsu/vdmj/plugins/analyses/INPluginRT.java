@@ -78,7 +78,7 @@ public class INPluginRT extends INPluginPP
 		}
 		else if (event instanceof ShutdownEvent)
 		{
-			if (RTLogger.getLogSize() > 0)
+			if (RTLogger.isOpen())
 			{
 				println("Closing RT event log");
 				RTLogger.dump(true);
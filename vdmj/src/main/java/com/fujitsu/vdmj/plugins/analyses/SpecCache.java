@@ -0,0 +1,610 @@
+/*******************************************************************************
+ *
+ *	Copyright (c) 2023 Nick Battle.
+ *
+ *	Author: Nick Battle
+ *
+ *	This file is part of VDMJ.
+ *
+ *	VDMJ is free software: you can redistribute it and/or modify
+ *	it under the terms of the GNU General Public License as published by
+ *	the Free Software Foundation, either version 3 of the License, or
+ *	(at your option) any later version.
+ *
+ *	VDMJ is distributed in the hope that it will be useful,
+ *	but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *	GNU General Public License for more details.
+ *
+ *	You should have received a copy of the GNU General Public License
+ *	along with VDMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *	SPDX-License-Identifier: GPL-3.0-or-later
+ *
+ ******************************************************************************/
+
+package com.fujitsu.vdmj.plugins.analyses;
+
+import static com.fujitsu.vdmj.plugins.PluginConsole.verbose;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.Vector;
+
+import com.fujitsu.vdmj.Settings;
+import com.fujitsu.vdmj.ast.modules.ASTImportFromModule;
+import com.fujitsu.vdmj.ast.modules.ASTModule;
+import com.fujitsu.vdmj.ast.modules.ASTModuleList;
+import com.fujitsu.vdmj.config.Properties;
+import com.fujitsu.vdmj.lex.LexLocation;
+import com.fujitsu.vdmj.messages.VDMError;
+import com.fujitsu.vdmj.messages.VDMMessage;
+import com.fujitsu.vdmj.tc.definitions.TCClassList;
+import com.fujitsu.vdmj.tc.modules.TCModule;
+import com.fujitsu.vdmj.tc.modules.TCModuleList;
+import com.fujitsu.vdmj.util.Utils;
+
+/**
+ * An on-disk cache of type checked specifications, held in the
+ * Properties.tc_cache_directory. The files are always parsed, because that is
+ * quicker than loading a serialized AST, but the TC trees of groups of modules
+ * are saved after a clean check, and loaded instead of type checking them again.
+ * <p>
+ * Each group is closed under imports, so that it can be loaded on its own and
+ * the rest of the specification checked against it. The groups are the whole
+ * specification, the specification without its root modules (those that nothing
+ * imports, like a test or main module), and each library: a set of modules that
+ * import nothing else, like IO or MATH. A group entry is keyed by a hash of the
+ * contents of its files and every setting that affects the result, so a group is
+ * only loaded when none of its files have changed. VDM++ and VDM-RT classes
+ * have no imports, so only the whole specification is cached for them.
+ * <p>
+ * The entries hold the warnings of their modules, and the LexLocations of their
+ * files. The parse of the files has already created most of these, and the
+ * deserialized locations resolve to them, so coverage works as usual. The IN tree
+ * is always built from the TC tree, because it holds the runtime state of the
+ * specification.
+ * <p>
+ * Entries are touched when they are loaded, and saving removes the least recently
+ * used entries beyond Properties.tc_cache_max_entries, so the directory does not
+ * grow without limit as the files are edited.
+ */
+public class SpecCache
+{
+	private final List<File> files;
+	private final File directory;
+	private final byte[] settings;
+	private final Map<File, byte[]> digests = new HashMap<File, byte[]>();
+
+	/** The parsed modules and their groups, largest first, set by loadModules */
+	private ASTModuleList parsed = null;
+	private List<Set<String>> groups = null;
+
+	private List<VDMMessage> typeMessages = null;
+	private boolean loaded = false;
+
+	private SpecCache(List<File> files, File directory) throws Exception
+	{
+		this.files = files;
+		this.directory = directory;
+		this.settings = settings();
+	}
+
+	/**
+	 * Create a cache for a list of files, or return null if caching is not enabled.
+	 */
+	public static SpecCache forFiles(List<File> files)
+	{
+		if (Properties.tc_cache_directory == null || files.isEmpty())
+		{
+			return null;
+		}
+
+		try
+		{
+			File dir = new File(Properties.tc_cache_directory);
+			dir.mkdirs();
+			return new SpecCache(files, dir);
+		}
+		catch (Exception e)
+		{
+			verbose("Cannot create spec cache: %s", e);
+			return null;
+		}
+	}
+
+	private static byte[] settings() throws Exception
+	{
+		MessageDigest md = MessageDigest.getInstance("SHA-256");
+		URL url = SpecCache.class.getResource("SpecCache.class");
+
+		update(md, Utils.getVersion());
+		update(md, url.openConnection().getLastModified());	// Different builds
+		update(md, Settings.dialect);
+		update(md, Settings.release);
+		update(md, Settings.strict);
+		update(md, Settings.annotations);
+		update(md, Settings.filecharset);
+		update(md, Properties.parser_tabstop);
+		update(md, Properties.parser_comment_nesting);
+		update(md, Properties.parser_external_readers);
+		update(md, Properties.parser_merge_comments);
+		update(md, Properties.annotations_packages);
+		update(md, Properties.mapping_search_path);
+		update(md, Properties.tc_skip_recursive_check);
+		update(md, Properties.tc_skip_cyclic_check);
+
+		return md.digest();
+	}
+
+	/**
+	 * The cache file for a group of files, keyed by the settings and the contents
+	 * of each file. The digest of each file is only calculated once.
+	 */
+	private File cacheFile(Set<File> group) throws Exception
+	{
+		MessageDigest md = MessageDigest.getInstance("SHA-256");
+		md.update(settings);
+
+		for (File file: new TreeSet<File>(group))
+		{
+			byte[] digest = digests.get(file);
+
+			if (digest == null)
+			{
+				digest = MessageDigest.getInstance("SHA-256").digest(Files.readAllBytes(file.toPath()));
+				digests.put(file, digest);
+			}
+
+			update(md, file.getAbsolutePath());
+			md.update(digest);
+		}
+
+		StringBuilder sb = new StringBuilder();
+
+		for (byte b: md.digest())
+		{
+			sb.append(String.format("%02x", b));
+		}
+
+		return new File(directory, sb.toString() + ".ser");
+	}
+
+	private static void update(MessageDigest md, Object value)
+	{
+		md.update(String.valueOf(value).getBytes());
+		md.update((byte)0);
+	}
+
+	/**
+	 * Divide the parsed modules into groups that are closed under imports. The
+	 * first group is the whole specification, then the specification without its
+	 * root modules, then each library. Flat specifications have one group.
+	 */
+	private List<Set<String>> groups(ASTModuleList parsed)
+	{
+		List<Set<String>> result = new Vector<Set<String>>();
+		Map<String, Set<String>> imports = new HashMap<String, Set<String>>();
+		Set<String> imported = new HashSet<String>();
+		boolean flat = false;
+
+		for (ASTModule m: parsed)
+		{
+			flat = flat || m.isFlat;
+			Set<String> from = new HashSet<String>();
+
+			if (m.imports != null)
+			{
+				for (ASTImportFromModule ifm: m.imports.imports)
+				{
+					from.add(ifm.name.name);
+				}
+			}
+
+			imports.put(m.name.name, from);
+			imported.addAll(from);
+		}
+
+		Set<String> all = new LinkedHashSet<String>(imports.keySet());
+		result.add(all);
+
+		if (flat || !all.containsAll(imported))
+		{
+			return result;		// DEFAULT modules are combined, or imports are missing
+		}
+
+		Set<String> inner = new LinkedHashSet<String>(all);
+		inner.retainAll(imported);
+
+		if (!inner.isEmpty() && !result.contains(inner))
+		{
+			result.add(inner);
+		}
+
+		for (String name: all)
+		{
+			Set<String> closure = closure(name, imports);
+			boolean library = true;
+
+			for (String other: closure)
+			{
+				if (!closure(other, imports).equals(closure))
+				{
+					library = false;	// Imports something that does not import it
+					break;
+				}
+			}
+
+			if (library && !result.contains(closure))
+			{
+				result.add(closure);
+			}
+		}
+
+		return result;
+	}
+
+	private Set<String> closure(String name, Map<String, Set<String>> imports)
+	{
+		Set<String> closure = new HashSet<String>();
+		List<String> todo = new Vector<String>();
+		todo.add(name);
+
+		while (!todo.isEmpty())
+		{
+			String next = todo.remove(0);
+
+			if (closure.add(next))
+			{
+				todo.addAll(imports.get(next));
+			}
+		}
+
+		return closure;
+	}
+
+	/**
+	 * The files that define a group of modules. The whole specification includes
+	 * every file, even if it defines no modules.
+	 */
+	private Set<File> filesOf(Set<String> group)
+	{
+		Set<File> result = new HashSet<File>();
+
+		if (group == groups.get(0))
+		{
+			result.addAll(files);
+		}
+		else
+		{
+			for (ASTModule m: parsed)
+			{
+				if (group.contains(m.name.name))
+				{
+					result.addAll(m.files);
+				}
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Load the cached TC modules of the parsed modules. If the whole specification
+	 * is not cached, the largest group without its root modules is tried, and then
+	 * any libraries that do not overlap what has been loaded. The modules returned
+	 * can be used to type check the rest of the specification, and their warnings
+	 * are returned by getTypeMessages.
+	 */
+	public TCModuleList loadModules(ASTModuleList parsed)
+	{
+		TCModuleList result = new TCModuleList();
+		typeMessages = new Vector<VDMMessage>();
+		loaded = false;
+		this.parsed = parsed;
+		groups = groups(parsed);
+
+		for (Set<String> group: groups)
+		{
+			if (overlaps(group, result))
+			{
+				continue;
+			}
+
+			Collection<?> cached = load(filesOf(group));
+
+			if (cached != null)
+			{
+				for (Object m: cached)
+				{
+					result.add((TCModule)m);
+				}
+
+				if (group == groups.get(0))
+				{
+					loaded = true;
+					break;
+				}
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Load the cached TC classes of the whole specification, or return null.
+	 */
+	public TCClassList loadClasses()
+	{
+		typeMessages = new Vector<VDMMessage>();
+		loaded = false;
+		parsed = null;
+		groups = null;
+
+		TCClassList result = load(new HashSet<File>(files));
+		loaded = (result != null);
+		return result;
+	}
+
+	private boolean overlaps(Set<String> group, TCModuleList modules)
+	{
+		for (TCModule m: modules)
+		{
+			if (group.contains(m.name.getName()))
+			{
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Load one group entry, returning null if it is not found. The locations and
+	 * warnings of the entry are registered.
+	 */
+	@SuppressWarnings("unchecked")
+	private <T extends Collection<?>> T load(Set<File> groupFiles)
+	{
+		File cacheFile = null;
+
+		try
+		{
+			cacheFile = cacheFile(groupFiles);
+
+			if (!cacheFile.exists())
+			{
+				return null;
+			}
+		}
+		catch (Exception e)
+		{
+			verbose("Cannot read spec files: %s", e);
+			return null;
+		}
+
+		try (ObjectInputStream in = new ObjectInputStream(
+				new BufferedInputStream(new FileInputStream(cacheFile))))
+		{
+			T cachedTC = (T)in.readObject();
+			List<VDMMessage> cachedTypes = (List<VDMMessage>)in.readObject();
+			Map<File, List<LexLocation>> locations = (Map<File, List<LexLocation>>)in.readObject();
+
+			for (File file: groupFiles)
+			{
+				LexLocation.addFileLocations(file, locations.get(file));
+			}
+
+			typeMessages.addAll(cachedTypes);
+			cacheFile.setLastModified(System.currentTimeMillis());	// Recently used
+			verbose("Loaded spec cache %s", cacheFile);
+			return cachedTC;
+		}
+		catch (Exception e)
+		{
+			verbose("Cannot load spec cache %s: %s", cacheFile, e);
+			cacheFile.delete();
+			return null;
+		}
+	}
+
+	/**
+	 * True if the whole specification was loaded, and so needs no type checking.
+	 */
+	public boolean isLoaded()
+	{
+		return loaded;
+	}
+
+	/**
+	 * The warnings of the modules or classes that were loaded.
+	 */
+	public List<VDMMessage> getTypeMessages()
+	{
+		return new Vector<VDMMessage>(typeMessages);
+	}
+
+	/**
+	 * Save the groups of a type checked specification that are not already cached,
+	 * if there were no errors. A failure to save is not an error.
+	 */
+	public void typeChecked(TCModuleList checked, List<VDMMessage> messages)
+	{
+		if (loaded || groups == null || hasErrors(messages))
+		{
+			return;
+		}
+
+		for (Set<String> group: groups)
+		{
+			TCModuleList modules = new TCModuleList();
+			List<VDMMessage> warnings = new Vector<VDMMessage>();
+
+			if (group == groups.get(0))
+			{
+				modules = checked;
+				warnings.addAll(messages);
+			}
+			else
+			{
+				for (TCModule m: checked)
+				{
+					if (group.contains(m.name.getName()))
+					{
+						modules.add(m);
+					}
+				}
+
+				for (VDMMessage m: messages)
+				{
+					if (m.location != null && group.contains(m.location.module))
+					{
+						warnings.add(m);
+					}
+				}
+			}
+
+			save(filesOf(group), modules, warnings);
+		}
+
+		prune();
+	}
+
+	/**
+	 * Save the whole of a type checked class list, if there were no errors.
+	 */
+	public void typeChecked(TCClassList checked, List<VDMMessage> messages)
+	{
+		if (!loaded && !hasErrors(messages))
+		{
+			save(new HashSet<File>(files), checked, messages);
+			prune();
+		}
+	}
+
+	private void save(Set<File> groupFiles, Collection<?> tc, List<VDMMessage> messages)
+	{
+		File cacheFile = null;
+		File temp = null;
+
+		try
+		{
+			cacheFile = cacheFile(groupFiles);
+
+			if (cacheFile.exists())
+			{
+				return;
+			}
+
+			Map<File, List<LexLocation>> locations = new HashMap<File, List<LexLocation>>();
+
+			for (File file: groupFiles)
+			{
+				locations.put(file, LexLocation.getFileLocations(file));
+			}
+
+			temp = File.createTempFile("spec-", ".tmp", directory);
+
+			try (ObjectOutputStream out = new ObjectOutputStream(
+					new BufferedOutputStream(new FileOutputStream(temp))))
+			{
+				out.writeObject(tc);
+				out.writeObject(new Vector<VDMMessage>(messages));
+				out.writeObject(locations);
+			}
+
+			// Concurrent VDMJ processes may write the same entry
+			Files.move(temp.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			verbose("Saved spec cache %s", cacheFile);
+		}
+		catch (Exception e)
+		{
+			verbose("Cannot save spec cache %s: %s", cacheFile, e);
+
+			if (temp != null)
+			{
+				temp.delete();
+			}
+		}
+	}
+
+	/**
+	 * Delete the least recently used entries beyond the maximum. This is called
+	 * after all of the groups are saved, so that a group saved by one check is not
+	 * pruned and then saved again by the same check. Another VDMJ process may be
+	 * pruning too, so a failure to delete is ignored.
+	 */
+	private void prune()
+	{
+		File[] entries = directory.listFiles(new FilenameFilter()
+		{
+			@Override
+			public boolean accept(File dir, String name)
+			{
+				return name.endsWith(".ser");
+			}
+		});
+
+		if (entries == null || entries.length <= Properties.tc_cache_max_entries)
+		{
+			return;
+		}
+
+		final Map<File, Long> used = new HashMap<File, Long>();
+
+		for (File entry: entries)
+		{
+			used.put(entry, entry.lastModified());
+		}
+
+		Arrays.sort(entries, new Comparator<File>()
+		{
+			@Override
+			public int compare(File a, File b)
+			{
+				return Long.compare(used.get(b), used.get(a));	// Most recent first
+			}
+		});
+
+		for (int i = Math.max(Properties.tc_cache_max_entries, 0); i < entries.length; i++)
+		{
+			if (entries[i].delete())
+			{
+				verbose("Pruned spec cache %s", entries[i]);
+			}
+		}
+	}
+
+	private boolean hasErrors(List<VDMMessage> messages)
+	{
+		for (VDMMessage m: messages)
+		{
+			if (m instanceof VDMError)
+			{
+				return true;
+			}
+		}
+
+		return false;
+	}
+}
@@ -59,6 +59,18 @@ public class TCPluginPP extends TCPlugin
 		ASTPlugin ast = PluginRegistry.getInstance().getPlugin("AST");
 		ASTClassList parsedClasses = ast.getAST();
 		List<VDMMessage> messages = new Vector<VDMMessage>();
+		SpecCache cache = ast.getCache();
+
+		if (cache != null)
+		{
+			TCClassList cached = cache.loadClasses();
+
+			if (cached != null)
+			{
+				tcClassList = cached;
+				return cache.getTypeMessages();
+			}
+		}
 
 		try
    		{
@@ -81,6 +93,11 @@ public class TCPluginPP extends TCPlugin
 		messages.addAll(TypeChecker.getErrors());
 		messages.addAll(TypeChecker.getWarnings());
 
+		if (cache != null)
+		{
+			cache.typeChecked(tcClassList, messages);
+		}
+
 		return messages;
 	}
 	
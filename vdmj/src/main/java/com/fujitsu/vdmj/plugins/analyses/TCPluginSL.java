@@ -28,12 +28,15 @@ import java.util.Collection;
 import java.util.List;
 import java.util.Vector;
 
+import com.fujitsu.vdmj.ast.modules.ASTModule;
 import com.fujitsu.vdmj.ast.modules.ASTModuleList;
 import com.fujitsu.vdmj.mapper.ClassMapper;
 import com.fujitsu.vdmj.messages.InternalException;
 import com.fujitsu.vdmj.messages.VDMMessage;
 import com.fujitsu.vdmj.plugins.PluginRegistry;
 import com.fujitsu.vdmj.tc.TCNode;
+import com.fujitsu.vdmj.tc.lex.TCIdentifierToken;
+import com.fujitsu.vdmj.tc.modules.TCModule;
 import com.fujitsu.vdmj.tc.modules.TCModuleList;
 import com.fujitsu.vdmj.typechecker.ModuleTypeChecker;
 import com.fujitsu.vdmj.typechecker.TypeChecker;
@@ -59,15 +62,59 @@ public class TCPluginSL extends TCPlugin
 		ASTPlugin ast = PluginRegistry.getInstance().getPlugin("AST");
 		ASTModuleList parsedModules = ast.getAST();
 		List<VDMMessage> messages = new Vector<VDMMessage>();
+		SpecCache cache = ast.getCache();
+		TCModuleList checked = new TCModuleList();		// Loaded from the cache
+
+		if (cache != null)
+		{
+			checked = cache.loadModules(parsedModules);
+			messages.addAll(cache.getTypeMessages());
+
+			if (cache.isLoaded())
+			{
+				tcModuleList = checked;
+				return messages;
+			}
+		}
 
 		try
    		{
-			long before = System.currentTimeMillis();
-   			tcModuleList = ClassMapper.getInstance(TCNode.MAPPINGS).init().convert(parsedModules);
-   			Utils.mapperStats(before, TCNode.MAPPINGS);
-   			tcModuleList.combineDefaults();
-   			TypeChecker typeChecker = new ModuleTypeChecker(tcModuleList);
-   			typeChecker.typeCheck();
+			if (checked.isEmpty())
+			{
+				long before = System.currentTimeMillis();
+				tcModuleList = ClassMapper.getInstance(TCNode.MAPPINGS).init().convert(parsedModules);
+				Utils.mapperStats(before, TCNode.MAPPINGS);
+				tcModuleList.combineDefaults();
+				TypeChecker typeChecker = new ModuleTypeChecker(tcModuleList);
+				typeChecker.typeCheck();
+			}
+			else
+			{
+				ASTModuleList unchecked = new ASTModuleList();
+
+				for (ASTModule module: parsedModules)
+				{
+					if (checked.findModule(new TCIdentifierToken(module.name)) == null)
+					{
+						unchecked.add(module);
+					}
+				}
+
+				long before = System.currentTimeMillis();
+				TCModuleList tcUnchecked = ClassMapper.getInstance(TCNode.MAPPINGS).init().convert(unchecked);
+				Utils.mapperStats(before, TCNode.MAPPINGS);
+				TypeChecker typeChecker = new ModuleTypeChecker(tcUnchecked, checked);
+				typeChecker.typeCheck();
+
+				tcModuleList = new TCModuleList();		// In the original order
+
+				for (ASTModule module: parsedModules)
+				{
+					TCIdentifierToken name = new TCIdentifierToken(module.name);
+					TCModule m = checked.findModule(name);
+					tcModuleList.add(m != null ? m : tcUnchecked.findModule(name));
+				}
+			}
    		}
 		catch (InternalException e)
 		{
@@ -81,6 +128,11 @@ public class TCPluginSL extends TCPlugin
 		messages.addAll(TypeChecker.getErrors());
 		messages.addAll(TypeChecker.getWarnings());
 
+		if (cache != null)
+		{
+			cache.typeChecked(tcModuleList, messages);
+		}
+
 		return messages;
 	}
 	
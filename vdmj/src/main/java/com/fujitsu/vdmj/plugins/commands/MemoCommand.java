@@ -0,0 +1,76 @@
+/*******************************************************************************
+ *
+ *	Copyright (c) 2023 Nick Battle.
+ *
+ *	Author: Nick Battle
+ *
+ *	This file is part of VDMJ.
+ *
+ *	VDMJ is free software: you can redistribute it and/or modify
+ *	it under the terms of the GNU General Public License as published by
+ *	the Free Software Foundation, either version 3 of the License, or
+ *	(at your option) any later version.
+ *
+ *	VDMJ is distributed in the hope that it will be useful,
+ *	but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *	GNU General Public License for more details.
+ *
+ *	You should have received a copy of the GNU General Public License
+ *	along with VDMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *	SPDX-License-Identifier: GPL-3.0-or-later
+ *
+ ******************************************************************************/
+
+package com.fujitsu.vdmj.plugins.commands;
+
+import static com.fujitsu.vdmj.plugins.PluginConsole.println;
+
+import com.fujitsu.vdmj.config.Properties;
+import com.fujitsu.vdmj.plugins.AnalysisCommand;
+import com.fujitsu.vdmj.values.FunctionMemo;
+
+public class MemoCommand extends AnalysisCommand
+{
+	private final static String USAGE = "Usage: memo [clear]";
+
+	public MemoCommand(String line)
+	{
+		super(line);
+		
+		if (!argv[0].equals("memo"))
+		{
+			throw new IllegalArgumentException(USAGE);
+		}
+	}
+
+	@Override
+	public String run(String line)
+	{
+		if (argv.length == 2 && argv[1].equals("clear"))
+		{
+			FunctionMemo.clear();
+			return "Function memo cache cleared";
+		}
+		else if (argv.length != 1)
+		{
+			return USAGE;
+		}
+		
+		long hits = FunctionMemo.getHits();
+		long misses = FunctionMemo.getMisses();
+		long calls = hits + misses;
+		
+		println("Function memo cache " + (Properties.in_memo_functions ? "(all functions)" : "(@Memo functions)"));
+		println("Entries: " + FunctionMemo.getSize() + " of " + Properties.in_memo_size);
+		println("Hits: " + hits + ", misses: " + misses +
+			(calls == 0 ? "" : String.format(", hit rate %.1f%%", 100.0 * hits / calls)));
+		
+		return null;
+	}
+	
+	public static void help()
+	{
+		println("memo [clear] - show or clear the function memo cache counters");
+	}
+}
@@ -78,7 +78,7 @@ public class PrintCommand extends AnalysisCommand
    			println("= " + v);
 			println("Executed in " + (double)(after-before)/1000 + " secs. ");
 
-			if (RTLogger.getLogSize() > 0)
+			if (RTLogger.isOpen())
 			{
 				println("Dumped RT events");
 				RTLogger.dump(false);
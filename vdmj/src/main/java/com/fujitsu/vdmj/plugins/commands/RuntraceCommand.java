@@ -220,7 +220,7 @@ public class RuntraceCommand extends AnalysisCommand
 				}
 			}
 
-			if (RTLogger.getLogSize() > 0)
+			if (RTLogger.isOpen())
 			{
 				println("Dumped RT events");
 				RTLogger.dump(false);
@@ -51,6 +51,16 @@ import com.fujitsu.vdmj.typechecker.NameScope;
 
 /**
  * The root of the breakpoint class hierarchy.
+ *
+ * <p>
+ * The check method is called for every expression and statement evaluated. It
+ * reads the volatile interrupt flags without taking the class lock, which is
+ * safe because a volatile read always sees the latest write. A plain Breakpoint
+ * does not count its hits: only the Stoppoint and Tracepoint subclasses, which
+ * the debugger swaps in at a location, count the hits that their conditions and
+ * the debugger read. The location hit is only counted for coverage, and the
+ * reschedule for VDM++ and VDM-RT is part of the evaluation, since it advances
+ * time and shares the CPU between threads.
  */
 public class Breakpoint implements Serializable
 {
@@ -65,13 +75,15 @@ public class Breakpoint implements Serializable
 	/** The condition or trace expression, in raw form. */
 	public final String trace;
 
-	/** The number of times this breakpoint has been reached. */
+	/** The number of times a Stoppoint, Tracepoint or Catchpoint has been reached. */
 	public long hits = 0;
 	
 	/**
 	 * Set true by an external cancel or pause action. Note that this is
 	 * volatile, to enable the variable to be set by one thread and tested
-	 * by another (though the methods use synchronized too).
+	 * by another (though the methods use synchronized too). The check method
+	 * reads the field directly as a cheap guard, and only synchronizes when
+	 * an interrupt is pending.
 	 */
 	private static volatile int execInterrupt = 0;
 	public static final int NONE = 0;
@@ -179,11 +191,11 @@ public class Breakpoint implements Serializable
 		execInterrupt = level;
 	}
 	
-	public static synchronized int execInterruptLevel()	// Needs sync for Java 11
+	public static synchronized int execInterruptLevel()
 	{
 		return execInterrupt;
 	}
-	
+
 	public void setFunction()
 	{
 		bpType = FUNCTION;
@@ -202,13 +214,57 @@ public class Breakpoint implements Serializable
 	 * context equals the out context or neither the next or out context are
 	 * set, we enter the debugger.
 	 *
+	 * <p>
+	 * This is called for every expression and statement evaluated, so the common
+	 * case of no interrupt and no stepping avoids taking any lock, and does not
+	 * update the shared hit count.
+	 *
 	 * @param execl The execution location.
 	 * @param ctxt The execution context.
 	 */
 	public void check(LexLocation execl, Context ctxt)
 	{
 		location.hit();
-		hits++;
+		ThreadState state = ctxt.threadState;
+
+		if (execInterrupt != NONE || state.isTerminating())		// Volatile reads, no lock
+		{
+			handleInterrupt(ctxt);
+		}
+
+		if (Settings.dialect != Dialect.VDM_SL)
+		{
+			state.reschedule(ctxt, execl);
+		}
+
+		if (state.stepline != null)
+		{
+			checkStep(execl, ctxt, state);
+		}
+	}
+
+	/**
+	 * Check only for a pause or terminate interrupt. This is for code that does not
+	 * call check for every expression, like compiled function closures, so that it
+	 * can still be paused or cancelled.
+	 */
+	public void checkInterrupt(Context ctxt)
+	{
+		if (execInterrupt != NONE || ctxt.threadState.isTerminating())		// Volatile reads, no lock
+		{
+			handleInterrupt(ctxt);
+		}
+	}
+
+	/**
+	 * Handle a pause or terminate interrupt. This is the slow path of check.
+	 */
+	private void handleInterrupt(Context ctxt)
+	{
+		if (ctxt.threadState.isTerminating())
+		{
+			throw new ContextException(4175, "Execution cancelled", location, ctxt);
+		}
 
 		switch (execInterruptLevel())
 		{
@@ -231,31 +287,27 @@ public class Breakpoint implements Serializable
 				setExecInterrupt(Breakpoint.NONE);
 				throw new ContextException(4175, "Execution cancelled", location, ctxt);
 		}
-		
-		ThreadState state = ctxt.threadState;
-
-		if (Settings.dialect != Dialect.VDM_SL)
-		{
-			state.reschedule(ctxt, execl);
-		}
+	}
 
-		if (state.stepline != null)
+	/**
+	 * Handle "step", "next" and "out" stepping. This is the slow path of check.
+	 */
+	private void checkStep(LexLocation execl, Context ctxt, ThreadState state)
+	{
+		if (execl.startLine != state.stepline.startLine)	// NB just line, not pos
 		{
-			if (execl.startLine != state.stepline.startLine)	// NB just line, not pos
+			if ((state.nextctxt == null && state.outctxt == null) ||
+				(state.nextctxt != null && !isAboveNext(ctxt.getRoot())) ||
+				(state.outctxt != null && isOutOrBelow(ctxt)))
 			{
-				if ((state.nextctxt == null && state.outctxt == null) ||
-					(state.nextctxt != null && !isAboveNext(ctxt.getRoot())) ||
-					(state.outctxt != null && isOutOrBelow(ctxt)))
-				{
-        			try
-        			{
-        				enterDebugger(ctxt);
-        			}
-        			catch (DebuggerException e)
-        			{
-        				throw e;
-        			}
-				}
+    			try
+    			{
+    				enterDebugger(ctxt);
+    			}
+    			catch (DebuggerException e)
+    			{
+    				throw e;
+    			}
 			}
 		}
 	}
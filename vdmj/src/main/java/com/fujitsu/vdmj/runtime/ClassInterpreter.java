@@ -24,11 +24,7 @@
 
 package com.fujitsu.vdmj.runtime;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.util.List;
 import java.util.Set;
 import java.util.Vector;
@@ -76,10 +72,12 @@ import com.fujitsu.vdmj.typechecker.PublicClassEnvironment;
 import com.fujitsu.vdmj.util.Utils;
 import com.fujitsu.vdmj.values.BUSValue;
 import com.fujitsu.vdmj.values.CPUValue;
+import com.fujitsu.vdmj.values.FunctionMemo;
 import com.fujitsu.vdmj.values.NameValuePair;
 import com.fujitsu.vdmj.values.NameValuePairList;
 import com.fujitsu.vdmj.values.NameValuePairMap;
 import com.fujitsu.vdmj.values.ObjectValue;
+import com.fujitsu.vdmj.values.StateSnapshot;
 import com.fujitsu.vdmj.values.Value;
 
 /**
@@ -188,6 +186,7 @@ public class ClassInterpreter extends Interpreter
 		CPUValue.init(scheduler);
 		BUSValue.init();
 		ObjectValue.init();
+		FunctionMemo.reset();
 
 		logSwapIn();
 		initialContext = executableClasses.creatInitialContext();
@@ -215,6 +214,7 @@ public class ClassInterpreter extends Interpreter
 			CPUValue.init(scheduler);
 			BUSValue.init();
 			ObjectValue.init();
+			FunctionMemo.clear();
 			logSwapIn();
 			
 			if (savedInitialContext == null)
@@ -222,16 +222,11 @@ public class ClassInterpreter extends Interpreter
 				initialContext = executableClasses.creatInitialContext();
 				executableClasses.initialize((StateContext)initialContext);
 				
-				savedInitialContext = new ByteArrayOutputStream();
-				ObjectOutputStream oos = new ObjectOutputStream(savedInitialContext);
-				oos.writeObject(initialContext);
-				oos.close();
+				savedInitialContext = new StateSnapshot(initialContext);
 			}
 			else
 			{
-				ByteArrayInputStream is = new ByteArrayInputStream(savedInitialContext.toByteArray());
-				ObjectInputStream ois = new ObjectInputStream(is);
-				initialContext = (RootContext)ois.readObject();
+				savedInitialContext.restore();
 			}
 
 			executableClasses.systemInit(scheduler, initialContext);
@@ -458,30 +453,33 @@ public class ClassInterpreter extends Interpreter
 	{
 		// Show the "system constructor" thread creation
 
-		RTLogger.log(
-			"ThreadCreate -> id: " + Thread.currentThread().getId() +
-			" period: false " +
-			" objref: nil clnm: nil " +
-			" cpunm: 0");
-
-		RTLogger.log(
-			"ThreadSwapIn -> id: " + Thread.currentThread().getId() +
-			" objref: nil clnm: nil " +
-			" cpunm: 0" +
-			" overhead: 0");
+		RTLogger.log("ThreadCreate",
+			"id", Thread.currentThread().getId(),
+			"period", false,
+			"objref", null,
+			"clnm", null,
+			"cpunm", 0);
+
+		RTLogger.log("ThreadSwapIn",
+			"id", Thread.currentThread().getId(),
+			"objref", null,
+			"clnm", null,
+			"cpunm", 0,
+			"overhead", 0);
 	}
 
 	private void logSwapOut()
 	{
-		RTLogger.log(
-			"ThreadSwapOut -> id: " + Thread.currentThread().getId() +
-			" objref: nil clnm: nil " +
-			" cpunm: 0" +
-			" overhead: 0");
-
-		RTLogger.log(
-			"ThreadKill -> id: " + Thread.currentThread().getId() +
-			" cpunm: 0");
+		RTLogger.log("ThreadSwapOut",
+			"id", Thread.currentThread().getId(),
+			"objref", null,
+			"clnm", null,
+			"cpunm", 0,
+			"overhead", 0);
+
+		RTLogger.log("ThreadKill",
+			"id", Thread.currentThread().getId(),
+			"cpunm", 0);
 	}
 
 	@Override
@@ -25,9 +25,14 @@
 package com.fujitsu.vdmj.runtime;
 
 import java.io.File;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
 
 import com.fujitsu.vdmj.lex.LexLocation;
 import com.fujitsu.vdmj.messages.ConsoleWriter;
@@ -43,6 +48,12 @@ import com.fujitsu.vdmj.values.Value;
 
 /**
  * A class to hold runtime name/value context information.
+ *
+ * Evaluators that know the names they bind ahead of time, like let expressions,
+ * quantifiers, function calls and blocks, can give those names an array frame of
+ * slots (see withSlots), so that binding them does not allocate map entries. The
+ * Map methods give a combined view of the slots and the map, for the debugger and
+ * Context.lookup.
  */
 @SuppressWarnings("serial")
 public class Context extends HashMap<TCNameToken, Value>
@@ -65,6 +76,10 @@ public class Context extends HashMap<TCNameToken, Value>
 	
 	/** The name of a temporary RESULT symbol, when debugging */
 	private TCNameToken RESULT = null;
+
+	/** The names held in the array frame, if any, and their values or null */
+	private TCNameToken[] slotNames = null;
+	private Value[] slots = null;
 	
 	/**
 	 * Create a context at the given location.
@@ -85,6 +100,62 @@ public class Context extends HashMap<TCNameToken, Value>
 		}
 	}
 
+	/**
+	 * Hold the names given in an array frame of slots, rather than in the map. This
+	 * must be called before any names are added, and the array of names is shared by
+	 * every Context for the same evaluator. Names that are not in the array are held
+	 * in the map, as usual.
+	 *
+	 * @param names The names to hold in slots.
+	 * @return This Context.
+	 */
+	public Context withSlots(TCNameToken[] names)
+	{
+		if (names.length > 0)
+		{
+			slotNames = names;
+			slots = new Value[names.length];
+		}
+
+		return this;
+	}
+
+	private int slotOf(Object name)
+	{
+		for (int i = 0; i < slotNames.length; i++)
+		{
+			if (slotNames[i] == name || slotNames[i].equals(name))
+			{
+				return i;
+			}
+		}
+
+		return -1;
+	}
+
+	/**
+	 * A copy of the slots and the map, with the slots first.
+	 */
+	private Map<TCNameToken, Value> combined()
+	{
+		Map<TCNameToken, Value> all = new LinkedHashMap<TCNameToken, Value>();
+
+		for (int i = 0; i < slots.length; i++)
+		{
+			if (slots[i] != null)
+			{
+				all.put(slotNames[i], slots[i]);
+			}
+		}
+
+		for (Map.Entry<TCNameToken, Value> entry: super.entrySet())
+		{
+			all.put(entry.getKey(), entry.getValue());
+		}
+
+		return all;
+	}
+
 	/**
 	 * This method tries to create a meaningful Context for value exceptions when there
 	 * is no Context passed. It uses the Java native call stack to try to indicate the
@@ -186,16 +257,28 @@ public class Context extends HashMap<TCNameToken, Value>
 	 * superclass method, different names are considered different,
 	 * because the map is driven by the names' hashCodes. The equals
 	 * method of LexNameToken makes a TypeComparator check, which is
-	 * what we need. But we try a simple super.get() first.
+	 * what we need. But we try a simple super.get() first. Names without
+	 * a type qualifier can only equal names with the same hashCode, so
+	 * the super.get() is enough for those.
 	 */
 	@Override
 	public Value get(Object name)
 	{
+		if (slotNames != null)
+		{
+			int i = slotOf(name);
+
+			if (i >= 0 && slots[i] != null)
+			{
+				return slots[i];
+			}
+		}
+
 		Value rv = super.get(name);
 
-		if (rv == null)
+		if (rv == null && !super.isEmpty() && isQualified(name))
 		{
-    		for (TCNameToken var: keySet())
+    		for (TCNameToken var: super.keySet())
     		{
     			if (var.equals(name))
     			{
@@ -208,6 +291,147 @@ public class Context extends HashMap<TCNameToken, Value>
 		return rv;
 	}
 
+	private boolean isQualified(Object name)
+	{
+		return !(name instanceof TCNameToken) || ((TCNameToken)name).getTypeQualifier() != null;
+	}
+
+	/**
+	 * The remaining Map methods account for the slots, if there are any.
+	 */
+
+	@Override
+	public Value put(TCNameToken name, Value value)
+	{
+		if (slotNames != null)
+		{
+			int i = slotOf(name);
+
+			if (i >= 0)
+			{
+				Value old = slots[i];
+				slots[i] = value;
+				return old;
+			}
+		}
+
+		return super.put(name, value);
+	}
+
+	@Override
+	public void putAll(Map<? extends TCNameToken, ? extends Value> map)
+	{
+		if (slotNames == null)
+		{
+			super.putAll(map);
+		}
+		else
+		{
+			for (Map.Entry<? extends TCNameToken, ? extends Value> entry: map.entrySet())
+			{
+				put(entry.getKey(), entry.getValue());
+			}
+		}
+	}
+
+	@Override
+	public Value remove(Object name)
+	{
+		if (slotNames != null)
+		{
+			int i = slotOf(name);
+
+			if (i >= 0 && slots[i] != null)
+			{
+				Value old = slots[i];
+				slots[i] = null;
+				return old;
+			}
+		}
+
+		return super.remove(name);
+	}
+
+	@Override
+	public boolean containsKey(Object name)
+	{
+		if (slotNames != null)
+		{
+			int i = slotOf(name);
+
+			if (i >= 0 && slots[i] != null)
+			{
+				return true;
+			}
+		}
+
+		return super.containsKey(name);
+	}
+
+	@Override
+	public int size()
+	{
+		int count = super.size();
+
+		if (slotNames != null)
+		{
+			for (Value v: slots)
+			{
+				if (v != null) count++;
+			}
+		}
+
+		return count;
+	}
+
+	@Override
+	public boolean isEmpty()
+	{
+		return size() == 0;
+	}
+
+	@Override
+	public void clear()
+	{
+		if (slotNames != null)
+		{
+			slots = new Value[slotNames.length];
+		}
+
+		super.clear();
+	}
+
+	@Override
+	public Set<TCNameToken> keySet()
+	{
+		return slotNames == null ? super.keySet() : combined().keySet();
+	}
+
+	@Override
+	public Collection<Value> values()
+	{
+		return slotNames == null ? super.values() : combined().values();
+	}
+
+	@Override
+	public Set<Map.Entry<TCNameToken, Value>> entrySet()
+	{
+		return slotNames == null ? super.entrySet() : combined().entrySet();
+	}
+
+	@Override
+	public void forEach(BiConsumer<? super TCNameToken, ? super Value> action)
+	{
+		if (slotNames == null)
+		{
+			super.forEach(action);
+		}
+		else
+		{
+			combined().forEach(action);
+		}
+	}
+
 	/**
 	 * Get all visible names from this Context, with more visible
 	 * values overriding those below.
@@ -25,11 +25,12 @@
 package com.fujitsu.vdmj.runtime;
 
 import java.io.BufferedReader;
-import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -38,6 +39,7 @@ import java.util.Vector;
 import java.util.Map.Entry;
 
 import com.fujitsu.vdmj.Settings;
+import com.fujitsu.vdmj.config.Properties;
 import com.fujitsu.vdmj.in.definitions.INClassDefinition;
 import com.fujitsu.vdmj.in.definitions.INNamedTraceDefinition;
 import com.fujitsu.vdmj.in.expressions.INExpression;
@@ -67,10 +69,12 @@ import com.fujitsu.vdmj.traces.CallSequence;
 import com.fujitsu.vdmj.traces.TraceFilter;
 import com.fujitsu.vdmj.traces.TraceIterator;
 import com.fujitsu.vdmj.traces.TraceReductionType;
+import com.fujitsu.vdmj.traces.TraceWorker;
 import com.fujitsu.vdmj.traces.Verdict;
 import com.fujitsu.vdmj.typechecker.Environment;
 import com.fujitsu.vdmj.typechecker.NameScope;
 import com.fujitsu.vdmj.typechecker.TypeChecker;
+import com.fujitsu.vdmj.values.StateSnapshot;
 import com.fujitsu.vdmj.values.Value;
 
 /**
@@ -96,8 +100,8 @@ abstract public class Interpreter
 	/** A static instance pointer to the interpreter. */
 	protected static Interpreter instance = null;
 
-	/** The saved initial context for trace execution */
-	protected ByteArrayOutputStream savedInitialContext;
+	/** The saved initial state for trace execution */
+	protected StateSnapshot savedInitialContext;
 
 	/**
 	 * Create an Interpreter.
@@ -559,16 +563,11 @@ abstract public class Interpreter
 
 	abstract public Context getTraceContext(INClassDefinition classdef) throws ValueException;
 
-	public void runtrace(String name, int startTest, int endTest, boolean debug)
-		throws Exception
-	{
-		runtrace(name, startTest, endTest, debug, 1.0F, TraceReductionType.NONE, 1234);
-	}
-
-	public boolean runtrace(
-		String name, int startTest, int endTest, boolean debug,
-		float subset, TraceReductionType reductionType, long seed)
-		throws Exception
+	/**
+	 * Locate a trace definition from a name typed by the user, which may or may
+	 * not be qualified by a module or class name.
+	 */
+	private INNamedTraceDefinition lookupTraceDefinition(String name) throws Exception
 	{
 		// Trace names have / substituted for _ to make a valid name during the parse
 		name = name.replaceAll("/", "_");
@@ -604,6 +603,23 @@ abstract public class Interpreter
 		{
 			throw new Exception("Trace " + lexname + " not found");
 		}
+		
+		return tracedef;
+	}
+
+	public void runtrace(String name, int startTest, int endTest, boolean debug)
+		throws Exception
+	{
+		runtrace(name, startTest, endTest, debug, 1.0F, TraceReductionType.NONE, 1234);
+	}
+
+	public boolean runtrace(
+		String name, int startTest, int endTest, boolean debug,
+		float subset, TraceReductionType reductionType, long seed)
+		throws Exception
+	{
+		INNamedTraceDefinition tracedef = lookupTraceDefinition(name);
+		TCNameToken lexname = tracedef.name;
 
 		long before = System.currentTimeMillis();
 		TraceIterator tests = tracedef.getIterator(getTraceContext(tracedef.classDefinition));
@@ -657,44 +673,132 @@ abstract public class Interpreter
 		// Not needed with new traces?
 		// Environment environment = getTraceEnvironment(tracedef.classDefinition);
 
-		while (tests.hasMoreTests())
+		if (Properties.traces_workers > 1 && !debug)
 		{
-			CallSequence test = tests.getNextTest();
+			// Select the tests to run, as below, and farm them out to worker processes in
+			// batches, in test number order. The results of each batch are merged in order,
+			// updating the filter, so tests with a stem that is already known to fail are
+			// not dispatched, and the output is the same as for the sequential loop.
 			
-			if (testNumber < startTest || testNumber > endTest || filter.isRemoved(test, testNumber))
+			String tracename = lexname.getExplicit(true).toString();
+			int batchSize = Properties.traces_workers * Math.max(1, Properties.traces_worker_batch);
+			boolean ranged = false;
+
+			do
 			{
-				excluded++;
+				Map<Integer, CallSequence> batch = new LinkedHashMap<Integer, CallSequence>();
+
+				while (batch.size() < batchSize && !ranged && tests.hasMoreTests())
+				{
+					CallSequence test = tests.getNextTest();
+	
+					if (testNumber < startTest || testNumber > endTest || filter.isRemoved(test, testNumber))
+					{
+						excluded++;
+					}
+					else
+					{
+						batch.put(testNumber, test);
+					}
+	
+					if (testNumber >= endTest)
+					{
+						ranged = true;
+					}
+					else
+					{
+						testNumber++;
+					}
+				}
+
+				List<Integer> dispatch = new Vector<Integer>();
+
+				for (Entry<Integer, CallSequence> entry: batch.entrySet())
+				{
+					if (filter.getFilteredBy(entry.getValue()) == 0)
+					{
+						dispatch.add(entry.getKey());
+					}
+				}
+
+				Map<Integer, TraceWorker.Result> results = dispatch.isEmpty() ?
+					new HashMap<Integer, TraceWorker.Result>() :
+					TraceWorker.runTests(tracename, dispatch, getSourceFiles());
+				
+				for (Entry<Integer, CallSequence> entry: batch.entrySet())
+				{
+					int number = entry.getKey();
+					CallSequence test = entry.getValue();
+					
+					if (filter.getFilteredBy(test) > 0)
+					{
+						excluded++;
+		    			writer.println("Test " + number + " = " + test.getCallString(getTraceContext(tracedef.classDefinition)));
+						writer.println("Test " + number + " FILTERED by test " + filter.getFilteredBy(test));
+					}
+					else
+					{
+						TraceWorker.Result result = results.get(number);
+		    			filter.update(result.result, test, number);
+		
+		    			writer.println("Test " + number + " = " + result.callString);
+		    			writer.println("Result = " + result.result);
+		    			
+		    			if (result.result.lastIndexOf(Verdict.PASSED) == -1)
+		    			{
+		    				failed = true;	// Not passed => failed.
+		    			}
+					}
+				}
 			}
-			else if (filter.getFilteredBy(test) > 0)
+			while (!ranged && tests.hasMoreTests());
+
+			if (ranged)
 			{
-				excluded++;
-    			writer.println("Test " + testNumber + " = " + test.getCallString(getTraceContext(tracedef.classDefinition)));
-				writer.println("Test " + testNumber + " FILTERED by test " + filter.getFilteredBy(test));
+				excluded = count - (endTest - startTest + 1);
 			}
-			else
+		}
+		else
+		{
+			while (tests.hasMoreTests())
 			{
-				// test.typeCheck(this, environment);	// Not needed with new traces?
+				CallSequence test = tests.getNextTest();
+			
+				if (testNumber < startTest || testNumber > endTest || filter.isRemoved(test, testNumber))
+				{
+					excluded++;
+				}
+				else if (filter.getFilteredBy(test) > 0)
+				{
+					excluded++;
+	    			writer.println("Test " + testNumber + " = " + test.getCallString(getTraceContext(tracedef.classDefinition)));
+					writer.println("Test " + testNumber + " FILTERED by test " + filter.getFilteredBy(test));
+				}
+				else
+				{
+					// test.typeCheck(this, environment);	// Not needed with new traces?
 				
-    			traceInit();	// Initialize completely between every run...
-    			List<Object> result = runOneTrace(tracedef.classDefinition, test, debug);
-    			filter.update(result, test, testNumber);
+	    			traceInit();	// Initialize completely between every run...
+	    			List<Object> result = runOneTrace(tracedef.classDefinition, test, debug);
+	    			filter.update(result, test, testNumber);
 
-    			writer.println("Test " + testNumber + " = " + test.getCallString(getTraceContext(tracedef.classDefinition)));
-    			writer.println("Result = " + result);
+	    			writer.println("Test " + testNumber + " = " + test.getCallString(getTraceContext(tracedef.classDefinition)));
+	    			writer.println("Result = " + result);
     			
-    			if (result.lastIndexOf(Verdict.PASSED) == -1)
-    			{
-    				failed = true;	// Not passed => failed.
-    			}
-			}
+	    			if (result.lastIndexOf(Verdict.PASSED) == -1)
+	    			{
+	    				failed = true;	// Not passed => failed.
+	    			}
+				}
 
-			if (testNumber >= endTest)
-			{
-				excluded = count - (endTest - startTest + 1);
-				break;
-			}
+				if (testNumber >= endTest)
+				{
+					excluded = count - (endTest - startTest + 1);
+					break;
+				}
 
-			testNumber++;
+				testNumber++;
+			}
 		}
 
 		init();
@@ -711,6 +815,40 @@ abstract public class Interpreter
 		return !failed;
 	}
 
+	/**
+	 * Run the tests with the numbers given from a trace, writing a TraceWorker.Result
+	 * for each one to the stream passed. This is called by TraceWorker processes.
+	 */
+	public void runtraceWorker(String name, Set<Integer> numbers, ObjectOutputStream out)
+		throws Exception
+	{
+		INNamedTraceDefinition tracedef = lookupTraceDefinition(name);
+		TraceIterator tests = tracedef.getIterator(getTraceContext(tracedef.classDefinition));
+		int testNumber = 1;
+		int remaining = numbers.size();
+
+		while (tests.hasMoreTests() && remaining > 0)
+		{
+			CallSequence test = tests.getNextTest();
+
+			if (numbers.contains(testNumber))
+			{
+    			traceInit();	// Initialize completely between every run...
+    			List<Object> result = runOneTrace(tracedef.classDefinition, test, false);
+    			String callString = test.getCallString(getTraceContext(tracedef.classDefinition));
+
+    			out.writeObject(new TraceWorker.Result(testNumber, callString, result));
+    			out.reset();	// Don't retain references to written results
+    			remaining--;
+			}
+
+			testNumber++;
+		}
+
+		init();
+		savedInitialContext = null;
+	}
+
 	public abstract List<Object> runOneTrace(INClassDefinition classDefinition, CallSequence test, boolean debug);
 	
 	/** @deprecated in favour of TCPlugin.getTC() */
@@ -24,11 +24,7 @@
 
 package com.fujitsu.vdmj.runtime;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.util.List;
 import java.util.Set;
 import java.util.Vector;
@@ -70,6 +66,8 @@ import com.fujitsu.vdmj.typechecker.Environment;
 import com.fujitsu.vdmj.typechecker.ModuleEnvironment;
 import com.fujitsu.vdmj.util.Utils;
 import com.fujitsu.vdmj.values.CPUValue;
+import com.fujitsu.vdmj.values.FunctionMemo;
+import com.fujitsu.vdmj.values.StateSnapshot;
 import com.fujitsu.vdmj.values.Value;
 
 /**
@@ -211,6 +209,7 @@ public class ModuleInterpreter extends Interpreter
 	{
 		scheduler.init();
 		CPUValue.init(scheduler);
+		FunctionMemo.reset();
 		initialContext = executableModules.creatInitialContext();
 		executableModules.initialize(initialContext);
 		// INAnnotation.init(initialContext);	// Moved to InitThread
@@ -223,22 +222,18 @@ public class ModuleInterpreter extends Interpreter
 		{
 			scheduler.init();
 			CPUValue.init(scheduler);
+			FunctionMemo.clear();
 			
 			if (savedInitialContext == null)
 			{
 				initialContext = executableModules.creatInitialContext();
 				executableModules.initialize(initialContext);
 				
-				savedInitialContext = new ByteArrayOutputStream();
-				ObjectOutputStream oos = new ObjectOutputStream(savedInitialContext);
-				oos.writeObject(initialContext);
-				oos.close();
+				savedInitialContext = new StateSnapshot(initialContext);
 			}
 			else
 			{
-				ByteArrayInputStream is = new ByteArrayInputStream(savedInitialContext.toByteArray());
-				ObjectInputStream ois = new ObjectInputStream(is);
-				initialContext = (RootContext)ois.readObject();
+				savedInitialContext.restore();
 			}
 			
 			INAnnotation.init(initialContext);
@@ -531,15 +531,15 @@ public class SourceFile
 	{
         for (LexLocation l: LexLocation.getSourceLocations(filename))
         {
-        	if (l.hits > 0)
+        	if (l.getHits() > 0)
         	{
         		out.println("+" + l.startLine +
-        			" " + l.startPos + "-" + l.endPos + "=" + l.hits);
+        			" " + l.startPos + "-" + l.endPos + "=" + l.getHits());
         	}
         	else if (all)
         	{
         		out.println("-" + l.startLine +
-            			" " + l.startPos + "-" + l.endPos + "=" + l.hits);
+            			" " + l.startPos + "-" + l.endPos + "=" + l.getHits());
         	}
         }
 	}
@@ -42,6 +42,7 @@ public class ThreadState implements Serializable
 
 	private int atomic = 0;			// Don't reschedule if >0
 	private int pure = 0;			// In a pure operation if >0
+	private volatile boolean terminating = false;	// Read by every breakpoint check
 
 	public LexLocation stepline;	// Breakpoint stepping values
 	public RootContext nextctxt;
@@ -122,4 +123,19 @@ public class ThreadState implements Serializable
 	{
 		return pure > 0;
 	}
+
+	/**
+	 * Terminate the evaluation using this state at its next breakpoint check, and
+	 * at every check after that. This affects one thread only, unlike the Breakpoint
+	 * execInterrupt, which applies to all threads.
+	 */
+	public void terminate()
+	{
+		terminating = true;
+	}
+
+	public boolean isTerminating()
+	{
+		return terminating;
+	}
 }
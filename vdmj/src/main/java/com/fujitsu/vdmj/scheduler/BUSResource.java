@@ -85,10 +85,10 @@ public class BUSResource extends Resource
 
 		if (busNumber != 0)
 		{
-    		RTLogger.log(
-    			"BUSdecl -> id: " + busNumber +
-    			" topo: " + cpusToSet() +
-    			" name: \"" + name + "\"");
+    		RTLogger.log("BUSdecl",
+    			"id", busNumber,
+    			"topo", cpusToSet(),
+    			"name", name);
 		}
 	}
 
@@ -148,15 +148,15 @@ public class BUSResource extends Resource
 
 	public void transmit(MessageRequest request)
 	{
-		RTLogger.log(
-			"MessageRequest -> busid: " + request.bus.getNumber() +
-			" fromcpu: " + request.from.getNumber() +
-			" tocpu: " + request.to.getNumber() +
-			" msgid: " + request.msgId +
-			" callthr: " + request.thread.getId() +
-			" opname: " + "\"" + request.operation.name + "\"" +
-			" objref: " + request.target.objectReference +
-			" size: " + request.getSize());
+		RTLogger.log("MessageRequest",
+			"busid", request.bus.getNumber(),
+			"fromcpu", request.from.getNumber(),
+			"tocpu", request.to.getNumber(),
+			"msgid", request.msgId,
+			"callthr", request.thread.getId(),
+			"opname", request.operation.name.toString(),
+			"objref", request.target.objectReference,
+			"size", request.getSize());
 
 		messages.add(request);
 		cq.stim();
@@ -164,15 +164,15 @@ public class BUSResource extends Resource
 
 	public void reply(MessageResponse response)
 	{
-		RTLogger.log(
-			"ReplyRequest -> busid: " + response.bus.getNumber() +
-			" fromcpu: " + response.from.getNumber() +
-			" tocpu: " + response.to.getNumber() +
-			" msgid: " + response.msgId +
-			" origmsgid: " + response.originalId +
-			" callthr: " + response.caller.getId() +
-			" calleethr: " + response.thread.getId() +
-			" size: " + response.getSize());
+		RTLogger.log("ReplyRequest",
+			"busid", response.bus.getNumber(),
+			"fromcpu", response.from.getNumber(),
+			"tocpu", response.to.getNumber(),
+			"msgid", response.msgId,
+			"origmsgid", response.originalId,
+			"callthr", response.caller.getId(),
+			"calleethr", response.thread.getId(),
+			"size", response.getSize());
 
 		messages.add(response);
 		cq.stim();
@@ -191,8 +191,8 @@ public class BUSResource extends Resource
 
     		MessagePacket m = messages.remove(0);
 
-    		RTLogger.log(
-				"MessageActivate -> msgid: " + m.msgId);
+    		RTLogger.log("MessageActivate",
+				"msgid", m.msgId);
 
     		if (m instanceof MessageRequest)
     		{
@@ -220,8 +220,8 @@ public class BUSResource extends Resource
     			mr.replyTo.set(mr);
     		}
 
-    		RTLogger.log(
-				"MessageCompleted -> msgid: " + m.msgId);
+    		RTLogger.log("MessageCompleted",
+				"msgid", m.msgId);
 		}
 	}
 
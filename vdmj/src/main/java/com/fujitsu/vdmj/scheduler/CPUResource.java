@@ -88,31 +88,34 @@ public class CPUResource extends Resource
 			{
 				if (swappedIn != null)
 				{
-	    			RTLogger.log(
-	    				"ThreadSwapOut -> id: " + swappedIn.getId() +
-	    				objRefString(swappedIn.getObject()) +
-	    				" cpunm: " + cpuNumber +
-	    				" overhead: " + 0);
+	    			RTLogger.log("ThreadSwapOut",
+	    				"id", swappedIn.getId(),
+	    				"objref", objRef(swappedIn.getObject()),
+	    				"clnm", className(swappedIn.getObject()),
+	    				"cpunm", cpuNumber,
+	    				"overhead", 0);
 				}
 
 				long delay = SystemClock.getWallTime() - best.getSwapInBy();
 
 				if (best.getSwapInBy() > 0 && delay > 0)
 				{
-		        	RTLogger.log(
-		        		"DelayedThreadSwapIn -> id: " + best.getId() +
-		        		objRefString(best.getObject()) +
-		        		" delay: " + delay +
-		        		" cpunm: " + cpuNumber +
-		        		" overhead: " + 0);
+		        	RTLogger.log("DelayedThreadSwapIn",
+		        		"id", best.getId(),
+		        		"objref", objRef(best.getObject()),
+		        		"clnm", className(best.getObject()),
+		        		"delay", delay,
+		        		"cpunm", cpuNumber,
+		        		"overhead", 0);
 				}
 				else
 				{
-    				RTLogger.log(
-    					"ThreadSwapIn -> id: " + best.getId() +
-    					objRefString(best.getObject()) +
-    					" cpunm: " + cpuNumber +
-    					" overhead: " + 0);
+    				RTLogger.log("ThreadSwapIn",
+    					"id", best.getId(),
+    					"objref", objRef(best.getObject()),
+    					"clnm", className(best.getObject()),
+    					"cpunm", cpuNumber,
+    					"overhead", 0);
 				}
 			}
 
@@ -122,15 +125,16 @@ public class CPUResource extends Resource
 			switch (swappedIn.getRunState())
 			{
 				case COMPLETE:
-        			RTLogger.log(
-        				"ThreadSwapOut -> id: " + swappedIn.getId() +
-        				objRefString(swappedIn.getObject()) +
-        				" cpunm: " + cpuNumber +
-        				" overhead: " + 0);
+        			RTLogger.log("ThreadSwapOut",
+        				"id", swappedIn.getId(),
+        				"objref", objRef(swappedIn.getObject()),
+        				"clnm", className(swappedIn.getObject()),
+        				"cpunm", cpuNumber,
+        				"overhead", 0);
 
-        			RTLogger.log(
-    					"ThreadKill -> id: " + swappedIn.getId() +
-    					" cpunm: " + cpuNumber);
+        			RTLogger.log("ThreadKill",
+    					"id", swappedIn.getId(),
+    					"cpunm", cpuNumber);
 
         			swappedIn = null;
         			return true;	// We may be able to run other threads
@@ -179,26 +183,30 @@ public class CPUResource extends Resource
 
 	public void createThread(SchedulableThread th)
 	{
-		RTLogger.log(
-			"ThreadCreate -> id: " + th.getId() +
-			" period: " + th.isPeriodic() +
-			objRefString(th.getObject()) +
-			" cpunm: " + cpuNumber);
+		RTLogger.log("ThreadCreate",
+			"id", th.getId(),
+			"period", th.isPeriodic(),
+			"objref", objRef(th.getObject()),
+			"clnm", className(th.getObject()),
+			"cpunm", cpuNumber);
 	}
 
 	public void deploy(ObjectValue object)
 	{
-		RTLogger.log(
-			"DeployObj -> objref: " + object.objectReference +
-			" clnm: \"" + object.type + "\"" +
-			" cpunm: " + cpuNumber);
+		RTLogger.log("DeployObj",
+			"objref", object.objectReference,
+			"clnm", object.type.toString(),
+			"cpunm", cpuNumber);
 	}
 
-	private String objRefString(ObjectValue obj)
+	private Integer objRef(ObjectValue obj)
 	{
-		return
-			" objref: " + (obj == null ? "nil" : obj.objectReference) +
-			" clnm: " + (obj == null ? "nil" : ("\"" + obj.type + "\""));
+		return obj == null ? null : obj.objectReference;
+	}
+
+	private String className(ObjectValue obj)
+	{
+		return obj == null ? null : obj.type.toString();
 	}
 
 	public long getCyclesDuration(long cycles)
@@ -360,21 +360,30 @@ public abstract class SyntaxReader
 	
 	/**
 	 * Read any annotations from the collected comments, and clear them. Note that we
-	 * don't parse annotations while inside the annotation parser.
+	 * don't parse annotations while inside the annotation parser. The depth is
+	 * per-thread, because files may be parsed concurrently.
 	 */
-	private static int readingAnnotations = 0;
+	private static final ThreadLocal<int[]> readingAnnotations = new ThreadLocal<int[]>()
+	{
+		@Override
+		protected int[] initialValue()
+		{
+			return new int[1];
+		}
+	};
 
 	protected ASTAnnotationList readAnnotations(LexCommentList comments) throws LexException, ParserException
 	{
 		ASTAnnotationList annotations = new ASTAnnotationList();
+		int[] depth = readingAnnotations.get();
 
-		if (!Settings.annotations || readingAnnotations > 0)
+		if (!Settings.annotations || depth[0] > 0)
 		{
 			return annotations;		// ignore nested annotations
 		}
 		else
 		{
-			readingAnnotations++;
+			depth[0]++;
 		}
 		
 		for (int i=0; i<comments.size(); i++)
@@ -396,7 +405,7 @@ public abstract class SyntaxReader
 			}
 		}
 		
-		readingAnnotations--;
+		depth[0]--;
 		return annotations;
 	}
 	
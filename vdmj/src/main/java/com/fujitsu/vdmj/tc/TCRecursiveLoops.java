@@ -42,6 +42,7 @@ import com.fujitsu.vdmj.tc.definitions.TCImplicitFunctionDefinition;
 import com.fujitsu.vdmj.tc.expressions.TCApplyExpression;
 import com.fujitsu.vdmj.tc.lex.TCNameSet;
 import com.fujitsu.vdmj.tc.lex.TCNameToken;
+import com.fujitsu.vdmj.tc.modules.TCModule;
 import com.fujitsu.vdmj.tc.modules.TCModuleList;
 
 /**
@@ -85,7 +86,7 @@ public class TCRecursiveLoops extends TCNode
 		applymap = new HashMap<TCDefinition, List<Apply>>();
 	}
 	
-	public void addApplyExp(TCDefinition parent, TCApplyExpression apply, TCDefinition calling)
+	public synchronized void addApplyExp(TCDefinition parent, TCApplyExpression apply, TCDefinition calling)
 	{
 		if (calling instanceof TCExplicitFunctionDefinition ||
 			calling instanceof TCImplicitFunctionDefinition)
@@ -111,6 +112,29 @@ public class TCRecursiveLoops extends TCNode
 		return callmap;
 	}
 	
+	/**
+	 * Add the call map of every function in a list of modules that have already been
+	 * checked, and so which have not added their applies in this pass. This allows cycles
+	 * that pass through those modules to be found when only a subset is re-checked.
+	 */
+	private void addCallMaps(Map<TCNameToken, TCNameSet> callmap, TCModuleList checked)
+	{
+		for (TCModule module: checked)
+		{
+			for (TCDefinition def: module.defs)
+			{
+				if (def instanceof TCExplicitFunctionDefinition ||
+					def instanceof TCImplicitFunctionDefinition)
+				{
+					if (!callmap.containsKey(def.name))
+					{
+						callmap.put(def.name, def.getCallMap());
+					}
+				}
+			}
+		}
+	}
+	
 	public void typeCheck(TCClassList classes)
 	{
 		Map<TCNameToken, TCNameSet> callmap = getCallMap();
@@ -136,11 +160,23 @@ public class TCRecursiveLoops extends TCNode
 	}
 	
 	public void typeCheck(TCModuleList modules)
+	{
+		typeCheck(modules, new TCModuleList());
+	}
+	
+	/**
+	 * Check the applies added for a list of modules, some of which may have been checked
+	 * previously (and so have not added their applies). Cycles are only reported against
+	 * the applies added, but they may pass through the functions of the checked modules.
+	 */
+	public void typeCheck(TCModuleList modules, TCModuleList checked)
 	{
 		Map<TCNameToken, TCNameSet> callmap = getCallMap();
+		Set<TCNameToken> applied = new HashSet<TCNameToken>(callmap.keySet());
+		addCallMaps(callmap, checked);
 		recursiveLoops.clear();
 		
-		for (TCNameToken name: callmap.keySet())
+		for (TCNameToken name: applied)
 		{
 			for (Stack<TCNameToken> cycle: reachable(name, callmap))
 			{
@@ -37,6 +37,7 @@ public abstract class TCInvariantType extends TCType
 	public TCExplicitFunctionDefinition invdef = null;
 	public TCExplicitFunctionDefinition eqdef = null;
 	public TCExplicitFunctionDefinition orddef = null;
+	public TCExplicitFunctionDefinition hashdef = null;
 
 	public boolean opaque = false;
 	protected boolean inNarrower = false;
@@ -69,6 +70,15 @@ public abstract class TCInvariantType extends TCType
 		this.orddef = orddef;
 	}
 
+	/**
+	 * Set a hash function for a type that defines "eq", so that its values can be
+	 * held in hashed maps and sets. This is set by the @Hash annotation.
+	 */
+	public void setHash(TCExplicitFunctionDefinition hashdef)
+	{
+		this.hashdef = hashdef;
+	}
+
 	public FunctionValue getInvariant(Context ctxt)
 	{
 		return findFunction(invdef, ctxt);
@@ -84,6 +94,11 @@ public abstract class TCInvariantType extends TCType
 		return findFunction(orddef, ctxt);
 	}
 
+	public FunctionValue getHash(Context ctxt)
+	{
+		return findFunction(hashdef, ctxt);
+	}
+
 	protected FunctionValue findFunction(TCExplicitFunctionDefinition def, Context ctxt)
 	{
 		if (def != null)
@@ -268,6 +268,22 @@ public class TCNamedType extends TCInvariantType
 		return null;
 	}
 
+	@Override
+	public FunctionValue getHash(Context ctxt)
+	{
+		if (eqdef != null)
+		{
+			return findFunction(hashdef, ctxt);		// Must go with this eqdef
+		}
+		else if (type instanceof TCInvariantType)
+		{
+			TCInvariantType it = (TCInvariantType)type;
+			return it.getHash(ctxt);
+		}
+		
+		return null;
+	}
+
 	@Override
 	public FunctionValue getOrder(Context ctxt)
 	{
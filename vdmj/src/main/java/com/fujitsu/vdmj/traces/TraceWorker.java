@@ -0,0 +1,393 @@
+/*******************************************************************************
+ *
+ *	Copyright (c) 2023 Nick Battle.
+ *
+ *	Author: Nick Battle
+ *
+ *	This file is part of VDMJ.
+ *
+ *	VDMJ is free software: you can redistribute it and/or modify
+ *	it under the terms of the GNU General Public License as published by
+ *	the Free Software Foundation, either version 3 of the License, or
+ *	(at your option) any later version.
+ *
+ *	VDMJ is distributed in the hope that it will be useful,
+ *	but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *	GNU General Public License for more details.
+ *
+ *	You should have received a copy of the GNU General Public License
+ *	along with VDMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *	SPDX-License-Identifier: GPL-3.0-or-later
+ *
+ ******************************************************************************/
+
+package com.fujitsu.vdmj.traces;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.PrintWriter;
+import java.io.Serializable;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Vector;
+
+import com.fujitsu.vdmj.Settings;
+import com.fujitsu.vdmj.config.Properties;
+import com.fujitsu.vdmj.lex.Dialect;
+import com.fujitsu.vdmj.messages.VDMError;
+import com.fujitsu.vdmj.messages.VDMMessage;
+import com.fujitsu.vdmj.plugins.EventHub;
+import com.fujitsu.vdmj.plugins.PluginRegistry;
+import com.fujitsu.vdmj.plugins.VDMJ;
+import com.fujitsu.vdmj.plugins.events.CheckCompleteEvent;
+import com.fujitsu.vdmj.plugins.events.CheckPrepareEvent;
+import com.fujitsu.vdmj.plugins.events.CheckSyntaxEvent;
+import com.fujitsu.vdmj.plugins.events.CheckTypeEvent;
+import com.fujitsu.vdmj.runtime.Interpreter;
+
+/**
+ * A separate VDMJ process that runs a subset of the tests from a trace. Every
+ * worker has its own JVM, and therefore completely isolated interpreter state,
+ * so that tests can be executed in parallel when vdmj.traces.workers is set.
+ * The parent sends test numbers via a file, and the worker returns a serialized
+ * Result for each test via another file.
+ */
+public class TraceWorker
+{
+	/**
+	 * The result of one test, returned from the worker. Values in the result list
+	 * are converted to Strings, but Verdicts are preserved for TraceFilter.
+	 */
+	public static class Result implements Serializable
+	{
+		private static final long serialVersionUID = 1L;
+
+		public final int number;
+		public final String callString;
+		public final List<Object> result;
+
+		public Result(int number, String callString, List<Object> result)
+		{
+			this.number = number;
+			this.callString = callString;
+			this.result = new Vector<Object>(result.size());
+
+			for (Object item: result)
+			{
+				if (item instanceof Verdict)
+				{
+					this.result.add(item);
+				}
+				else
+				{
+					this.result.add(String.valueOf(item));
+				}
+			}
+		}
+	}
+
+	private final int id;
+	private final File testsFile;
+	private final File resultsFile;
+	private final File logFile;
+	private Process process = null;
+
+	private TraceWorker(int id) throws IOException
+	{
+		this.id = id;
+		this.testsFile = File.createTempFile("vdmj-tests-", ".txt");
+		this.resultsFile = File.createTempFile("vdmj-results-", ".ser");
+		this.logFile = File.createTempFile("vdmj-worker-", ".log");
+	}
+
+	/**
+	 * Run the numbered tests of a trace on Properties.traces_workers processes, and
+	 * return a map of the results for each test number.
+	 */
+	public static Map<Integer, Result> runTests(String tracename, Collection<Integer> numbers,
+		Set<File> files) throws Exception
+	{
+		int count = Math.max(1, Math.min(Properties.traces_workers, numbers.size()));
+		List<TraceWorker> workers = new Vector<TraceWorker>(count);
+		List<List<Integer>> parts = new Vector<List<Integer>>(count);
+
+		for (int i=0; i<count; i++)
+		{
+			workers.add(new TraceWorker(i + 1));
+			parts.add(new Vector<Integer>());
+		}
+
+		int next = 0;
+
+		for (Integer number: numbers)	// Round robin, to balance long and short tests
+		{
+			parts.get(next).add(number);
+			next = (next + 1) % count;
+		}
+
+		Map<Integer, Result> results = new HashMap<Integer, Result>();
+
+		try
+		{
+			for (int i=0; i<count; i++)
+			{
+				workers.get(i).start(tracename, parts.get(i), files);
+			}
+
+			for (TraceWorker worker: workers)
+			{
+				results.putAll(worker.waitFor());
+			}
+		}
+		finally
+		{
+			for (TraceWorker worker: workers)
+			{
+				worker.cleanup();
+			}
+		}
+
+		if (!results.keySet().containsAll(numbers))
+		{
+			throw new Exception("Trace workers did not return all test results");
+		}
+
+		return results;
+	}
+
+	private void start(String tracename, List<Integer> numbers, Set<File> files) throws IOException
+	{
+		try (PrintWriter pw = new PrintWriter(testsFile))
+		{
+			for (Integer number: numbers)
+			{
+				pw.println(number);
+			}
+		}
+
+		List<String> pargs = new Vector<String>();
+		pargs.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+		pargs.add("-cp");
+		pargs.add(System.getProperty("java.class.path"));
+
+		for (String arg: ManagementFactory.getRuntimeMXBean().getInputArguments())
+		{
+			// Pass on system properties and memory settings, but not agents etc.
+			if (arg.startsWith("-D") || arg.startsWith("-Xmx") || arg.startsWith("-Xss"))
+			{
+				pargs.add(arg);
+			}
+		}
+
+		pargs.add(TraceWorker.class.getName());
+		pargs.add(Settings.dialect.getArgstring());
+		pargs.add("-trace");
+		pargs.add(tracename);
+		pargs.add("-tests");
+		pargs.add(testsFile.getAbsolutePath());
+		pargs.add("-results");
+		pargs.add(resultsFile.getAbsolutePath());
+
+		pargs.add("-r");
+		pargs.add(Settings.release.toString());
+		pargs.add("-c");
+		pargs.add(Settings.filecharset.name());
+
+		if (Settings.strict)			pargs.add("-strict");
+		if (Settings.annotations)		pargs.add("-annotations");
+		if (!Settings.prechecks)		pargs.add("-pre");
+		if (!Settings.postchecks)		pargs.add("-post");
+		if (!Settings.invchecks)		pargs.add("-inv");
+		if (!Settings.dynamictypechecks)	pargs.add("-dtc");
+		if (!Settings.measureChecks)	pargs.add("-measures");
+		if (Settings.exceptions)		pargs.add("-exceptions");
+
+		pargs.add("--");
+
+		for (File file: files)
+		{
+			pargs.add(file.getAbsolutePath());
+		}
+
+		ProcessBuilder pb = new ProcessBuilder(pargs);
+		pb.redirectErrorStream(true);
+		pb.redirectOutput(logFile);
+		process = pb.start();
+	}
+
+	private Map<Integer, Result> waitFor() throws Exception
+	{
+		int exit = process.waitFor();
+
+		if (exit != 0)
+		{
+			String log = new String(Files.readAllBytes(logFile.toPath()));
+			throw new Exception("Trace worker " + id + " failed (" + exit + "): " + log.trim());
+		}
+
+		Map<Integer, Result> results = new HashMap<Integer, Result>();
+
+		try (ObjectInputStream ois = new ObjectInputStream(
+				new BufferedInputStream(new FileInputStream(resultsFile))))
+		{
+			while (true)
+			{
+				Result result = (Result)ois.readObject();
+				results.put(result.number, result);
+			}
+		}
+		catch (EOFException e)
+		{
+			// End of results
+		}
+
+		return results;
+	}
+
+	private void cleanup()
+	{
+		if (process != null && process.isAlive())
+		{
+			process.destroy();
+		}
+
+		testsFile.delete();
+		resultsFile.delete();
+		logFile.delete();
+	}
+
+	/**
+	 * The worker process main entry point. The arguments are the dialect, the
+	 * trace/tests/results options, any VDMJ options, then "--" and the files.
+	 */
+	public static void main(String[] args)
+	{
+		String tracename = null;
+		File tests = null;
+		File results = null;
+		List<String> options = new Vector<String>();
+		List<File> files = new Vector<File>();
+		Iterator<String> iter = new Vector<String>(Arrays.asList(args)).iterator();
+
+		Settings.dialect = Dialect.VDM_SL;
+		options.add("-i");
+		options.add("-q");
+		options.add("-w");
+
+		while (iter.hasNext())
+		{
+			String arg = iter.next();
+
+			switch (arg)
+			{
+				case "-vdmsl":		Settings.dialect = Dialect.VDM_SL; break;
+				case "-vdmpp":		Settings.dialect = Dialect.VDM_PP; break;
+				case "-vdmrt":		Settings.dialect = Dialect.VDM_RT; break;
+				case "-trace":		tracename = iter.next(); break;
+				case "-tests":		tests = new File(iter.next()); break;
+				case "-results":	results = new File(iter.next()); break;
+
+				case "--":
+					while (iter.hasNext())
+					{
+						files.add(new File(iter.next()));
+					}
+					break;
+
+				default:
+					options.add(arg);
+					break;
+			}
+		}
+
+		if (tracename == null || tests == null || results == null)
+		{
+			System.err.println("Usage: TraceWorker <dialect> -trace <name> -tests <file> -results <file> [options] -- <files>");
+			System.exit(1);
+		}
+
+		try
+		{
+			Properties.init();
+			PluginRegistry.reset();
+			EventHub.reset();
+			VDMJ.loadPlugins();
+			VDMJ.setArgs(options.toArray(new String[0]));
+
+			if (!checkFiles(files))
+			{
+				System.exit(1);
+			}
+
+			Set<Integer> numbers = new HashSet<Integer>();
+
+			for (String line: Files.readAllLines(tests.toPath()))
+			{
+				if (!line.trim().isEmpty())
+				{
+					numbers.add(Integer.parseInt(line.trim()));
+				}
+			}
+
+			try (ObjectOutputStream out = new ObjectOutputStream(
+					new BufferedOutputStream(new FileOutputStream(results))))
+			{
+				Interpreter.getInstance().runtraceWorker(tracename, numbers, out);
+			}
+
+			System.exit(0);
+		}
+		catch (Throwable e)
+		{
+			System.err.println("Trace worker: " + e);
+			System.exit(1);
+		}
+	}
+
+	private static boolean checkFiles(List<File> files) throws Exception
+	{
+		EventHub eventhub = EventHub.getInstance();
+
+		if (report(eventhub.publish(new CheckPrepareEvent(files))) &&
+			report(eventhub.publish(new CheckSyntaxEvent())) &&
+			report(eventhub.publish(new CheckTypeEvent())) &&
+			report(eventhub.publish(new CheckCompleteEvent())))
+		{
+			return true;
+		}
+
+		return false;
+	}
+
+	private static boolean report(List<VDMMessage> messages)
+	{
+		boolean ok = true;
+
+		for (VDMMessage message: messages)
+		{
+			if (message instanceof VDMError)
+			{
+				System.err.println(message);
+				ok = false;
+			}
+		}
+
+		return ok;
+	}
+}
@@ -125,28 +125,37 @@ public class ClassTypeChecker extends TypeChecker
 		// Prepare to look for recursive loops
 		TCRecursiveLoops.getInstance().reset();
 
-		for (Pass pass: Pass.values())
+		TypeComparator.startCheck();
+
+		try
 		{
-        	for (TCClassDefinition c: classes)
-    		{
-				try
-				{
-					Environment self = new PrivateClassEnvironment(c, allClasses);
-	         		c.typeCheckPass(pass, self);
-				}
-				catch (TypeCheckException te)
-				{
-					report(3427, te.getMessage(), te.location);
-
-    				if (te.extras != null)
-    				{
-    					for (TypeCheckException e: te.extras)
-    					{
-    						report(3427, e.getMessage(), e.location);
-    					}
-    				}
-				}
-    		}
+			for (Pass pass: Pass.values())
+			{
+	        	for (TCClassDefinition c: classes)
+	    		{
+					try
+					{
+						Environment self = new PrivateClassEnvironment(c, allClasses);
+		         		c.typeCheckPass(pass, self);
+					}
+					catch (TypeCheckException te)
+					{
+						report(3427, te.getMessage(), te.location);
+	
+	    				if (te.extras != null)
+	    				{
+	    					for (TypeCheckException e: te.extras)
+	    					{
+	    						report(3427, e.getMessage(), e.location);
+	    					}
+	    				}
+					}
+	    		}
+			}
+		}
+		finally
+		{
+			TypeComparator.endCheck();
 		}
 		
 		// Look for recursive loops
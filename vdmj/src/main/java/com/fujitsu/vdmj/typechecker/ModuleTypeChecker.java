@@ -24,12 +24,23 @@
 
 package com.fujitsu.vdmj.typechecker;
 
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Stack;
+import java.util.Vector;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
 import com.fujitsu.vdmj.Release;
 import com.fujitsu.vdmj.Settings;
+import com.fujitsu.vdmj.config.Properties;
 import com.fujitsu.vdmj.tc.TCRecursiveLoops;
 import com.fujitsu.vdmj.tc.annotations.TCAnnotation;
 import com.fujitsu.vdmj.tc.definitions.TCDefinition;
 import com.fujitsu.vdmj.tc.definitions.TCDefinitionList;
+import com.fujitsu.vdmj.tc.modules.TCImportFromModule;
 import com.fujitsu.vdmj.tc.modules.TCModule;
 import com.fujitsu.vdmj.tc.modules.TCModuleList;
 
@@ -42,6 +53,12 @@ public class ModuleTypeChecker extends TypeChecker
 	/** The list of executableModules to check. */
 	private final TCModuleList modules;
 
+	/** The modules that have already been checked, if any. */
+	private final TCModuleList checked;
+
+	/** All modules, both to be checked and previously checked. */
+	private final TCModuleList allModules;
+
 	/**
 	 * Create a type checker with the list of executableModules passed. The warnings
 	 * flag indicates whether warnings should be printed or just counted.
@@ -50,9 +67,25 @@ public class ModuleTypeChecker extends TypeChecker
 	 */
 
 	public ModuleTypeChecker(TCModuleList modules)
+	{
+		this(modules, new TCModuleList());
+	}
+
+	/**
+	 * Create a type checker for a list of modules, in the context of a list of other
+	 * modules that have already been type checked successfully. This is used to
+	 * re-check a subset of a specification, like the modules affected by an edit.
+	 * The caller must ensure that no checked module imports from the modules being
+	 * checked, since the checked modules are not processed again.
+	 */
+	public ModuleTypeChecker(TCModuleList modules, TCModuleList checked)
 	{
 		super();
 		this.modules = modules;
+		this.checked = checked;
+		this.allModules = new TCModuleList();
+		this.allModules.addAll(checked);
+		this.allModules.addAll(modules);
 	}
 
 	/**
@@ -81,7 +114,7 @@ public class ModuleTypeChecker extends TypeChecker
 
 		for (TCModule m1: modules)
 		{
-			for (TCModule m2: modules)
+			for (TCModule m2: allModules)
 			{
 				if (m1 != m2 && m1.name.equals(m2.name))
 				{
@@ -122,16 +155,18 @@ public class ModuleTypeChecker extends TypeChecker
 
 		for (TCModule m: modules)
 		{
-			m.processImports(modules);	// Populate importDefs
+			m.processImports(allModules);	// Populate importDefs
 		}
 
 		// Create a list of all definitions from all executableModules, including
 		// imports of renamed definitions. We put the imports ahead of the
-		// other definitions so that they are found first.
+		// other definitions so that they are found first. Only the definitions
+		// of the modules being checked need to be resolved.
 
 		TCDefinitionList alldefs = new TCDefinitionList();
+		TCDefinitionList resolvedefs = new TCDefinitionList();
 
-		for (TCModule m: modules)
+		for (TCModule m: allModules)
 		{
 			for (TCDefinition d: m.importdefs)
 			{
@@ -140,6 +175,14 @@ public class ModuleTypeChecker extends TypeChecker
 		}
 
 		for (TCModule m: modules)
+		{
+			for (TCDefinition d: m.importdefs)
+			{
+				resolvedefs.add(d);
+			}
+		}
+
+		for (TCModule m: allModules)
 		{
 			for (TCDefinition d: m.defs)
 			{
@@ -147,6 +190,14 @@ public class ModuleTypeChecker extends TypeChecker
 			}
 		}
 
+		for (TCModule m: modules)
+		{
+			for (TCDefinition d: m.defs)
+			{
+				resolvedefs.add(d);
+			}
+		}
+
 		for (TCModule m: modules)
 		{
 			m.checkOver();
@@ -159,7 +210,7 @@ public class ModuleTypeChecker extends TypeChecker
 
 		Environment allenv = new FlatCheckedEnvironment(alldefs, NameScope.NAMESANDSTATE);
 
-		for (TCDefinition d: alldefs)
+		for (TCDefinition d: resolvedefs)
 		{
 			try
 			{
@@ -193,41 +244,32 @@ public class ModuleTypeChecker extends TypeChecker
 		// Proceed to type check all definitions, considering types, values
 		// and remaining definitions, in that order.
 
-		for (Pass pass: Pass.values())
+		if (Properties.tc_threads > 1 && modules.size() > 1 && !hasFlat)
 		{
-			for (TCModule m: modules)
-			{
-				TypeComparator.setCurrentModule(m.name.getName());
-				
-				Environment e = new ModuleEnvironment(m);
+			typeCheckConcurrently();
+		}
+		else
+		{
+			TypeComparator.startCheck();
 
-				for (TCDefinition d: m.defs)
+			try
+			{
+				for (Pass pass: Pass.values())
 				{
-					if (d.pass == pass)
+					for (TCModule m: modules)
 					{
-						try
-						{
-							d.typeCheck(e, NameScope.NAMES);
-						}
-						catch (TypeCheckException te)
-						{
-							report(3430, te.getMessage(), te.location);
-							
-		    				if (te.extras != null)
-		    				{
-		    					for (TypeCheckException ex: te.extras)
-		    					{
-		    						report(3430, ex.getMessage(), ex.location);
-		    					}
-		    				}
-						}
+						typeCheckPass(m, pass);
 					}
 				}
 			}
+			finally
+			{
+				TypeComparator.endCheck();
+			}
 		}
 		
 		// Prepare to look for recursive loops
-		TCRecursiveLoops.getInstance().typeCheck(modules);
+		TCRecursiveLoops.getInstance().typeCheck(allModules, checked);
 
 		// Report any discrepancies between the final checked types of
 		// definitions and their explicit imported types.
@@ -239,7 +281,7 @@ public class ModuleTypeChecker extends TypeChecker
 		
 		for (TCModule m: modules)
 		{
-			m.processImports(modules);		// Re-populate importDefs
+			m.processImports(allModules);	// Re-populate importDefs
 
 			try
 			{
@@ -270,7 +312,256 @@ public class ModuleTypeChecker extends TypeChecker
 		// Close any annotations
 		TCAnnotation.close();
 
-    	// Check for inter-definition cyclic dependencies before initialization
-    	cyclicDependencyCheck(alldefs);
+    	// Check for inter-definition cyclic dependencies before initialization. The
+    	// checked modules do not import from the modules being checked, so any new
+    	// cycle only passes through the definitions of the modules being checked.
+    	cyclicDependencyCheck(checked.isEmpty() ? alldefs : resolvedefs);
+	}
+
+	/**
+	 * Type check the definitions of one module that belong to the given pass.
+	 */
+	private void typeCheckPass(TCModule m, Pass pass)
+	{
+		TypeComparator.setCurrentModule(m.name.getName());
+		
+		Environment e = new ModuleEnvironment(m);
+
+		for (TCDefinition d: m.defs)
+		{
+			if (d.pass == pass)
+			{
+				try
+				{
+					d.typeCheck(e, NameScope.NAMES);
+				}
+				catch (TypeCheckException te)
+				{
+					report(3430, te.getMessage(), te.location);
+					
+    				if (te.extras != null)
+    				{
+    					for (TypeCheckException ex: te.extras)
+    					{
+    						report(3430, ex.getMessage(), ex.location);
+    					}
+    				}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Type check the passes of all modules, using a pool of Properties.tc_threads
+	 * threads. The modules are divided into the strongly connected components of
+	 * their import graph, and these are arranged in levels, such that components
+	 * only import from lower levels. For each pass, the components of each level
+	 * are checked concurrently, with the modules within a component checked in
+	 * order. The messages of each module are collected separately and merged in
+	 * module order at the end of each pass, so that the results are deterministic.
+	 */
+	private void typeCheckConcurrently()
+	{
+		List<List<TCModuleList>> levels = importLevels();
+		ForkJoinPool pool = new ForkJoinPool(Properties.tc_threads);
+
+		try
+		{
+			for (final Pass pass: Pass.values())
+			{
+				final Map<TCModule, Messages> messages = new ConcurrentHashMap<TCModule, Messages>();
+
+				for (List<TCModuleList> level: levels)
+				{
+					List<ForkJoinTask<?>> tasks = new Vector<ForkJoinTask<?>>();
+
+					for (final TCModuleList component: level)
+					{
+						tasks.add(pool.submit(new Runnable()
+						{
+							@Override
+							public void run()
+							{
+								for (final TCModule m: component)
+								{
+									messages.put(m, collectMessages(new Runnable()
+									{
+										@Override
+										public void run()
+										{
+											TypeComparator.startCheck();
+
+											try
+											{
+												typeCheckPass(m, pass);
+											}
+											finally
+											{
+												TypeComparator.endCheck();
+											}
+										}
+									}));
+								}
+							}
+						}));
+					}
+
+					for (ForkJoinTask<?> task: tasks)
+					{
+						task.join();
+					}
+				}
+
+				for (TCModule m: modules)
+				{
+					mergeMessages(messages.get(m));
+				}
+			}
+		}
+		finally
+		{
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * Find the strongly connected components of the import graph of the modules
+	 * being checked, using Tarjan's algorithm, and arrange them in levels. Tarjan
+	 * produces components in reverse topological order, so the components that
+	 * a component imports from have always been given a level before it.
+	 */
+	private List<List<TCModuleList>> importLevels()
+	{
+		Map<String, TCModule> byName = new HashMap<String, TCModule>();
+
+		for (TCModule m: modules)
+		{
+			byName.put(m.name.getName(), m);
+		}
+
+		Map<TCModule, List<TCModule>> graph = new HashMap<TCModule, List<TCModule>>();
+
+		for (TCModule m: modules)
+		{
+			List<TCModule> imported = new Vector<TCModule>();
+
+			if (m.imports != null)
+			{
+				for (TCImportFromModule from: m.imports.imports)
+				{
+					TCModule im = byName.get(from.name.getName());
+
+					if (im != null && im != m)
+					{
+						imported.add(im);
+					}
+				}
+			}
+
+			graph.put(m, imported);
+		}
+
+		Tarjan tarjan = new Tarjan(graph);
+
+		for (TCModule m: modules)
+		{
+			if (!tarjan.index.containsKey(m))
+			{
+				tarjan.connect(m);
+			}
+		}
+
+		Map<TCModule, Integer> moduleLevel = new HashMap<TCModule, Integer>();
+		List<List<TCModuleList>> levels = new Vector<List<TCModuleList>>();
+
+		for (TCModuleList component: tarjan.components)
+		{
+			int level = 0;
+
+			for (TCModule m: component)
+			{
+				for (TCModule im: graph.get(m))
+				{
+					if (!component.contains(im))
+					{
+						level = Math.max(level, moduleLevel.get(im) + 1);
+					}
+				}
+			}
+
+			for (TCModule m: component)
+			{
+				moduleLevel.put(m, level);
+			}
+
+			while (levels.size() <= level)
+			{
+				levels.add(new Vector<TCModuleList>());
+			}
+
+			levels.get(level).add(component);
+		}
+
+		return levels;
+	}
+
+	private class Tarjan
+	{
+		public final Map<TCModule, List<TCModule>> graph;
+		public final Map<TCModule, Integer> index = new HashMap<TCModule, Integer>();
+		public final Map<TCModule, Integer> lowlink = new HashMap<TCModule, Integer>();
+		public final Stack<TCModule> stack = new Stack<TCModule>();
+		public final List<TCModuleList> components = new Vector<TCModuleList>();
+
+		public Tarjan(Map<TCModule, List<TCModule>> graph)
+		{
+			this.graph = graph;
+		}
+
+		public void connect(TCModule m)
+		{
+			index.put(m, index.size());
+			lowlink.put(m, index.get(m));
+			stack.push(m);
+
+			for (TCModule im: graph.get(m))
+			{
+				if (!index.containsKey(im))
+				{
+					connect(im);
+					lowlink.put(m, Math.min(lowlink.get(m), lowlink.get(im)));
+				}
+				else if (stack.contains(im))
+				{
+					lowlink.put(m, Math.min(lowlink.get(m), index.get(im)));
+				}
+			}
+
+			if (lowlink.get(m).equals(index.get(m)))
+			{
+				TCModuleList component = new TCModuleList();
+				TCModule member = null;
+
+				do
+				{
+					member = stack.pop();
+					component.add(member);
+				}
+				while (member != m);
+
+				// Keep the modules of the component in their original order
+				TCModuleList ordered = new TCModuleList();
+
+				for (TCModule om: modules)
+				{
+					if (component.contains(om))
+					{
+						ordered.add(om);
+					}
+				}
+
+				components.add(ordered);
+			}
+		}
 	}
 }
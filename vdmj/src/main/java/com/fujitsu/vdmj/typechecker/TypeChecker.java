@@ -51,15 +51,27 @@ import com.fujitsu.vdmj.tc.lex.TCNameToken;
 
 abstract public class TypeChecker
 {
-	private static List<VDMError> errors = new Vector<VDMError>();
-	private static List<VDMWarning> warnings = new Vector<VDMWarning>();
-	private static VDMMessage lastMessage = null;
-	private static boolean suspended = false;
+	/**
+	 * The errors and warnings raised by type checking. Normally there is one global
+	 * set of messages, but threads that check modules concurrently collect their
+	 * messages separately, so that they can be merged in a deterministic order.
+	 */
+	protected static class Messages
+	{
+		private final List<VDMError> errors = new Vector<VDMError>();
+		private final List<VDMWarning> warnings = new Vector<VDMWarning>();
+		private VDMMessage lastMessage = null;
+		private boolean suspended = false;
+	}
+
+	private static final Messages global = new Messages();
+	private static final ThreadLocal<Messages> local = new ThreadLocal<Messages>();
 	private static int MAX = Properties.tc_max_errors;
 	
 	public TypeChecker()
 	{
 		clearErrors();
+		TypeComparator.reset();
 	}
 
 	abstract public void typeCheck();
@@ -181,63 +193,129 @@ abstract public class TypeChecker
 		return false;
 	}
 
+	private static Messages current()
+	{
+		Messages messages = local.get();
+		return messages == null ? global : messages;
+	}
+
+	/**
+	 * Run a check with the messages it raises collected separately, for a later
+	 * call to mergeMessages. The check runs in the current thread.
+	 */
+	protected static Messages collectMessages(Runnable check)
+	{
+		Messages messages = new Messages();
+		Messages saved = local.get();
+		local.set(messages);
+
+		try
+		{
+			check.run();
+		}
+		finally
+		{
+			local.set(saved);
+		}
+
+		return messages;
+	}
+
+	/**
+	 * Add messages collected by collectMessages to the current messages, as though
+	 * they had been raised here.
+	 */
+	protected static void mergeMessages(Messages messages)
+	{
+		Messages target = current();
+
+		for (VDMError error: messages.errors)
+		{
+			if (error.number != 10)		// Too many errors, which is re-added
+			{
+				addError(target, error);
+			}
+		}
+
+		for (VDMWarning warning: messages.warnings)
+		{
+			if (warning.number != 10)
+			{
+				addWarning(target, warning);
+			}
+		}
+	}
+
 	public static void report(int number, String problem, LexLocation location)
 	{
-		if (suspended) return;	
-		VDMError error = new VDMError(number, problem, location);
+		Messages messages = current();
+		if (messages.suspended) return;	
+		addError(messages, new VDMError(number, problem, location));
+	}
+
+	private static void addError(Messages messages, VDMError error)
+	{
+		List<VDMError> errors = messages.errors;
 
 		if (!errors.contains(error))
 		{
 			if (errors.size() < MAX)
 			{
 				errors.add(error);
-				lastMessage = error;
+				messages.lastMessage = error;
 	
 	    		if (errors.size() == MAX)
 	    		{
-	    			errors.add(new VDMError(10, "Too many type checking errors", location));
+	    			errors.add(new VDMError(10, "Too many type checking errors", error.location));
 	    			// throw new InternalException(10, "Too many type checking errors");
 	    		}
 			}
 		}
 		else
 		{
-			lastMessage = null;
+			messages.lastMessage = null;
 		}
 	}
 
 	public static void warning(int number, String problem, LexLocation location)
 	{
-		if (suspended) return;
-		VDMWarning warning = new VDMWarning(number, problem, location);
+		Messages messages = current();
+		if (messages.suspended) return;
+		addWarning(messages, new VDMWarning(number, problem, location));
+	}
+
+	private static void addWarning(Messages messages, VDMWarning warning)
+	{
+		List<VDMWarning> warnings = messages.warnings;
 
 		if (!warnings.contains(warning))
 		{
 			if (warnings.size() < MAX)
 			{
 				warnings.add(warning);
-				lastMessage = warning;
+				messages.lastMessage = warning;
 
 				if (warnings.size() == MAX)
 	    		{
-	    			warnings.add(new VDMWarning(10, "Too many type checking warnings", location));
+	    			warnings.add(new VDMWarning(10, "Too many type checking warnings", warning.location));
 	    			// throw new InternalException(10, "Too many type checking errors");
 	    		}
 			}
 		}
 		else
 		{
-			lastMessage = null;
+			messages.lastMessage = null;
 		}
 	}
 
 	public static void detail(String tag, Object obj)
 	{
-		if (suspended) return;
+		Messages messages = current();
+		if (messages.suspended) return;
 
-		if (lastMessage != null)
+		if (messages.lastMessage != null)
 		{
-			lastMessage.add(tag + ": " + obj);
+			messages.lastMessage.add(tag + ": " + obj);
 		}
 	}
 
@@ -249,33 +327,34 @@ abstract public class TypeChecker
 
 	public static void clearErrors()
 	{
-		errors.clear();
-		warnings.clear();
+		Messages messages = current();
+		messages.errors.clear();
+		messages.warnings.clear();
 	}
 
 	public static int getErrorCount()
 	{
-		return errors.size();
+		return current().errors.size();
 	}
 
 	public static int getWarningCount()
 	{
-		return warnings.size();
+		return current().warnings.size();
 	}
 
 	public static List<VDMError> getErrors()
 	{
-		return errors;
+		return current().errors;
 	}
 
 	public static List<VDMWarning> getWarnings()
 	{
-		return warnings;
+		return current().warnings;
 	}
 
 	public static void printErrors(ConsoleWriter out)
 	{
-		for (VDMError e: errors)
+		for (VDMError e: current().errors)
 		{
 			out.println(e.toString());
 		}
@@ -283,7 +362,7 @@ abstract public class TypeChecker
 
 	public static void printWarnings(ConsoleWriter out)
 	{
-		for (VDMWarning w: warnings)
+		for (VDMWarning w: current().warnings)
 		{
 			out.println(w.toString());
 		}
@@ -291,6 +370,18 @@ abstract public class TypeChecker
 
 	public static void suspend(boolean suspend)
 	{
-		suspended  = suspend;
+		current().suspended = suspend;
+	}
+
+	/**
+	 * Give the current thread its own messages, so that anything it reports does not
+	 * affect a check in another thread. This is for threads that only look things up
+	 * in a checked specification, like LSP queries.
+	 */
+	public static void setLocalMessages(boolean suspended)
+	{
+		Messages messages = new Messages();
+		messages.suspended = suspended;
+		local.set(messages);
 	}
 }
@@ -24,8 +24,9 @@
 
 package com.fujitsu.vdmj.typechecker;
 
+import java.util.HashMap;
 import java.util.List;
-import java.util.Vector;
+import java.util.Map;
 
 import com.fujitsu.vdmj.Settings;
 import com.fujitsu.vdmj.lex.Dialect;
@@ -67,14 +68,6 @@ import com.fujitsu.vdmj.tc.types.visitors.TCParameterCollector;
 
 public class TypeComparator
 {
-	/**
-	 * A vector of type pairs that have already been compared. This is to
-	 * allow recursive type definitions to be compared without infinite
-	 * regress.
-	 */
-
-	private static Vector<TypePair> done = new Vector<TypePair>(256);
-
 	/**
 	 * A result value for comparison of types. The "Maybe" value is needed so
 	 * that the fact that a type's subtypes are being actively compared in
@@ -88,14 +81,23 @@ public class TypeComparator
 
 	private static enum Result { Yes, No, Maybe }
 
+	/**
+	 * The kind of comparison being made, which is part of the key of a cached
+	 * result, since the same pair of types can give different answers.
+	 */
+
+	private static enum Test { COMPATIBLE, PARAMONLY, SUBTYPE, INVIGNORE }
+
 	private static class TypePair
 	{
-		public TCType a;
-		public TCType b;
+		public final Test test;
+		public final TCType a;
+		public final TCType b;
 		public Result result;
 
-		public TypePair(TCType to, TCType from)
+		public TypePair(Test test, TCType to, TCType from)
 		{
+			this.test = test;
 			this.a = to;
 			this.b = from;
 			this.result = Result.Maybe;
@@ -107,7 +109,7 @@ public class TypeComparator
 			if (other instanceof TypePair)
 			{
 				TypePair to = (TypePair)other;
-				return a == to.a && b == to.b;
+				return test == to.test && a == to.a && b == to.b;
 			}
 
 			return false;
@@ -116,21 +118,110 @@ public class TypeComparator
 		@Override
 		public int hashCode()
 		{
-			return a.hashCode() + b.hashCode();
+			// Types are compared by identity, so we don't need their (deep) hashCodes
+			return System.identityHashCode(a) * 31 + System.identityHashCode(b) + test.ordinal();
 		}
 	}
-	
+
 	/**
-	 * The current module name. This is set as the type checker goes from module
-	 * to module, and is used to affect the processing of opaque "non-struct"
-	 * type exports.
+	 * The comparison state of one type checking thread. The "done" map holds the
+	 * type pairs that have already been compared by the current top level call.
+	 * This is to allow recursive type definitions to be compared without infinite
+	 * regress. The "verdicts" map holds the final Yes/No results of top level
+	 * calls, by current module, so that repeated comparisons of the same resolved
+	 * types are not recalculated. Verdicts are only kept between startCheck and
+	 * endCheck, and at most MAX_VERDICTS per module, so that threads which only
+	 * compare types occasionally (eg. the interpreter) do not hold on to old types.
+	 * The current module name is set as the type checker goes from module to module,
+	 * and is used to affect the processing of opaque "non-struct" type exports.
 	 */
-	
-	private static String currentModule = null;
+
+	private static final int MAX_VERDICTS = 100000;
+
+	private static class Memo
+	{
+		public final Map<TypePair, TypePair> done = new HashMap<TypePair, TypePair>(256);
+		public Map<String, Map<TypePair, Result>> verdicts = null;
+		public String currentModule = null;
+
+		private Map<TypePair, Result> getVerdicts()
+		{
+			Map<TypePair, Result> map = verdicts.get(currentModule);
+
+			if (map == null)
+			{
+				map = new HashMap<TypePair, Result>(1024);
+				verdicts.put(currentModule, map);
+			}
+
+			return map;
+		}
+
+		public Result getVerdict(TypePair key)
+		{
+			return verdicts == null ? null : getVerdicts().get(key);
+		}
+
+		public void putVerdict(TypePair key, Result result)
+		{
+			if (verdicts != null)
+			{
+				Map<TypePair, Result> map = getVerdicts();
+
+				if (map.size() >= MAX_VERDICTS)
+				{
+					map.clear();
+				}
+
+				map.put(key, result);
+			}
+		}
+	}
+
+	private static final ThreadLocal<Memo> memo = new ThreadLocal<Memo>()
+	{
+		@Override
+		protected Memo initialValue()
+		{
+			return new Memo();
+		}
+	};
+
+	/**
+	 * Discard the cached comparisons of this thread. This is called as each type
+	 * checker is created, so that types from previous checks are not retained.
+	 */
+
+	public static void reset()
+	{
+		memo.remove();
+	}
+
+	/**
+	 * Start caching the verdicts of top level comparisons on this thread. This is
+	 * called by the type checkers as they check definitions, and must be followed
+	 * by a call to endCheck.
+	 */
+
+	public static void startCheck()
+	{
+		memo.get().verdicts = new HashMap<String, Map<TypePair, Result>>();
+	}
+
+	/**
+	 * Stop caching verdicts on this thread, discarding those cached.
+	 */
+
+	public static void endCheck()
+	{
+		Memo m = memo.get();
+		m.verdicts = null;
+		m.done.clear();
+	}
 
 	public static void setCurrentModule(String module)
 	{
-		currentModule = module;
+		memo.get().currentModule = module;
 	}
 	
 	/**
@@ -143,16 +234,25 @@ public class TypeComparator
 	 * @return True if types "a" and "b" are compatible.
 	 */
 
-	public synchronized static boolean compatible(TCType to, TCType from)
+	public static boolean compatible(TCType to, TCType from)
 	{
-		done.clear();
-		return searchCompatible(to, from, false) == Result.Yes;
+		return compatible(to, from, false);
 	}
 
-	public synchronized static boolean compatible(TCType to, TCType from, boolean paramOnly)
+	public static boolean compatible(TCType to, TCType from, boolean paramOnly)
 	{
-		done.clear();
-		return searchCompatible(to, from, paramOnly) == Result.Yes;
+		Memo m = memo.get();
+		TypePair key = new TypePair(paramOnly ? Test.PARAMONLY : Test.COMPATIBLE, to, from);
+		Result result = m.getVerdict(key);
+
+		if (result == null)
+		{
+			m.done.clear();
+			result = searchCompatible(to, from, paramOnly);
+			m.putVerdict(key, result);
+		}
+
+		return result == Result.Yes;
 	}
 
 	/**
@@ -163,9 +263,9 @@ public class TypeComparator
 	 * @return True if all types compatible.
 	 */
 
-	public synchronized static boolean compatible(TCTypeList to, TCTypeList from)
+	public static boolean compatible(TCTypeList to, TCTypeList from)
 	{
-		done.clear();
+		memo.get().done.clear();
 		return allCompatible(to, from, false) == Result.Yes;
 	}
 
@@ -200,9 +300,9 @@ public class TypeComparator
 	}
 
 	/**
-	 * Search the {@link #done} vector for an existing comparison of two
+	 * Search the {@link Memo#done} map for an existing comparison of two
 	 * types before either returning the previous result, or making a new
-	 * comparison and adding that result to the vector.
+	 * comparison and adding that result to the map.
 	 *
 	 * @param to
 	 * @param from
@@ -211,16 +311,17 @@ public class TypeComparator
 
 	private static Result searchCompatible(TCType to, TCType from, boolean paramOnly)
 	{
-		TypePair pair = new TypePair(to, from);
-		int i = done.indexOf(pair);
+		Map<TypePair, TypePair> done = memo.get().done;
+		TypePair pair = new TypePair(paramOnly ? Test.PARAMONLY : Test.COMPATIBLE, to, from);
+		TypePair previous = done.get(pair);
 
-		if (i >= 0)
+		if (previous != null)
 		{
-			return done.get(i).result;		// May be "Maybe".
+			return previous.result;		// May be "Maybe".
 		}
 		else
 		{
-			done.add(pair);
+			done.put(pair, pair);
 		}
 
 		// The pair.result is "Maybe" until this call returns.
@@ -310,7 +411,7 @@ public class TypeComparator
     			TCInvariantType ito =(TCInvariantType)to;
     			
 	    		if (to instanceof TCNamedType &&
-	    			(!ito.opaque || ito.location.module.equals(currentModule)))
+	    			(!ito.opaque || ito.location.module.equals(memo.get().currentModule)))
 	    		{
 	    			to = ((TCNamedType)to).type;
 	    			continue;
@@ -322,7 +423,7 @@ public class TypeComparator
     			TCInvariantType ifrom =(TCInvariantType)from;
     			
 	    		if (from instanceof TCNamedType &&
-	    			(!ifrom.opaque || ifrom.location.module.equals(currentModule)))
+	    			(!ifrom.opaque || ifrom.location.module.equals(memo.get().currentModule)))
 	    		{
 	    			from = ((TCNamedType)from).type;
 	    			continue;
@@ -583,15 +684,25 @@ public class TypeComparator
 	 * @return True if sub is a subtype of sup.
 	 */
 
-	public synchronized static boolean isSubType(TCType sub, TCType sup)
+	public static boolean isSubType(TCType sub, TCType sup)
 	{
 		return isSubType(sub, sup, false);	// By default, invariants fail a match 
 	}
 
-	public synchronized static boolean isSubType(TCType sub, TCType sup, boolean invignore)
+	public static boolean isSubType(TCType sub, TCType sup, boolean invignore)
 	{
-		done.clear();
-		return searchSubType(sub, sup, invignore) == Result.Yes;
+		Memo m = memo.get();
+		TypePair key = new TypePair(invignore ? Test.INVIGNORE : Test.SUBTYPE, sub, sup);
+		Result result = m.getVerdict(key);
+
+		if (result == null)
+		{
+			m.done.clear();
+			result = searchSubType(sub, sup, invignore);
+			m.putVerdict(key, result);
+		}
+
+		return result == Result.Yes;
 	}
 
 	/**
@@ -625,9 +736,9 @@ public class TypeComparator
 	}
 
 	/**
-	 * Search the {@link #done} vector for an existing subtype comparison of two
+	 * Search the {@link Memo#done} map for an existing subtype comparison of two
 	 * types before either returning the previous result, or making a new
-	 * comparison and adding that result to the vector.
+	 * comparison and adding that result to the map.
 	 *
 	 * @param sub
 	 * @param sup
@@ -637,16 +748,17 @@ public class TypeComparator
 
 	private static Result searchSubType(TCType sub, TCType sup, boolean invignore)
 	{
-		TypePair pair = new TypePair(sub, sup);
-		int i = done.indexOf(pair);
+		Map<TypePair, TypePair> done = memo.get().done;
+		TypePair pair = new TypePair(invignore ? Test.INVIGNORE : Test.SUBTYPE, sub, sup);
+		TypePair previous = done.get(pair);
 
-		if (i >= 0)
+		if (previous != null)
 		{
-			return done.get(i).result;		// May be "Maybe".
+			return previous.result;		// May be "Maybe".
 		}
 		else
 		{
-			done.add(pair);
+			done.put(pair, pair);
 		}
 
 		// The pair.result is "Maybe" until this call returns.
@@ -1225,12 +1337,13 @@ public class TypeComparator
 	/**
 	 * Return the narrowest of two types/type lists.
 	 */
-	public static synchronized TCTypeList narrowest(TCTypeList t1, TCTypeList t2)
+	public static TCTypeList narrowest(TCTypeList t1, TCTypeList t2)
 	{
+		memo.get().done.clear();
 		return allSubTypes(t1, t2, false) == Result.Yes ? t1 : t2;
 	}
 	
-	public static synchronized TCType narrowest(TCType t1, TCType t2)
+	public static TCType narrowest(TCType t1, TCType t2)
 	{
 		return isSubType(t1, t2) ? t1 : t2;
 	}
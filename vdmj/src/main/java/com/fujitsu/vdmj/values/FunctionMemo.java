@@ -0,0 +1,193 @@
+/*******************************************************************************
+ *
+ *	Copyright (c) 2023 Nick Battle.
+ *
+ *	Author: Nick Battle
+ *
+ *	This file is part of VDMJ.
+ *
+ *	VDMJ is free software: you can redistribute it and/or modify
+ *	it under the terms of the GNU General Public License as published by
+ *	the Free Software Foundation, either version 3 of the License, or
+ *	(at your option) any later version.
+ *
+ *	VDMJ is distributed in the hope that it will be useful,
+ *	but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *	GNU General Public License for more details.
+ *
+ *	You should have received a copy of the GNU General Public License
+ *	along with VDMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *	SPDX-License-Identifier: GPL-3.0-or-later
+ *
+ ******************************************************************************/
+
+package com.fujitsu.vdmj.values;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import com.fujitsu.vdmj.config.Properties;
+import com.fujitsu.vdmj.lex.LexLocation;
+import com.fujitsu.vdmj.runtime.Context;
+
+/**
+ * A bounded LRU cache of function results. Functions are memoized if the
+ * vdmj.in.memo_functions property is set, or if they have been enabled
+ * individually, for example by an annotation. The cache is keyed on the
+ * function's definition, its type parameters and the argument values.
+ * <p>
+ * A cache hit returns the result without evaluating the function's pre and
+ * postconditions. Functions cannot depend on state, so these give the same
+ * answers for the same arguments, and results are only stored if they were
+ * checked. Functions whose measure is being checked are never memoized, since
+ * the measure check depends on the recursive calls being made. Under VDM-RT,
+ * a hit also skips the time that evaluating the body would have taken.
+ */
+public class FunctionMemo
+{
+	/**
+	 * Closures and object functions have the same definition location, so the key
+	 * also compares their free variables and "self" object by identity.
+	 */
+	public static class Key
+	{
+		private final LexLocation location;
+		private final Context freeVariables;
+		private final ObjectValue self;
+		private final Context typeValues;
+		private final ValueList args;
+		private final int hash;
+
+		private Key(FunctionValue function, ValueList args)
+		{
+			this.location = function.location;
+			this.freeVariables = function.freeVariables;
+			this.self = function.self;
+			this.typeValues = function.typeValues;
+			this.args = args.getConstant();		// In case args are updatable
+			this.hash = location.hashCode() + this.args.hashCode();
+		}
+
+		@Override
+		public boolean equals(Object other)
+		{
+			if (other instanceof Key)
+			{
+				Key okey = (Key)other;
+
+				return hash == okey.hash &&
+					location.equals(okey.location) &&
+					freeVariables == okey.freeVariables &&
+					self == okey.self &&
+					Objects.equals(typeValues, okey.typeValues) &&
+					args.equals(okey.args);
+			}
+
+			return false;
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return hash;
+		}
+	}
+
+	private static final Set<LexLocation> enabled =
+		Collections.synchronizedSet(new HashSet<LexLocation>());
+
+	@SuppressWarnings("serial")
+	private static final Map<Key, Value> cache = new LinkedHashMap<Key, Value>(16, 0.75F, true)
+	{
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Key, Value> eldest)
+		{
+			return size() > Properties.in_memo_size;
+		}
+	};
+
+	private static long hits = 0;
+	private static long misses = 0;
+
+	/**
+	 * Clear the cache, counters and enabled functions, at initialization.
+	 */
+	public static synchronized void reset()
+	{
+		enabled.clear();
+		clear();
+	}
+
+	/**
+	 * Clear the cache and counters only.
+	 */
+	public static synchronized void clear()
+	{
+		cache.clear();
+		hits = 0;
+		misses = 0;
+	}
+
+	/**
+	 * Enable memoization of the function defined at the location passed.
+	 */
+	public static void enable(LexLocation location)
+	{
+		enabled.add(location);
+	}
+
+	public static boolean isMemoized(FunctionValue function)
+	{
+		return Properties.in_memo_functions ||
+			(!enabled.isEmpty() && enabled.contains(function.location));
+	}
+
+	public static Key getKey(FunctionValue function, ValueList args)
+	{
+		return new Key(function, args);
+	}
+
+	/**
+	 * Return the cached result for the key, or null if there is none.
+	 */
+	public static synchronized Value lookup(Key key)
+	{
+		Value result = cache.get(key);
+
+		if (result == null)
+		{
+			misses++;
+		}
+		else
+		{
+			hits++;
+		}
+
+		return result;
+	}
+
+	public static synchronized void store(Key key, Value result)
+	{
+		cache.put(key, result.getConstant());
+	}
+
+	public static synchronized long getHits()
+	{
+		return hits;
+	}
+
+	public static synchronized long getMisses()
+	{
+		return misses;
+	}
+
+	public static synchronized int getSize()
+	{
+		return cache.size();
+	}
+}
@@ -33,6 +33,8 @@ import java.util.Set;
 import java.util.Stack;
 
 import com.fujitsu.vdmj.Settings;
+import com.fujitsu.vdmj.in.closures.INClosure;
+import com.fujitsu.vdmj.in.closures.INCompiledFunction;
 import com.fujitsu.vdmj.in.definitions.INClassDefinition;
 import com.fujitsu.vdmj.in.definitions.INExplicitFunctionDefinition;
 import com.fujitsu.vdmj.in.definitions.INImplicitFunctionDefinition;
@@ -46,11 +48,13 @@ import com.fujitsu.vdmj.runtime.ClassContext;
 import com.fujitsu.vdmj.runtime.Context;
 import com.fujitsu.vdmj.runtime.ContextException;
 import com.fujitsu.vdmj.runtime.ExceptionHandler;
+import com.fujitsu.vdmj.runtime.Interpreter;
 import com.fujitsu.vdmj.runtime.ObjectContext;
 import com.fujitsu.vdmj.runtime.PatternMatchException;
 import com.fujitsu.vdmj.runtime.RootContext;
 import com.fujitsu.vdmj.runtime.StateContext;
 import com.fujitsu.vdmj.runtime.ValueException;
+import com.fujitsu.vdmj.tc.lex.TCNameList;
 import com.fujitsu.vdmj.tc.lex.TCNameToken;
 import com.fujitsu.vdmj.tc.types.TCFunctionType;
 import com.fujitsu.vdmj.tc.types.TCNamedType;
@@ -89,6 +93,15 @@ public class FunctionValue extends Value
 	private ValueList curriedArgs = null;
 	private boolean isMeasure = false;
 
+	// Compiled body closure state, shared by all values of the same definition
+	private INCompiledFunction compiled = null;
+
+	// Context title, created on the first call
+	private String title = null;
+
+	// Parameter names held in the call Context's slots, created on the first call
+	private TCNameToken[] slotNames = null;
+
 	public ObjectValue self = null;
 	public boolean isStatic = false;
 	public boolean uninstantiated = false;
@@ -153,6 +166,7 @@ public class FunctionValue extends Value
 		this.freeVariables = freeVariables;
 		this.checkInvariants = !def.isTypeInvariant;
 		this.classdef = def.classDefinition;
+		this.compiled = def.compiled;
 
 		if (Settings.measureChecks && def.measureName != null)
 		{
@@ -276,6 +290,33 @@ public class FunctionValue extends Value
 		}
 	}
 
+	/**
+	 * Evaluate this function as the @Hash function of a type that defines "eq".
+	 * The function must return equal hashes for values that are equal according
+	 * to "eq". Evaluation errors are raised as ContextExceptions.
+	 */
+	public int evalHash(Value arg)
+	{
+		// As with "eq" functions, we copy the global context to avoid inheriting prepost settings
+		Context ctxt = new Context(location, "hash evaluation", null);
+		ctxt.putAll(Interpreter.getInstance().getInitialContext());
+		ctxt.setThreadState(null);
+		ctxt.threadState.setAtomic(true);
+
+		try
+		{
+			return Long.hashCode(eval(location, arg, ctxt).intValue(ctxt));
+		}
+		catch (ValueException e)
+		{
+			throw new ContextException(e, location);
+		}
+		finally
+		{
+			ctxt.threadState.setAtomic(false);
+		}
+	}
+
 	private Value eval(
 		LexLocation from, ValueList argValues, Context ctxt, Context sctxt) throws ValueException
 	{
@@ -289,8 +330,25 @@ public class FunctionValue extends Value
 			abort(3033, "Polymorphic function has not been instantiated: " + name, ctxt);
 		}
 
+		FunctionMemo.Key memoKey = null;
+
+		// Memoized results are not used for pre/post/measure evaluations, or curried calls,
+		// or for functions whose measure is being checked, since a hit would skip the check.
+		if (curriedArgs == null && paramPatternList.size() == 1 && ctxt.prepost == 0 &&
+			!isMeasure && measureName == null && FunctionMemo.isMemoized(this))
+		{
+			memoKey = FunctionMemo.getKey(this, argValues);
+			Value memo = FunctionMemo.lookup(memoKey);
+
+			if (memo != null)
+			{
+				return memo;
+			}
+		}
+
 		INPatternList paramPatterns = paramPatternList.get(0);
 		RootContext evalContext = newContext(from, toTitle(), ctxt, sctxt);
+		evalContext.withSlots(toSlotNames());
 
 		if (typeValues != null)
 		{
@@ -305,7 +363,17 @@ public class FunctionValue extends Value
 
 		Iterator<Value> valIter = argValues.iterator();
 		Iterator<TCType> typeIter = type.parameters.iterator();
-		NameValuePairMap args = new NameValuePairMap();
+
+		// Closures are only used for a complete (uncurried) call of the function
+		INClosure closure = null;
+		Value[] frame = null;
+		int slot = 0;
+
+		if (compiled != null && curriedArgs == null && paramPatternList.size() == 1)
+		{
+			closure = compiled.getClosure(body, paramPatterns, ctxt);
+			frame = (closure == null) ? null : compiled.newFrame();
+		}
 
 		for (INPattern p: paramPatterns)
 		{
@@ -321,15 +389,20 @@ public class FunctionValue extends Value
 				pv = pv.convertTo(typeIter.next(), ctxt);
 			}
 
+			if (frame != null)
+			{
+				frame[slot++] = pv;
+			}
+
 			try
 			{
 				for (NameValuePair nvp: p.getNamedValues(pv, ctxt))
 				{
-					Value v = args.get(nvp.name);
+					Value v = evalContext.get(nvp.name);
 
 					if (v == null)
 					{
-						args.put(nvp);
+						evalContext.put(nvp.name, nvp.value);
 					}
 					else	// Names match, so values must also
 					{
@@ -351,8 +424,6 @@ public class FunctionValue extends Value
 			evalContext.put(new TCNameToken(location, location.module, "self"), self);
 		}
 
-		evalContext.putAll(args);
-		
 		if (paramPatternList.size() == 1)
 		{
 			if (precondition != null && Settings.prechecks)
@@ -474,7 +545,18 @@ public class FunctionValue extends Value
 				// Functions are executed atomically, so they can safely access arg object state
 				evalContext.threadState.setAtomic(true);
 				evalContext.threadState.setPure(true);
-				rv = body.eval(evalContext).convertTo(type.result, evalContext);
+
+				if (closure != null)
+				{
+					// Closures check for interrupts here, on each call (and so each
+					// recursion), as well as on each quantifier iteration.
+					body.breakpoint.checkInterrupt(evalContext);
+					rv = closure.eval(frame, evalContext).convertTo(type.result, evalContext);
+				}
+				else
+				{
+					rv = body.eval(evalContext).convertTo(type.result, evalContext);
+				}
 			}
 			finally
 			{
@@ -527,6 +609,15 @@ public class FunctionValue extends Value
 				callingThreads.remove(tid);
 			}
 
+			// Only store results whose pre and postconditions have been checked, so that a
+			// hit for the same arguments would have passed them, if they were checked again.
+			if (memoKey != null &&
+				(precondition == null || Settings.prechecks) &&
+				(postcondition == null || Settings.postchecks))
+			{
+				FunctionMemo.store(memoKey, rv);
+			}
+
 			return rv;
 		}
 		else	// This is a curried function
@@ -765,9 +856,22 @@ public class FunctionValue extends Value
 			measureName, measureValues, classdef);
 
 		copy.typeValues = typeValues;
+		copy.compiled = compiled;
 		return copy;
 	}
 	
+	/**
+	 * A copy of this function with the same binding, for a ValueCopier.
+	 */
+	FunctionValue copy()
+	{
+		FunctionValue copy = (FunctionValue)clone();
+		copy.self = self;
+		copy.isStatic = isStatic;
+		copy.uninstantiated = uninstantiated;
+		return copy;
+	}
+
 	/**
 	 * Add context variables to this Function and any pre/post values.
 	 */
@@ -793,8 +897,36 @@ public class FunctionValue extends Value
 
 	public String toTitle()
 	{
-		INPatternList paramPatterns = paramPatternList.get(0);
-		return name + Utils.listToString("(", paramPatterns, ", ", ")");
+		if (title == null)
+		{
+			INPatternList paramPatterns = paramPatternList.get(0);
+			title = name + Utils.listToString("(", paramPatterns, ", ", ")");
+		}
+
+		return title;
+	}
+
+	private TCNameToken[] toSlotNames()
+	{
+		if (slotNames == null)
+		{
+			TCNameList names = new TCNameList(new TCNameToken(location, location.module, "self"));
+
+			for (INPattern p: paramPatternList.get(0))
+			{
+				for (TCNameToken pname: p.getVariableNames())
+				{
+					if (!names.contains(pname))
+					{
+						names.add(pname);
+					}
+				}
+			}
+
+			slotNames = names.toArray(new TCNameToken[0]);
+		}
+
+		return slotNames;
 	}
 
 	@Override
@@ -45,6 +45,11 @@ public class GuardValueListener implements ValueListener, Serializable
 		this.lock = lock;
 	}
 
+	public Lock getLock()
+	{
+		return lock;
+	}
+
 	@Override
 	public void changedValue(LexLocation location, Value value, Context ctxt) throws ValueException
 	{
@@ -43,6 +43,7 @@ public class InvariantValue extends ReferenceValue
 	public final FunctionValue invariant;
 	public final FunctionValue equality;
 	public final FunctionValue ordering;
+	public final FunctionValue hashing;
 	
 	public InvariantValue(TCNamedType type, Value value, Context ctxt)
 		throws ValueException
@@ -53,6 +54,7 @@ public class InvariantValue extends ReferenceValue
 		this.invariant = type.getInvariant(ctxt);
 		this.equality = type.getEquality(ctxt);
 		this.ordering = type.getOrder(ctxt);
+		this.hashing = type.getHash(ctxt);
 		checkInvariant(ctxt);
 	}
 
@@ -88,15 +90,16 @@ public class InvariantValue extends ReferenceValue
 		}
 	}
 
-	// For clone only
-	private InvariantValue(TCNamedType type, Value value, FunctionValue invariant,
-		FunctionValue equality, FunctionValue ordering)
+	// For clone and ValueCopier only
+	InvariantValue(TCNamedType type, Value value, FunctionValue invariant,
+		FunctionValue equality, FunctionValue ordering, FunctionValue hashing)
 	{
 		super(value);
 		this.type = type;
 		this.invariant = invariant;
 		this.equality = equality;
 		this.ordering = ordering;
+		this.hashing = hashing;
 	}
 
 	@Override
@@ -133,7 +136,7 @@ public class InvariantValue extends ReferenceValue
 			listeners = list;
 		}
 
-		InvariantValue ival = new InvariantValue(type, value.getUpdatable(listeners), invariant, equality, ordering);
+		InvariantValue ival = new InvariantValue(type, value.getUpdatable(listeners), invariant, equality, ordering, hashing);
 		UpdatableValue uval = UpdatableValue.factory(ival, listeners);
 
 		if (invl != null)
@@ -148,13 +151,13 @@ public class InvariantValue extends ReferenceValue
 	@Override
 	public Value getConstant()
 	{
-		return new InvariantValue(type, value.getConstant(), invariant, equality, ordering);
+		return new InvariantValue(type, value.getConstant(), invariant, equality, ordering, hashing);
 	}
 
 	@Override
 	public Object clone()
 	{
-		return new InvariantValue(type, (Value)value.clone(), invariant, equality, ordering);
+		return new InvariantValue(type, (Value)value.clone(), invariant, equality, ordering, hashing);
 	}
 
 	@Override
@@ -261,7 +264,11 @@ public class InvariantValue extends ReferenceValue
 	@Override
 	public int hashCode()
 	{
-		if (equality != null)
+		if (equality != null && hashing != null)
+		{
+			return hashing.evalHash(this);
+		}
+		else if (equality != null)
 		{
 			// We have to have a hashCode that is consistent with the equality function
 			// (ie. the equals method), but since we cannot distinguish unequal values,
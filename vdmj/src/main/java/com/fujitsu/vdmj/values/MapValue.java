@@ -24,6 +24,8 @@
 
 package com.fujitsu.vdmj.values;
 
+import java.util.Map;
+
 import com.fujitsu.vdmj.runtime.Context;
 import com.fujitsu.vdmj.runtime.ValueException;
 import com.fujitsu.vdmj.tc.types.TCInMapType;
@@ -37,6 +39,10 @@ public class MapValue extends Value
 	private static final long serialVersionUID = 1L;
 	public final ValueMap values;
 
+	private transient TCType convertedTo = null;		// Type these values already have
+	private transient boolean updatable = false;		// Entries are UpdatableValues...
+	private transient ValueListenerList listeners = null;	// ...with these listeners
+
 	public MapValue()
 	{
 		this.values = new ValueMap();
@@ -58,13 +64,42 @@ public class MapValue extends Value
 	{
 		ValueMap nm = new ValueMap();
 
-		for (Value k: values.keySet())
+		for (Map.Entry<Value, Value> entry: values.entrySet())
+		{
+			Value v = entry.getValue().getUpdatable(listeners);
+			nm.put(entry.getKey(), v);
+		}
+
+		MapValue mv = new MapValue(nm);
+		mv.updatable = true;
+		mv.listeners = listeners;
+		return UpdatableValue.factory(mv, listeners);
+	}
+
+	/**
+	 * Get an updatable copy of this map, to replace a base map in an UpdatableValue.
+	 * The entries that are still shared with the base are already updatable, with
+	 * the same listeners, so only the others are copied. This makes an assignment
+	 * like "m := m ++ {k |-> v}" O(log n), rather than O(n).
+	 */
+	public UpdatableValue getUpdatable(ValueListenerList listeners, MapValue base)
+	{
+		if (!base.updatable || base.listeners != listeners)
+		{
+			return getConstant().getUpdatable(listeners);
+		}
+
+		ValueMap nm = new ValueMap(values);		// Shares entries, until updated
+
+		for (Value k: values.changedFrom(base.values))
 		{
-			Value v = values.get(k).getUpdatable(listeners);
-			nm.put(k, v);
+			nm.put(k, values.get(k).getConstant().getUpdatable(listeners));
 		}
 
-		return UpdatableValue.factory(new MapValue(nm), listeners);
+		MapValue mv = new MapValue(nm);
+		mv.updatable = true;
+		mv.listeners = listeners;
+		return UpdatableValue.factory(mv, listeners);
 	}
 
 	@Override
@@ -72,10 +107,10 @@ public class MapValue extends Value
 	{
 		ValueMap nm = new ValueMap();
 
-		for (Value k: values.keySet())
+		for (Map.Entry<Value, Value> entry: values.entrySet())
 		{
-			Value v = values.get(k).getConstant();
-			nm.put(k, v);
+			Value v = entry.getValue().getConstant();
+			nm.put(entry.getKey(), v);
 		}
 
 		return new MapValue(nm);
@@ -131,22 +166,57 @@ public class MapValue extends Value
 	@Override
 	protected Value convertValueTo(TCType to, Context ctxt, TCTypeSet done) throws ValueException
 	{
-		if (to instanceof TCMapType)
+		if (to == convertedTo)
+		{
+			return this;	// Already converted to this type
+		}
+		else if (to instanceof TCMapType)
 		{
 			if (to instanceof TCInMapType && !values.isInjective())
 			{
 				abort(4062, "Cannot convert non-injective map to an inmap", ctxt);
 			}
 
-			TCMapType mapto = to.getMap();
-			ValueMap nm = new ValueMap();
+			return convertEntries(to, values.keySet(), ctxt);
+		}
+		else
+		{
+			return super.convertValueTo(to, ctxt, done);
+		}
+	}
 
-			for (Value k: values.keySet())
-			{
-				Value v = values.get(k);
-				Value dom = k.convertValueTo(mapto.from, ctxt);
-				Value rng = v.convertValueTo(mapto.to, ctxt);
+	@Override
+	protected Value convertUpdateTo(TCType to, Context ctxt, Value base) throws ValueException
+	{
+		Value old = base.deref();
+
+		if (to instanceof TCMapType && !(to instanceof TCInMapType) && old instanceof MapValue)
+		{
+			// The entries that are still shared with the base were converted when
+			// it was assigned, so only the changed entries are converted here.
+
+			return convertEntries(to, values.changedFrom(((MapValue)old).values), ctxt);
+		}
+		else
+		{
+			return convertValueTo(to, ctxt);
+		}
+	}
+
+	private MapValue convertEntries(TCType to, Iterable<Value> keys, Context ctxt) throws ValueException
+	{
+		TCMapType mapto = to.getMap();
+		ValueMap nm = new ValueMap(values);		// Shares values, until updated
 
+		for (Value k: keys)
+		{
+			Value v = values.get(k);
+			Value dom = k.convertValueTo(mapto.from, ctxt);
+			Value rng = v.convertValueTo(mapto.to, ctxt);
+
+			if (dom != k)
+			{
+				nm.remove(k);
 				Value old = nm.put(dom, rng);
 
 				if (old != null && !old.equals(rng))
@@ -154,13 +224,15 @@ public class MapValue extends Value
 					abort(4063, "Duplicate map keys have different values: " + dom, ctxt);
 				}
 			}
-
-			return new MapValue(nm);
-		}
-		else
-		{
-			return super.convertValueTo(to, ctxt, done);
+			else if (rng != v)
+			{
+				nm.put(dom, rng);
+			}
 		}
+
+		MapValue result = new MapValue(nm);
+		result.convertedTo = to;
+		return result;
 	}
 
 	@Override
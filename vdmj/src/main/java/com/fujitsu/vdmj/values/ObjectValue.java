@@ -24,18 +24,14 @@
 
 package com.fujitsu.vdmj.values;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.util.List;
 import java.util.Map.Entry;
 import java.util.Vector;
 
 import com.fujitsu.vdmj.in.definitions.INClassDefinition;
 import com.fujitsu.vdmj.lex.Token;
-import com.fujitsu.vdmj.messages.InternalException;
 import com.fujitsu.vdmj.runtime.Context;
 import com.fujitsu.vdmj.runtime.ObjectContext;
 import com.fujitsu.vdmj.runtime.ValueException;
@@ -84,12 +80,31 @@ public class ObjectValue extends Value
 		setSelf(this);
 	}
 
+	/**
+	 * Create an empty copy of an object, with the same object reference, which
+	 * is populated by a ValueCopier.
+	 */
+	ObjectValue(ObjectValue from)
+	{
+		this.objectReference = from.objectReference;
+		this.type = from.type;
+		this.members = new NameValuePairMap();
+		this.superobjects = new Vector<ObjectValue>();
+		this.classdef = from.classdef;
+
+		this.CPU = from.CPU;
+		this.guardLock = new Lock();
+		this.delegateObject = from.delegateObject;
+		this.periodicCount = from.periodicCount;
+		this.periodicOverlaps = from.periodicOverlaps;
+	}
+
 	private static synchronized int getReference()
 	{
 		return ++nextObjectReference;
 	}
 
-	private void setSelf(ObjectValue self)
+	void setSelf(ObjectValue self)
 	{
 		for (NameValuePair nvp: members.asList())
  		{
@@ -434,29 +449,11 @@ public class ObjectValue extends Value
 	@Override
 	public ObjectValue deepCopy()
 	{
-		try
-		{
-			// This is slow, but it has the advantage that Value copies,
-			// such as the parent and subclass copies of the same
-			// variable, are preserved as the same variable rather than
-			// being split, as they are in naive object copies.
-
-			ByteArrayOutputStream os = new ByteArrayOutputStream();
-			ObjectOutputStream oos = new ObjectOutputStream(os);
-			oos.writeObject(this);
-			oos.close();
-
-			ByteArrayInputStream is = new ByteArrayInputStream(os.toByteArray());
-			ObjectInputStream ois = new ObjectInputStream(is);
-			ObjectValue result = (ObjectValue)ois.readObject();
-
-			result.setSelf(result);
-			return result;
-		}
-		catch (Exception e)
-		{
-			throw new InternalException(5, "Illegal clone: " + e);
-		}
+		// Value copies, such as the parent and subclass copies of the same
+		// variable, are preserved as the same variable rather than being
+		// split, as they are in naive object copies.
+
+		return (ObjectValue)new ValueCopier().copy(this);
 	}
 	
 	public MapValue getOldValues(TCNameList oldnames)
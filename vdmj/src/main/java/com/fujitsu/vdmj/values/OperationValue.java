@@ -563,14 +563,13 @@ public class OperationValue extends Value
 		// "from" CPU, whereas the OpActivate and OpComplete are made
 		// by the called object, using self's CPU (see trace(msg)).
 
-		RTLogger.log(
-			"OpRequest -> id: " + Thread.currentThread().getId() +
-			" opname: \"" + name.getExplicit(true) + "\"" +
-			" objref: " + self.objectReference +
-			" clnm: \"" + self.type.name.getName() + "\"" +
-			" cpunm: " + from.getNumber() +
-			" async: " + isAsync
-			);
+		RTLogger.log("OpRequest",
+			"id", Thread.currentThread().getId(),
+			"opname", name.getExplicit(true).toString(),
+			"objref", self.objectReference,
+			"clnm", self.type.name.getName(),
+			"cpunm", from.getNumber(),
+			"async", isAsync);
 
 		if (from != to)		// Remote CPU call
 		{
@@ -674,6 +673,27 @@ public class OperationValue extends Value
 		}
 	}
 
+	/**
+	 * A copy of this operation with the same binding, guard and history counters,
+	 * for a ValueCopier.
+	 */
+	OperationValue copy()
+	{
+		OperationValue copy = (OperationValue)clone();
+		copy.stateName = stateName;
+		copy.stateContext = stateContext;
+		copy.self = self;
+		copy.isConstructor = isConstructor;
+		copy.isStatic = isStatic;
+		copy.isAsync = isAsync;
+		copy.guard = guard;
+		copy.hashAct = hashAct;
+		copy.hashFin = hashFin;
+		copy.hashReq = hashReq;
+		copy.priority = priority;
+		return copy;
+	}
+
 	private synchronized void req(boolean logreq)
 	{
 		hashReq++;
@@ -728,25 +748,23 @@ public class OperationValue extends Value
 					cpu = 0;	// Initialization on vCPU
 				}
 
-	    		RTLogger.log(
-	    			kind + " -> id: " + ct.getId() +
-	    			" opname: \"" + name.getExplicit(true) + "\"" +
-	    			" objref: nil" +
-	    			" clnm: \"" + classdef.name.getName() + "\"" +
-	    			" cpunm: " + cpu +
-	    			" async: " + isAsync
-	    			);
+	    		RTLogger.log(kind,
+	    			"id", ct.getId(),
+	    			"opname", name.getExplicit(true).toString(),
+	    			"objref", null,
+	    			"clnm", classdef.name.getName(),
+	    			"cpunm", cpu,
+	    			"async", isAsync);
 			}
 			else
 			{
-        		RTLogger.log(
-        			kind + " -> id: " + ct.getId() +
-        			" opname: \"" + name.getExplicit(true) + "\"" +
-        			" objref: " + self.objectReference +
-        			" clnm: \"" + self.type.name.getName() + "\"" +
-        			" cpunm: " + self.getCPU().getNumber() +
-        			" async: " + isAsync
-        			);
+        		RTLogger.log(kind,
+        			"id", ct.getId(),
+        			"opname", name.getExplicit(true).toString(),
+        			"objref", self.objectReference,
+        			"clnm", self.type.name.getName(),
+        			"cpunm", self.getCPU().getNumber(),
+        			"async", isAsync);
 			}
 		}
 	}
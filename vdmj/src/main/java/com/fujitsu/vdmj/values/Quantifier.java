@@ -24,58 +24,116 @@
 
 package com.fujitsu.vdmj.values;
 
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Vector;
 
 import com.fujitsu.vdmj.in.patterns.INPattern;
 import com.fujitsu.vdmj.runtime.Context;
 import com.fujitsu.vdmj.runtime.PatternMatchException;
 
+/**
+ * One pattern of a quantifier, with the values that it binds. The values may be
+ * a ValueList, which is expanded to name/value pairs once and cached, or a lazy
+ * Iterable, which is expanded as it is iterated, and regenerated each time.
+ */
 public class Quantifier
 {
 	public final INPattern pattern;
-	public final ValueList values;
-	private List<NameValuePairList> nvlist;
+	public final Iterable<Value> values;
+	private List<NameValuePairList> nvlist = null;
 
-	public Quantifier(INPattern pattern, ValueList values)
+	public Quantifier(INPattern pattern, Iterable<Value> values)
 	{
 		this.pattern = pattern;
 		this.values = values;
-		this.nvlist = new Vector<NameValuePairList>(values.size());
 	}
 
-	public int size(Context ctxt, boolean allPossibilities)
+	/**
+	 * Iterate over the name/value pairs produced by matching the pattern against
+	 * each of the values. Values that do not match the pattern are skipped.
+	 */
+	public Iterator<NameValuePairList> iterator(Context ctxt, boolean allPossibilities)
 	{
-		for (Value value: values)
+		if (values instanceof ValueList)
 		{
-			try
+			if (nvlist == null)
 			{
-				if (allPossibilities)
-				{
-					nvlist.addAll(pattern.getAllNamedValues(value, ctxt));
-				}
-				else
+				nvlist = new Vector<NameValuePairList>(((ValueList)values).size());
+				Iterator<NameValuePairList> iter = new NamedValuesIterator(ctxt, allPossibilities);
+
+				while (iter.hasNext())
 				{
-					nvlist.add(pattern.getNamedValues(value, ctxt));
+					nvlist.add(iter.next());
 				}
 			}
-			catch (PatternMatchException e)
-			{
-				// Should never happen
-			}
+
+			return nvlist.iterator();
+		}
+		else
+		{
+			return new NamedValuesIterator(ctxt, allPossibilities);
 		}
-		
-		return nvlist.size();
 	}
 
-	public NameValuePairList get(int index)
-		throws PatternMatchException
+	private class NamedValuesIterator implements Iterator<NameValuePairList>
 	{
-		if (index >= nvlist.size())		// no values
+		private final Context ctxt;
+		private final boolean allPossibilities;
+		private final Iterator<Value> source;
+		private Iterator<NameValuePairList> pending = null;
+
+		public NamedValuesIterator(Context ctxt, boolean allPossibilities)
 		{
-			return new NameValuePairList();
+			this.ctxt = ctxt;
+			this.allPossibilities = allPossibilities;
+			this.source = values.iterator();
+		}
+
+		@Override
+		public boolean hasNext()
+		{
+			while (pending == null || !pending.hasNext())
+			{
+				if (!source.hasNext())
+				{
+					return false;
+				}
+
+				Value value = source.next();
+
+				try
+				{
+					if (allPossibilities)
+					{
+						pending = pattern.getAllNamedValues(value, ctxt).iterator();
+					}
+					else
+					{
+						List<NameValuePairList> one = new Vector<NameValuePairList>(1);
+						one.add(pattern.getNamedValues(value, ctxt));
+						pending = one.iterator();
+					}
+				}
+				catch (PatternMatchException e)
+				{
+					pending = null;		// Value does not match, so ignore it
+				}
+			}
+
+			return true;
 		}
 
-		return nvlist.get(index);
+		@Override
+		public NameValuePairList next()
+		{
+			if (!hasNext())
+			{
+				throw new NoSuchElementException();
+			}
+
+			return pending.next();
+		}
 	}
 }
@@ -24,55 +24,76 @@
 
 package com.fujitsu.vdmj.values;
 
+import java.util.Iterator;
 import java.util.Vector;
 
 import com.fujitsu.vdmj.runtime.Context;
-import com.fujitsu.vdmj.runtime.PatternMatchException;
-
 
+/**
+ * A list of quantifiers, which iterates over every combination of the bindings of
+ * each quantifier, with the first quantifier varying fastest. The combinations are
+ * produced lazily, so a caller that stops early (like exists or forall) does not
+ * generate the remaining combinations.
+ */
 @SuppressWarnings("serial")
 public class QuantifierList extends Vector<Quantifier>
 {
 	private int count;
-	private int[] size;
-	private int[] next;
+	private Context ctxt;
+	private boolean allPossibilities;
+	private Iterator<NameValuePairList>[] iters;
+	private NameValuePairList[] current;
 	private NameValuePairList result = null;
+	private boolean ready = false;
 	private boolean done = false;
 
+	@SuppressWarnings("unchecked")
 	public void init(Context ctxt, boolean allPossibilities)
 	{
-		count = size();
-		size = new int[count];
-		next = new int[count];
-		boolean someData = false;
-		boolean oneHasNoData = false;
-
-		for (int i=0; i<count; i++)
+		this.count = size();
+		this.ctxt = ctxt;
+		this.allPossibilities = allPossibilities;
+		this.iters = new Iterator[count];
+		this.current = new NameValuePairList[count];
+		this.ready = false;
+		this.done = (count == 0);
+
+		for (int i=0; i<count && !done; i++)
 		{
-			size[i] = get(i).size(ctxt, allPossibilities);
-			someData = someData || size[i] > 0;
-			oneHasNoData = oneHasNoData || size[i] == 0;
-			next[i] = 0;
+			iters[i] = get(i).iterator(ctxt, allPossibilities);
+
+			if (iters[i].hasNext())
+			{
+				current[i] = iters[i].next();
+			}
+			else
+			{
+				done = true;	// One has no data
+			}
 		}
 
-		done = count == 0 || !someData || oneHasNoData;
+		ready = !done;
 	}
 
 	private void permute()
 	{
 		for (int i=0; i<count; i++)
 		{
-			if (++next[i] < size[i])
+			if (iters[i].hasNext())
 			{
-				break;
+				current[i] = iters[i].next();
+				ready = true;
+				return;
 			}
 
-			next[i] = 0;
-
 			if (i == count-1)
 			{
 				done = true;
+				return;
 			}
+
+			iters[i] = get(i).iterator(ctxt, allPossibilities);	// Restart this one
+			current[i] = iters[i].next();
 		}
 	}
 
@@ -83,28 +104,30 @@ public class QuantifierList extends Vector<Quantifier>
 
 	public boolean hasNext()
 	{
-		while (!done)
+		if (!ready)
 		{
-			try
+			if (done)
 			{
-           		result = new NameValuePairList();
+				return false;
+			}
 
-        		for (int i=0; i<count; i++)
-        		{
-        			Quantifier q = get(i);
-        			result.addAll(q.get(next[i]));
-        		}
+			permute();
 
-        		permute();
-        		return true;
-			}
-			catch (PatternMatchException e)
+			if (done)
 			{
-				permute();		// Bad matches are ignored
+				return false;
 			}
 		}
 
-		return false;
+		result = new NameValuePairList();
+
+		for (int i=0; i<count; i++)
+		{
+			result.addAll(current[i]);
+		}
+
+		ready = false;
+		return true;
 	}
 
 	public boolean finished()
@@ -44,6 +44,7 @@ public class RecordValue extends Value
 	public final FunctionValue invariant;
 	public final FunctionValue equality;
 	public final FunctionValue ordering;
+	public final FunctionValue hashing;
 	
 	// mk_ expressions
 	public RecordValue(TCRecordType type, ValueList values, Context ctxt) throws ValueException
@@ -53,6 +54,7 @@ public class RecordValue extends Value
 		this.invariant = type.getInvariant(ctxt);
 		this.equality = type.getEquality(ctxt);
 		this.ordering = type.getOrder(ctxt);
+		this.hashing = type.getHash(ctxt);
 
 		if (values.size() != type.fields.size())
 		{
@@ -79,6 +81,7 @@ public class RecordValue extends Value
 		this.invariant = type.getInvariant(ctxt);
 		this.equality = type.getEquality(ctxt);
 		this.ordering = type.getOrder(ctxt);
+		this.hashing = type.getHash(ctxt);
 
 		if (mapvalues.size() != type.fields.size())
 		{
@@ -103,14 +106,16 @@ public class RecordValue extends Value
 		checkInvariant(ctxt);
 	}
 
-	// Only called by clone()
-	private RecordValue(TCRecordType type, FieldMap mapvalues,
-			FunctionValue invariant, FunctionValue equality, FunctionValue ordering)
+	// Only called by clone() and ValueCopier
+	RecordValue(TCRecordType type, FieldMap mapvalues,
+			FunctionValue invariant, FunctionValue equality, FunctionValue ordering,
+			FunctionValue hashing)
 	{
 		this.type = type;
 		this.invariant = invariant;
 		this.equality = equality;
 		this.ordering = ordering;
+		this.hashing = hashing;
 		this.fieldmap = mapvalues;
 	}
 
@@ -121,6 +126,7 @@ public class RecordValue extends Value
 		this.invariant = null;
 		this.equality = null;
 		this.ordering = null;
+		this.hashing = null;
 		this.fieldmap = new FieldMap();
 
 		for (NameValuePair nvp: mapvalues)
@@ -197,7 +203,7 @@ public class RecordValue extends Value
 			nm.add(fv.name, uv, fv.comparable);
 		}
 
-		RecordValue rval = new RecordValue(type, nm, invariant, equality, ordering);
+		RecordValue rval = new RecordValue(type, nm, invariant, equality, ordering, hashing);
 		UpdatableValue uval = UpdatableValue.factory(rval, listeners);
 		
 		if (invl != null)
@@ -220,7 +226,7 @@ public class RecordValue extends Value
 			nm.add(fv.name, uv, fv.comparable);
 		}
 
-		return new RecordValue(type, nm, invariant, equality, ordering);
+		return new RecordValue(type, nm, invariant, equality, ordering, hashing);
 	}
 
 	@Override
@@ -395,7 +401,20 @@ public class RecordValue extends Value
 	@Override
 	public int hashCode()
 	{
-		return type.name.hashCode() + fieldmap.hashCode();
+		if (equality != null && hashing != null)
+		{
+			return hashing.evalHash(this);
+		}
+		else if (equality != null)
+		{
+			// As with InvariantValue, the hashCode has to be consistent with the
+			// equality function, but we cannot distinguish unequal values.
+			return type.name.hashCode();
+		}
+		else
+		{
+			return type.name.hashCode() + fieldmap.hashCode();
+		}
 	}
 
 	@Override
@@ -420,7 +439,7 @@ public class RecordValue extends Value
 	@Override
 	public Object clone()
 	{
-		return new RecordValue(type, (FieldMap)fieldmap.clone(), invariant, equality, ordering);
+		return new RecordValue(type, (FieldMap)fieldmap.clone(), invariant, equality, ordering, hashing);
 	}
 
 	@Override
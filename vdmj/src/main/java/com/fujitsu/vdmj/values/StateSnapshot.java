@@ -0,0 +1,286 @@
+/*******************************************************************************
+ *
+ *	Copyright (c) 2023 Nick Battle.
+ *
+ *	Author: Nick Battle
+ *
+ *	This file is part of VDMJ.
+ *
+ *	VDMJ is free software: you can redistribute it and/or modify
+ *	it under the terms of the GNU General Public License as published by
+ *	the Free Software Foundation, either version 3 of the License, or
+ *	(at your option) any later version.
+ *
+ *	VDMJ is distributed in the hope that it will be useful,
+ *	but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *	GNU General Public License for more details.
+ *
+ *	You should have received a copy of the GNU General Public License
+ *	along with VDMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *	SPDX-License-Identifier: GPL-3.0-or-later
+ *
+ ******************************************************************************/
+
+package com.fujitsu.vdmj.values;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Stack;
+
+import com.fujitsu.vdmj.in.definitions.INClassDefinition;
+import com.fujitsu.vdmj.in.definitions.INStateDefinition;
+import com.fujitsu.vdmj.runtime.ClassContext;
+import com.fujitsu.vdmj.runtime.Context;
+import com.fujitsu.vdmj.runtime.ObjectContext;
+import com.fujitsu.vdmj.runtime.StateContext;
+
+/**
+ * A snapshot of the mutable interpreter state reachable from a Context, which can
+ * be restored in place. This is used to reset the state between trace tests, rather
+ * than copying the whole context with Java serialization.
+ * 
+ * Values are immutable, apart from UpdatableValues, the sequences and maps that they
+ * contain (which are updated in place by state designators), their listener lists
+ * and the operation history counters. So the snapshot records these, and restoring
+ * puts them back. Anything created after the snapshot is simply dropped when the
+ * values that refer to it are restored. Module state and class statics are held by
+ * their definitions, so these are included via the operations that use them.
+ */
+public class StateSnapshot
+{
+	private final Map<UpdatableValue, Value> values = new IdentityHashMap<UpdatableValue, Value>();
+	private final Map<UpdatableValue, ValueListenerList> listeners = new IdentityHashMap<UpdatableValue, ValueListenerList>();
+	private final Map<ValueListenerList, ValueListenerList> listenerLists = new IdentityHashMap<ValueListenerList, ValueListenerList>();
+	private final Map<ValueList, ValueList> seqs = new IdentityHashMap<ValueList, ValueList>();
+	private final Map<ValueMap, ValueMap> maps = new IdentityHashMap<ValueMap, ValueMap>();
+	private final Map<OperationValue, int[]> counters = new IdentityHashMap<OperationValue, int[]>();
+	private final Map<Object, Object> locks = new IdentityHashMap<Object, Object>();
+
+	private final Map<Object, Object> visited = new IdentityHashMap<Object, Object>();
+	private final Stack<Object> pending = new Stack<Object>();
+
+	public StateSnapshot(Context ctxt)
+	{
+		pending.push(ctxt);
+
+		while (!pending.isEmpty())
+		{
+			Object next = pending.pop();
+
+			if (next != null && visited.put(next, next) == null)
+			{
+				visit(next);
+			}
+		}
+
+		visited.clear();
+	}
+
+	/**
+	 * Put every value recorded back to its state when the snapshot was taken.
+	 */
+	public void restore()
+	{
+		for (Entry<UpdatableValue, Value> entry: values.entrySet())
+		{
+			entry.getKey().restore(entry.getValue());
+		}
+
+		for (Entry<UpdatableValue, ValueListenerList> entry: listeners.entrySet())
+		{
+			entry.getKey().listeners = entry.getValue();
+		}
+
+		for (Entry<ValueListenerList, ValueListenerList> entry: listenerLists.entrySet())
+		{
+			entry.getKey().clear();
+			entry.getKey().addAll(entry.getValue());
+		}
+
+		for (Entry<ValueList, ValueList> entry: seqs.entrySet())
+		{
+			entry.getKey().clear();
+			entry.getKey().addAll(entry.getValue());
+		}
+
+		for (Entry<ValueMap, ValueMap> entry: maps.entrySet())
+		{
+			entry.getKey().clear();
+			entry.getKey().putAll(entry.getValue());	// Shares the saved trie
+		}
+
+		for (Entry<OperationValue, int[]> entry: counters.entrySet())
+		{
+			OperationValue op = entry.getKey();
+			int[] saved = entry.getValue();
+			op.hashAct = saved[0];
+			op.hashFin = saved[1];
+			op.hashReq = saved[2];
+		}
+
+		for (Object object: locks.keySet())
+		{
+			if (object instanceof ObjectValue)
+			{
+				((ObjectValue)object).guardLock.reset();
+			}
+			else
+			{
+				((INClassDefinition)object).guardLock.reset();
+			}
+		}
+	}
+
+	private void visit(Object next)
+	{
+		if (next instanceof Context)
+		{
+			visitContext((Context)next);
+		}
+		else if (next instanceof UpdatableValue)
+		{
+			UpdatableValue uv = (UpdatableValue)next;
+			values.put(uv, uv.value);
+			listeners.put(uv, uv.listeners);
+
+			if (uv.listeners != null && !listenerLists.containsKey(uv.listeners))
+			{
+				listenerLists.put(uv.listeners, new ValueListenerList(uv.listeners));
+				pending.addAll(uv.listeners);
+			}
+
+			Value inner = uv.value;
+
+			while (inner instanceof InvariantValue)
+			{
+				inner = ((InvariantValue)inner).value;
+			}
+
+			// Designators update these in place, eg. m(k) := v, or s(len s + 1) := v
+
+			if (inner instanceof SeqValue)
+			{
+				ValueList list = ((SeqValue)inner).values;
+				seqs.put(list, new ValueList(list));
+			}
+			else if (inner instanceof MapValue)
+			{
+				ValueMap map = ((MapValue)inner).values;
+				maps.put(map, new ValueMap(map));
+			}
+
+			pending.push(uv.value);
+		}
+		else if (next instanceof InvariantValue)
+		{
+			pending.push(((InvariantValue)next).value);
+		}
+		else if (next instanceof SeqValue)
+		{
+			pending.addAll(((SeqValue)next).values);
+		}
+		else if (next instanceof SetValue)
+		{
+			pending.addAll(((SetValue)next).values);
+		}
+		else if (next instanceof MapValue)
+		{
+			for (Entry<Value, Value> entry: ((MapValue)next).values.entrySet())
+			{
+				pending.push(entry.getKey());
+				pending.push(entry.getValue());
+			}
+		}
+		else if (next instanceof TupleValue)
+		{
+			pending.addAll(((TupleValue)next).values);
+		}
+		else if (next instanceof RecordValue)
+		{
+			for (FieldValue field: ((RecordValue)next).fieldmap)
+			{
+				pending.push(field.value);
+			}
+		}
+		else if (next instanceof ObjectValue)
+		{
+			ObjectValue obj = (ObjectValue)next;
+			locks.put(obj, obj);
+			pending.addAll(obj.members.values());
+			pending.addAll(obj.superobjects);
+			pending.push(obj.invlistener);
+			visitClass(obj.classdef);
+		}
+		else if (next instanceof OperationValue)
+		{
+			OperationValue op = (OperationValue)next;
+			counters.put(op, new int[] { op.hashAct, op.hashFin, op.hashReq });
+			pending.push(op.getSelf());
+			pending.push(op.precondition);
+			pending.push(op.postcondition);
+			visitState(op.state);
+			visitClass(op.classdef);
+		}
+		else if (next instanceof FunctionValue)
+		{
+			FunctionValue fv = (FunctionValue)next;
+			pending.push(fv.freeVariables);
+			pending.push(fv.self);
+			pending.push(fv.precondition);
+			pending.push(fv.postcondition);
+			visitClass(fv.classdef);
+		}
+		else if (next instanceof ClassInvariantListener)
+		{
+			pending.push(((ClassInvariantListener)next).invopvalue);
+		}
+		else if (next instanceof InvariantValueListener)
+		{
+			pending.push(((InvariantValueListener)next).getValue());
+		}
+		else if (next instanceof State)
+		{
+			State state = (State)next;
+			pending.push(state.context);
+			pending.push(state.recordValue);
+		}
+	}
+
+	private void visitContext(Context ctxt)
+	{
+		pending.addAll(ctxt.values());
+		pending.push(ctxt.outer);
+
+		if (ctxt instanceof StateContext)
+		{
+			pending.push(((StateContext)ctxt).stateCtxt);
+		}
+		else if (ctxt instanceof ObjectContext)
+		{
+			pending.push(((ObjectContext)ctxt).self);
+		}
+		else if (ctxt instanceof ClassContext)
+		{
+			visitClass(((ClassContext)ctxt).classdef);
+		}
+	}
+
+	private void visitState(INStateDefinition definition)
+	{
+		if (definition != null)
+		{
+			pending.push(definition.getState());
+		}
+	}
+
+	private void visitClass(INClassDefinition classdef)
+	{
+		if (classdef != null && !locks.containsKey(classdef))
+		{
+			locks.put(classdef, classdef);
+			pending.push(classdef.getStatics());
+		}
+	}
+}
@@ -65,7 +65,7 @@ public class TransactionValue extends UpdatableValue
 		newvalue = value;
 	}
 
-	private Value select()
+	Value select()
 	{
 		if (newthreadid > 0 &&
 			Thread.currentThread().getId() == newthreadid)
@@ -185,6 +185,22 @@ public class TransactionValue extends UpdatableValue
 		return new TransactionValue((Value)select().clone(), listeners, restrictedTo);
 	}
 
+	@Override
+	synchronized void restore(Value saved)
+	{
+		synchronized (commitList)
+		{
+			if (newthreadid > 0)
+			{
+				commitList.remove(this);	// Discard any pending change
+			}
+
+			value = saved;
+			newvalue = saved;
+			newthreadid = -1;
+		}
+	}
+
 	@Override
 	public synchronized boolean isType(Class<? extends Value> valueclass)
 	{
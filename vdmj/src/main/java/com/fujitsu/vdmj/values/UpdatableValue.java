@@ -156,8 +156,19 @@ public class UpdatableValue extends ReferenceValue
 				value.apply(new InvariantListenerEditor(), value);
 			}
 			
-   			UpdatableValue updated = newval.getConstant().getUpdatable(listeners);
-    		
+			UpdatableValue updated = null;
+			Value newmap = newval.deref();
+
+			if (value instanceof MapValue && newmap instanceof MapValue)
+			{
+				// Only the entries that are not shared with the current map are copied
+				updated = ((MapValue)newmap).getUpdatable(listeners, (MapValue)value);
+			}
+			else
+			{
+				updated = newval.getConstant().getUpdatable(listeners);
+			}
+
     		if (restrictedTo != null)
     		{
 				updated = (UpdatableValue) updated.convertTo(restrictedTo, ctxt);
@@ -212,6 +223,14 @@ public class UpdatableValue extends ReferenceValue
 		return new UpdatableValue((Value)value.clone(), listeners, restrictedTo);
 	}
 
+	/**
+	 * Put back a value saved by a StateSnapshot, without any checks or listeners.
+	 */
+	synchronized void restore(Value saved)
+	{
+		value = saved;
+	}
+
 	@Override
 	public synchronized boolean isType(Class<? extends Value> valueclass)
 	{
@@ -174,6 +174,44 @@ abstract public class Value implements Comparable<Value>, Serializable, Formatta
 		}
 	}
 
+	/**
+	 * Perform a dynamic type conversion of a value that is about to be assigned to
+	 * replace a base value, which is already of the target type. This is the same
+	 * as the convertTo above, except that structured values can skip converting the
+	 * parts that they still share with the base.
+	 *
+	 * @param to The target type.
+	 * @param ctxt The context in which to make the conversion.
+	 * @param base The value being replaced.
+	 * @return This value converted to the target type.
+	 *
+	 * @throws ValueException Cannot perform the type conversion.
+	 */
+	public final Value convertTo(TCType to, Context ctxt, Value base) throws ValueException
+	{
+		if (Settings.dynamictypechecks)
+		{
+			try
+			{
+				ctxt.threadState.setAtomic(true);
+				return convertUpdateTo(to, ctxt, base);
+			}
+			finally
+			{
+				ctxt.threadState.setAtomic(false);
+			}
+		}
+		else
+		{
+			return this;
+		}
+	}
+
+	protected Value convertUpdateTo(TCType to, Context ctxt, Value base) throws ValueException
+	{
+		return convertValueTo(to, ctxt);
+	}
+
 	/**
 	 * Methods to convert a Value to a different type. Note that the main method above
 	 * is final, with the atomic lock, whereas these methods are protected as they are
@@ -181,7 +219,7 @@ abstract public class Value implements Comparable<Value>, Serializable, Formatta
 	 */
 	public Value convertValueTo(TCType to, Context ctxt) throws ValueException
 	{
-		return convertValueTo(to, ctxt, new TCTypeSet());
+		return convertValueTo(to, ctxt, null);	// The done set is created if needed
 	}
 
 	protected Value convertValueTo(TCType to, Context ctxt, TCTypeSet done) throws ValueException
@@ -191,6 +229,11 @@ abstract public class Value implements Comparable<Value>, Serializable, Formatta
 			TCUnionType uto = (TCUnionType)to;
 			Value matched = null;
 
+			if (done == null)
+			{
+				done = new TCTypeSet();
+			}
+
 			for (TCType ut: uto.types)
 			{
 				if (!done.contains(ut))
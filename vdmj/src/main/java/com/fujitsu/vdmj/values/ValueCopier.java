@@ -0,0 +1,250 @@
+/*******************************************************************************
+ *
+ *	Copyright (c) 2023 Nick Battle.
+ *
+ *	Author: Nick Battle
+ *
+ *	This file is part of VDMJ.
+ *
+ *	VDMJ is free software: you can redistribute it and/or modify
+ *	it under the terms of the GNU General Public License as published by
+ *	the Free Software Foundation, either version 3 of the License, or
+ *	(at your option) any later version.
+ *
+ *	VDMJ is distributed in the hope that it will be useful,
+ *	but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *	GNU General Public License for more details.
+ *
+ *	You should have received a copy of the GNU General Public License
+ *	along with VDMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *	SPDX-License-Identifier: GPL-3.0-or-later
+ *
+ ******************************************************************************/
+
+package com.fujitsu.vdmj.values;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import com.fujitsu.vdmj.scheduler.Lock;
+import com.fujitsu.vdmj.tc.lex.TCNameToken;
+
+/**
+ * A deep copier for object values, replacing a round trip through Java
+ * serialization. Objects, updatable values and the listeners that watch them are
+ * copied once, so that values shared within the original, such as the parent and
+ * subclass copies of the same variable, are still shared in the copy. Structured
+ * values are rebuilt around copies of their members. Definitions, types and simple
+ * values are immutable, so they are shared with the original.
+ */
+class ValueCopier
+{
+	private final Map<Object, Object> copies = new IdentityHashMap<Object, Object>();
+
+	public Value copy(Value value)
+	{
+		if (value == null)
+		{
+			return null;
+		}
+
+		Value copy = (Value)copies.get(value);
+
+		if (copy != null)
+		{
+			return copy;
+		}
+
+		if (value instanceof CPUValue || value instanceof BUSValue)
+		{
+			copy = value;		// System resources are not copied
+		}
+		else if (value instanceof ObjectValue)
+		{
+			copy = copyObject((ObjectValue)value);
+		}
+		else if (value instanceof UpdatableValue)
+		{
+			copy = copyUpdatable((UpdatableValue)value);
+		}
+		else if (value instanceof InvariantValue)
+		{
+			InvariantValue ival = (InvariantValue)value;
+			copy = new InvariantValue(ival.type, copy(ival.value), ival.invariant, ival.equality, ival.ordering, ival.hashing);
+		}
+		else if (value instanceof SeqValue)
+		{
+			copy = new SeqValue(copyList(((SeqValue)value).values));
+		}
+		else if (value instanceof SetValue)
+		{
+			ValueSet from = ((SetValue)value).values;
+			ValueSet set = new ValueSet(from.size());
+
+			for (Value v: from)
+			{
+				set.add(copy(v));
+			}
+
+			copy = new SetValue(set, false);	// Already sorted
+		}
+		else if (value instanceof MapValue)
+		{
+			ValueMap map = new ValueMap();
+
+			for (Entry<Value, Value> entry: ((MapValue)value).values.entrySet())
+			{
+				map.put(copy(entry.getKey()), copy(entry.getValue()));
+			}
+
+			copy = new MapValue(map);
+		}
+		else if (value instanceof TupleValue)
+		{
+			copy = new TupleValue(copyList(((TupleValue)value).values));
+		}
+		else if (value instanceof RecordValue)
+		{
+			RecordValue rval = (RecordValue)value;
+			FieldMap fields = new FieldMap();
+
+			for (FieldValue field: rval.fieldmap)
+			{
+				fields.add(field.name, copy(field.value), field.comparable);
+			}
+
+			copy = new RecordValue(rval.type, fields, rval.invariant, rval.equality, rval.ordering, rval.hashing);
+		}
+		else if (value.getClass() == OperationValue.class)
+		{
+			copy = ((OperationValue)value).copy();
+		}
+		else if (value.getClass() == FunctionValue.class)
+		{
+			copy = ((FunctionValue)value).copy();
+		}
+		else
+		{
+			copy = value;		// Immutable
+		}
+
+		copies.put(value, copy);
+		return copy;
+	}
+
+	private ObjectValue copyObject(ObjectValue from)
+	{
+		ObjectValue copy = new ObjectValue(from);
+		copies.put(from, copy);
+		copies.put(from.guardLock, copy.guardLock);
+
+		for (ObjectValue sobj: from.superobjects)
+		{
+			copy.superobjects.add((ObjectValue)copy(sobj));
+		}
+
+		for (Entry<TCNameToken, Value> member: from.members.entrySet())
+		{
+			copy.members.put(member.getKey(), copy(member.getValue()));
+		}
+
+		copy.invlistener = (ClassInvariantListener)copyListener(from.invlistener);
+		copy.setSelf(copy);		// Any subclass copy will set this again
+		return copy;
+	}
+
+	private UpdatableValue copyUpdatable(UpdatableValue from)
+	{
+		UpdatableValue copy = (from instanceof TransactionValue) ?
+			new TransactionValue((ValueListenerList)null, from.restrictedTo) :
+			new UpdatableValue((ValueListenerList)null, from.restrictedTo);
+
+		copies.put(from, copy);		// Before listeners, which can refer back to it
+		copy.listeners = copyListeners(from.listeners);
+
+		Value current = (from instanceof TransactionValue) ?
+			((TransactionValue)from).select() : from.value;
+
+		copy.restore(copy(current));
+		return copy;
+	}
+
+	private ValueList copyList(ValueList from)
+	{
+		ValueList list = new ValueList(from.size());
+
+		for (Value v: from)
+		{
+			list.add(copy(v));
+		}
+
+		return list;
+	}
+
+	private ValueListenerList copyListeners(ValueListenerList from)
+	{
+		if (from == null)
+		{
+			return null;
+		}
+
+		ValueListenerList copy = (ValueListenerList)copies.get(from);
+
+		if (copy == null)
+		{
+			copy = new ValueListenerList();
+			copies.put(from, copy);
+
+			for (ValueListener listener: from)
+			{
+				copy.add(copyListener(listener));
+			}
+		}
+
+		return copy;
+	}
+
+	private ValueListener copyListener(ValueListener from)
+	{
+		if (from == null)
+		{
+			return null;
+		}
+
+		ValueListener copy = (ValueListener)copies.get(from);
+
+		if (copy != null)
+		{
+			return copy;
+		}
+
+		if (from instanceof ClassInvariantListener)
+		{
+			ClassInvariantListener cil = (ClassInvariantListener)from;
+			ClassInvariantListener clc = new ClassInvariantListener((OperationValue)copy(cil.invopvalue));
+			clc.doInvariantChecks = cil.doInvariantChecks;
+			copy = clc;
+		}
+		else if (from instanceof GuardValueListener)
+		{
+			Lock lock = (Lock)copies.get(((GuardValueListener)from).getLock());
+			copy = (lock == null) ? from : new GuardValueListener(lock);
+		}
+		else if (from instanceof InvariantValueListener)
+		{
+			InvariantValueListener ivl = new InvariantValueListener();
+			copies.put(from, ivl);		// Before the root, which it watches
+			ivl.setValue((UpdatableValue)copy(((InvariantValueListener)from).getValue()));
+			copy = ivl;
+		}
+		else
+		{
+			copy = from;
+		}
+
+		copies.put(from, copy);
+		return copy;
+	}
+}
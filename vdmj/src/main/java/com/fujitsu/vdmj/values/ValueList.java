@@ -18,23 +18,65 @@
  *
  *	You should have received a copy of the GNU General Public License
  *	along with VDMJ.  If not, see <http://www.gnu.org/licenses/>.
- *	SPDX-License-Identifier: GPL-3.0-or-later
+ *	SPDX-License-Identifier: GPL-3.0-or-later
  *
  ******************************************************************************/
 
 package com.fujitsu.vdmj.values;
 
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
 import java.util.Vector;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
 
 import com.fujitsu.vdmj.util.Utils;
 
 /**
  * A sequential list of values.
+ * 
+ * Lists created as a range or concatenation of other lists share the other's
+ * element array rather than copying it, so that tl, subsequences and the
+ * concatenation patterns are O(1), and s ^ t copies only t when nothing else
+ * has appended to s. A range that is small compared to the array is copied
+ * instead, so that a short list does not keep a large array alive. A shared
+ * list reads its values from elementData, starting
+ * at offset, and copies them into an array of its own the first time it is
+ * modified (copy-on-write), so SeqValue.values can still be updated in place.
+ * Methods that read the list in O(1) use the offset directly; the others move
+ * the values to the start of a new array first, which is no more than the O(n)
+ * cost of the read itself.
  */
 
 @SuppressWarnings("serial")
 public class ValueList extends Vector<Value>
 {
+	/**
+	 * Common to all of the lists that share one element array, recording how
+	 * much of the array is in use. The unused capacity after that can be
+	 * appended to by a concatenation in place.
+	 */
+	private static class Share
+	{
+		private int used;
+
+		private Share(int used)
+		{
+			this.used = used;
+		}
+	}
+
+	private transient Share share = null;	// Non-null if elementData is shared
+	private transient int offset = 0;		// Index of our first value in elementData
+
 	public ValueList()
 	{
 		super();
@@ -42,8 +84,557 @@ public class ValueList extends Vector<Value>
 
 	public ValueList(ValueList from)
 	{
-		super(from.size());
-		addAll(from);
+		super(0);
+		elementData = from.toArray();
+		elementCount = elementData.length;
+	}
+
+	/**
+	 * Create a list from the values of another, from start (inclusive) to end
+	 * (exclusive). The new list shares the other's values, so this is O(1),
+	 * unless the range is small enough to copy.
+	 */
+	public ValueList(ValueList from, int start, int end)
+	{
+		super(0);
+
+		synchronized (from)
+		{
+			if (start < 0 || end > from.elementCount || end < start)
+			{
+				throw new IndexOutOfBoundsException("Range " + start + " to " + end);
+			}
+
+			if (end > start)
+			{
+				shareWith(from, from.offset + start, end - start);
+			}
+		}
+	}
+
+	/**
+	 * Create a list that is the concatenation of two others. If the left list
+	 * ends where its array's used values end, and there is room, the right
+	 * list's values are appended in place and the array is shared. Otherwise
+	 * both are copied into a new array, with room to append more.
+	 */
+	public ValueList(ValueList left, ValueList right)
+	{
+		super(0);
+		Object[] rvalues = right.toArray();
+
+		synchronized (left)
+		{
+			int lcount = left.elementCount;
+			int count = lcount + rvalues.length;
+			int end = left.offset + lcount;
+
+			if (rvalues.length == 0)
+			{
+				if (lcount > 0)
+				{
+					shareWith(left, left.offset, lcount);
+				}
+
+				return;
+			}
+			else if (lcount == 0)
+			{
+				elementData = rvalues;		// A new copy
+				elementCount = count;
+				return;
+			}
+			else if (left.offset + count <= left.elementData.length)
+			{
+				if (left.share == null)
+				{
+					left.share = new Share(end);
+				}
+
+				synchronized (left.share)
+				{
+					if (left.share.used == end)
+					{
+						System.arraycopy(rvalues, 0, left.elementData, end, rvalues.length);
+						left.share.used = end + rvalues.length;
+						shareWith(left, left.offset, count);
+						return;
+					}
+				}
+			}
+
+			elementData = new Object[count + (count >> 1)];
+			System.arraycopy(left.elementData, left.offset, elementData, 0, lcount);
+			System.arraycopy(rvalues, 0, elementData, lcount, rvalues.length);
+			elementCount = count;
+		}
+	}
+
+	/**
+	 * Share count values of another list's array, from start. The other list
+	 * is locked by the caller. If the values are less than a quarter of the
+	 * array, they are copied, which limits the unused array that we retain.
+	 */
+	private void shareWith(ValueList from, int start, int count)
+	{
+		if (count < from.elementData.length / 4)
+		{
+			elementData = Arrays.copyOfRange(from.elementData, start, start + count);
+			elementCount = count;
+			return;
+		}
+
+		if (from.share == null)
+		{
+			from.share = new Share(from.elementCount);		// Offset is zero
+		}
+
+		elementData = from.elementData;
+		elementCount = count;
+		offset = start;
+		share = from.share;
+	}
+
+	/**
+	 * Copy the values into an array of our own, if it is shared, before the
+	 * list is modified.
+	 */
+	private void unshare()
+	{
+		if (share != null)
+		{
+			Object[] values = new Object[elementCount + (elementCount >> 1) + 1];
+			System.arraycopy(elementData, offset, values, 0, elementCount);
+			elementData = values;
+			offset = 0;
+			share = null;
+		}
+	}
+
+	/**
+	 * Make the values start at elementData[0], before an inherited method reads
+	 * them directly.
+	 */
+	private void flatten()
+	{
+		if (offset != 0)
+		{
+			unshare();
+		}
+	}
+
+	/**
+	 * Serialization writes the whole of elementData, so a shared array is
+	 * replaced by a copy first.
+	 */
+	protected synchronized Object writeReplace()
+	{
+		unshare();
+		return this;
+	}
+
+	@Override
+	public synchronized Value get(int index)
+	{
+		if (index < 0 || index >= elementCount)
+		{
+			throw new ArrayIndexOutOfBoundsException(index);
+		}
+
+		return (Value)elementData[offset + index];
+	}
+
+	@Override
+	public synchronized Value elementAt(int index)
+	{
+		return get(index);
+	}
+
+	@Override
+	public synchronized Value firstElement()
+	{
+		if (elementCount == 0)
+		{
+			throw new NoSuchElementException();
+		}
+
+		return (Value)elementData[offset];
+	}
+
+	@Override
+	public synchronized Value lastElement()
+	{
+		if (elementCount == 0)
+		{
+			throw new NoSuchElementException();
+		}
+
+		return (Value)elementData[offset + elementCount - 1];
+	}
+
+	@Override
+	public synchronized Object[] toArray()
+	{
+		return Arrays.copyOfRange(elementData, offset, offset + elementCount);
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public synchronized <T> T[] toArray(T[] a)
+	{
+		if (a.length < elementCount)
+		{
+			return (T[])Arrays.copyOfRange(elementData, offset, offset + elementCount, a.getClass());
+		}
+
+		System.arraycopy(elementData, offset, a, 0, elementCount);
+
+		if (a.length > elementCount)
+		{
+			a[elementCount] = null;
+		}
+
+		return a;
+	}
+
+	@Override
+	public synchronized void copyInto(Object[] anArray)
+	{
+		System.arraycopy(elementData, offset, anArray, 0, elementCount);
+	}
+
+	@Override
+	public boolean equals(Object other)
+	{
+		if (other == this)
+		{
+			return true;
+		}
+		else if (other instanceof ValueList)
+		{
+			ValueList ol = (ValueList)other;
+
+			if (ol.size() != size())
+			{
+				return false;		// Quickly, as in "s = []"
+			}
+
+			Object[] ovalues = ol.toArray();	// Not holding our lock
+
+			synchronized (this)
+			{
+				if (ovalues.length != elementCount)
+				{
+					return false;
+				}
+
+				for (int i = 0; i < elementCount; i++)
+				{
+					Object v = elementData[offset + i];
+
+					if (v == null ? ovalues[i] != null : !v.equals(ovalues[i]))
+					{
+						return false;
+					}
+				}
+
+				return true;
+			}
+		}
+		else
+		{
+			synchronized (this)
+			{
+				flatten();
+			}
+
+			return super.equals(other);
+		}
+	}
+
+	@Override
+	public synchronized int hashCode()
+	{
+		int hash = 1;
+
+		for (int i = offset; i < offset + elementCount; i++)
+		{
+			Object v = elementData[i];
+			hash = 31 * hash + (v == null ? 0 : v.hashCode());
+		}
+
+		return hash;
+	}
+
+	/*
+	 * Methods that read the values via elementData directly.
+	 */
+
+	@Override
+	public synchronized int capacity()
+	{
+		flatten();
+		return super.capacity();
+	}
+
+	@Override
+	public synchronized Enumeration<Value> elements()
+	{
+		flatten();
+		return super.elements();
+	}
+
+	@Override
+	public synchronized boolean contains(Object o)
+	{
+		flatten();
+		return super.contains(o);
+	}
+
+	@Override
+	public synchronized boolean containsAll(Collection<?> c)
+	{
+		flatten();
+		return super.containsAll(c);
+	}
+
+	@Override
+	public synchronized int indexOf(Object o)
+	{
+		flatten();
+		return super.indexOf(o);
+	}
+
+	@Override
+	public synchronized int indexOf(Object o, int index)
+	{
+		flatten();
+		return super.indexOf(o, index);
+	}
+
+	@Override
+	public synchronized int lastIndexOf(Object o)
+	{
+		flatten();
+		return super.lastIndexOf(o);
+	}
+
+	@Override
+	public synchronized int lastIndexOf(Object o, int index)
+	{
+		flatten();
+		return super.lastIndexOf(o, index);
+	}
+
+	@Override
+	public synchronized List<Value> subList(int fromIndex, int toIndex)
+	{
+		flatten();
+		return super.subList(fromIndex, toIndex);
+	}
+
+	@Override
+	public synchronized Iterator<Value> iterator()
+	{
+		flatten();
+		return super.iterator();
+	}
+
+	@Override
+	public synchronized ListIterator<Value> listIterator()
+	{
+		flatten();
+		return super.listIterator();
+	}
+
+	@Override
+	public synchronized ListIterator<Value> listIterator(int index)
+	{
+		flatten();
+		return super.listIterator(index);
+	}
+
+	@Override
+	public Spliterator<Value> spliterator()
+	{
+		synchronized (this)
+		{
+			flatten();
+		}
+
+		return super.spliterator();
+	}
+
+	@Override
+	public synchronized void forEach(Consumer<? super Value> action)
+	{
+		flatten();
+		super.forEach(action);
+	}
+
+	/*
+	 * Methods that modify the list, which copy a shared array first.
+	 */
+
+	@Override
+	public synchronized void trimToSize()
+	{
+		unshare();
+		super.trimToSize();
+	}
+
+	@Override
+	public synchronized void ensureCapacity(int minCapacity)
+	{
+		unshare();
+		super.ensureCapacity(minCapacity);
+	}
+
+	@Override
+	public synchronized void setSize(int newSize)
+	{
+		unshare();
+		super.setSize(newSize);
+	}
+
+	@Override
+	public synchronized void setElementAt(Value obj, int index)
+	{
+		unshare();
+		super.setElementAt(obj, index);
+	}
+
+	@Override
+	public synchronized void removeElementAt(int index)
+	{
+		unshare();
+		super.removeElementAt(index);
+	}
+
+	@Override
+	public synchronized void insertElementAt(Value obj, int index)
+	{
+		unshare();
+		super.insertElementAt(obj, index);
+	}
+
+	@Override
+	public synchronized void addElement(Value obj)
+	{
+		unshare();
+		super.addElement(obj);
+	}
+
+	@Override
+	public synchronized boolean removeElement(Object obj)
+	{
+		unshare();
+		return super.removeElement(obj);
+	}
+
+	@Override
+	public synchronized void removeAllElements()
+	{
+		unshare();
+		super.removeAllElements();
+	}
+
+	@Override
+	public synchronized Value set(int index, Value element)
+	{
+		unshare();
+		return super.set(index, element);
+	}
+
+	@Override
+	public synchronized boolean add(Value e)
+	{
+		unshare();
+		return super.add(e);
+	}
+
+	@Override
+	public synchronized boolean remove(Object o)
+	{
+		unshare();
+		return super.remove(o);
+	}
+
+	@Override
+	public synchronized void add(int index, Value element)
+	{
+		unshare();
+		super.add(index, element);
+	}
+
+	@Override
+	public synchronized Value remove(int index)
+	{
+		unshare();
+		return super.remove(index);
+	}
+
+	@Override
+	public synchronized void clear()
+	{
+		unshare();
+		super.clear();
+	}
+
+	@Override
+	public synchronized boolean addAll(Collection<? extends Value> c)
+	{
+		unshare();
+		return super.addAll(c);
+	}
+
+	@Override
+	public synchronized boolean addAll(int index, Collection<? extends Value> c)
+	{
+		unshare();
+		return super.addAll(index, c);
+	}
+
+	@Override
+	public synchronized boolean removeAll(Collection<?> c)
+	{
+		unshare();
+		return super.removeAll(c);
+	}
+
+	@Override
+	public synchronized boolean retainAll(Collection<?> c)
+	{
+		unshare();
+		return super.retainAll(c);
+	}
+
+	@Override
+	public synchronized boolean removeIf(Predicate<? super Value> filter)
+	{
+		unshare();
+		return super.removeIf(filter);
+	}
+
+	@Override
+	protected synchronized void removeRange(int fromIndex, int toIndex)
+	{
+		unshare();
+		super.removeRange(fromIndex, toIndex);
+	}
+
+	@Override
+	public synchronized void replaceAll(UnaryOperator<Value> operator)
+	{
+		unshare();
+		super.replaceAll(operator);
+	}
+
+	@Override
+	public synchronized void sort(Comparator<? super Value> c)
+	{
+		unshare();
+		super.sort(c);
 	}
 
 	public ValueList(Value v)
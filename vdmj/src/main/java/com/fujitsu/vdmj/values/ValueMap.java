@@ -24,9 +24,12 @@
 
 package com.fujitsu.vdmj.values;
 
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -38,15 +41,24 @@ import com.fujitsu.vdmj.traces.PermuteArray;
 /**
  * A map of value/values.
  * 
+ * The entries are held in a persistent hash trie (see ValueTrie), so that copying
+ * a map shares its structure with the original, and updating the copy only copies
+ * the path to the changed entry. This makes operations like "m ++ {k |-> v}" cost
+ * O(log n) rather than O(n).
+ * 
  * NOTE! As soon as an Invariant/Record value is added that defines "eq", we switch to
  * using an InvariantValueMap delegate, which only uses equals(). The problem is that
  * we only have "eq" and not a hashCode function defined, can which produce inconsistent
- * results with a HashMap (or TreeMap, with "ord" clauses).
+ * results with a HashMap (or TreeMap, with "ord" clauses). Types that give a @Hash
+ * function as well as "eq" are consistent, so they stay in the trie.
  */
 @SuppressWarnings("serial")
-public class ValueMap extends HashMap<Value, Value>
+public class ValueMap extends AbstractMap<Value, Value> implements Serializable
 {
 	private InvariantValueMap delegate = null;
+	private ValueTrie root = null;
+	private int size = 0;
+	private transient Object owner = null;	// Nodes we can update in place
 	
 	public ValueMap()
 	{
@@ -55,7 +67,7 @@ public class ValueMap extends HashMap<Value, Value>
 
 	public ValueMap(ValueMap from)
 	{
-		super(from.size());
+		super();
 		putAll(from);
 	}
 
@@ -155,13 +167,55 @@ public class ValueMap extends HashMap<Value, Value>
 	}
 
 	/**
-	 * Remaining methods are simply delegated or passed up.
+	 * The keys of this map whose values are not the same objects as in the base map
+	 * given, including keys that are not in the base. Keys that have been removed are
+	 * not included. Parts of the trie that are still shared with the base are skipped,
+	 * so for a map derived from the base by a few updates, this is O(log n).
+	 */
+	public List<Value> changedFrom(ValueMap base)
+	{
+		List<Value> keys = new Vector<Value>();
+
+		if (delegate != null || base.delegate != null)
+		{
+			for (Map.Entry<Value, Value> entry: entrySet())
+			{
+				if (base.get(entry.getKey()) != entry.getValue())
+				{
+					keys.add(entry.getKey());
+				}
+			}
+		}
+		else if (root != null)
+		{
+			root.changes(base.root, base.root, 0, keys);
+		}
+
+		return keys;
+	}
+
+	/**
+	 * The owner token for nodes that this map can update in place. This is reset
+	 * whenever the nodes are shared, so that the next update copies them.
+	 */
+	private Object owner()
+	{
+		if (owner == null)
+		{
+			owner = new Object();
+		}
+
+		return owner;
+	}
+
+	/**
+	 * Remaining methods are simply delegated or passed to the trie.
 	 */
 
 	@Override
 	public int size()
 	{
-		if (delegate != null) return delegate.size(); else return super.size();
+		if (delegate != null) return delegate.size(); else return size;
 	}
 	
 	@Override
@@ -173,13 +227,13 @@ public class ValueMap extends HashMap<Value, Value>
 	@Override
 	public boolean isEmpty()
 	{
-		if (delegate != null) return delegate.isEmpty(); else return super.isEmpty();
+		if (delegate != null) return delegate.isEmpty(); else return size == 0;
 	}
 
 	@Override
 	public boolean containsKey(Object key)
 	{
-		if (delegate != null) return delegate.containsKey(key); else return super.containsKey(key);
+		if (delegate != null) return delegate.containsKey(key); else return get(key) != null;
 	}
 
 	@Override
@@ -191,7 +245,10 @@ public class ValueMap extends HashMap<Value, Value>
 	@Override
 	public Value get(Object key)
 	{
-		if (delegate != null) return delegate.get(key); else return super.get(key);
+		if (delegate != null) return delegate.get(key);
+		if (root == null || key == null) return null;
+
+		return root.get(key, ValueTrie.hash(key), 0);
 	}
 
 	@Override
@@ -203,7 +260,7 @@ public class ValueMap extends HashMap<Value, Value>
 		{
 			InvariantValue ivalue = (InvariantValue)key;
 			
-			if (ivalue.equality != null)	// defines "eq"
+			if (ivalue.equality != null && ivalue.hashing == null)	// defines "eq" only
 			{
 				delegate = new InvariantValueMap(this);
 				return delegate.put(key, value);
@@ -213,32 +270,71 @@ public class ValueMap extends HashMap<Value, Value>
 		{
 			RecordValue rvalue = (RecordValue)key;
 			
-			if (rvalue.equality != null)	// defines "eq"
+			if (rvalue.equality != null && rvalue.hashing == null)	// defines "eq" only
 			{
 				delegate = new InvariantValueMap(this);
 				return delegate.put(key, value);
 			}
 		}
 
-		return super.put(key, value);
+		ValueTrie.Change change = new ValueTrie.Change();
+		int hash = ValueTrie.hash(key);
+
+		if (root == null)
+		{
+			root = new ValueTrie.BitmapNode(owner(), 0, new Object[0]);
+		}
+
+		root = root.put(owner(), key, value, hash, 0, change);
+		if (change.resized) size++;
+		return change.old;
 	}
 
 	@Override
 	public Value remove(Object key)
 	{
-		if (delegate != null) return delegate.remove(key); else return super.remove(key);
+		if (delegate != null) return delegate.remove(key);
+		if (root == null || key == null) return null;
+
+		ValueTrie.Change change = new ValueTrie.Change();
+		root = root.remove(owner(), key, ValueTrie.hash(key), 0, change);
+		if (change.resized) size--;
+		return change.old;
 	}
 
 	@Override
 	public void putAll(Map<? extends Value, ? extends Value> m)
 	{
-		if (delegate != null) delegate.putAll(m); else super.putAll(m);
+		if (delegate != null)
+		{
+			delegate.putAll(m);
+		}
+		else if (size == 0 && m instanceof ValueMap && ((ValueMap)m).delegate == null)
+		{
+			ValueMap from = (ValueMap)m;	// Share the trie, and both copy on update
+			from.owner = null;
+			owner = null;
+			root = from.root;
+			size = from.size;
+		}
+		else
+		{
+			super.putAll(m);
+		}
 	}
 
 	@Override
 	public void clear()
 	{
-		if (delegate != null) delegate.clear(); else super.clear();
+		if (delegate != null)
+		{
+			delegate.clear();
+		}
+		else
+		{
+			root = null;
+			size = 0;
+		}
 	}
 
 	@Override
@@ -256,6 +352,72 @@ public class ValueMap extends HashMap<Value, Value>
 	@Override
 	public Set<Map.Entry<Value, Value>> entrySet()
 	{
-		if (delegate != null) return delegate.entrySet(); else return super.entrySet();
+		if (delegate != null) return delegate.entrySet();
+
+		return new AbstractSet<Map.Entry<Value, Value>>()
+		{
+			@Override
+			public Iterator<Map.Entry<Value, Value>> iterator()
+			{
+				return new EntryIterator();
+			}
+
+			@Override
+			public int size()
+			{
+				return size;
+			}
+		};
+	}
+
+	/**
+	 * Iterate over the trie. The nodes are shared with the iterator, so that the map
+	 * can be updated during the iteration without affecting it.
+	 */
+	private class EntryIterator implements Iterator<Map.Entry<Value, Value>>
+	{
+		private final ValueTrie.Cursor cursor;
+		private Value lastKey = null;
+
+		public EntryIterator()
+		{
+			owner = null;
+			cursor = new ValueTrie.Cursor(root);
+		}
+
+		@Override
+		public boolean hasNext()
+		{
+			return cursor.hasNext();
+		}
+
+		@Override
+		public Map.Entry<Value, Value> next()
+		{
+			cursor.next();
+			lastKey = cursor.key;
+
+			return new SimpleEntry<Value, Value>(cursor.key, cursor.value)
+			{
+				@Override
+				public Value setValue(Value value)
+				{
+					put(getKey(), value);
+					return super.setValue(value);
+				}
+			};
+		}
+
+		@Override
+		public void remove()
+		{
+			if (lastKey == null)
+			{
+				throw new IllegalStateException();
+			}
+
+			ValueMap.this.remove(lastKey);
+			lastKey = null;
+		}
 	}
 }
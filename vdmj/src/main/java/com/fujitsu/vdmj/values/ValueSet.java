@@ -26,7 +26,11 @@ package com.fujitsu.vdmj.values;
 
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
 import java.util.Vector;
 
 import com.fujitsu.vdmj.config.Properties;
@@ -42,12 +46,24 @@ import com.fujitsu.vdmj.util.Utils;
  * it is not based on a java.util.Set<Value>, but rather a Vector<Value>. This is
  * so that the possible orderings of set values can be enumerated when
  * performing quantifiers like "a,b,c in set {{1,2,3}, {4,5,6}}".
+ * 
+ * To avoid a linear scan on every add/contains, sets larger than INDEX_THRESHOLD
+ * also maintain a hash index of their members. The index is rebuilt lazily if
+ * the Vector is modified by a method that does not maintain it (detected via the
+ * modCount). As with ValueMap, as soon as a value that defines "eq" is added, we
+ * stop using the index, because the hashCode of such values cannot be consistent
+ * with the user's equality function, unless the type also gives a @Hash function.
  */
 
 @SuppressWarnings("serial")
 public class ValueSet extends Vector<Value>		// NB based on Vector
 {
+	private static final int INDEX_THRESHOLD = 16;
+
 	private boolean isSorted;
+	private boolean hashable = true;			// False once an "eq" value is added
+	private transient Set<Value> index = null;	// Hash of members, if hashable
+	private transient int indexModCount = -1;	// The modCount when index was valid
 
 	public ValueSet()
 	{
@@ -64,13 +80,18 @@ public class ValueSet extends Vector<Value>		// NB based on Vector
 	public ValueSet(ValueSet from)
 	{
 		super(from.size());
-		addAll(from);
+
+		for (Value v: from)
+		{
+			addNoCheck(v);		// Already distinct
+		}
+
 		isSorted = from.isSorted;
 	}
 
 	public ValueSet(Value v)
 	{
-		add(v);
+		addNoCheck(v);
 		isSorted = true;
 	}
 
@@ -110,7 +131,20 @@ public class ValueSet extends Vector<Value>		// NB based on Vector
 	}
 
 	@Override
-	public boolean add(Value v)
+	public synchronized boolean contains(Object v)
+	{
+		if (hashable && size() > INDEX_THRESHOLD)
+		{
+			return getIndex().contains(v);
+		}
+		else
+		{
+			return super.contains(v);
+		}
+	}
+
+	@Override
+	public synchronized boolean add(Value v)
 	{
 		if (contains(v))
 		{
@@ -119,7 +153,7 @@ public class ValueSet extends Vector<Value>		// NB based on Vector
 		else
 		{
 			isSorted = false;
-			return super.add(v);
+			return addIndexed(v);
 		}
 	}
 	
@@ -127,15 +161,114 @@ public class ValueSet extends Vector<Value>		// NB based on Vector
 	 * Add an item, given we know it is already sorted after the add.
 	 * This is used by powersets, for efficiency.
 	 */
-	public boolean addNoSort(Value v)
+	public synchronized boolean addNoSort(Value v)
 	{
-		return super.add(v);
+		return addIndexed(v);
 	}
 
-	public boolean addNoCheck(Value v)
+	public synchronized boolean addNoCheck(Value v)
 	{
 		isSorted = false;
-		return super.add(v);	// Used by power set function
+		return addIndexed(v);	// Used by power set function
+	}
+
+	@Override
+	public synchronized boolean remove(Object v)
+	{
+		if (hashable && size() > INDEX_THRESHOLD)
+		{
+			Set<Value> members = getIndex();
+
+			if (!members.contains(v))
+			{
+				return false;	// Avoids the linear scan
+			}
+
+			super.remove(v);
+			members.remove(v);
+			indexModCount = modCount;
+			return true;
+		}
+		else
+		{
+			return super.remove(v);
+		}
+	}
+
+	@Override
+	public synchronized Value set(int i, Value v)
+	{
+		indexModCount = -1;		// Not a structural change, so invalidate explicitly
+		return super.set(i, v);
+	}
+
+	@Override
+	public synchronized void setElementAt(Value v, int i)
+	{
+		indexModCount = -1;
+		super.setElementAt(v, i);
+	}
+
+	/**
+	 * Append a value that is known to be absent, keeping any index up to date.
+	 */
+	private boolean addIndexed(Value v)
+	{
+		boolean valid = (index != null && indexModCount == modCount);
+		super.add(v);
+
+		if (hashable && !isHashable(v))
+		{
+			hashable = false;
+			index = null;
+		}
+		else if (valid)
+		{
+			index.add(v);
+			indexModCount = modCount;
+		}
+
+		return true;
+	}
+
+	/**
+	 * Get the hash index of members, rebuilding it if the Vector has been changed
+	 * by a method that does not maintain the index.
+	 */
+	private Set<Value> getIndex()
+	{
+		if (index == null || indexModCount != modCount)
+		{
+			index = new HashSet<Value>(this);
+			indexModCount = modCount;
+		}
+
+		return index;
+	}
+
+	/**
+	 * Values that define "eq" cannot be hashed consistently, so we have to use
+	 * a linear scan with equals() for sets that contain them, unless their type
+	 * has a @Hash function.
+	 */
+	private static boolean isHashable(Value v)
+	{
+		Value d = v.deref();
+
+		if (d instanceof InvariantValue)
+		{
+			InvariantValue ivalue = (InvariantValue)d;
+			return ivalue.equality == null || ivalue.hashing != null;
+		}
+		else if (d instanceof RecordValue)
+		{
+			RecordValue rvalue = (RecordValue)d;
+			return rvalue.equality == null || rvalue.hashing != null;
+		}
+		else
+		{
+			return true;
+		}
 	}
 
 	@Override
@@ -159,8 +292,14 @@ public class ValueSet extends Vector<Value>		// NB based on Vector
 	{
 		if (!isSorted)
 		{
+			boolean valid = (index != null && indexModCount == modCount);
 			Collections.sort(this);
 			isSorted = true;
+
+			if (valid)
+			{
+				indexModCount = modCount;	// Sorting does not change membership
+			}
 		}
 	}
 
@@ -198,6 +337,27 @@ public class ValueSet extends Vector<Value>		// NB based on Vector
 	}
 
 	public List<ValueSet> powerSet(Breakpoint breakpoint, Context ctxt)
+	{
+		List<ValueSet> sets = new Vector<ValueSet>();
+
+		for (ValueSet ns: powerSets(breakpoint, ctxt))
+		{
+			sets.add(ns);
+		}
+
+		return sets;
+	}
+
+	/**
+	 * Produce the power set lazily, in the same order as powerSet. This allows
+	 * quantifiers to stop early, without holding every subset in memory.
+	 */
+	public Iterable<ValueSet> powerSets(Breakpoint breakpoint, Context ctxt)
+	{
+		return powerSets(breakpoint, ctxt, false);
+	}
+
+	private Iterable<ValueSet> powerSets(final Breakpoint breakpoint, final Context ctxt, final boolean nonEmpty)
 	{
    		if (size() > Properties.in_powerset_limit)
 		{
@@ -207,49 +367,125 @@ public class ValueSet extends Vector<Value>		// NB based on Vector
    		// The generation below depends on a sorted set to start with. This is
    		// normally the case, which doesn't cost us, so we sort here anyway.
    		sort();
-   		
-		List<ValueSet> sets = new Vector<ValueSet>(2^size());
+   		final Value[] members = toArray(new Value[size()]);
 
-		if (isEmpty())
+   		return new Iterable<ValueSet>()
 		{
-			sets.add(new ValueSet());	// Just {}
-		}
-		else
+			@Override
+			public Iterator<ValueSet> iterator()
+			{
+				return new PowerSetIterator(members, breakpoint, ctxt, nonEmpty);
+			}
+		};
+	}
+
+	/**
+	 * Produce the power set lazily as SetValues, optionally without the empty set,
+	 * for use as the values of a quantifier bind.
+	 */
+	public Iterable<Value> powerSetValues(Breakpoint breakpoint, Context ctxt, final boolean nonEmpty)
+	{
+		final Iterable<ValueSet> sets = powerSets(breakpoint, ctxt, nonEmpty);
+
+		return new Iterable<Value>()
 		{
-			/**
-			 * The KCombinator below produces combinations in order (eg. [1,2] before [1,3]).
-			 * And we loop the combination sizes from large to small, which is also the
-			 * natural ordering for sets. This means we can use addNoSort and (in power itself)
-			 * we can construct the final SetValue without sorting, which is much more efficient.
-			 */
-			int size = size();
-			long check = 0;
-			
-			for (int ss=size; ss>0; ss--)
+			@Override
+			public Iterator<Value> iterator()
 			{
-				for (int[] kc: new KCombinator(size, ss))
-				{
-					ValueSet ns = new ValueSet(ss);
+				final Iterator<ValueSet> iter = sets.iterator();
 
-					for (int i=0; i<ss; i++)
+				return new Iterator<Value>()
+				{
+					@Override
+					public boolean hasNext()
 					{
-						ns.addNoSort(get(kc[i]));	// set it still sorted
+						return iter.hasNext();
 					}
-					
-					if (++check >= 100)
+
+					@Override
+					public Value next()
 					{
-						checkBreakpoint(breakpoint, ctxt);
-						check = 0;
+						return new SetValue(iter.next());
 					}
-					
-					sets.add(ns);
+				};
+			}
+		};
+	}
+
+	/**
+	 * The KCombinator below produces combinations in order (eg. [1,2] before [1,3]).
+	 * And we loop the combination sizes from large to small, which is also the
+	 * natural ordering for sets. This means we can use addNoSort and (in power itself)
+	 * we can construct the final SetValue without sorting, which is much more efficient.
+	 * The empty set is produced last.
+	 */
+	private class PowerSetIterator implements Iterator<ValueSet>
+	{
+		private final Value[] members;
+		private final Breakpoint breakpoint;
+		private final Context ctxt;
+		private int setSize;
+		private KCombinator combinations = null;
+		private boolean emptyDone;
+		private long check = 0;
+
+		public PowerSetIterator(Value[] members, Breakpoint breakpoint, Context ctxt, boolean nonEmpty)
+		{
+			this.members = members;
+			this.breakpoint = breakpoint;
+			this.ctxt = ctxt;
+			this.setSize = members.length;
+			this.emptyDone = nonEmpty;		// Never produce {}
+		}
+
+		@Override
+		public boolean hasNext()
+		{
+			while (combinations == null || !combinations.hasNext())
+			{
+				if (setSize > 0)
+				{
+					combinations = new KCombinator(members.length, setSize--);
+				}
+				else
+				{
+					return !emptyDone;
 				}
 			}
 
-			sets.add(new ValueSet());	// Add {}
+			return true;
 		}
 
-		return sets;
+		@Override
+		public ValueSet next()
+		{
+			if (!hasNext())
+			{
+				throw new NoSuchElementException();
+			}
+
+			if (combinations != null && combinations.hasNext())
+			{
+				int[] kc = combinations.next();
+				ValueSet ns = new ValueSet(kc.length);
+
+				for (int i=0; i<kc.length; i++)
+				{
+					ns.addNoSort(members[kc[i]]);	// set it still sorted
+				}
+				
+				if (++check >= 100)
+				{
+					checkBreakpoint(breakpoint, ctxt);
+					check = 0;
+				}
+
+				return ns;
+			}
+
+			emptyDone = true;
+			return new ValueSet();	// Add {}
+		}
 	}
 
 	/**
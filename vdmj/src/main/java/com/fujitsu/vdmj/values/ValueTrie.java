@@ -0,0 +1,528 @@
+/*******************************************************************************
+ *
+ *	Copyright (c) 2023 Nick Battle.
+ *
+ *	Author: Nick Battle
+ *
+ *	This file is part of VDMJ.
+ *
+ *	VDMJ is free software: you can redistribute it and/or modify
+ *	it under the terms of the GNU General Public License as published by
+ *	the Free Software Foundation, either version 3 of the License, or
+ *	(at your option) any later version.
+ *
+ *	VDMJ is distributed in the hope that it will be useful,
+ *	but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *	GNU General Public License for more details.
+ *
+ *	You should have received a copy of the GNU General Public License
+ *	along with VDMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *	SPDX-License-Identifier: GPL-3.0-or-later
+ *
+ ******************************************************************************/
+
+package com.fujitsu.vdmj.values;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * A node of a persistent hash array mapped trie, which holds the entries of a
+ * ValueMap. Nodes are shared between maps that are copied from one another, and a
+ * map may only update a node in place if it is the node's owner. Otherwise the
+ * node, and the path to it from the root, is copied first. So copying a map is
+ * O(1) and an update to the copy is O(log n).
+ *
+ * Node arrays hold key/value pairs. A pair with a null key is a reference to a
+ * child node, in the value position.
+ */
+abstract class ValueTrie implements Serializable
+{
+	private static final long serialVersionUID = 1L;
+	private static final int BITS = 5;
+	private static final int MASK = (1 << BITS) - 1;
+
+	protected transient Object owner;
+	protected Object[] array;
+
+	/**
+	 * Records the effect of a put or remove.
+	 */
+	static class Change
+	{
+		public Value old = null;
+		public boolean resized = false;
+	}
+
+	protected ValueTrie(Object owner, Object[] array)
+	{
+		this.owner = owner;
+		this.array = array;
+	}
+
+	public static int hash(Object key)
+	{
+		int h = key.hashCode();
+		return h ^ (h >>> 16);
+	}
+
+	abstract public Value get(Object key, int hash, int shift);
+
+	abstract public ValueTrie put(Object owner, Value key, Value value, int hash, int shift, Change change);
+
+	abstract public ValueTrie remove(Object owner, Object key, int hash, int shift, Change change);
+
+	/**
+	 * Add the keys of pairs in this trie that are not in the base root with the same
+	 * value to the list given. The base node is the one at the same position in the
+	 * base trie, if any, and subtries that are shared with it are skipped. So the cost
+	 * depends on the number of changed paths, rather than the size of the trie.
+	 */
+	abstract public void changes(ValueTrie base, ValueTrie root, int shift, List<Value> keys);
+
+	/**
+	 * True if the root given holds this exact key value pair.
+	 */
+	protected static boolean holds(ValueTrie root, Object k, Object v)
+	{
+		return root != null && root.get(k, hash(k), 0) == v;
+	}
+
+	/**
+	 * True if this node has one key/value pair and no children, so that the pair can
+	 * be held directly in the parent.
+	 */
+	protected boolean isLeaf()
+	{
+		return array.length == 2 && array[0] != null;
+	}
+
+	/**
+	 * Create a node holding two pairs, whose hashes match as far as the shift given.
+	 */
+	private static ValueTrie pair(Object owner, int shift,
+		Value k1, Value v1, int h1, Value k2, Value v2, int h2)
+	{
+		if (h1 == h2)
+		{
+			return new CollisionNode(owner, h1, new Object[] { k1, v1, k2, v2 });
+		}
+
+		Change change = new Change();
+		return new BitmapNode(owner, 0, new Object[0])
+			.put(owner, k1, v1, h1, shift, change)
+			.put(owner, k2, v2, h2, shift, change);
+	}
+
+	private static Object[] insertPair(Object[] array, int at, Object k, Object v)
+	{
+		Object[] result = new Object[array.length + 2];
+		System.arraycopy(array, 0, result, 0, at);
+		result[at] = k;
+		result[at + 1] = v;
+		System.arraycopy(array, at, result, at + 2, array.length - at);
+		return result;
+	}
+
+	private static Object[] removePair(Object[] array, int at)
+	{
+		Object[] result = new Object[array.length - 2];
+		System.arraycopy(array, 0, result, 0, at);
+		System.arraycopy(array, at + 2, result, at, array.length - at - 2);
+		return result;
+	}
+
+	/**
+	 * A node with up to 32 pairs or children, selected by 5 bits of the hash.
+	 */
+	static class BitmapNode extends ValueTrie
+	{
+		private static final long serialVersionUID = 1L;
+		private int bitmap;
+
+		public BitmapNode(Object owner, int bitmap, Object[] array)
+		{
+			super(owner, array);
+			this.bitmap = bitmap;
+		}
+
+		private int index(int bit)
+		{
+			return 2 * Integer.bitCount(bitmap & (bit - 1));
+		}
+
+		private BitmapNode editable(Object owner)
+		{
+			return (this.owner == owner) ? this : new BitmapNode(owner, bitmap, array.clone());
+		}
+
+		@Override
+		public Value get(Object key, int hash, int shift)
+		{
+			int bit = 1 << ((hash >>> shift) & MASK);
+
+			if ((bitmap & bit) == 0)
+			{
+				return null;
+			}
+
+			int i = index(bit);
+			Object k = array[i];
+
+			if (k == null)
+			{
+				return ((ValueTrie)array[i + 1]).get(key, hash, shift + BITS);
+			}
+
+			return key.equals(k) ? (Value)array[i + 1] : null;
+		}
+
+		@Override
+		public ValueTrie put(Object owner, Value key, Value value, int hash, int shift, Change change)
+		{
+			int bit = 1 << ((hash >>> shift) & MASK);
+			int i = index(bit);
+
+			if ((bitmap & bit) == 0)
+			{
+				change.resized = true;
+				Object[] na = insertPair(array, i, key, value);
+
+				if (this.owner == owner)
+				{
+					array = na;
+					bitmap |= bit;
+					return this;
+				}
+
+				return new BitmapNode(owner, bitmap | bit, na);
+			}
+
+			Object k = array[i];
+			Object v = array[i + 1];
+			Object nv = null;
+
+			if (k == null)
+			{
+				nv = ((ValueTrie)v).put(owner, key, value, hash, shift + BITS, change);
+			}
+			else if (key.equals(k))
+			{
+				change.old = (Value)v;
+				nv = value;
+			}
+			else	// Push both pairs down into a new child
+			{
+				change.resized = true;
+				nv = pair(owner, shift + BITS, (Value)k, (Value)v, hash(k), key, value, hash);
+			}
+
+			if (nv == v)
+			{
+				return this;
+			}
+
+			BitmapNode node = editable(owner);
+			node.array[i] = (nv instanceof ValueTrie) ? null : k;
+			node.array[i + 1] = nv;
+			return node;
+		}
+
+		@Override
+		public ValueTrie remove(Object owner, Object key, int hash, int shift, Change change)
+		{
+			int bit = 1 << ((hash >>> shift) & MASK);
+
+			if ((bitmap & bit) == 0)
+			{
+				return this;
+			}
+
+			int i = index(bit);
+			Object k = array[i];
+			Object v = array[i + 1];
+
+			if (k == null)
+			{
+				ValueTrie child = ((ValueTrie)v).remove(owner, key, hash, shift + BITS, change);
+
+				if (child == v)
+				{
+					return this;
+				}
+				else if (child != null)
+				{
+					BitmapNode node = editable(owner);
+
+					if (child.isLeaf())		// Pull the last pair up into this node
+					{
+						node.array[i] = child.array[0];
+						node.array[i + 1] = child.array[1];
+					}
+					else
+					{
+						node.array[i + 1] = child;
+					}
+
+					return node;
+				}
+			}
+			else if (key.equals(k))
+			{
+				change.old = (Value)v;
+				change.resized = true;
+			}
+			else
+			{
+				return this;
+			}
+
+			if (bitmap == bit)
+			{
+				return null;	// Now empty
+			}
+
+			Object[] na = removePair(array, i);
+
+			if (this.owner == owner)
+			{
+				array = na;
+				bitmap ^= bit;
+				return this;
+			}
+
+			return new BitmapNode(owner, bitmap ^ bit, na);
+		}
+		@Override
+		public void changes(ValueTrie base, ValueTrie root, int shift, List<Value> keys)
+		{
+			if (this == base)
+			{
+				return;		// Shared with the base
+			}
+
+			BitmapNode other = (base instanceof BitmapNode) ? (BitmapNode)base : null;
+
+			for (int rest = bitmap; rest != 0; rest &= rest - 1)
+			{
+				int bit = rest & -rest;
+				int i = index(bit);
+				Object k = array[i];
+				Object v = array[i + 1];
+				Object bk = null;
+				Object bv = null;
+
+				if (other != null && (other.bitmap & bit) != 0)
+				{
+					int j = other.index(bit);
+					bk = other.array[j];
+					bv = other.array[j + 1];
+				}
+
+				if (k == null)
+				{
+					((ValueTrie)v).changes(bk == null ? (ValueTrie)bv : null, root, shift + BITS, keys);
+				}
+				else if (!(k == bk && v == bv) && !holds(root, k, v))
+				{
+					keys.add((Value)k);
+				}
+			}
+		}
+	}
+
+	/**
+	 * A node of pairs whose keys all have the same hash.
+	 */
+	static class CollisionNode extends ValueTrie
+	{
+		private static final long serialVersionUID = 1L;
+		private final int hash;
+
+		public CollisionNode(Object owner, int hash, Object[] array)
+		{
+			super(owner, array);
+			this.hash = hash;
+		}
+
+		private int find(Object key)
+		{
+			for (int i = 0; i < array.length; i += 2)
+			{
+				if (key.equals(array[i]))
+				{
+					return i;
+				}
+			}
+
+			return -1;
+		}
+
+		@Override
+		public Value get(Object key, int hash, int shift)
+		{
+			if (hash == this.hash)
+			{
+				int i = find(key);
+				return i < 0 ? null : (Value)array[i + 1];
+			}
+
+			return null;
+		}
+
+		@Override
+		public ValueTrie put(Object owner, Value key, Value value, int hash, int shift, Change change)
+		{
+			if (hash != this.hash)	// Push this node down, under a new bitmap node
+			{
+				int bit = 1 << ((this.hash >>> shift) & MASK);
+				return new BitmapNode(owner, bit, new Object[] { null, this })
+					.put(owner, key, value, hash, shift, change);
+			}
+
+			int i = find(key);
+
+			if (i < 0)
+			{
+				change.resized = true;
+				Object[] na = insertPair(array, array.length, key, value);
+
+				if (this.owner == owner)
+				{
+					array = na;
+					return this;
+				}
+
+				return new CollisionNode(owner, hash, na);
+			}
+
+			change.old = (Value)array[i + 1];
+
+			if (change.old == value)
+			{
+				return this;
+			}
+
+			CollisionNode node = (this.owner == owner) ? this : new CollisionNode(owner, hash, array.clone());
+			node.array[i + 1] = value;
+			return node;
+		}
+
+		@Override
+		public ValueTrie remove(Object owner, Object key, int hash, int shift, Change change)
+		{
+			int i = (hash == this.hash) ? find(key) : -1;
+
+			if (i < 0)
+			{
+				return this;
+			}
+
+			change.old = (Value)array[i + 1];
+			change.resized = true;
+
+			if (array.length == 2)
+			{
+				return null;
+			}
+
+			Object[] na = removePair(array, i);
+
+			if (this.owner == owner)
+			{
+				array = na;
+				return this;
+			}
+
+			return new CollisionNode(owner, hash, na);
+		}
+		@Override
+		public void changes(ValueTrie base, ValueTrie root, int shift, List<Value> keys)
+		{
+			if (this == base)
+			{
+				return;
+			}
+
+			for (int i = 0; i < array.length; i += 2)
+			{
+				if (!holds(root, array[i], array[i + 1]))
+				{
+					keys.add((Value)array[i]);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Iterate over the pairs of a trie, depth first. Note that the trie must not be
+	 * updated in place while this is in progress.
+	 */
+	static class Cursor
+	{
+		private final Object[][] arrays = new Object[10][];
+		private final int[] positions = new int[10];
+		private int depth = 0;
+		private boolean ready = false;
+
+		public Value key = null;
+		public Value value = null;
+
+		public Cursor(ValueTrie root)
+		{
+			if (root != null)
+			{
+				arrays[depth++] = root.array;
+			}
+		}
+
+		public boolean hasNext()
+		{
+			if (ready)
+			{
+				return true;
+			}
+
+			while (depth > 0)
+			{
+				Object[] a = arrays[depth - 1];
+				int p = positions[depth - 1];
+
+				if (p >= a.length)
+				{
+					depth--;
+					continue;
+				}
+
+				positions[depth - 1] = p + 2;
+
+				if (a[p] == null)
+				{
+					arrays[depth] = ((ValueTrie)a[p + 1]).array;
+					positions[depth++] = 0;
+				}
+				else
+				{
+					key = (Value)a[p];
+					value = (Value)a[p + 1];
+					ready = true;
+					return true;
+				}
+			}
+
+			return false;
+		}
+
+		public void next()
+		{
+			if (!hasNext())
+			{
+				throw new NoSuchElementException();
+			}
+
+			ready = false;
+		}
+	}
+}
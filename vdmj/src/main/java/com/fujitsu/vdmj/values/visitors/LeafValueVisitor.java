@@ -75,7 +75,7 @@ public abstract class LeafValueVisitor<E, C extends Collection<E>, S> extends Va
  	@Override
 	public C caseInvariantValue(InvariantValue node, S arg)
 	{
- 		return ifNotNull(arg, node.deref(), node.equality, node.invariant, node.ordering);
+ 		return ifNotNull(arg, node.deref(), node.equality, node.invariant, node.ordering, node.hashing);
 	}
 
  	@Override
@@ -133,7 +133,7 @@ public abstract class LeafValueVisitor<E, C extends Collection<E>, S> extends Va
 			all.addAll(fv.value.apply(this, arg));
 		}
 		
-		all.addAll(ifNotNull(arg, node.equality, node.invariant, node.ordering));
+		all.addAll(ifNotNull(arg, node.equality, node.invariant, node.ordering, node.hashing));
 		
 		return all;
 	}
@@ -0,0 +1,79 @@
+/*******************************************************************************
+ *
+ *	Copyright (c) 2026 Nick Battle.
+ *
+ *	Author: Nick Battle
+ *
+ *	This file is part of VDMJ.
+ *
+ *	VDMJ is free software: you can redistribute it and/or modify
+ *	it under the terms of the GNU General Public License as published by
+ *	the Free Software Foundation, either version 3 of the License, or
+ *	(at your option) any later version.
+ *
+ *	VDMJ is distributed in the hope that it will be useful,
+ *	but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *	GNU General Public License for more details.
+ *
+ *	You should have received a copy of the GNU General Public License
+ *	along with VDMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *	SPDX-License-Identifier: GPL-3.0-or-later
+ *
+ ******************************************************************************/
+
+package com.fujitsu.vdmj.junit;
+
+import com.fujitsu.vdmj.lex.LexLocation;
+import com.fujitsu.vdmj.runtime.Context;
+import com.fujitsu.vdmj.tc.lex.TCNameToken;
+import com.fujitsu.vdmj.values.NaturalValue;
+
+import junit.framework.TestCase;
+
+/**
+ * Check that a Context with slots behaves like a Context that holds every name
+ * in its map.
+ */
+public class ContextTest extends TestCase
+{
+	private TCNameToken name(String name)
+	{
+		return new TCNameToken(LexLocation.ANY, "M", name);
+	}
+
+	public void testSlots() throws Exception
+	{
+		TCNameToken[] names = { name("a"), name("b") };
+		Context outer = new Context(LexLocation.ANY, "outer", null);
+		outer.put(name("z"), new NaturalValue(26));
+
+		Context ctxt = new Context(LexLocation.ANY, "inner", outer).withSlots(names);
+		assertTrue(ctxt.isEmpty());
+
+		ctxt.put(name("a"), new NaturalValue(1));		// Slot, with a different token
+		ctxt.put(name("c"), new NaturalValue(3));		// Not a slot, so in the map
+		assertEquals(2, ctxt.size());
+		assertEquals(new NaturalValue(1), ctxt.get(name("a")));
+		assertEquals(new NaturalValue(3), ctxt.get(name("c")));
+		assertNull(ctxt.get(name("b")));
+		assertFalse(ctxt.containsKey(name("b")));
+		assertEquals(new NaturalValue(26), ctxt.lookup(name("z")));
+
+		assertEquals(2, ctxt.keySet().size());
+		assertTrue(ctxt.keySet().contains(name("a")));
+		assertTrue(ctxt.keySet().contains(name("c")));
+		assertEquals(3, ctxt.getVisibleVariables().size());
+		assertEquals(3, ctxt.getVisibleNames().size());
+
+		Context copy = new Context(LexLocation.ANY, "copy", null);
+		copy.putAll(ctxt);
+		assertEquals(ctxt, copy);
+
+		assertEquals(new NaturalValue(1), ctxt.remove(name("a")));
+		assertNull(ctxt.get(name("a")));
+		assertEquals(1, ctxt.size());
+		ctxt.clear();
+		assertTrue(ctxt.isEmpty());
+	}
+}
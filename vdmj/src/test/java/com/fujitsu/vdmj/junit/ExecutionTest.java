@@ -26,32 +26,46 @@ package com.fujitsu.vdmj.junit;
 
 import java.io.File;
 import java.net.URL;
+import java.nio.file.Files;
 
 import com.fujitsu.vdmj.Release;
 import com.fujitsu.vdmj.Settings;
 import com.fujitsu.vdmj.ast.modules.ASTModuleList;
+import com.fujitsu.vdmj.config.Properties;
 import com.fujitsu.vdmj.in.INNode;
 import com.fujitsu.vdmj.in.modules.INModuleList;
 import com.fujitsu.vdmj.lex.Dialect;
+import com.fujitsu.vdmj.lex.LexLocation;
 import com.fujitsu.vdmj.lex.LexTokenReader;
 import com.fujitsu.vdmj.mapper.ClassMapper;
 import com.fujitsu.vdmj.messages.Console;
 import com.fujitsu.vdmj.plugins.commands.AssertCommand;
+import com.fujitsu.vdmj.plugins.commands.MemoCommand;
+import com.fujitsu.vdmj.runtime.Breakpoint;
+import com.fujitsu.vdmj.runtime.Context;
+import com.fujitsu.vdmj.runtime.ContextException;
+import com.fujitsu.vdmj.runtime.Interpreter;
 import com.fujitsu.vdmj.runtime.ModuleInterpreter;
+import com.fujitsu.vdmj.runtime.Stoppoint;
 import com.fujitsu.vdmj.syntax.ModuleReader;
 import com.fujitsu.vdmj.tc.TCNode;
 import com.fujitsu.vdmj.tc.modules.TCModuleList;
 import com.fujitsu.vdmj.typechecker.ModuleTypeChecker;
 import com.fujitsu.vdmj.typechecker.TypeChecker;
+import com.fujitsu.vdmj.values.FunctionMemo;
+import com.fujitsu.vdmj.values.FunctionValue;
 
 import junit.framework.TestCase;
 
 public class ExecutionTest extends TestCase
 {
+	private Release savedRelease;
+
 	@Override
 	protected void setUp() throws Exception
 	{
 		super.setUp();
+		savedRelease = Settings.release;	// Some tests need VDM_10
 		Settings.release = Release.CLASSIC;
 		Settings.dialect = Dialect.VDM_SL;
 	}
@@ -59,6 +73,7 @@ public class ExecutionTest extends TestCase
 	@Override
 	protected void tearDown() throws Exception
 	{
+		Settings.release = savedRelease;
 		super.tearDown();
 	}
 
@@ -113,6 +128,21 @@ public class ExecutionTest extends TestCase
 		assertEquals("Execution errors", true, !cmd.errors());
 	}
 
+	private void check(String aresource) throws Exception
+	{
+		URL aurl = getClass().getResource("/exectest/" + aresource);
+
+		for (String assertion: Files.readAllLines(new File(aurl.getPath()).toPath()))
+		{
+			assertion = assertion.trim();
+
+			if (!assertion.isEmpty() && !assertion.startsWith("--"))
+			{
+				assertTrue(assertion, Interpreter.getInstance().execute(assertion).boolValue(null));
+			}
+		}
+	}
+
 	public void testExpressions() throws Exception
 	{
 		interpret("basic.tests");
@@ -142,4 +172,302 @@ public class ExecutionTest extends TestCase
 	{
 		process("flat.vdm", "flat.tests");
 	}
+
+	public void testSequences() throws Exception
+	{
+		process("seq.vdm", "seq.tests");
+		check("seq.tests");
+	}
+
+	public void testMaps() throws Exception
+	{
+		Settings.release = Release.VDM_10;		// For eq clauses
+		process("map.vdm", "map.tests");
+		check("map.tests");
+	}
+
+	public void testSets() throws Exception
+	{
+		Settings.release = Release.VDM_10;		// For eq clauses
+		process("set.vdm", "set.tests");
+		check("set.tests");
+	}
+
+	public void testLazyBinds() throws Exception
+	{
+		long saved = Properties.in_typebind_limit;
+
+		try
+		{
+			Settings.release = Release.VDM_10;		// For set1
+			Properties.in_typebind_limit = 10000000;
+			process("lazy.vdm", "lazy.tests");
+			check("lazy.tests");
+		}
+		finally
+		{
+			Properties.in_typebind_limit = saved;
+		}
+	}
+
+	public void testMemo() throws Exception
+	{
+		try
+		{
+			process("memo.vdm", "memo.tests");		// Not cached
+			check("memo.tests");
+			assertEquals(0, FunctionMemo.getHits() + FunctionMemo.getMisses());
+
+			Properties.in_memo_functions = true;
+			process("memo.vdm", "memo.tests");		// All functions cached
+			check("memo.tests");
+			long misses = FunctionMemo.getMisses();
+			assertTrue(FunctionMemo.getHits() > 0);
+			check("memo.tests");
+			assertEquals(misses, FunctionMemo.getMisses());	// All hits the second time
+			assertTrue(FunctionMemo.getSize() > 0);
+
+			// Functions whose measure is checked are not cached
+			long hits = FunctionMemo.getHits();
+			Interpreter.getInstance().execute("sum(50)");
+			Interpreter.getInstance().execute("sum(50)");
+			assertEquals(hits, FunctionMemo.getHits());
+			assertEquals(misses, FunctionMemo.getMisses());
+
+			assertEquals("Function memo cache cleared", new MemoCommand("memo clear").run("memo clear"));
+			assertEquals(0, FunctionMemo.getHits() + FunctionMemo.getMisses() + FunctionMemo.getSize());
+			assertEquals(null, new MemoCommand("memo").run("memo"));
+			assertEquals("Usage: memo [clear]", new MemoCommand("memo all now").run("memo all now"));
+		}
+		finally
+		{
+			Properties.in_memo_functions = false;
+		}
+	}
+
+	public void testMemoEnabled() throws Exception
+	{
+		process("memo.vdm", "memo.tests");
+		Interpreter interpreter = Interpreter.getInstance();
+		FunctionValue fib = (FunctionValue)interpreter.execute("fib");
+		FunctionMemo.enable(fib.location);		// As a @Memo annotation does
+
+		assertEquals("6765", interpreter.execute("fib(20)").toString());
+		assertEquals(21, FunctionMemo.getMisses());		// fib(0) to fib(20)
+		assertEquals(18, FunctionMemo.getHits());		// fib(n-2) calls, after fib(n-1)
+		assertEquals("6765", interpreter.execute("fib(20)").toString());
+		assertEquals(19, FunctionMemo.getHits());
+
+		interpreter.execute("half(6)");
+		assertEquals(19, FunctionMemo.getHits());		// Only fib is cached
+	}
+
+	public void testMemoPrechecks() throws Exception
+	{
+		try
+		{
+			Properties.in_memo_functions = true;
+			process("memo.vdm", "memo.tests");
+			Interpreter interpreter = Interpreter.getInstance();
+
+			Settings.prechecks = false;
+			assertEquals("1", interpreter.execute("half(3)").toString());	// Not stored
+			Settings.prechecks = true;
+
+			try
+			{
+				interpreter.execute("half(3)");
+				fail("Expected precondition failure");
+			}
+			catch (ContextException e)
+			{
+				assertEquals(4055, e.number);
+			}
+		}
+		finally
+		{
+			Properties.in_memo_functions = false;
+			Settings.prechecks = true;
+		}
+	}
+
+	public void testCoverage() throws Exception
+	{
+		File file = new File(getClass().getResource("/exectest/function.vdm").getPath());
+
+		try
+		{
+			LexLocation.resetLocations();
+			process("function.vdm", "function.tests");
+			check("function.tests");
+			assertTrue(LexLocation.getHitPercent(file) > 0);
+			assertFalse(LexLocation.getHitList(file).isEmpty());
+
+			LexLocation.clearLocations();
+			assertTrue(LexLocation.getHitList(file).isEmpty());
+
+			Properties.in_coverage = false;		// Set before the IN tree is created
+			LexLocation.resetLocations();
+			process("function.vdm", "function.tests");
+			check("function.tests");
+			assertEquals(0.0F, LexLocation.getHitPercent(file));
+			assertTrue(LexLocation.getHitList(file).isEmpty());
+
+			for (LexLocation location: LexLocation.getSourceLocations(file))
+			{
+				location.hit();
+				assertEquals(0, location.getHits());
+			}
+		}
+		finally
+		{
+			Properties.in_coverage = true;
+		}
+	}
+
+	public void testCoverageThreads() throws Exception
+	{
+		final LexLocation location = new LexLocation(new File("test.vdm"), "A", 1, 1, 1, 2);
+		location.executable(true);
+		Thread[] threads = new Thread[4];
+
+		for (int t = 0; t < threads.length; t++)
+		{
+			threads[t] = new Thread()
+			{
+				@Override
+				public void run()
+				{
+					for (int i = 0; i < 100000; i++)
+					{
+						location.hit();
+					}
+				}
+			};
+
+			threads[t].start();
+		}
+
+		for (Thread thread: threads)
+		{
+			thread.join();
+		}
+
+		assertEquals(400000, location.getHits());
+		location.unhit();
+		assertEquals(399999, location.getHits());
+	}
+
+	public void testBreakpointHits() throws Exception
+	{
+		LexLocation location = new LexLocation(new File("test.vdm"), "A", 1, 1, 1, 2);
+		Context ctxt = new Context(location, "test", null);
+		ctxt.setThreadState(null);
+		Breakpoint bp = new Breakpoint(location);
+		Stoppoint sp = new Stoppoint(location, 1, "= 100");	// Never stops here
+
+		for (int i = 0; i < 10; i++)
+		{
+			bp.check(location, ctxt);
+			sp.check(location, ctxt);
+		}
+
+		assertEquals(0, bp.hits);		// Plain breakpoints do not count
+		assertEquals(10, sp.hits);
+		sp.clearHits();
+		assertEquals(0, sp.hits);
+	}
+
+	public void testTerminateThread() throws Exception
+	{
+		LexLocation location = new LexLocation(new File("test.vdm"), "A", 1, 1, 1, 2);
+		Context stopped = new Context(location, "stopped", null);
+		stopped.setThreadState(null);
+		Context other = new Context(location, "other", null);
+		other.setThreadState(null);
+		Breakpoint bp = new Breakpoint(location);
+
+		stopped.threadState.terminate();
+		bp.check(location, other);		// Other threads are not affected
+
+		try
+		{
+			bp.check(location, stopped);
+			fail("Expected the check to be cancelled");
+		}
+		catch (ContextException e)
+		{
+			assertEquals(4175, e.number);
+		}
+
+		try
+		{
+			bp.checkInterrupt(stopped);	// And it stays cancelled
+			fail("Expected the check to be cancelled");
+		}
+		catch (ContextException e)
+		{
+			assertEquals(4175, e.number);
+		}
+	}
+
+	public void testCompiled() throws Exception
+	{
+		try
+		{
+			process("compile.vdm", "compile.tests");		// Interpreted
+			check("compile.tests");
+			Properties.in_compile_threshold = 1;
+			process("compile.vdm", "compile.tests");		// Compiled
+			check("compile.tests");
+			process("function.vdm", "function.tests");
+			check("function.tests");
+		}
+		finally
+		{
+			Properties.in_compile_threshold = 0;
+		}
+	}
+
+	public void testCompiledInterrupt() throws Exception
+	{
+		try
+		{
+			Properties.in_compile_threshold = 1;
+			process("compile.vdm", "compile.tests");
+			final Interpreter interpreter = Interpreter.getInstance();
+			final Exception[] failed = new Exception[1];
+
+			Thread thread = new Thread()
+			{
+				@Override
+				public void run()
+				{
+					try
+					{
+						interpreter.execute("forever({1, ..., 1000})");	// 10^9 iterations
+					}
+					catch (Exception e)
+					{
+						failed[0] = e;
+					}
+				}
+			};
+
+			thread.setDaemon(true);
+			thread.start();
+			Thread.sleep(500);
+			Breakpoint.setExecInterrupt(Breakpoint.TERMINATE);
+			thread.join(10000);
+
+			assertFalse("Compiled function was not cancelled", thread.isAlive());
+			assertTrue(failed[0] instanceof ContextException);
+			assertEquals(4175, ((ContextException)failed[0]).number);
+		}
+		finally
+		{
+			Properties.in_compile_threshold = 0;
+			Breakpoint.setExecInterrupt(Breakpoint.NONE);
+		}
+	}
 }
@@ -18,7 +18,7 @@
  *
  *	You should have received a copy of the GNU General Public License
  *	along with VDMJ.  If not, see <http://www.gnu.org/licenses/>.
- *	SPDX-License-Identifier: GPL-3.0-or-later
+ *	SPDX-License-Identifier: GPL-3.0-or-later
  *
  ******************************************************************************/
 
@@ -26,18 +26,46 @@ package com.fujitsu.vdmj.junit;
 
 import java.io.File;
 import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.Vector;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.fujitsu.vdmj.Release;
 import com.fujitsu.vdmj.Settings;
+import com.fujitsu.vdmj.ast.modules.ASTModule;
 import com.fujitsu.vdmj.ast.modules.ASTModuleList;
+import com.fujitsu.vdmj.config.Properties;
+import com.fujitsu.vdmj.in.INNode;
+import com.fujitsu.vdmj.in.modules.INModule;
+import com.fujitsu.vdmj.in.modules.INModuleList;
 import com.fujitsu.vdmj.lex.Dialect;
+import com.fujitsu.vdmj.lex.LexLocation;
 import com.fujitsu.vdmj.lex.LexTokenReader;
 import com.fujitsu.vdmj.mapper.ClassMapper;
 import com.fujitsu.vdmj.messages.Console;
 import com.fujitsu.vdmj.messages.VDMError;
+import com.fujitsu.vdmj.messages.VDMMessage;
+import com.fujitsu.vdmj.messages.VDMWarning;
+import com.fujitsu.vdmj.plugins.PluginRegistry;
+import com.fujitsu.vdmj.plugins.analyses.ASTPluginSL;
+import com.fujitsu.vdmj.plugins.analyses.TCPluginSL;
+import com.fujitsu.vdmj.plugins.events.CheckPrepareEvent;
+import com.fujitsu.vdmj.plugins.events.CheckSyntaxEvent;
+import com.fujitsu.vdmj.plugins.events.CheckTypeEvent;
+import com.fujitsu.vdmj.runtime.ModuleInterpreter;
 import com.fujitsu.vdmj.syntax.ModuleReader;
 import com.fujitsu.vdmj.tc.TCNode;
+import com.fujitsu.vdmj.tc.modules.TCModule;
 import com.fujitsu.vdmj.tc.modules.TCModuleList;
+import com.fujitsu.vdmj.tc.types.TCNaturalType;
 import com.fujitsu.vdmj.typechecker.ModuleTypeChecker;
 import com.fujitsu.vdmj.typechecker.TypeChecker;
 
@@ -172,4 +200,406 @@ public class ModuleTest extends TestCase
 	{
 		process("impcheck.vdm", 3191, 3356, 3194, 3356, 3356);
 	}
+
+	private List<String> messages(String resource, int threads) throws Exception
+	{
+		URL rurl = getClass().getResource("/modtest/" + resource);
+		LexTokenReader ltr = new LexTokenReader(new File(rurl.getPath()), Dialect.VDM_SL);
+		ModuleReader mr = new ModuleReader(ltr);
+		ASTModuleList parsed = new ASTModuleList();
+		parsed.addAll(mr.readModules());
+		assertEquals("Parse errors", 0, mr.getErrorCount());
+
+		TCModuleList checked = ClassMapper.getInstance(TCNode.MAPPINGS).init().convert(parsed);
+		int saved = Properties.tc_threads;
+
+		try
+		{
+			Properties.tc_threads = threads;
+			TypeChecker typeChecker = new ModuleTypeChecker(checked);
+			typeChecker.typeCheck();
+		}
+		finally
+		{
+			Properties.tc_threads = saved;
+		}
+
+		List<String> messages = new Vector<String>();
+
+		for (VDMError err: TypeChecker.getErrors())
+		{
+			messages.add(err.toString());
+		}
+
+		for (VDMWarning warn: TypeChecker.getWarnings())
+		{
+			messages.add(warn.toString());
+		}
+
+		return messages;
+	}
+
+	public void testConcurrent() throws Exception
+	{
+		String[] resources = { "SAFER.vdm", "loose.vdm", "metro.vdm", "struct.vdm", "impcheck.vdm" };
+
+		for (String resource: resources)
+		{
+			Console.out.println("Checking " + resource + " concurrently...");
+			assertEquals("Concurrent " + resource, messages(resource, 1), messages(resource, 4));
+		}
+	}
+
+	private String evaluate(int threads) throws Exception
+	{
+		StringBuilder spec = new StringBuilder();
+		StringBuilder imports = new StringBuilder();
+		StringBuilder calls = new StringBuilder();
+
+		for (int m = 1; m <= 7; m++)	// Independent, so checked concurrently
+		{
+			spec.append("module M" + m + "\n");
+			spec.append("exports all\ndefinitions\nfunctions\n");
+			spec.append("f: nat -> nat\nf(n) ==\n");
+			spec.append("(let mk_(a, b) = mk_(n, " + m + ") in a * b) +\n");
+			spec.append("card {x * x | x in set {1, ..., n} & exists y in set {x} & y mod 2 = 0};\n");
+			spec.append("end M" + m + "\n");
+
+			imports.append(m > 1 ? ",\n" : "").append("from M" + m + " all");
+			calls.append(m > 1 ? " + " : "").append("M" + m + "`f(n)");
+		}
+
+		spec.append("module M8\nimports " + imports + "\nexports all\ndefinitions\nfunctions\n");
+		spec.append("f: nat -> nat\nf(n) == " + calls + ";\nend M8\n");
+
+		LexTokenReader ltr = new LexTokenReader(spec.toString(), Dialect.VDM_SL, new File("concurrent.vdmsl"));
+		ModuleReader mr = new ModuleReader(ltr);
+		ASTModuleList parsed = mr.readModules();
+		assertEquals("Parse errors", 0, mr.getErrorCount());
+
+		TCModuleList checked = ClassMapper.getInstance(TCNode.MAPPINGS).init().convert(parsed);
+		int saved = Properties.tc_threads;
+
+		try
+		{
+			Properties.tc_threads = threads;
+			TypeChecker typeChecker = new ModuleTypeChecker(checked);
+			typeChecker.typeCheck();
+			assertEquals("Type check errors", 0, TypeChecker.getErrorCount());
+		}
+		finally
+		{
+			Properties.tc_threads = saved;
+		}
+
+		// The checker creates TC nodes on its pool threads, which are mapped here
+		INModuleList runnable = ClassMapper.getInstance(INNode.MAPPINGS).init().convert(checked);
+		ModuleInterpreter interpreter = new ModuleInterpreter(runnable, checked);
+		interpreter.init();
+		interpreter.setDefaultName("M8");
+		return interpreter.execute("f(10)").toString();
+	}
+
+	public void testConcurrentEvaluate() throws Exception
+	{
+		Console.out.println("Evaluating after a concurrent check...");
+		assertEquals("Concurrent evaluate", evaluate(1), evaluate(4));
+	}
+
+	private List<String> parse(List<File> files, int threads) throws Exception
+	{
+		int saved = Properties.parser_threads;
+
+		try
+		{
+			Properties.parser_threads = threads;
+			LexLocation.resetLocations();
+			ASTPluginSL plugin = new ASTPluginSL();
+			plugin.handleEvent(new CheckPrepareEvent(files));
+			List<String> results = new Vector<String>();
+
+			for (VDMMessage message: plugin.handleEvent(new CheckSyntaxEvent()))
+			{
+				results.add(message.toString());
+			}
+
+			ASTModuleList modules = plugin.getAST();
+
+			for (ASTModule module: modules)
+			{
+				results.add(module.name + " " + module.defs.size());
+			}
+
+			for (File file: files)
+			{
+				results.add(file.getName() + " " + LexLocation.getSpanNames(file).size());
+			}
+
+			// Node IDs key the mapping caches, so duplicates would corrupt these
+			TCModuleList checked = ClassMapper.getInstance(TCNode.MAPPINGS).init().convert(modules);
+			TypeChecker typeChecker = new ModuleTypeChecker(checked);
+			typeChecker.typeCheck();
+
+			for (VDMError err: TypeChecker.getErrors())
+			{
+				results.add(err.toString());
+			}
+
+			INModuleList runnable = ClassMapper.getInstance(INNode.MAPPINGS).init().convert(checked);
+
+			for (INModule module: runnable)
+			{
+				results.add(module.name + " " + module.defs.size() + " " + module.importdefs.size());
+			}
+
+			return results;
+		}
+		finally
+		{
+			Properties.parser_threads = saved;
+		}
+	}
+
+	public void testParallelParse() throws Exception
+	{
+		String[] resources = { "SAFER.vdm", "loose.vdm", "metro.vdm", "struct.vdm", "impcheck.vdm",
+			"ndb.vdm", "railway.vdm", "soccer.vdm", "telephone.vdm" };
+
+		List<File> files = new Vector<File>();
+
+		for (String resource: resources)
+		{
+			files.add(new File(getClass().getResource("/modtest/" + resource).getPath()));
+		}
+
+		Console.out.println("Parsing " + files.size() + " files in parallel...");
+		assertEquals("Parallel parse", parse(files, 1), parse(files, 4));
+	}
+
+	public void testMappedIds() throws Exception
+	{
+		final int THREADS = 4;
+		final int COUNT = 100000;
+		final Set<Long> ids = ConcurrentHashMap.newKeySet();
+		List<Thread> threads = new Vector<Thread>();
+
+		for (int t = 0; t < THREADS; t++)
+		{
+			threads.add(new Thread()
+			{
+				@Override
+				public void run()
+				{
+					for (int i = 0; i < COUNT; i++)
+					{
+						ids.add(new TCNaturalType(LexLocation.ANY).getMappedId());
+					}
+				}
+			});
+		}
+
+		for (Thread t: threads)
+		{
+			t.start();
+		}
+
+		for (Thread t: threads)
+		{
+			t.join();
+		}
+
+		assertEquals("Unique IDs", THREADS * COUNT, ids.size());
+	}
+
+	public void testSpecCache() throws Exception
+	{
+		File dir = Files.createTempDirectory("vdmj-cache").toFile();
+		String saved = Properties.tc_cache_directory;
+
+		try
+		{
+			File cache = new File(dir, "cache");
+			File spec = new File(dir, "spec");
+			spec.mkdir();
+			Properties.tc_cache_directory = cache.getPath();
+			File safer = new File(getClass().getResource("/modtest/SAFER.vdm").getPath());
+			Map<String, File> files = splitModules(safer, spec);
+			List<File> list = new Vector<File>(files.values());
+
+			Console.out.println("Checking " + list + " with a cache...");
+			ASTPluginSL ast = parseModules(list);
+			assertEquals("Nothing cached", 0, ast.getCache().loadModules(ast.getAST()).size());
+			List<String> results = checkModules();
+			assertEquals("Whole, without TEST, AUX, GEOM and GUI", 5, cache.listFiles().length);
+
+			ast = parseModules(list);
+			assertEquals("Whole cached", files.keySet(), loadedNames(ast));
+			assertEquals("Whole results", results, checkModules());
+			assertTrue("Whole loaded", ast.getCache().isLoaded());
+
+			append(files.get("TEST"), "-- changed root");
+			ast = parseModules(list);
+			Set<String> inner = new TreeSet<String>(files.keySet());
+			inner.remove("TEST");
+			assertEquals("Without roots", inner, loadedNames(ast));
+			assertEquals("Without roots results", results, checkModules());
+			assertFalse("Not whole", ast.getCache().isLoaded());
+
+			append(files.get("AUX"), "-- changed library");
+			ast = parseModules(list);
+			assertEquals("Libraries", new TreeSet<String>(Arrays.asList("GEOM", "GUI")), loadedNames(ast));
+			assertEquals("Libraries results", results, checkModules());
+		}
+		finally
+		{
+			Properties.tc_cache_directory = saved;
+			PluginRegistry.reset();
+			delete(dir);
+		}
+	}
+
+	public void testSpecCachePruning() throws Exception
+	{
+		File dir = Files.createTempDirectory("vdmj-cache").toFile();
+		String saved = Properties.tc_cache_directory;
+		int max = Properties.tc_cache_max_entries;
+
+		try
+		{
+			File cache = new File(dir, "cache");
+			File spec = new File(dir, "spec");
+			spec.mkdir();
+			Properties.tc_cache_directory = cache.getPath();
+			File safer = new File(getClass().getResource("/modtest/SAFER.vdm").getPath());
+			Map<String, File> files = splitModules(safer, spec);
+			List<File> list = new Vector<File>(files.values());
+
+			parseModules(list);
+			checkModules();
+			assertEquals("Whole, without TEST, AUX, GEOM and GUI", 5, cache.listFiles().length);
+
+			for (File entry: cache.listFiles())
+			{
+				entry.setLastModified(System.currentTimeMillis() - 60000);	// Saved a minute ago
+			}
+
+			Properties.tc_cache_max_entries = 2;
+			append(files.get("TEST"), "-- changed root");
+			ASTPluginSL ast = parseModules(list);
+			Set<String> inner = new TreeSet<String>(files.keySet());
+			inner.remove("TEST");
+			assertEquals("Without roots", inner, loadedNames(ast));
+			checkModules();		// Saves the new whole, and prunes the old
+			assertEquals("New whole and without roots", 2, cache.listFiles().length);
+
+			ast = parseModules(list);
+			assertEquals("Whole cached", files.keySet(), loadedNames(ast));
+			assertTrue("Whole loaded", ast.getCache().isLoaded());
+
+			append(files.get("TEST"), "-- changed root again");
+			ast = parseModules(list);
+			assertEquals("Without roots kept", inner, loadedNames(ast));
+		}
+		finally
+		{
+			Properties.tc_cache_directory = saved;
+			Properties.tc_cache_max_entries = max;
+			PluginRegistry.reset();
+			delete(dir);
+		}
+	}
+
+	private void delete(File file)
+	{
+		if (file.isDirectory())
+		{
+			for (File child: file.listFiles())
+			{
+				delete(child);
+			}
+		}
+
+		file.delete();
+	}
+
+	/**
+	 * Write each module of a file to a separate file in a directory.
+	 */
+	private Map<String, File> splitModules(File file, File dir) throws Exception
+	{
+		Map<String, File> files = new TreeMap<String, File>();
+		StringBuilder text = new StringBuilder();
+		String name = null;
+
+		for (String line: Files.readAllLines(file.toPath()))
+		{
+			if (line.startsWith("module "))
+			{
+				if (name != null)
+				{
+					files.put(name, write(dir, name, text));
+				}
+
+				name = line.substring(7).trim();
+				text = new StringBuilder();
+			}
+
+			text.append(line);
+			text.append("\n");
+		}
+
+		files.put(name, write(dir, name, text));
+		return files;
+	}
+
+	private File write(File dir, String name, StringBuilder text) throws Exception
+	{
+		File file = new File(dir, name + ".vdmsl");
+		Files.write(file.toPath(), text.toString().getBytes());
+		return file;
+	}
+
+	private void append(File file, String comment) throws Exception
+	{
+		Files.write(file.toPath(), (comment + "\n").getBytes(), StandardOpenOption.APPEND);
+	}
+
+	private ASTPluginSL parseModules(List<File> files) throws Exception
+	{
+		LexLocation.resetLocations();
+		PluginRegistry.reset();
+		ASTPluginSL ast = new ASTPluginSL();
+		PluginRegistry.getInstance().registerPlugin(ast);
+		PluginRegistry.getInstance().registerPlugin(new TCPluginSL());
+		ast.handleEvent(new CheckPrepareEvent(files));
+		assertTrue("Syntax errors", ast.handleEvent(new CheckSyntaxEvent()).isEmpty());
+		return ast;
+	}
+
+	private Set<String> loadedNames(ASTPluginSL ast)
+	{
+		Set<String> names = new TreeSet<String>();
+
+		for (TCModule module: ast.getCache().loadModules(ast.getAST()))
+		{
+			names.add(module.name.getName());
+		}
+
+		return names;
+	}
+
+	private List<String> checkModules() throws Exception
+	{
+		TCPluginSL tc = PluginRegistry.getInstance().getPlugin("TC");
+		List<String> results = new Vector<String>();
+
+		for (VDMMessage message: tc.handleEvent(new CheckTypeEvent()))
+		{
+			results.add(message.toString());
+		}
+
+		Collections.sort(results);
+		results.add(tc.getTC().toString());
+		return results;
+	}
 }
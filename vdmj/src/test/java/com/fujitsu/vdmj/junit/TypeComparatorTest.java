@@ -0,0 +1,142 @@
+/*******************************************************************************
+ *
+ *	Copyright (c) 2026 Nick Battle.
+ *
+ *	Author: Nick Battle
+ *
+ *	This file is part of VDMJ.
+ *
+ *	VDMJ is free software: you can redistribute it and/or modify
+ *	it under the terms of the GNU General Public License as published by
+ *	the Free Software Foundation, either version 3 of the License, or
+ *	(at your option) any later version.
+ *
+ *	VDMJ is distributed in the hope that it will be useful,
+ *	but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *	GNU General Public License for more details.
+ *
+ *	You should have received a copy of the GNU General Public License
+ *	along with VDMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *	SPDX-License-Identifier: GPL-3.0-or-later
+ *
+ ******************************************************************************/
+
+package com.fujitsu.vdmj.junit;
+
+import java.io.File;
+import java.net.URL;
+import java.util.List;
+import java.util.Vector;
+
+import com.fujitsu.vdmj.Release;
+import com.fujitsu.vdmj.Settings;
+import com.fujitsu.vdmj.ast.modules.ASTModuleList;
+import com.fujitsu.vdmj.lex.Dialect;
+import com.fujitsu.vdmj.lex.LexTokenReader;
+import com.fujitsu.vdmj.mapper.ClassMapper;
+import com.fujitsu.vdmj.syntax.ModuleReader;
+import com.fujitsu.vdmj.tc.TCNode;
+import com.fujitsu.vdmj.tc.definitions.TCDefinition;
+import com.fujitsu.vdmj.tc.modules.TCModule;
+import com.fujitsu.vdmj.tc.modules.TCModuleList;
+import com.fujitsu.vdmj.tc.types.TCType;
+import com.fujitsu.vdmj.typechecker.ModuleTypeChecker;
+import com.fujitsu.vdmj.typechecker.TypeChecker;
+import com.fujitsu.vdmj.typechecker.TypeComparator;
+
+import junit.framework.TestCase;
+
+/**
+ * Check that the verdicts cached by the TypeComparator during a type check are
+ * the same as those calculated without the cache.
+ */
+public class TypeComparatorTest extends TestCase
+{
+	private static final int MAX_TYPES = 80;
+
+	@Override
+	protected void setUp() throws Exception
+	{
+		super.setUp();
+		Settings.release = Release.CLASSIC;
+		Settings.dialect = Dialect.VDM_SL;
+	}
+
+	private void process(String resource) throws Exception
+	{
+		URL rurl = getClass().getResource("/modtest/" + resource);
+		LexTokenReader ltr = new LexTokenReader(new File(rurl.getPath()), Dialect.VDM_SL);
+		ModuleReader mr = new ModuleReader(ltr);
+		ASTModuleList parsed = new ASTModuleList();
+		parsed.addAll(mr.readModules());
+		assertEquals("Parse errors", 0, mr.getErrorCount());
+
+		TCModuleList checked = ClassMapper.getInstance(TCNode.MAPPINGS).init().convert(parsed);
+		TypeChecker typeChecker = new ModuleTypeChecker(checked);
+		typeChecker.typeCheck();
+		assertEquals("Type check errors", 0, TypeChecker.getErrorCount());
+
+		for (TCModule m: checked)
+		{
+			List<TCType> types = new Vector<TCType>();
+
+			for (TCDefinition d: m.defs)
+			{
+				if (types.size() < MAX_TYPES)
+				{
+					types.add(d.getType());
+				}
+			}
+
+			TypeComparator.setCurrentModule(m.name.getName());
+			List<Boolean> uncached = compare(types);
+
+			try
+			{
+				TypeComparator.startCheck();
+				assertEquals("First cached pass in " + m.name, uncached, compare(types));
+				assertEquals("Second cached pass in " + m.name, uncached, compare(types));
+			}
+			finally
+			{
+				TypeComparator.endCheck();
+			}
+
+			assertEquals("After check in " + m.name, uncached, compare(types));
+		}
+	}
+
+	private List<Boolean> compare(List<TCType> types)
+	{
+		List<Boolean> results = new Vector<Boolean>();
+
+		for (TCType a: types)
+		{
+			for (TCType b: types)
+			{
+				results.add(TypeComparator.compatible(a, b));
+				results.add(TypeComparator.compatible(a, b, true));
+				results.add(TypeComparator.isSubType(a, b));
+				results.add(TypeComparator.isSubType(a, b, true));
+			}
+		}
+
+		return results;
+	}
+
+	public void testSAFER() throws Exception
+	{
+		process("SAFER.vdm");
+	}
+
+	public void testNDB() throws Exception
+	{
+		process("ndb.vdm");
+	}
+
+	public void testSoccer() throws Exception
+	{
+		process("soccer.vdm");
+	}
+}
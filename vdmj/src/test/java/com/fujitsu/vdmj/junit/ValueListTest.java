@@ -0,0 +1,187 @@
+/*******************************************************************************
+ *
+ *	Copyright (c) 2026 Nick Battle.
+ *
+ *	Author: Nick Battle
+ *
+ *	This file is part of VDMJ.
+ *
+ *	VDMJ is free software: you can redistribute it and/or modify
+ *	it under the terms of the GNU General Public License as published by
+ *	the Free Software Foundation, either version 3 of the License, or
+ *	(at your option) any later version.
+ *
+ *	VDMJ is distributed in the hope that it will be useful,
+ *	but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *	GNU General Public License for more details.
+ *
+ *	You should have received a copy of the GNU General Public License
+ *	along with VDMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *	SPDX-License-Identifier: GPL-3.0-or-later
+ *
+ ******************************************************************************/
+
+package com.fujitsu.vdmj.junit;
+
+import java.util.Iterator;
+
+import com.fujitsu.vdmj.values.NaturalValue;
+import com.fujitsu.vdmj.values.Value;
+import com.fujitsu.vdmj.values.ValueList;
+
+import junit.framework.TestCase;
+
+/**
+ * Check that ValueLists which share an element array, as ranges or concatenations
+ * of other lists, behave as independent copies however they are modified.
+ */
+public class ValueListTest extends TestCase
+{
+	private static final int SIZE = 20;
+
+	private ValueList range(int from, int to) throws Exception
+	{
+		ValueList list = new ValueList();
+
+		for (int i = from; i <= to; i++)
+		{
+			list.add(new NaturalValue(i));
+		}
+
+		return list;
+	}
+
+	private void check(ValueList list, int from, int to) throws Exception
+	{
+		assertEquals(to - from + 1, list.size());
+		assertEquals(range(from, to), list);
+		assertEquals(range(from, to).hashCode(), list.hashCode());
+		int i = from;
+
+		for (Value v: list)
+		{
+			assertEquals(new NaturalValue(i++), v);
+		}
+
+		for (i = from; i <= to; i++)
+		{
+			assertEquals(new NaturalValue(i), list.get(i - from));
+		}
+	}
+
+	public void testRanges() throws Exception
+	{
+		ValueList all = range(1, SIZE);
+		ValueList tail = new ValueList(all, 1, SIZE);
+		ValueList middle = new ValueList(tail, 4, 9);
+
+		check(tail, 2, SIZE);
+		check(middle, 6, 10);
+		assertEquals(new NaturalValue(6), middle.firstElement());
+		assertEquals(new NaturalValue(10), middle.lastElement());
+		assertEquals(0, new ValueList(all, 3, 3).size());
+
+		try
+		{
+			middle.get(-1);		// Would otherwise read the shared array
+			fail("Expecting index out of bounds");
+		}
+		catch (IndexOutOfBoundsException e)
+		{
+			// Expected
+		}
+
+		try
+		{
+			new ValueList(middle, 0, 6);
+			fail("Expecting index out of bounds");
+		}
+		catch (IndexOutOfBoundsException e)
+		{
+			// Expected
+		}
+	}
+
+	public void testRetainedCapacity() throws Exception
+	{
+		ValueList all = range(1, SIZE * 10);
+
+		for (int n = 1; n <= all.size(); n++)
+		{
+			ValueList prefix = new ValueList(all, 0, n);	// Offset zero, so not flattened
+			check(prefix, 1, n);
+			assertTrue(prefix.capacity() < 4 * (n + 1));
+		}
+
+		ValueList list = all;
+
+		while (list.size() > 1)
+		{
+			list = new ValueList(list, 1, list.size());		// Repeated tl
+		}
+
+		ValueList last = new ValueList(list, 0, 1);
+		check(last, SIZE * 10, SIZE * 10);
+		assertTrue(last.capacity() < 8);
+	}
+
+	public void testCopyOnWrite() throws Exception
+	{
+		ValueList all = range(1, SIZE);
+		ValueList tail = new ValueList(all, 1, SIZE);
+		ValueList middle = new ValueList(tail, 4, 9);
+
+		tail.set(0, new NaturalValue(0));
+		assertEquals(new NaturalValue(1), all.get(0));
+		assertEquals(new NaturalValue(2), all.get(1));
+		check(middle, 6, 10);
+
+		all.add(new NaturalValue(SIZE + 1));
+		all.remove(0);
+		check(all, 2, SIZE + 1);
+		check(middle, 6, 10);
+
+		Iterator<Value> iter = middle.iterator();
+		iter.next();
+		iter.remove();
+		check(middle, 7, 10);
+		check(new ValueList(all, 5, 10), 7, 11);
+
+		ValueList prefix = new ValueList(all, 0, 5);
+		prefix.add(new NaturalValue(99));		// Must not overwrite all(5)
+		assertEquals(new NaturalValue(7), all.get(5));
+		assertEquals(new NaturalValue(99), prefix.get(5));
+	}
+
+	public void testConcatenation() throws Exception
+	{
+		ValueList left = range(1, 5);
+		ValueList both = new ValueList(left, range(6, 10));
+		check(both, 1, 10);
+		check(left, 1, 5);
+
+		ValueList more = new ValueList(both, range(11, 11));	// Appended in place
+		ValueList other = new ValueList(both, range(21, 21));	// Cannot be
+		check(more, 1, 11);
+		check(both, 1, 10);
+		assertEquals(new NaturalValue(21), other.get(10));
+		assertEquals(11, other.size());
+
+		ValueList list = new ValueList();
+
+		for (int i = 1; i <= SIZE; i++)
+		{
+			list = new ValueList(list, range(i, i));
+		}
+
+		check(list, 1, SIZE);
+		check(more, 1, 11);
+
+		ValueList tail = new ValueList(list, 1, SIZE);
+		check(new ValueList(tail, new ValueList()), 2, SIZE);
+		check(new ValueList(new ValueList(), tail), 2, SIZE);
+		list.clear();
+		check(tail, 2, SIZE);
+	}
+}
@@ -0,0 +1,102 @@
+/*******************************************************************************
+ *
+ *	Copyright (c) 2026 Nick Battle.
+ *
+ *	Author: Nick Battle
+ *
+ *	This file is part of VDMJ.
+ *
+ *	VDMJ is free software: you can redistribute it and/or modify
+ *	it under the terms of the GNU General Public License as published by
+ *	the Free Software Foundation, either version 3 of the License, or
+ *	(at your option) any later version.
+ *
+ *	VDMJ is distributed in the hope that it will be useful,
+ *	but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *	GNU General Public License for more details.
+ *
+ *	You should have received a copy of the GNU General Public License
+ *	along with VDMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *	SPDX-License-Identifier: GPL-3.0-or-later
+ *
+ ******************************************************************************/
+
+package com.fujitsu.vdmj.junit;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.fujitsu.vdmj.values.NaturalValue;
+import com.fujitsu.vdmj.values.Value;
+import com.fujitsu.vdmj.values.ValueMap;
+
+import junit.framework.TestCase;
+
+/**
+ * Check that the changes between ValueMaps that share their tries are found by
+ * visiting only the changed paths.
+ */
+public class ValueMapTest extends TestCase
+{
+	private static final int SIZE = 10000;
+
+	private ValueMap range(int from, int to) throws Exception
+	{
+		ValueMap map = new ValueMap();
+
+		for (int i = from; i <= to; i++)
+		{
+			map.put(new NaturalValue(i), new NaturalValue(i));
+		}
+
+		return map;
+	}
+
+	private Set<Value> keys(int... values) throws Exception
+	{
+		Set<Value> set = new HashSet<Value>();
+
+		for (int v: values)
+		{
+			set.add(new NaturalValue(v));
+		}
+
+		return set;
+	}
+
+	public void testChangedFrom() throws Exception
+	{
+		ValueMap base = range(1, SIZE);
+		ValueMap map = new ValueMap(base);
+		assertTrue(map.changedFrom(base).isEmpty());
+
+		map.put(new NaturalValue(5), new NaturalValue(0));			// Changed
+		map.put(new NaturalValue(SIZE + 1), new NaturalValue(0));	// Added
+		map.remove(new NaturalValue(7));							// Removed
+		map.put(new NaturalValue(9), base.get(new NaturalValue(9)));	// Same
+
+		List<Value> changed = map.changedFrom(base);
+		assertEquals(keys(5, SIZE + 1), new HashSet<Value>(changed));
+		assertEquals(2, changed.size());
+
+		assertEquals(SIZE, range(1, SIZE).changedFrom(base).size());	// Equal, but not shared
+		assertEquals(SIZE, base.changedFrom(new ValueMap()).size());
+		assertTrue(new ValueMap().changedFrom(base).isEmpty());
+	}
+
+	public void testUnchangedBase() throws Exception
+	{
+		ValueMap base = range(1, SIZE);
+		ValueMap map = new ValueMap(base);
+
+		for (int i = 1; i <= 100; i++)
+		{
+			map.put(new NaturalValue(i * 3), new NaturalValue(0));
+		}
+
+		assertEquals(100, map.changedFrom(base).size());
+		assertEquals(range(1, SIZE), base);		// Updates to the copy leave the base alone
+	}
+}
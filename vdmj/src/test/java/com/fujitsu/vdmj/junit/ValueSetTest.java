@@ -0,0 +1,151 @@
+/*******************************************************************************
+ *
+ *	Copyright (c) 2026 Nick Battle.
+ *
+ *	Author: Nick Battle
+ *
+ *	This file is part of VDMJ.
+ *
+ *	VDMJ is free software: you can redistribute it and/or modify
+ *	it under the terms of the GNU General Public License as published by
+ *	the Free Software Foundation, either version 3 of the License, or
+ *	(at your option) any later version.
+ *
+ *	VDMJ is distributed in the hope that it will be useful,
+ *	but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *	GNU General Public License for more details.
+ *
+ *	You should have received a copy of the GNU General Public License
+ *	along with VDMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *	SPDX-License-Identifier: GPL-3.0-or-later
+ *
+ ******************************************************************************/
+
+package com.fujitsu.vdmj.junit;
+
+import java.util.Iterator;
+
+import com.fujitsu.vdmj.values.NaturalValue;
+import com.fujitsu.vdmj.values.SeqValue;
+import com.fujitsu.vdmj.values.Value;
+import com.fujitsu.vdmj.values.ValueSet;
+
+import junit.framework.TestCase;
+
+/**
+ * Check that the hash index of a ValueSet agrees with its members, however the
+ * set is modified.
+ */
+public class ValueSetTest extends TestCase
+{
+	private static final int SIZE = 100;	// Well above the index threshold
+
+	private ValueSet range(int from, int to) throws Exception
+	{
+		ValueSet set = new ValueSet();
+
+		for (int i = from; i <= to; i++)
+		{
+			set.add(new NaturalValue(i));
+		}
+
+		return set;
+	}
+
+	private void check(ValueSet set) throws Exception
+	{
+		for (Value v: set)
+		{
+			assertTrue(v.toString(), set.contains(v));
+		}
+
+		for (int i = 0; i <= SIZE + 1; i++)
+		{
+			NaturalValue v = new NaturalValue(i);
+			boolean member = false;
+
+			for (Value m: set)
+			{
+				member = member || m.equals(v);
+			}
+
+			assertEquals(v.toString(), member, set.contains(v));
+		}
+	}
+
+	public void testMembership() throws Exception
+	{
+		ValueSet set = range(1, SIZE);
+		assertEquals(SIZE, set.size());
+		check(set);
+
+		set.add(new NaturalValue(50));		// Already present
+		assertEquals(SIZE, set.size());
+		assertFalse(set.contains(new SeqValue("50")));
+
+		ValueSet copy = new ValueSet(set);
+		check(copy);
+		assertEquals(set, copy);
+		assertEquals(set.hashCode(), copy.hashCode());
+	}
+
+	public void testRemove() throws Exception
+	{
+		ValueSet set = range(1, SIZE);
+
+		for (int i = 1; i <= SIZE; i += 2)
+		{
+			assertTrue(set.remove(new NaturalValue(i)));
+		}
+
+		assertFalse(set.remove(new NaturalValue(1)));
+		assertEquals(SIZE / 2, set.size());
+		check(set);
+
+		set.removeAll(range(1, 50));
+		check(set);
+		set.retainAll(range(1, 80));
+		check(set);
+		assertEquals(15, set.size());
+	}
+
+	public void testVectorMethods() throws Exception
+	{
+		ValueSet set = range(1, SIZE);
+
+		set.set(0, new NaturalValue(0));		// Replaces 1
+		check(set);
+		set.setElementAt(new NaturalValue(SIZE + 1), 1);	// Replaces 2
+		check(set);
+		set.remove(5);		// Removes the index, not the value
+		check(set);
+
+		Iterator<Value> iter = set.iterator();
+		iter.next();
+		iter.remove();
+		check(set);
+
+		set.sort();
+		check(set);
+		set.clear();
+		check(set);
+		set.add(new NaturalValue(1));
+		check(set);
+	}
+
+	public void testGrowth() throws Exception
+	{
+		ValueSet set = new ValueSet();
+
+		for (int i = SIZE; i > 0; i--)		// Crosses the index threshold
+		{
+			set.add(new NaturalValue(i));
+			set.add(new NaturalValue(i));
+			assertTrue(set.contains(new NaturalValue(i)));
+			assertEquals(SIZE - i + 1, set.size());
+		}
+
+		check(set);
+	}
+}
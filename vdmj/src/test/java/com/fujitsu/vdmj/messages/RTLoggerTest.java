@@ -0,0 +1,306 @@
+/*******************************************************************************
+ *
+ *	Copyright (c) 2026 Nick Battle.
+ *
+ *	Author: Nick Battle
+ *
+ *	This file is part of VDMJ.
+ *
+ *	VDMJ is free software: you can redistribute it and/or modify
+ *	it under the terms of the GNU General Public License as published by
+ *	the Free Software Foundation, either version 3 of the License, or
+ *	(at your option) any later version.
+ *
+ *	VDMJ is distributed in the hope that it will be useful,
+ *	but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *	GNU General Public License for more details.
+ *
+ *	You should have received a copy of the GNU General Public License
+ *	along with VDMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *	SPDX-License-Identifier: GPL-3.0-or-later
+ *
+ ******************************************************************************/
+
+package com.fujitsu.vdmj.messages;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Vector;
+
+import junit.framework.TestCase;
+
+public class RTLoggerTest extends TestCase
+{
+	private static final RTEvent[] EVENTS =
+	{
+		new RTEvent("-- a diagnostic", null, 0),
+		new RTEvent("OpRequest", new Object[] { "id", 1L, "opname", "A`op()", "objref", null, "async", false }, 10),
+		new RTEvent("CPUdecl", new Object[] { "id", 2, "expl", true, "sys", "S", "name", "cpu1" }, 10),
+		new RTEvent("OpRequest", new Object[] { "id", 3L, "opname", "A`op()", "objref", 7L, "async", true }, 20)
+	};
+
+	public void testQueue() throws Exception
+	{
+		final int THREADS = 4;
+		final int COUNT = 10000;
+		final RTEventQueue queue = new RTEventQueue(16);	// Small, so producers wait
+		List<Thread> producers = new Vector<Thread>();
+
+		for (int t = 0; t < THREADS; t++)
+		{
+			final int thread = t;
+
+			producers.add(new Thread()
+			{
+				@Override
+				public void run()
+				{
+					for (long i = 0; i < COUNT; i++)
+					{
+						queue.put(new RTEvent("E", new Object[] { "t", thread, "i", i }, i));
+					}
+				}
+			});
+		}
+
+		for (Thread p: producers)
+		{
+			p.start();
+		}
+
+		long[] next = new long[THREADS];
+		int received = 0;
+		long timeout = System.currentTimeMillis() + 30000;
+
+		while (received < THREADS * COUNT && System.currentTimeMillis() < timeout)
+		{
+			RTEvent event = queue.poll();
+
+			if (event != null)
+			{
+				int thread = (Integer)event.get("t");
+				assertEquals("Order of thread " + thread, next[thread], event.get("i"));
+				next[thread]++;
+				received++;
+			}
+		}
+
+		for (Thread p: producers)
+		{
+			p.join(1000);
+		}
+
+		assertEquals(THREADS * COUNT, received);
+		assertTrue(queue.isEmpty());
+		assertNull(queue.poll());
+	}
+
+	public void testBinaryFormat() throws Exception
+	{
+		File file = File.createTempFile("rtlog", RTLogWriter.SUFFIX);
+		file.deleteOnExit();
+		RTLogWriter writer = RTLogWriter.create(file);
+		writer.write(new RTEvent("Kind", new Object[] { "a", 1L }, 5));
+		writer.write(new RTEvent("Kind", new Object[] { "a", "Kind" }, 6));
+		writer.close();
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream expected = new DataOutputStream(bytes);
+		expected.write(RTLogWriter.MAGIC.getBytes(StandardCharsets.US_ASCII));
+		expected.writeByte('E');
+		newString(expected, "Kind");		// string 0
+		expected.writeLong(5);
+		expected.writeByte(1);
+		newString(expected, "a");			// string 1
+		expected.writeByte('J');
+		expected.writeLong(1);
+		expected.writeByte('E');
+		expected.writeShort(0);
+		expected.writeLong(6);
+		expected.writeByte(1);
+		expected.writeShort(1);
+		expected.writeByte('S');
+		expected.writeShort(0);
+		expected.close();
+
+		assertTrue(Arrays.equals(bytes.toByteArray(), Files.readAllBytes(file.toPath())));
+		assertTrue(RTLogReader.isBinary(file));
+	}
+
+	private void newString(DataOutputStream out, String s) throws IOException
+	{
+		out.writeShort(-1);
+		out.writeInt(s.length());
+		out.write(s.getBytes(StandardCharsets.UTF_8));
+	}
+
+	public void testRoundTrip() throws Exception
+	{
+		for (String suffix: new String[] { ".log", RTLogWriter.SUFFIX })
+		{
+			File file = File.createTempFile("rtlog", suffix);
+			file.deleteOnExit();
+			RTLogWriter writer = RTLogWriter.create(file);
+
+			for (RTEvent event: EVENTS)
+			{
+				writer.write(event);
+			}
+
+			writer.close();
+			assertEquals(suffix.equals(RTLogWriter.SUFFIX), RTLogReader.isBinary(file));
+			assertEquals(Arrays.asList(expected()), read(file));
+		}
+	}
+
+	public void testLogger() throws Exception
+	{
+		final int THREADS = 4;
+		final int COUNT = 50000;	// Most of the queue size, with all threads
+		File file = File.createTempFile("rtlog", RTLogWriter.SUFFIX);
+		file.deleteOnExit();
+
+		try
+		{
+			RTLogger.setLogfileName(file);
+			List<Thread> threads = new Vector<Thread>();
+
+			for (int t = 0; t < THREADS; t++)
+			{
+				threads.add(new Thread()
+				{
+					@Override
+					public void run()
+					{
+						for (long i = 0; i < COUNT; i++)
+						{
+							RTLogger.log("OpRequest", "id", i, "opname", "A`op()");
+						}
+					}
+				});
+			}
+
+			for (Thread t: threads)
+			{
+				t.start();
+			}
+
+			for (Thread t: threads)
+			{
+				t.join();
+			}
+
+			assertTrue(RTLogger.isOpen());
+			assertTrue(RTLogger.getLogSize() <= THREADS * COUNT);
+			RTLogger.dump(true);
+			assertFalse(RTLogger.isOpen());
+			assertEquals(0, RTLogger.getLogSize());
+			assertEquals(THREADS * COUNT, read(file).size());
+		}
+		finally
+		{
+			RTLogger.enable(false);
+		}
+	}
+
+	public void testSwitch() throws Exception
+	{
+		final int THREADS = 4;
+		final int COUNT = 50000;
+		final int FILES = 10;
+		List<File> files = new Vector<File>();
+
+		for (int f = 0; f < FILES; f++)
+		{
+			File file = File.createTempFile("rtlog", RTLogWriter.SUFFIX);
+			file.deleteOnExit();
+			files.add(file);
+		}
+
+		try
+		{
+			RTLogger.setLogfileName(files.get(0));
+			List<Thread> threads = new Vector<Thread>();
+
+			for (int t = 0; t < THREADS; t++)
+			{
+				threads.add(new Thread()
+				{
+					@Override
+					public void run()
+					{
+						for (long i = 0; i < COUNT; i++)
+						{
+							RTLogger.log("OpRequest", "id", i, "opname", "A`op()");
+						}
+					}
+				});
+			}
+
+			for (Thread t: threads)
+			{
+				t.start();
+			}
+
+			for (int f = 1; f < FILES; f++)		// Switch files while threads log
+			{
+				Thread.sleep(5);
+				RTLogger.setLogfileName(files.get(f));
+			}
+
+			for (Thread t: threads)
+			{
+				t.join();
+			}
+
+			RTLogger.dump(true);
+			int total = 0;
+
+			for (File file: files)
+			{
+				total += read(file).size();
+			}
+
+			assertEquals(THREADS * COUNT, total);
+		}
+		finally
+		{
+			RTLogger.enable(false);
+		}
+	}
+
+	private String[] expected()
+	{
+		String[] lines = new String[EVENTS.length];
+
+		for (int i = 0; i < EVENTS.length; i++)
+		{
+			lines[i] = EVENTS[i].toString();
+		}
+
+		return lines;
+	}
+
+	private List<String> read(File file) throws IOException
+	{
+		RTLogReader reader = new RTLogReader(file);
+		List<String> lines = new Vector<String>();
+		String line = reader.readLine();
+
+		while (line != null)
+		{
+			lines.add(line);
+			line = reader.readLine();
+		}
+
+		reader.close();
+		return lines;
+	}
+}
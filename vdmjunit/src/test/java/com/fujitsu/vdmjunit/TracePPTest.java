@@ -0,0 +1,124 @@
+/*******************************************************************************
+ *
+ *	Copyright (c) 2026 Nick Battle.
+ *
+ *	Author: Nick Battle
+ *
+ *	This file is part of VDMJ.
+ *
+ *	VDMJ is free software: you can redistribute it and/or modify
+ *	it under the terms of the GNU General Public License as published by
+ *	the Free Software Foundation, either version 3 of the License, or
+ *	(at your option) any later version.
+ *
+ *	VDMJ is distributed in the hope that it will be useful,
+ *	but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *	GNU General Public License for more details.
+ *
+ *	You should have received a copy of the GNU General Public License
+ *	along with VDMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *	SPDX-License-Identifier: GPL-3.0-or-later
+ *
+ ******************************************************************************/
+
+package com.fujitsu.vdmjunit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Map.Entry;
+
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.fujitsu.vdmj.lex.LexLocation;
+import com.fujitsu.vdmj.tc.lex.TCNameList;
+import com.fujitsu.vdmj.tc.lex.TCNameToken;
+import com.fujitsu.vdmj.values.MapValue;
+import com.fujitsu.vdmj.values.ObjectValue;
+import com.fujitsu.vdmj.values.SeqValue;
+import com.fujitsu.vdmj.values.Value;
+
+/**
+ * Trace tests that update class statics, which must be restored between tests,
+ * and tests of the deep copy of objects.
+ */
+public class TracePPTest extends VDMJUnitTestPP
+{
+	@BeforeClass
+	public static void start() throws Exception
+	{
+		readSpecification("tracePP.vpp");
+	}
+	
+	@Before
+	public void setUp()
+	{
+		init();
+	}
+	
+	@Test
+	public void statics() throws Exception
+	{
+		assertTrue(runTrace("Counter`T1"));
+		assertEquals(0, runInt("Counter`total"));
+	}
+	
+	@Test
+	public void oldValues() throws Exception
+	{
+		create("counter", "new Counter()");
+		ObjectValue counter = run("counter").objectValue(null);
+		TCNameList names = new TCNameList();
+		names.add(new TCNameToken(LexLocation.ANY, "Counter", "cell", true));
+		MapValue old = counter.getOldValues(names);
+
+		run("counter.step()");
+		ObjectValue cell = member(counter, "cell").objectValue(null);
+		ObjectValue oldcell = old.values.get(new SeqValue("cell")).objectValue(null);
+		assertNotSame(cell, oldcell);
+		assertEquals(1, member(cell, "val").intValue(null));
+		assertEquals(0, member(oldcell, "val").intValue(null));
+		assertSame(oldcell, member(oldcell, "next"));
+	}
+	
+	@Test
+	public void deepCopy() throws Exception
+	{
+		create("cell", "new Cell()");
+		run("cell.inc()");
+		ObjectValue cell = run("cell").objectValue(null);
+		ObjectValue copy = cell.deepCopy();
+
+		assertNotSame(cell, copy);
+		assertEquals(cell.objectReference, copy.objectReference);
+		assertSame(copy, member(copy, "next"));		// Cycle kept, to the copy
+		assertSame(cell, member(cell, "next"));
+
+		run("cell.inc()");
+		assertEquals(2, member(cell, "val").intValue(null));
+		assertEquals(1, member(copy, "val").intValue(null));
+
+		ObjectValue clone = (ObjectValue)cell.clone();		// Also a deep copy
+		assertNotSame(cell, clone);
+		assertSame(clone, member(clone, "next"));
+		assertEquals(2, member(clone, "val").intValue(null));
+	}
+	
+	private Value member(ObjectValue object, String name)
+	{
+		for (Entry<TCNameToken, Value> entry: object.getMemberValues().entrySet())
+		{
+			if (entry.getKey().getName().equals(name))
+			{
+				return entry.getValue().deref();
+			}
+		}
+
+		throw new IllegalArgumentException("No member " + name);
+	}
+}
@@ -0,0 +1,63 @@
+/*******************************************************************************
+ *
+ *	Copyright (c) 2026 Nick Battle.
+ *
+ *	Author: Nick Battle
+ *
+ *	This file is part of VDMJ.
+ *
+ *	VDMJ is free software: you can redistribute it and/or modify
+ *	it under the terms of the GNU General Public License as published by
+ *	the Free Software Foundation, either version 3 of the License, or
+ *	(at your option) any later version.
+ *
+ *	VDMJ is distributed in the hope that it will be useful,
+ *	but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *	GNU General Public License for more details.
+ *
+ *	You should have received a copy of the GNU General Public License
+ *	along with VDMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *	SPDX-License-Identifier: GPL-3.0-or-later
+ *
+ ******************************************************************************/
+
+package com.fujitsu.vdmjunit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Trace tests of a VDM-RT system, which is initialized again for each test.
+ */
+public class TraceRTTest extends VDMJUnitTestRT
+{
+	@BeforeClass
+	public static void start() throws Exception
+	{
+		readSpecification("traceRT.vpp");
+	}
+	
+	@Before
+	public void setUp()
+	{
+		init();
+	}
+	
+	@Test
+	public void statics() throws Exception
+	{
+		assertTrue(runTrace("Counter`T1"));
+		assertEquals(0, runInt("Counter`total"));
+	}
+	
+	@Test
+	public void system() throws Exception
+	{
+		assertTrue(runTrace("Counter`T2"));
+	}
+}
@@ -0,0 +1,75 @@
+/*******************************************************************************
+ *
+ *	Copyright (c) 2026 Nick Battle.
+ *
+ *	Author: Nick Battle
+ *
+ *	This file is part of VDMJ.
+ *
+ *	VDMJ is free software: you can redistribute it and/or modify
+ *	it under the terms of the GNU General Public License as published by
+ *	the Free Software Foundation, either version 3 of the License, or
+ *	(at your option) any later version.
+ *
+ *	VDMJ is distributed in the hope that it will be useful,
+ *	but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *	GNU General Public License for more details.
+ *
+ *	You should have received a copy of the GNU General Public License
+ *	along with VDMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *	SPDX-License-Identifier: GPL-3.0-or-later
+ *
+ ******************************************************************************/
+
+package com.fujitsu.vdmjunit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.fujitsu.vdmj.Release;
+
+/**
+ * Trace tests that update the state, which must be restored between tests.
+ */
+public class TraceStateTest extends VDMJUnitTestSL
+{
+	@BeforeClass
+	public static void start() throws Exception
+	{
+		setRelease(Release.VDM_10);
+		readSpecification("tracestate.vdm");
+	}
+	
+	@Before
+	public void setUp()
+	{
+		init();
+	}
+	
+	@Test
+	public void restored() throws Exception
+	{
+		assertTrue(runTrace("T1"));
+		assertTrue(runTrace("T1"));		// Again, with a new snapshot
+	}
+	
+	@Test
+	public void sequential() throws Exception
+	{
+		assertFalse(runTrace("T2"));
+	}
+	
+	@Test
+	public void initialized() throws Exception
+	{
+		runTrace("T1");
+		assertEquals(1, runInt("inc(7)"));
+		assertVDM("log", "RESULT = [7]");
+	}
+}
@@ -0,0 +1,124 @@
+/*******************************************************************************
+ *
+ *	Copyright (c) 2026 Nick Battle.
+ *
+ *	Author: Nick Battle
+ *
+ *	This file is part of VDMJ.
+ *
+ *	VDMJ is free software: you can redistribute it and/or modify
+ *	it under the terms of the GNU General Public License as published by
+ *	the Free Software Foundation, either version 3 of the License, or
+ *	(at your option) any later version.
+ *
+ *	VDMJ is distributed in the hope that it will be useful,
+ *	but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *	GNU General Public License for more details.
+ *
+ *	You should have received a copy of the GNU General Public License
+ *	along with VDMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *	SPDX-License-Identifier: GPL-3.0-or-later
+ *
+ ******************************************************************************/
+
+package com.fujitsu.vdmjunit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+import java.util.Vector;
+
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.fujitsu.vdmj.Release;
+import com.fujitsu.vdmj.config.Properties;
+import com.fujitsu.vdmj.messages.ConsolePrintWriter;
+import com.fujitsu.vdmj.runtime.Interpreter;
+
+/**
+ * Check that running a trace on worker processes gives the same results as
+ * running it in this process.
+ */
+public class TraceWorkerTest extends VDMJUnitTestSL
+{
+	@BeforeClass
+	public static void start() throws Exception
+	{
+		setRelease(Release.VDM_10);
+		readSpecification("traceworker.vdm");
+	}
+	
+	@Before
+	public void setUp()
+	{
+		init();
+	}
+	
+	@Test
+	public void workers() throws Exception
+	{
+		List<String> sequential = trace(1);
+		List<String> parallel = trace(3);
+
+		assertEquals(sequential, parallel);
+		assertTrue(sequential.contains("Test 3 = op(5); op(1)"));
+		assertTrue(sequential.contains("Test 6 FILTERED by test 3"));
+	}
+	
+	@Test
+	public void moreWorkersThanTests() throws Exception
+	{
+		assertEquals(trace(1), trace(20));
+	}
+	
+	@Test
+	public void batches() throws Exception
+	{
+		// Three tests per batch, so test 6 is filtered by test 3 before it is dispatched
+		assertEquals(trace(1), trace(3, 1));
+	}
+	
+	private List<String> trace(int workers) throws Exception
+	{
+		return trace(workers, Properties.traces_worker_batch);
+	}
+	
+	private List<String> trace(int workers, int batch) throws Exception
+	{
+		int saved = Properties.traces_workers;
+		int savedBatch = Properties.traces_worker_batch;
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+		try
+		{
+			Properties.traces_workers = workers;
+			Properties.traces_worker_batch = batch;
+			Interpreter.setTraceOutput(new ConsolePrintWriter(out));
+			assertFalse(runTrace("T1"));
+		}
+		finally
+		{
+			Properties.traces_workers = saved;
+			Properties.traces_worker_batch = savedBatch;
+			Interpreter.setTraceOutput(null);
+		}
+
+		List<String> lines = new Vector<String>();
+
+		for (String line: out.toString().split("\\r?\\n"))
+		{
+			if (!line.startsWith("Executed in"))
+			{
+				lines.add(line.replaceAll(" in [0-9.]+ secs\\. $", ""));	// Generation time
+			}
+		}
+
+		return lines;
+	}
+}